@@ -0,0 +1,100 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.AutoExecutor;
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.util.BatchUpdateHandlerAdapter;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code SQLExecutor.batchWrite(..)} writing 1000 rows per operation, split up into batches of different
+ * sizes, either by the caller or by the chunked {@code batchWrite(..)}. The table is emptied before every iteration.
+ * @author Martin Berglund
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BatchWriteBenchmark {
+
+    private static final int ROWS_PER_OPERATION = 1000;
+    private static final String INSERT = "INSERT INTO \"Event\" (\"type\", \"amount\", \"description\") VALUES(?, ?, ?)";
+
+    @Param({"1", "10", "100", "1000"})
+    public int batchSize;
+
+    private DatabaseConnection databaseConnection;
+    private AutoExecutor executor;
+    private List<List<Object[]>> batches;
+    private List<Object[]> allRows;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseConnection = BenchmarkDatabase.connect("batchwrite");
+        executor = databaseConnection.createAutoExecutor();
+        executor.execute("CREATE TABLE \"Event\" (\"id\" BIGINT AUTO_INCREMENT PRIMARY KEY, \"type\" INT, \"amount\" DOUBLE, \"description\" VARCHAR)");
+        batches = new ArrayList<>();
+        allRows = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        for(int i = 0; i < ROWS_PER_OPERATION; i++) {
+            Object[] row = new Object[] { i % 10, i * 1.5, "Event number " + i };
+            allRows.add(row);
+            batch.add(row);
+            if(batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if(!batch.isEmpty()) {
+            batches.add(batch);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() throws SQLException {
+        executor.execute("TRUNCATE TABLE \"Event\"");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        executor.execute("DROP TABLE \"Event\"");
+        databaseConnection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_OPERATION)
+    public void batchWrite() throws SQLException {
+        for(List<Object[]> batch: batches) {
+            executor.batchWrite(INSERT, batch);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_OPERATION)
+    public void chunkedBatchWrite() throws SQLException {
+        executor.batchWrite(new BatchUpdateHandlerAdapter(), INSERT, allRows.iterator(), batchSize, false);
+    }
+}
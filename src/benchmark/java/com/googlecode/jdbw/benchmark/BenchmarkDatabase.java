@@ -0,0 +1,71 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.SQLExecutor;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Shared set-up code for the benchmarks, creating and populating tables in an embedded in-memory H2 database
+ * @author Martin Berglund
+ */
+public class BenchmarkDatabase {
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Connects to a new in-memory H2 database with the given name
+     * @param name Name of the in-memory database
+     * @return Connection to the database
+     */
+    public static DatabaseConnection connect(String name) {
+        return new H2InMemoryServer(name).connect();
+    }
+
+    /**
+     * Creates the "Customer" table, matching the {@code Customer} storable, and inserts {@code rows} customers with
+     * ids from 1 to {@code rows}
+     * @param executor Executor to create the table with
+     * @param rows How many customers to insert
+     * @throws SQLException If there was an error creating or populating the table
+     */
+    public static void createCustomerTable(SQLExecutor executor, int rows) throws SQLException {
+        executor.execute("CREATE TABLE \"Customer\" (\"id\" INT PRIMARY KEY, \"name\" VARCHAR, \"age\" INT, \"signedUp\" TIMESTAMP)");
+        List<Object[]> batch = new ArrayList<>();
+        for(int i = 1; i <= rows; i++) {
+            batch.add(new Object[] { i, "Customer " + i, 20 + i % 60, new Date(1300000000000L + i * 60000L) });
+            if(batch.size() == INSERT_BATCH_SIZE) {
+                executor.batchWrite("INSERT INTO \"Customer\" VALUES(?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if(!batch.isEmpty()) {
+            executor.batchWrite("INSERT INTO \"Customer\" VALUES(?, ?, ?, ?)", batch);
+        }
+    }
+}
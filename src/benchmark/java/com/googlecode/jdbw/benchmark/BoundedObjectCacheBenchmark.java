@@ -0,0 +1,84 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.objectstorage.FieldMapping;
+import com.googlecode.jdbw.objectstorage.ObjectCache;
+import com.googlecode.jdbw.objectstorage.impl.BoundedObjectCache;
+import com.googlecode.jdbw.objectstorage.impl.ConcurrentHashMapObjectCache;
+import com.googlecode.jdbw.objectstorage.impl.DefaultFieldMapping;
+import com.googlecode.jdbw.objectstorage.impl.ImmutableObjectFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures object cache lookups from all available cores at once, which is what {@code CachedRemoteObjectStorage} does
+ * when many threads read through it. Compares {@code BoundedObjectCache} with the unbounded
+ * {@code ConcurrentHashMapObjectCache}. Run with {@code -t 1} as well to see how each of them scales:
+ *     mvn -P benchmarks test-compile exec:exec -Djmh.args="BoundedObjectCacheBenchmark -f 1 -t 1"
+ * @author Martin Berglund
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+public class BoundedObjectCacheBenchmark {
+
+    private static final int OBJECTS = 10000;
+
+    @Param({"concurrentHashMap", "bounded", "boundedFrequencyAdmission"})
+    private String cache;
+
+    private ObjectCache<Integer, Customer> objectCache;
+
+    @Setup
+    public void setUp() {
+        if("concurrentHashMap".equals(cache)) {
+            objectCache = new ConcurrentHashMapObjectCache.Factory<Integer, Customer>().createObjectCache();
+        }
+        else {
+            objectCache = new BoundedObjectCache.Factory<Integer, Customer>()
+                    .setMaximumSize(OBJECTS)
+                    .setFrequencyAdmission("boundedFrequencyAdmission".equals(cache))
+                    .createObjectCache();
+        }
+        FieldMapping fieldMapping = new DefaultFieldMapping(Customer.class);
+        ImmutableObjectFactory objectFactory = new ImmutableObjectFactory();
+        for(int i = 0; i < OBJECTS; i++) {
+            objectCache.put(objectFactory.newObject(Customer.class, fieldMapping, i, 42, "Customer " + i,
+                    new Date(1300000000000L)));
+        }
+    }
+
+    @Benchmark
+    public Customer get() {
+        return objectCache.get(ThreadLocalRandom.current().nextInt(OBJECTS));
+    }
+
+    @Benchmark
+    public Customer getMostlyMissing() {
+        return objectCache.get(ThreadLocalRandom.current().nextInt(OBJECTS * 10));
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.objectstorage.ObjectBuilder;
+import com.googlecode.jdbw.objectstorage.Storable;
+
+import java.util.Date;
+
+/**
+ * Storable type used by the object storage benchmarks, stored in the "Customer" table created by
+ * {@code BenchmarkDatabase.createCustomerTable(..)}
+ * @author Martin Berglund
+ */
+public interface Customer extends Storable<Integer> {
+    String getName();
+    int getAge();
+    Date getSignedUp();
+
+    interface Builder extends ObjectBuilder<Customer>, Customer {
+        Customer.Builder setName(String name);
+        Customer.Builder setAge(int age);
+        Customer.Builder setSignedUp(Date signedUp);
+    }
+}
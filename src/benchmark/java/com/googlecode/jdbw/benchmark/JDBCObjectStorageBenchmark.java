@@ -0,0 +1,118 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.objectstorage.ObjectBuilderFactory;
+import com.googlecode.jdbw.objectstorage.impl.JDBCObjectStorage;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code JDBCObjectStorage} reading and writing {@code Customer} objects against H2. {@code putAllNew} inserts
+ * objects that don't exist yet while {@code putAllExisting} updates objects that are already stored. Writes are
+ * measured both with and without {@code JDBCObjectStorage.setUpsert(true)}.
+ * @author Martin Berglund
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JDBCObjectStorageBenchmark {
+
+    private static final int STORED_CUSTOMERS = 10000;
+
+    @Param({"1", "100"})
+    public int objectsPerOperation;
+
+    @Param({"false", "true"})
+    public boolean upsert;
+
+    private DatabaseConnection databaseConnection;
+    private JDBCObjectStorage objectStorage;
+    private ObjectBuilderFactory builderFactory;
+    private List<Customer> existingCustomers;
+    private List<List<Integer>> idLists;
+    private Random random;
+    private int nextNewId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseConnection = BenchmarkDatabase.connect("objectstorage");
+        BenchmarkDatabase.createCustomerTable(databaseConnection.createAutoExecutor(), STORED_CUSTOMERS);
+        objectStorage = new JDBCObjectStorage(databaseConnection);
+        objectStorage.register(Customer.class);
+        objectStorage.setUpsert(upsert);
+        builderFactory = objectStorage.getBuilderFactory();
+        existingCustomers = new ArrayList<>();
+        for(int i = 1; i <= objectsPerOperation; i++) {
+            existingCustomers.add(newCustomer(i));
+        }
+        random = new Random(4711);
+        idLists = new ArrayList<>();
+        for(int i = 0; i < 1024; i++) {
+            List<Integer> ids = new ArrayList<>();
+            for(int j = 0; j < objectsPerOperation; j++) {
+                ids.add(1 + random.nextInt(STORED_CUSTOMERS));
+            }
+            idLists.add(ids);
+        }
+        nextNewId = STORED_CUSTOMERS + 1;
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        databaseConnection.createAutoExecutor().execute("DROP TABLE \"Customer\"");
+        databaseConnection.close();
+    }
+
+    @Benchmark
+    public List<Customer> getSome() {
+        return objectStorage.getSome(Customer.class, idLists.get(random.nextInt(idLists.size())));
+    }
+
+    @Benchmark
+    public List<Customer> putAllExisting() {
+        return objectStorage.putAll(existingCustomers);
+    }
+
+    @Benchmark
+    public List<Customer> putAllNew() {
+        List<Customer> customers = new ArrayList<>(objectsPerOperation);
+        for(int i = 0; i < objectsPerOperation; i++) {
+            customers.add(newCustomer(nextNewId++));
+        }
+        return objectStorage.putAll(customers);
+    }
+
+    private Customer newCustomer(int id) {
+        return builderFactory.newObject(Customer.Builder.class, id)
+                .setName("Customer " + id)
+                .setAge(20 + id % 60)
+                .setSignedUp(new Date(1300000000000L + id * 60000L))
+                .build();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.metadata.DefaultServerMetaData;
+import com.googlecode.jdbw.metadata.Schema;
+import com.googlecode.jdbw.metadata.SchemaSnapshot;
+import com.googlecode.jdbw.metadata.ServerMetaData;
+import com.googlecode.jdbw.metadata.Table;
+import com.googlecode.jdbw.server.h2.H2NetworkServer;
+import com.googlecode.jdbw.util.SQLWorker;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the structure of a schema with a few thousand tables, either table by table through
+ * {@code getTables()}, {@code getColumns()} and {@code getIndexes()} or all at once through {@code snapshot()}. Each
+ * is run with the generic {@code DefaultServerMetaData} and with H2's own meta data resolver, which reads the indexes
+ * of the whole schema from {@code INFORMATION_SCHEMA} when taking a snapshot. Since H2 normally runs embedded, where a
+ * {@code DatabaseMetaData} call doesn't cost a round trip, the benchmark can also run against H2 over TCP to show what
+ * the number of calls means for a database on the other side of a network connection.
+ * @author Martin Berglund
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MetaDataBenchmark {
+
+    @Param({"500", "2000"})
+    public int tables;
+
+    @Param({"default", "native"})
+    public String resolver;
+
+    @Param({"embedded", "tcp"})
+    public String server;
+
+    private Server tcpServer;
+    private DatabaseConnection databaseConnection;
+    private Schema schema;
+
+    @Setup
+    public void setUp() throws SQLException {
+        if("tcp".equals(server)) {
+            tcpServer = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+            databaseConnection = new H2NetworkServer("localhost", tcpServer.getPort(), "mem:metadata").connect();
+        }
+        else {
+            databaseConnection = BenchmarkDatabase.connect("metadata");
+        }
+        SQLWorker worker = new SQLWorker(databaseConnection.createAutoExecutor());
+        for(int i = 0; i < tables; i++) {
+            worker.write("CREATE TABLE \"Table" + i + "\" (" +
+                    "\"id\" INT PRIMARY KEY, " +
+                    "\"name\" VARCHAR(100) NOT NULL, " +
+                    "\"amount\" DECIMAL(12, 2), " +
+                    "\"created\" TIMESTAMP, " +
+                    "\"active\" BOOLEAN)");
+            worker.write("CREATE INDEX \"Table" + i + "_name\" ON \"Table" + i + "\" (\"name\", \"created\")");
+        }
+        ServerMetaData metaData;
+        if("native".equals(resolver)) {
+            metaData = databaseConnection.getServerType().createMetaDataResolver(databaseConnection.getDataSource());
+        }
+        else {
+            metaData = new DefaultServerMetaData(databaseConnection.getDataSource());
+        }
+        schema = metaData.getCatalogs().get(0).getSchema("PUBLIC");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        SQLWorker worker = new SQLWorker(databaseConnection.createAutoExecutor());
+        for(int i = 0; i < tables; i++) {
+            worker.write("DROP TABLE \"Table" + i + "\"");
+        }
+        databaseConnection.close();
+        if(tcpServer != null) {
+            tcpServer.stop();
+        }
+    }
+
+    @Benchmark
+    public void crawl(Blackhole blackhole) throws SQLException {
+        for(Table table: schema.getTables()) {
+            blackhole.consume(table.getColumns());
+            blackhole.consume(table.getIndexes());
+        }
+    }
+
+    @Benchmark
+    public SchemaSnapshot snapshot() throws SQLException {
+        return schema.snapshot();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.objectstorage.FieldMapping;
+import com.googlecode.jdbw.objectstorage.ObjectFactory;
+import com.googlecode.jdbw.objectstorage.impl.DefaultFieldMapping;
+import com.googlecode.jdbw.objectstorage.impl.GeneratedObjectFactory;
+import com.googlecode.jdbw.objectstorage.impl.ImmutableObjectFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of creating objects through an {@code ObjectFactory} and reading their fields, which is what
+ * {@code JDBCObjectStorage} does for every row it loads. Compares the proxy objects of {@code ImmutableObjectFactory}
+ * with the generated classes of {@code GeneratedObjectFactory}.
+ * @author Martin Berglund
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ObjectFactoryBenchmark {
+
+    @Param({"proxy", "generated"})
+    private String factory;
+
+    private ObjectFactory objectFactory;
+    private FieldMapping fieldMapping;
+    private Object[] idAndValues;
+    private Customer customer;
+
+    @Setup
+    public void setUp() {
+        fieldMapping = new DefaultFieldMapping(Customer.class);
+        if("generated".equals(factory)) {
+            GeneratedObjectFactory generatedObjectFactory = new GeneratedObjectFactory();
+            generatedObjectFactory.prepare(Customer.class, fieldMapping);
+            objectFactory = generatedObjectFactory;
+        }
+        else {
+            objectFactory = new ImmutableObjectFactory();
+        }
+        //Values are in field name order: age, name, signedUp
+        idAndValues = new Object[] { 1, 42, "Customer 1", new Date(1300000000000L) };
+        customer = objectFactory.newObject(Customer.class, fieldMapping, idAndValues);
+    }
+
+    @Benchmark
+    public Customer newObject() {
+        return objectFactory.newObject(Customer.class, fieldMapping, idAndValues);
+    }
+
+    @Benchmark
+    public void readFields(Blackhole blackhole) {
+        blackhole.consume(customer.getId());
+        blackhole.consume(customer.getName());
+        blackhole.consume(customer.getAge());
+        blackhole.consume(customer.getSignedUp());
+    }
+
+    @Benchmark
+    public void newObjectAndReadFields(Blackhole blackhole) {
+        Customer newCustomer = objectFactory.newObject(Customer.class, fieldMapping, idAndValues);
+        blackhole.consume(newCustomer.getName());
+        blackhole.consume(newCustomer.getAge());
+    }
+}
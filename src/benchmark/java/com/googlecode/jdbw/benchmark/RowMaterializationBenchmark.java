@@ -0,0 +1,103 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.RowView;
+import com.googlecode.jdbw.SQLExecutor;
+import com.googlecode.jdbw.util.ExecuteResultHandlerAdapter;
+import com.googlecode.jdbw.util.RowViewResultHandlerAdapter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a numeric result set through {@code ExecuteResultHandler.nextRow(Object...)} against reading the
+ * same data through a {@code RowViewResultHandler}. Run with {@code -prof gc} to see the allocation difference.
+ * @author Martin Berglund
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RowMaterializationBenchmark {
+
+    private static final String SELECT_ALL = "SELECT \"id\", \"quantity\", \"price\", \"label\" FROM \"Report\"";
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private DatabaseConnection databaseConnection;
+    private SQLExecutor executor;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseConnection = BenchmarkDatabase.connect("rowmaterialization");
+        executor = databaseConnection.createAutoExecutor();
+        executor.execute("CREATE TABLE \"Report\" (\"id\" INT PRIMARY KEY, \"quantity\" BIGINT, \"price\" DOUBLE, \"label\" VARCHAR)");
+        List<Object[]> batch = new ArrayList<>();
+        for(int i = 0; i < rows; i++) {
+            batch.add(new Object[] { i, (long)i * 7, i * 0.25, "row " + i });
+            if(batch.size() == 1000) {
+                executor.batchWrite("INSERT INTO \"Report\" VALUES(?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        if(!batch.isEmpty()) {
+            executor.batchWrite("INSERT INTO \"Report\" VALUES(?, ?, ?, ?)", batch);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        executor.execute("DROP TABLE \"Report\"");
+        databaseConnection.close();
+    }
+
+    @Benchmark
+    public void objectArrayRows(final Blackhole blackhole) throws SQLException {
+        executor.execute(new ExecuteResultHandlerAdapter() {
+            @Override
+            public boolean nextRow(Object... row) {
+                blackhole.consume(((Number)row[0]).intValue());
+                blackhole.consume(((Number)row[1]).longValue());
+                blackhole.consume(((Number)row[2]).doubleValue());
+                return true;
+            }
+        }, SELECT_ALL);
+    }
+
+    @Benchmark
+    public void rowViewRows(final Blackhole blackhole) throws SQLException {
+        executor.execute(new RowViewResultHandlerAdapter() {
+            @Override
+            public boolean nextRow(RowView row) throws SQLException {
+                blackhole.consume(row.getInt(0));
+                blackhole.consume(row.getLong(1));
+                blackhole.consume(row.getDouble(2));
+                return true;
+            }
+        }, SELECT_ALL);
+    }
+}
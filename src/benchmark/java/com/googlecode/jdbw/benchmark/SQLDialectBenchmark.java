@@ -0,0 +1,111 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.server.DefaultSQLDialect;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code DefaultSQLDialect.formatValue(..)} called from all available cores at once, which is what happens
+ * when many threads build literal SQL at the same time. The {@code legacy} dialect formats dates through one shared,
+ * synchronized {@code SimpleDateFormat} the way the dialects used to, so the two can be compared. Run with
+ * {@code -t 1} as well to see how each of them scales:
+ *     mvn -P benchmarks test-compile exec:exec -Djmh.args="SQLDialectBenchmark -f 1 -t 1"
+ * @author Martin Berglund
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+public class SQLDialectBenchmark {
+
+    @Param({"legacy", "dialect"})
+    private String formatter;
+
+    private DefaultSQLDialect dialect;
+
+    @State(Scope.Thread)
+    public static class Row {
+        private final Date timestamp = new Date(1300000000000L + (long)(Math.random() * 100000000000L));
+        private final Object[] values = { 42, "Customer's name", new BigDecimal("1234.50"), timestamp };
+        private final int[] types = { Types.INTEGER, Types.VARCHAR, Types.DECIMAL, Types.TIMESTAMP };
+        private final StringBuilder sb = new StringBuilder(128);
+    }
+
+    @Setup
+    public void setUp() {
+        if("legacy".equals(formatter)) {
+            dialect = new LegacyDialect();
+        }
+        else {
+            dialect = new DefaultSQLDialect();
+        }
+    }
+
+    @Benchmark
+    public String formatTimestamp(Row row) {
+        return dialect.formatValue(row.timestamp, Types.TIMESTAMP);
+    }
+
+    @Benchmark
+    public String formatRow(Row row) {
+        StringBuilder sb = new StringBuilder(64);
+        for(int i = 0; i < row.values.length; i++) {
+            sb.append(dialect.formatValue(row.values[i], row.types[i])).append(", ");
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public int appendRow(Row row) {
+        StringBuilder sb = row.sb;
+        sb.setLength(0);
+        for(int i = 0; i < row.values.length; i++) {
+            dialect.appendValue(sb, row.values[i], row.types[i]);
+            sb.append(", ");
+        }
+        return sb.length();
+    }
+
+    private static class LegacyDialect extends DefaultSQLDialect {
+        private static final DateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+        @Override
+        protected void appendDateTime(StringBuilder sb, Date date) {
+            synchronized(timestampFormat) {
+                sb.append(timestampFormat.format(date));
+            }
+        }
+
+        @Override
+        public String escapeString(String string) {
+            return string.replaceAll("'", "''");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.benchmark;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.util.DataSet;
+import com.googlecode.jdbw.util.SQLWorker;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the materializing helpers of {@code SQLWorker}, reading the whole "Customer" table into memory
+ * @author Martin Berglund
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SQLWorkerBenchmark {
+
+    private static final String SELECT_ALL = "SELECT \"id\", \"name\", \"age\", \"signedUp\" FROM \"Customer\"";
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private DatabaseConnection databaseConnection;
+    private SQLWorker worker;
+
+    @Setup
+    public void setUp() throws SQLException {
+        databaseConnection = BenchmarkDatabase.connect("sqlworker");
+        BenchmarkDatabase.createCustomerTable(databaseConnection.createAutoExecutor(), rows);
+        worker = new SQLWorker(databaseConnection.createAutoExecutor());
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        worker.write("DROP TABLE \"Customer\"");
+        databaseConnection.close();
+    }
+
+    @Benchmark
+    public List<Object[]> query() throws SQLException {
+        return worker.query(SELECT_ALL);
+    }
+
+    @Benchmark
+    public DataSet<String> dataSetOfStrings() throws SQLException {
+        return worker.dataSetOfStrings(SELECT_ALL);
+    }
+
+    @Benchmark
+    public List<Object> leftColumn() throws SQLException {
+        return worker.leftColumn(SELECT_ALL);
+    }
+}
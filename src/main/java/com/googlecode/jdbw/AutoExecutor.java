@@ -20,8 +20,12 @@ package com.googlecode.jdbw;
 
 import com.googlecode.jdbw.util.BatchUpdateHandlerAdapter;
 import com.googlecode.jdbw.util.ExecuteResultHandlerAdapter;
+import com.googlecode.jdbw.util.FixedIntervalRetryPolicy;
+import com.googlecode.jdbw.util.GuardedExecutionListener;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import javax.sql.DataSource;
@@ -32,17 +36,19 @@ import javax.sql.DataSource;
  * it's classified as a connection error there is logic to automatically allocate a new connection and retry. You can 
  * customize how long to wait between retries, how many time to retry and what transaction isolation to use when 
  * executing the query. All queries are executed in auto-commit mode.
+ * <p>
+ * For anything beyond a fixed retry interval, pass in a {@code RetryPolicy}, for example an
+ * {@code ExponentialBackoffRetryPolicy} wrapped in a {@code CircuitBreakerRetryPolicy} shared by all auto executors.
  *
  * @author Martin Berglund
  */
-public class AutoExecutor implements SQLExecutor {
+public class AutoExecutor implements CursorSQLExecutor, ChunkedBatchSQLExecutor, ObservableSQLExecutor {
 
     private final DataSource dataSource;
     private final DatabaseServerType serverType;
     private final TransactionIsolation transactionIsolation;
-    private final int connectionErrorRetryInterval;
-    private final TimeUnit connectionErrorRetryIntervalTimeUnit;
-    private final int connectionErrorNrOfRetries;
+    private final RetryPolicy retryPolicy;
+    private volatile ExecutionListener executionListener;
 
     /**
      * Creates a new AutoExecutor using READ_UNCOMMITTED isolation with an unlimited connection error retry limit and a 
@@ -93,16 +99,43 @@ public class AutoExecutor implements SQLExecutor {
             int connectionErrorRetryInterval, 
             TimeUnit connectionErrorRetryIntervalTimeUnit, 
             int connectionErrorNrOfRetries) {
+        this(dataSource, 
+                serverType, 
+                transactionIsolation, 
+                new FixedIntervalRetryPolicy(connectionErrorRetryInterval, connectionErrorRetryIntervalTimeUnit, connectionErrorNrOfRetries));
+    }
+
+    /**
+     * Creates a new AutoExecutor with a specified isolation, which will retry connection errors as decided by a retry
+     * policy. The same policy object can be shared by several auto executors, which is needed for policies keeping
+     * state across operations, such as the {@code CircuitBreakerRetryPolicy}.
+     * @param dataSource DataSource to draw connections from
+     * @param serverType Server type of the connections
+     * @param transactionIsolation Transaction isolation level to use when running each statement
+     * @param retryPolicy Policy deciding if and when to retry a query on connection error
+     */
+    public AutoExecutor(DataSource dataSource, 
+            DatabaseServerType serverType, 
+            TransactionIsolation transactionIsolation,
+            RetryPolicy retryPolicy) {
         
         this.dataSource = dataSource;
         this.serverType = serverType;
         this.transactionIsolation = transactionIsolation;
-        this.connectionErrorRetryInterval = connectionErrorRetryInterval;
-        this.connectionErrorRetryIntervalTimeUnit = connectionErrorRetryIntervalTimeUnit;
-        this.connectionErrorNrOfRetries = connectionErrorNrOfRetries;
+        this.retryPolicy = retryPolicy;
+        this.executionListener = null;
         
-        assert this.connectionErrorNrOfRetries >= -1;
-        assert this.connectionErrorRetryIntervalTimeUnit != null;
+        assert this.retryPolicy != null;
+    }
+
+    /**
+     * Sets a listener that will be told about connections drawn from the data source, retries and the timing of every
+     * statement executed through this auto executor
+     * @param executionListener Listener to report to, or {@code null} to stop reporting
+     */
+    @Override
+    public void setExecutionListener(ExecutionListener executionListener) {
+        this.executionListener = GuardedExecutionListener.guard(executionListener);
     }
 
     @Override
@@ -117,29 +150,31 @@ public class AutoExecutor implements SQLExecutor {
 
     @Override
     public void execute(ExecuteResultHandler handler, int maxRowsToFetch, int queryTimeoutInSeconds, String SQL, Object... parameters) throws SQLException {
-        Connection connection = null;
+        RetryPolicy.Execution retry = retryPolicy.start();
         int attempt = 0;
-        while(connectionErrorNrOfRetries == -1 || connectionErrorNrOfRetries > attempt) {
+        while(true) {
+            Connection connection = null;
+            long delay;
             try {
+                retry.beforeAttempt();
                 connection = getNewConnection();
                 SQLExecutor executor = createSQLExecutor(connection);
                 executor.execute(handler, maxRowsToFetch, queryTimeoutInSeconds, SQL, parameters);
+                retry.onSuccess();
                 return;
             }
             catch(SQLException e) {
-                if(serverType.isConnectionError(e)) {
-                    sleep(connectionErrorRetryIntervalTimeUnit.toMillis(connectionErrorRetryInterval));
-                    attempt++;
-                }
-                else {
+                if(!serverType.isConnectionError(e)) {
                     throw e;  //Syntax error?
                 }
+                delay = nextRetryDelay(retry, SQL, ++attempt, e);
             }
             finally {
                 if(connection != null) {
                     connection.close();
                 }
             }
+            sleep(delay);
         }
     }
 
@@ -150,29 +185,69 @@ public class AutoExecutor implements SQLExecutor {
     
     @Override
     public void batchWrite(BatchUpdateHandler handler, String SQL, List<Object[]> parameters) throws SQLException {
-        Connection connection = null;
+        RetryPolicy.Execution retry = retryPolicy.start();
         int attempt = 0;
-        while(connectionErrorNrOfRetries == -1 || connectionErrorNrOfRetries > attempt) {
+        while(true) {
+            Connection connection = null;
+            long delay;
             try {
+                retry.beforeAttempt();
                 connection = getNewConnection();
                 SQLExecutor executor = createSQLExecutor(connection);
                 executor.batchWrite(handler, SQL, parameters);
+                retry.onSuccess();
                 return;
             }
             catch(SQLException e) {
-                if(serverType.isConnectionError(e)) {
-                    sleep(connectionErrorRetryIntervalTimeUnit.toMillis(connectionErrorRetryInterval));
-                    attempt++;
-                }
-                else {
+                if(!serverType.isConnectionError(e)) {
                     throw e;  //Syntax error?
                 }
+                delay = nextRetryDelay(retry, SQL, ++attempt, e);
+            }
+            finally {
+                if(connection != null) {
+                    connection.close();
+                }
+            }
+            sleep(delay);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Since the auto executor runs in auto-commit mode, every row is committed as soon as its chunk has been written,
+     * regardless of {@code commitAfterEachChunk}. A connection error is only retried if it happens before any rows have
+     * been read from the iterator, since the rows already consumed can't be replayed.
+     */
+    @Override
+    public void batchWrite(BatchUpdateHandler handler, String SQL, Iterator<Object[]> parameters, int chunkSize, boolean commitAfterEachChunk) throws SQLException {
+        ConsumptionTrackingIterator<Object[]> trackingIterator = new ConsumptionTrackingIterator<>(parameters);
+        RetryPolicy.Execution retry = retryPolicy.start();
+        int attempt = 0;
+        while(true) {
+            Connection connection = null;
+            long delay;
+            try {
+                retry.beforeAttempt();
+                connection = getNewConnection();
+                ChunkedBatchSQLExecutor executor = asChunkedBatchSQLExecutor(createSQLExecutor(connection));
+                executor.batchWrite(handler, SQL, trackingIterator, chunkSize, commitAfterEachChunk);
+                retry.onSuccess();
+                return;
+            }
+            catch(SQLException e) {
+                if(!serverType.isConnectionError(e) || trackingIterator.isConsumed()) {
+                    throw e;
+                }
+                delay = nextRetryDelay(retry, SQL, ++attempt, e);
             }
             finally {
                 if(connection != null) {
                     connection.close();
                 }
             }
+            sleep(delay);
         }
     }
 
@@ -183,44 +258,131 @@ public class AutoExecutor implements SQLExecutor {
     
     @Override
     public void batchWrite(BatchUpdateHandler handler, List<String> batchedSQL) throws SQLException {
-        Connection connection = null;
+        RetryPolicy.Execution retry = retryPolicy.start();
         int attempt = 0;
-        while(connectionErrorNrOfRetries == -1 || connectionErrorNrOfRetries > attempt) {
+        while(true) {
+            Connection connection = null;
+            long delay;
             try {
+                retry.beforeAttempt();
                 connection = getNewConnection();
                 SQLExecutor executor = createSQLExecutor(connection);
                 executor.batchWrite(handler, batchedSQL);
+                retry.onSuccess();
                 return;
             }
             catch(SQLException e) {
-                if(serverType.isConnectionError(e)) {
-                    sleep(connectionErrorRetryIntervalTimeUnit.toMillis(connectionErrorRetryInterval));
-                    attempt++;
+                if(!serverType.isConnectionError(e)) {
+                    throw e;
                 }
-                else {
+                delay = nextRetryDelay(retry, batchedSQL.isEmpty() ? "" : batchedSQL.get(0), ++attempt, e);
+            }
+            finally {
+                if(connection != null) {
+                    connection.close();
+                }
+            }
+            sleep(delay);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The connection used by the query is held by the cursor until it's closed, so make sure to close it promptly.
+     * Connection errors are only retried while opening the cursor, not while reading rows from it.
+     */
+    @Override
+    public RowCursor openCursor(String SQL, Object... parameters) throws SQLException {
+        return openCursor(0, SQL, parameters);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The connection used by the query is held by the cursor until it's closed, so make sure to close it promptly.
+     * Connection errors are only retried while opening the cursor, not while reading rows from it.
+     */
+    @Override
+    public RowCursor openCursor(int fetchSize, String SQL, Object... parameters) throws SQLException {
+        RetryPolicy.Execution retry = retryPolicy.start();
+        int attempt = 0;
+        while(true) {
+            Connection connection = null;
+            long delay;
+            try {
+                retry.beforeAttempt();
+                connection = getNewConnection();
+                CursorSQLExecutor executor = asCursorSQLExecutor(createSQLExecutor(connection));
+                RowCursor cursor = new ConnectionOwningRowCursor(executor.openCursor(fetchSize, SQL, parameters), connection);
+                connection = null;
+                retry.onSuccess();
+                return cursor;
+            }
+            catch(SQLException e) {
+                if(!serverType.isConnectionError(e)) {
                     throw e;
                 }
+                delay = nextRetryDelay(retry, SQL, ++attempt, e);
             }
             finally {
                 if(connection != null) {
                     connection.close();
                 }
             }
+            sleep(delay);
         }
     }
 
     private SQLExecutor createSQLExecutor(Connection connection) {
-        return serverType.createExecutor(connection);
+        SQLExecutor executor = serverType.createExecutor(connection);
+        if(executionListener != null && executor instanceof ObservableSQLExecutor) {
+            ((ObservableSQLExecutor)executor).setExecutionListener(executionListener);
+        }
+        return executor;
+    }
+
+    private CursorSQLExecutor asCursorSQLExecutor(SQLExecutor executor) throws SQLException {
+        if(executor instanceof CursorSQLExecutor) {
+            return (CursorSQLExecutor)executor;
+        }
+        throw new SQLFeatureNotSupportedException("The executor created by " + serverType.getClass().getSimpleName() +
+                " doesn't support cursors");
+    }
+
+    private ChunkedBatchSQLExecutor asChunkedBatchSQLExecutor(SQLExecutor executor) throws SQLException {
+        if(executor instanceof ChunkedBatchSQLExecutor) {
+            return (ChunkedBatchSQLExecutor)executor;
+        }
+        throw new SQLFeatureNotSupportedException("The executor created by " + serverType.getClass().getSimpleName() +
+                " doesn't support chunked batch writes");
     }
 
     private Connection getNewConnection() throws SQLException {
+        long startTime = System.nanoTime();
         Connection connection = dataSource.getConnection();
+        ExecutionListener listener = executionListener;
+        if(listener != null) {
+            listener.onConnectionAcquired(System.nanoTime() - startTime);
+        }
         connection.setAutoCommit(true);
         //noinspection MagicConstant
         connection.setTransactionIsolation(transactionIsolation.getConstant());
         return connection;
     }
 
+    private long nextRetryDelay(RetryPolicy.Execution retry, String SQL, int attempt, SQLException e) throws SQLException {
+        long delay = retry.onFailure(e, true);
+        if(delay < 0) {
+            throw e;
+        }
+        ExecutionListener listener = executionListener;
+        if(listener != null) {
+            listener.onRetry(SQL, attempt, e);
+        }
+        return delay;
+    }
+
     private void sleep(long milliseconds) {
         try {
             Thread.sleep(milliseconds);
@@ -228,4 +390,89 @@ public class AutoExecutor implements SQLExecutor {
         catch(InterruptedException e) {
         }
     }
+
+    private static class ConnectionOwningRowCursor implements RowCursor {
+        private final RowCursor cursor;
+        private Connection connection;
+
+        ConnectionOwningRowCursor(RowCursor cursor, Connection connection) {
+            this.cursor = cursor;
+            this.connection = connection;
+        }
+
+        @Override
+        public ResultSetInformation getResultSetInformation() {
+            return cursor.getResultSetInformation();
+        }
+
+        @Override
+        public Object[] nextRow() throws SQLException {
+            return cursor.nextRow();
+        }
+
+        @Override
+        public long getRowsRead() {
+            return cursor.getRowsRead();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public Object[] next() {
+            return cursor.next();
+        }
+
+        @Override
+        public void remove() {
+            cursor.remove();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if(connection == null) {
+                return;
+            }
+            try {
+                cursor.close();
+            }
+            finally {
+                Connection toClose = connection;
+                connection = null;
+                toClose.close();
+            }
+        }
+    }
+
+    private static class ConsumptionTrackingIterator<T> implements Iterator<T> {
+        private final Iterator<T> iterator;
+        private boolean consumed;
+
+        ConsumptionTrackingIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+            this.consumed = false;
+        }
+
+        boolean isConsumed() {
+            return consumed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            consumed = true;
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+    }
 }
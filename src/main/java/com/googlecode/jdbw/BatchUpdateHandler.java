@@ -39,7 +39,8 @@ public interface BatchUpdateHandler {
     public void onWarning(SQLWarning warning);
 
     /**
-     * Callback method for the return codes of the batch
+     * Callback method for the return codes of the batch. When the batch is written in chunks, this is called once for
+     * every chunk with the return codes of that chunk only.
      * @param returnCodes The return codes from the batch query
      */
     public void onBatchResult(int... returnCodes);
@@ -0,0 +1,50 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+
+/**
+ * Optional extension of {@code SQLExecutor} for executors that can stream a batch write to the server in chunks,
+ * reading the parameters lazily from an iterator. {@code AutoExecutor} and the transactions created by the
+ * {@code DatabaseConnection}s in this library implement it; for a transaction you will need to cast the
+ * {@code DatabaseTransaction} returned by {@code beginTransaction(..)} to this interface.
+ * @author Martin Berglund
+ */
+public interface ChunkedBatchSQLExecutor extends SQLExecutor {
+
+    /**
+     * Executes a batch query where the SQL is structurally the same but parameters are different, reading the
+     * parameters lazily from an iterator and sending them to the server in chunks of at most {@code chunkSize} rows.
+     * This keeps memory usage in the driver flat no matter how many rows are written. The handler's
+     * {@code onBatchResult(..)} is called once for every chunk, in order.
+     * <p>
+     * If {@code commitAfterEachChunk} is {@code true} and the connection is not in auto-commit mode, the transaction is
+     * committed after every chunk has been written. If an error occurs, chunks that were already committed will not be
+     * rolled back.
+     * @param handler Callback interface to use for any results of the query
+     * @param SQL SQL to use for all queries, use ? for the parameter substitution
+     * @param parameters Iterator of object arrays, where one array equals one query sent to the server
+     * @param chunkSize Maximum number of rows to send to the server in one batch
+     * @param commitAfterEachChunk If {@code true}, commit the transaction after every chunk
+     * @throws SQLException If an error occurred in the JDBC driver or on the remote database server
+     */
+    void batchWrite(BatchUpdateHandler handler, String SQL, Iterator<Object[]> parameters, int chunkSize, boolean commitAfterEachChunk) throws SQLException;
+}
@@ -0,0 +1,61 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional extension of {@code DatabaseConnection} for connections that can be tuned at runtime.
+ * {@code DatabaseConnectionImpl}, which is what the built-in connection factories return, implements it; you will need
+ * to cast the {@code DatabaseConnection} you got from {@code connect(..)} to this interface.
+ * @author Martin Berglund
+ */
+public interface ConfigurableDatabaseConnection extends DatabaseConnection {
+
+    /**
+     * Sets a listener that will be told about the timing and row counts of every statement sent through this
+     * connection, by auto executors and transactions created after this call
+     * @param executionListener Listener to report to, or {@code null} to stop reporting
+     * @see com.googlecode.jdbw.util.InMemoryExecutionMetrics
+     */
+    void setExecutionListener(ExecutionListener executionListener);
+
+    /**
+     * Sets the policy that auto executors created after this call will use for retrying statements that failed with
+     * a connection error. By default, auto executors retry every 500 milliseconds without limit.
+     * @param retryPolicy Retry policy to use, or {@code null} to go back to the default
+     */
+    void setRetryPolicy(RetryPolicy retryPolicy);
+
+    /**
+     * Turns on caching of the meta data loaded through {@code getCatalogs()}, {@code getCatalog(..)} and
+     * {@code getCurrentCatalog()}, including everything reached from the returned catalogs. Cached meta data is reloaded
+     * once it's older than {@code timeToLive}. Calling this again replaces the cache with a new, empty one.
+     * @param timeToLive How long to keep loaded meta data, 0 turns caching off
+     * @param unit Unit of {@code timeToLive}
+     * @see com.googlecode.jdbw.metadata.CachingServerMetaData
+     */
+    void setMetaDataCaching(long timeToLive, TimeUnit unit);
+
+    /**
+     * Drops all cached meta data, so that it's loaded from the database again the next time it's needed. Does nothing
+     * if meta data caching hasn't been turned on through {@code setMetaDataCaching(..)}.
+     */
+    void clearMetaDataCache();
+}
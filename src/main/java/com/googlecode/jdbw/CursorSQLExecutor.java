@@ -0,0 +1,60 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw;
+
+import java.sql.SQLException;
+
+/**
+ * Optional extension of {@code SQLExecutor} for executors that can return the result of a query as a cursor, reading
+ * the rows lazily instead of pushing them all through a callback. {@code AutoExecutor} and the transactions created by
+ * the {@code DatabaseConnection}s in this library implement it; for a transaction you will need to cast the
+ * {@code DatabaseTransaction} returned by {@code beginTransaction(..)} to this interface.
+ * @see RowCursor
+ * @author Martin Berglund
+ */
+public interface CursorSQLExecutor extends SQLExecutor {
+
+    /**
+     * Sends a query to the database and returns a cursor that reads the rows of the first result set lazily. The
+     * cursor must be closed when you are done with it.
+     * @param SQL SQL code to send to the database server, use ? for parameter substitution
+     * @param parameters List of parameters to insert into the query, must be one for every ? used
+     * @return Cursor reading the result of the query
+     * @throws SQLException If an error occurred in the JDBC driver or on the remote database server
+     * @see RowCursor
+     */
+    RowCursor openCursor(String SQL, Object... parameters) throws SQLException;
+
+    /**
+     * Sends a query to the database and returns a cursor that reads the rows of the first result set lazily, asking
+     * the JDBC driver to fetch {@code fetchSize} rows at a time from the server. The cursor must be closed when you are
+     * done with it.
+     * <p>
+     * <b>Note:</b> How the fetch size is honoured depends on the JDBC driver; PostgreSQL for example will only fetch
+     * rows in chunks when auto-commit is turned off, i.e. inside a {@code DatabaseTransaction}.
+     * @param fetchSize How many rows to ask the driver to fetch from the server at a time, 0 means use the default
+     * @param SQL SQL code to send to the database server, use ? for parameter substitution
+     * @param parameters List of parameters to insert into the query, must be one for every ? used
+     * @return Cursor reading the result of the query
+     * @throws SQLException If an error occurred in the JDBC driver or on the remote database server
+     * @see RowCursor
+     */
+    RowCursor openCursor(int fetchSize, String SQL, Object... parameters) throws SQLException;
+}
@@ -31,6 +31,7 @@ import java.sql.SQLWarning;
  * {@code ExecuteResultHandlerAdapter} instead, which provides a default implementation for all methods and you can
  * then override only the methods that you care about.
  * @see ExecuteResultHandlerAdapter
+ * @see RowViewResultHandler
  * @author Martin Berglund
  */
 public interface ExecuteResultHandler {
@@ -0,0 +1,71 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import com.googlecode.jdbw.util.ExecutionListenerAdapter;
+import com.googlecode.jdbw.util.InMemoryExecutionMetrics;
+import java.sql.SQLException;
+
+/**
+ * This interface is used as an instrumentation hook that is told about every statement sent to the database server,
+ * together with how long the different phases took and how many rows it touched. Register a listener on the
+ * {@code ConfigurableDatabaseConnection} and it will be passed on to every {@code AutoExecutor} and transaction
+ * created from it.
+ * <p>
+ * The callbacks are invoked on the thread running the query, while it still holds the database connection, so
+ * implementations should be quick and thread-safe. Exceptions thrown from a callback are logged and ignored, see
+ * {@code GuardedExecutionListener}.
+ * If you don't need all methods, you can override {@code ExecutionListenerAdapter} instead;
+ * {@code InMemoryExecutionMetrics} is a ready-made implementation collecting latency histograms per statement.
+ * @see ExecutionListenerAdapter
+ * @see InMemoryExecutionMetrics
+ * @author Martin Berglund
+ */
+public interface ExecutionListener {
+
+    /**
+     * Called every time a connection has been drawn from the data source, with how long it took to get it. For a
+     * connection pool, this is the time spent waiting for a free connection.
+     * @param acquireTimeNanos Time spent in {@code DataSource.getConnection()}, in nanoseconds
+     */
+    void onConnectionAcquired(long acquireTimeNanos);
+
+    /**
+     * Called when a statement has finished executing, successfully or not. For chunked batch writes, this is called
+     * once for every chunk and for cursors it's called when the cursor is closed.
+     * @param statistics Timing and row counts of the statement
+     */
+    void onStatementExecuted(ExecutionStatistics statistics);
+
+    /**
+     * Called by the {@code AutoExecutor} when a statement failed with a connection error and its retry policy has
+     * decided to try it again on a new connection.
+     * @param SQL SQL of the statement being retried
+     * @param attempt Number of the attempt that failed, starting at 1
+     * @param cause Connection error that caused the retry
+     */
+    void onRetry(String SQL, int attempt, SQLException cause);
+
+    /**
+     * Called when a transaction has been committed or rolled back
+     * @param committed {@code true} if the transaction was committed, {@code false} if it was rolled back
+     * @param durationNanos Time from the transaction being started until it was completed, in nanoseconds
+     */
+    void onTransactionCompleted(boolean committed, long durationNanos);
+}
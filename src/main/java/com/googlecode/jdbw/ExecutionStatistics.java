@@ -0,0 +1,190 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import com.googlecode.jdbw.util.SQLFingerprint;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing and row counts of one statement sent to the database server, as reported to an {@code ExecutionListener}.
+ * The time is split into three phases; preparing (including binding the parameters), executing and fetching the
+ * result. Objects of this class are immutable.
+ * @see ExecutionListener
+ * @author Martin Berglund
+ */
+public final class ExecutionStatistics {
+
+    /**
+     * The different kinds of operations reported
+     */
+    public enum Operation {
+        /**
+         * A query or update sent through {@code execute(..)}
+         */
+        EXECUTE,
+        /**
+         * A batch (or one chunk of a batch) sent through {@code batchWrite(..)}
+         */
+        BATCH_WRITE,
+        /**
+         * A query read through a {@code RowCursor}
+         */
+        CURSOR,
+    }
+
+    private final Operation operation;
+    private final String SQL;
+    private final long prepareTimeNanos;
+    private final long executeTimeNanos;
+    private final long fetchTimeNanos;
+    private final long rowsFetched;
+    private final long updateCount;
+    private final int batchSize;
+    private final boolean failed;
+    private volatile String fingerprint;
+
+    /**
+     * Creates a new statistics object
+     * @param operation Kind of operation that was executed
+     * @param SQL SQL of the statement
+     * @param prepareTimeNanos Time spent preparing the statement and binding parameters, in nanoseconds
+     * @param executeTimeNanos Time spent executing the statement, in nanoseconds
+     * @param fetchTimeNanos Time spent reading the result, in nanoseconds
+     * @param rowsFetched Number of rows read from the result sets
+     * @param updateCount Sum of all update counts reported, or -1 if there were none
+     * @param batchSize Number of rows in the batch, or 0 if this wasn't a batch write
+     * @param failed {@code true} if the statement failed with an exception
+     */
+    public ExecutionStatistics(
+            Operation operation,
+            String SQL,
+            long prepareTimeNanos,
+            long executeTimeNanos,
+            long fetchTimeNanos,
+            long rowsFetched,
+            long updateCount,
+            int batchSize,
+            boolean failed) {
+        this.operation = operation;
+        this.SQL = SQL;
+        this.prepareTimeNanos = prepareTimeNanos;
+        this.executeTimeNanos = executeTimeNanos;
+        this.fetchTimeNanos = fetchTimeNanos;
+        this.rowsFetched = rowsFetched;
+        this.updateCount = updateCount;
+        this.batchSize = batchSize;
+        this.failed = failed;
+        this.fingerprint = null;
+    }
+
+    /**
+     * @return Kind of operation that was executed
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return SQL of the statement, as it was passed in to the executor
+     */
+    public String getSQL() {
+        return SQL;
+    }
+
+    /**
+     * Returns the SQL of the statement normalized so that statements only differing in literal values and whitespace
+     * will have the same fingerprint. This is computed when first asked for.
+     * @return Fingerprint of the SQL
+     * @see SQLFingerprint
+     */
+    public String getFingerprint() {
+        if(fingerprint == null) {
+            fingerprint = SQLFingerprint.of(SQL);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * @param unit Unit to return the time in
+     * @return Time spent preparing the statement (or taking it from the statement cache) and binding the parameters
+     */
+    public long getPrepareTime(TimeUnit unit) {
+        return unit.convert(prepareTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit Unit to return the time in
+     * @return Time spent waiting for the database server to execute the statement
+     */
+    public long getExecuteTime(TimeUnit unit) {
+        return unit.convert(executeTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit Unit to return the time in
+     * @return Time spent reading rows and update counts, including the time spent in the result handler
+     */
+    public long getFetchTime(TimeUnit unit) {
+        return unit.convert(fetchTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit Unit to return the time in
+     * @return Sum of the prepare, execute and fetch times
+     */
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert(prepareTimeNanos + executeTimeNanos + fetchTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Number of rows read from the result sets of the statement
+     */
+    public long getRowsFetched() {
+        return rowsFetched;
+    }
+
+    /**
+     * @return Sum of all update counts reported by the statement, or -1 if there were none
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * @return Number of rows in the batch, or 0 if this wasn't a batch write
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return {@code true} if the statement failed with an exception
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionStatistics{operation=" + operation + ", SQL=" + SQL +
+                ", prepareTimeNanos=" + prepareTimeNanos + ", executeTimeNanos=" + executeTimeNanos +
+                ", fetchTimeNanos=" + fetchTimeNanos + ", rowsFetched=" + rowsFetched +
+                ", updateCount=" + updateCount + ", batchSize=" + batchSize + ", failed=" + failed + "}";
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+/**
+ * Optional extension of {@code SQLExecutor} for executors that can report the timing and row counts of the statements
+ * they run to an {@code ExecutionListener}. {@code AutoExecutor} and the executors created by the built-in server
+ * types implement it.
+ * @see ExecutionListener
+ * @author Martin Berglund
+ */
+public interface ObservableSQLExecutor extends SQLExecutor {
+
+    /**
+     * Sets a listener that will be told about the timing and row counts of every statement executed through this
+     * executor
+     * @param executionListener Listener to report to, or {@code null} to stop reporting
+     */
+    void setExecutionListener(ExecutionListener executionListener);
+}
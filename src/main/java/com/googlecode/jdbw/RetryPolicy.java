@@ -0,0 +1,72 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import com.googlecode.jdbw.util.CircuitBreakerRetryPolicy;
+import com.googlecode.jdbw.util.ExponentialBackoffRetryPolicy;
+import com.googlecode.jdbw.util.FixedIntervalRetryPolicy;
+import java.sql.SQLException;
+
+/**
+ * A retry policy decides if, and after how long, an operation that failed with an {@code SQLException} should be
+ * tried again. Every operation asks the policy for a new {@code Execution} which keeps track of the attempts of that
+ * particular operation, while anything stored in the policy itself is shared by all operations using it. The same
+ * policy object can be given to several {@code AutoExecutor}s and {@code JDBCObjectStorage}s.
+ * <p>
+ * The caller decides which errors are worth retrying; the {@code AutoExecutor} will only retry errors that
+ * {@code DatabaseServerType.isConnectionError(..)} classifies as connection errors.
+ * @see FixedIntervalRetryPolicy
+ * @see ExponentialBackoffRetryPolicy
+ * @see CircuitBreakerRetryPolicy
+ * @author Martin Berglund
+ */
+public interface RetryPolicy {
+
+    /**
+     * Starts keeping track of a new operation
+     * @return Object to report the attempts of the operation to
+     */
+    Execution start();
+
+    /**
+     * The attempts of one operation. This object is only used by the thread running the operation.
+     */
+    interface Execution {
+        /**
+         * Called before every attempt, including the first one
+         * @throws SQLException If the operation should fail without even trying, for example because the database
+         * server is known to be unreachable
+         */
+        void beforeAttempt() throws SQLException;
+
+        /**
+         * Called when an attempt has succeeded
+         */
+        void onSuccess();
+
+        /**
+         * Called when an attempt has failed with an error that the caller would like to retry
+         * @param error Error that the attempt failed with
+         * @param connectionError {@code true} if the error was classified as a connection error by the server type
+         * @return Number of milliseconds to wait before the next attempt, or a negative value if the operation should
+         * give up and fail with this error
+         */
+        long onFailure(SQLException error, boolean connectionError);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+
+/**
+ * A pull-based alternative to the {@code ExecuteResultHandler} callback. The cursor holds the underlying
+ * {@code ResultSet} (and, for an {@code AutoExecutor}, the connection) open and fetches rows lazily as you step through
+ * it, so that very large results can be consumed in constant memory. Since this object is holding on to database
+ * resources, you must always close it when you are done, which is most easily done with try-with-resources:
+ * <pre>
+ * try(RowCursor cursor = executor.openCursor(1000, "SELECT * FROM orders")) {
+ *     while(cursor.hasNext()) {
+ *         Object[] row = cursor.next();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * You may close the cursor at any time to stop reading rows early. The cursor is not thread-safe.
+ * <p>
+ * The {@code Iterator} methods can't throw {@code SQLException} so any errors while fetching rows will be re-thrown
+ * wrapped inside a {@code RuntimeException}; if you prefer the checked exception, use {@code nextRow()} instead.
+ * @see CursorSQLExecutor#openCursor(int, String, Object...)
+ * @author Martin Berglund
+ */
+public interface RowCursor extends Iterator<Object[]>, AutoCloseable {
+
+    /**
+     * Returns information about the result set this cursor is reading from
+     * @return Information about the result set or {@code null} if the query didn't produce any result set
+     */
+    ResultSetInformation getResultSetInformation();
+
+    /**
+     * Reads the next row from the cursor
+     * @return The next row, one element per column, or {@code null} if there are no more rows
+     * @throws SQLException If an error occurred in the JDBC driver or on the remote database server
+     */
+    Object[] nextRow() throws SQLException;
+
+    /**
+     * Returns how many rows has been read from the cursor so far
+     * @return Number of rows read
+     */
+    long getRowsRead();
+
+    /**
+     * Closes the cursor and releases the result set, statement and (if owned by the cursor) the connection. Calling
+     * this more than once has no effect.
+     * @throws SQLException If an error occurred in the JDBC driver while closing the resources
+     */
+    @Override
+    void close() throws SQLException;
+}
@@ -0,0 +1,124 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+
+/**
+ * A view of the current row of a result set, as passed to a {@code RowViewResultHandler}. Unlike the
+ * {@code Object[]} handed out to {@code ExecuteResultHandler.nextRow(..)}, the view is backed directly by the live
+ * {@code ResultSet} and the same instance is re-used for every row, so reading primitive values through it doesn't
+ * allocate any memory per row or per cell.
+ * <p>
+ * Because of this, the view is only valid for the duration of the {@code nextRow(..)} callback it was passed to; don't
+ * keep a reference to it after returning. If you need to keep the data, copy the values out or call
+ * {@code toArray()}. All column indexes are 0-based, just like in {@code ResultSetInformation}.
+ * @see RowViewResultHandler
+ * @author Martin Berglund
+ */
+public interface RowView {
+
+    /**
+     * Returns how many columns there are in the row
+     * @return Number of columns in the row
+     */
+    int getColumnCount();
+
+    /**
+     * Checks if a column in the current row is {@code NULL}. Depending on the JDBC driver, this can be more expensive
+     * than reading the column with one of the typed getters and then calling {@code wasNull()}.
+     * @param columnIndex Index of the column to check (first column has index 0)
+     * @return {@code true} if the value of the column is {@code NULL}
+     * @throws SQLException If an error occurred in the JDBC driver
+     */
+    boolean isNull(int columnIndex) throws SQLException;
+
+    /**
+     * Reports whether the last column read through this view had a value of {@code NULL}. For the primitive getters,
+     * this is the only way to tell a {@code NULL} apart from 0.
+     * @return {@code true} if the last value read was {@code NULL}
+     * @throws SQLException If an error occurred in the JDBC driver
+     */
+    boolean wasNull() throws SQLException;
+
+    /**
+     * Reads a column in the current row as an int; {@code NULL} is returned as 0
+     * @param columnIndex Index of the column to read (first column has index 0)
+     * @return Value of the column as an int
+     * @throws SQLException If an error occurred in the JDBC driver or the value couldn't be converted
+     */
+    int getInt(int columnIndex) throws SQLException;
+
+    /**
+     * Reads a column in the current row as a long; {@code NULL} is returned as 0
+     * @param columnIndex Index of the column to read (first column has index 0)
+     * @return Value of the column as a long
+     * @throws SQLException If an error occurred in the JDBC driver or the value couldn't be converted
+     */
+    long getLong(int columnIndex) throws SQLException;
+
+    /**
+     * Reads a column in the current row as a double; {@code NULL} is returned as 0
+     * @param columnIndex Index of the column to read (first column has index 0)
+     * @return Value of the column as a double
+     * @throws SQLException If an error occurred in the JDBC driver or the value couldn't be converted
+     */
+    double getDouble(int columnIndex) throws SQLException;
+
+    /**
+     * Reads a column in the current row as a boolean; {@code NULL} is returned as {@code false}
+     * @param columnIndex Index of the column to read (first column has index 0)
+     * @return Value of the column as a boolean
+     * @throws SQLException If an error occurred in the JDBC driver or the value couldn't be converted
+     */
+    boolean getBoolean(int columnIndex) throws SQLException;
+
+    /**
+     * Reads a column in the current row as a String
+     * @param columnIndex Index of the column to read (first column has index 0)
+     * @return Value of the column as a String, or {@code null} if the value was {@code NULL}
+     * @throws SQLException If an error occurred in the JDBC driver
+     */
+    String getString(int columnIndex) throws SQLException;
+
+    /**
+     * Reads a column in the current row as a BigDecimal
+     * @param columnIndex Index of the column to read (first column has index 0)
+     * @return Value of the column as a BigDecimal, or {@code null} if the value was {@code NULL}
+     * @throws SQLException If an error occurred in the JDBC driver or the value couldn't be converted
+     */
+    BigDecimal getBigDecimal(int columnIndex) throws SQLException;
+
+    /**
+     * Reads a column in the current row, as returned by {@code ResultSet.getObject(..)}
+     * @param columnIndex Index of the column to read (first column has index 0)
+     * @return Value of the column, or {@code null} if the value was {@code NULL}
+     * @throws SQLException If an error occurred in the JDBC driver
+     */
+    Object getObject(int columnIndex) throws SQLException;
+
+    /**
+     * Copies all values of the current row into a new array, the same way as the row passed to
+     * {@code ExecuteResultHandler.nextRow(..)} is created
+     * @return New array with all values in the current row
+     * @throws SQLException If an error occurred in the JDBC driver
+     */
+    Object[] toArray() throws SQLException;
+}
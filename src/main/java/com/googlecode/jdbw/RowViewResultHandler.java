@@ -0,0 +1,45 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import com.googlecode.jdbw.util.RowViewResultHandlerAdapter;
+import java.sql.SQLException;
+
+/**
+ * An extension of {@code ExecuteResultHandler} for reading rows without materializing them into an {@code Object[]}.
+ * When a handler implementing this interface is passed to an {@code SQLExecutor}, rows are delivered through
+ * {@code nextRow(RowView)} instead of {@code nextRow(Object...)}, using a single re-usable {@code RowView} backed by the
+ * live {@code ResultSet}. This avoids allocating an array and boxing every numeric value on every row, which matters
+ * for large numeric reports.
+ * <p>
+ * The easiest way to implement this interface is to extend {@code RowViewResultHandlerAdapter}.
+ * @see RowView
+ * @see RowViewResultHandlerAdapter
+ * @author Martin Berglund
+ */
+public interface RowViewResultHandler extends ExecuteResultHandler {
+    /**
+     * The callback is called once for every row returned by a result set. The row belongs to the result set defined by
+     * the last call to onResultSet. The {@code RowView} is only valid until this method returns.
+     * @param row View of the current row in the result set
+     * @return true if you want to read more rows, false if you want to close the result set and skip remaining rows
+     * @throws SQLException If reading a value from the row failed, this will abort the query
+     */
+    boolean nextRow(RowView row) throws SQLException;
+}
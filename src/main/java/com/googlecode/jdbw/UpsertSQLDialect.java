@@ -0,0 +1,46 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw;
+
+import java.util.List;
+
+/**
+ * Optional extension of {@code SQLDialect} for database servers which can insert a row or update it if a row with the
+ * same key already exists, all in one statement (for example {@code MERGE INTO} in H2 or
+ * {@code INSERT ... ON CONFLICT} in PostgreSQL). Code that can make use of this, such as the object storage, will check
+ * if the dialect implements this interface and otherwise fall back to selecting existing keys and doing separate
+ * inserts and updates.
+ * @author Martin Berglund
+ */
+public interface UpsertSQLDialect extends SQLDialect {
+
+    /**
+     * Generates an SQL statement that will insert {@code numberOfRows} rows into a table, updating the rows that
+     * already exist (as determined by the key column) instead of inserting them. The statement takes one parameter per
+     * column for each row, with the key column first followed by the columns in the order given, row by row. The rows
+     * in a single statement must all have different keys.
+     * @param tableName Name of the table to write to, this will be escaped by the dialect
+     * @param keyColumn Name of the primary key column, this will be escaped by the dialect
+     * @param columns Names of the other columns to write, these will be escaped by the dialect
+     * @param numberOfRows How many rows the statement should write, must be at least 1
+     * @return SQL for the upsert statement, or {@code null} if the server can't write this many rows in one statement
+     */
+    String getUpsertStatement(String tableName, String keyColumn, List<String> columns, int numberOfRows);
+}
@@ -19,8 +19,10 @@
 package com.googlecode.jdbw.impl;
 
 import com.googlecode.jdbw.*;
+import com.googlecode.jdbw.metadata.CachingServerMetaData;
 import com.googlecode.jdbw.metadata.Catalog;
 import com.googlecode.jdbw.metadata.ServerMetaData;
+import com.googlecode.jdbw.util.GuardedExecutionListener;
 import com.googlecode.jdbw.util.OneSharedConnectionDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.sql.DataSource;
 
 /**
@@ -36,11 +39,14 @@ import javax.sql.DataSource;
  * {@code DataSource}.
  * @author Martin Berglund
  */
-public class DatabaseConnectionImpl implements DatabaseConnection {
+public class DatabaseConnectionImpl implements ConfigurableDatabaseConnection {
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseConnectionImpl.class);
     private final DatabaseServerType databaseServerType;
     private final DataSource dataSource;
     private final DataSourceCloser dataSourceCloser;
+    private volatile ExecutionListener executionListener;
+    private volatile RetryPolicy retryPolicy;
+    private volatile CachingServerMetaData metaDataCache;
 
     /**
      * Creates a {@code DatabaseConnectionImpl} backed by one physical database
@@ -216,6 +222,9 @@ public class DatabaseConnectionImpl implements DatabaseConnection {
         else {
             this.databaseServerType = guessDatabaseServerType(dataSource);
         }
+        this.executionListener = null;
+        this.retryPolicy = null;
+        this.metaDataCache = null;
     }
 
     @Override
@@ -252,21 +261,68 @@ public class DatabaseConnectionImpl implements DatabaseConnection {
 
     @Override
     public DatabaseTransaction beginTransaction(TransactionIsolation transactionIsolation) throws SQLException {
+        ExecutionListener listener = executionListener;
+        long startTime = System.nanoTime();
         Connection connection = getConnection();
+        if(listener != null) {
+            listener.onConnectionAcquired(System.nanoTime() - startTime);
+        }
+        SQLExecutor executor = getServerType().createExecutor(connection);
+        if(listener != null && executor instanceof ObservableSQLExecutor) {
+            ((ObservableSQLExecutor)executor).setExecutionListener(listener);
+        }
         return new DatabaseTransactionImpl(
                 connection, 
-                getServerType().createExecutor(connection),
-                transactionIsolation);
+                executor,
+                transactionIsolation,
+                listener);
     }
 
     @Override
     public AutoExecutor createAutoExecutor() {
-        return new AutoExecutor(dataSource, databaseServerType);
+        return createAutoExecutor(TransactionIsolation.READ_UNCOMMITTED);
     }
 
     @Override
     public AutoExecutor createAutoExecutor(TransactionIsolation isolation) {
-        return new AutoExecutor(dataSource, databaseServerType, isolation);
+        RetryPolicy policy = retryPolicy;
+        AutoExecutor autoExecutor;
+        if(policy != null) {
+            autoExecutor = new AutoExecutor(dataSource, databaseServerType, isolation, policy);
+        }
+        else {
+            autoExecutor = new AutoExecutor(dataSource, databaseServerType, isolation);
+        }
+        autoExecutor.setExecutionListener(executionListener);
+        return autoExecutor;
+    }
+
+    @Override
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    @Override
+    public void setMetaDataCaching(long timeToLive, TimeUnit unit) {
+        if(timeToLive <= 0) {
+            this.metaDataCache = null;
+        }
+        else {
+            this.metaDataCache = new CachingServerMetaData(createMetaDataResolver(), timeToLive, unit);
+        }
+    }
+
+    @Override
+    public void clearMetaDataCache() {
+        CachingServerMetaData cache = metaDataCache;
+        if(cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void setExecutionListener(ExecutionListener executionListener) {
+        this.executionListener = GuardedExecutionListener.guard(executionListener);
     }
     
     @Override
@@ -280,13 +336,13 @@ public class DatabaseConnectionImpl implements DatabaseConnection {
 
     @Override
     public List<Catalog> getCatalogs() throws SQLException {
-        ServerMetaData metaDataResolver = createMetaDataResolver();
+        ServerMetaData metaDataResolver = getMetaDataResolver();
         return metaDataResolver.getCatalogs();
     }
 
     @Override
     public Catalog getCatalog(String catalogName) throws SQLException {
-        ServerMetaData metaDataResolver = createMetaDataResolver();
+        ServerMetaData metaDataResolver = getMetaDataResolver();
         return metaDataResolver.getCatalog(catalogName);
     }
 
@@ -325,6 +381,14 @@ public class DatabaseConnectionImpl implements DatabaseConnection {
         return null;
     }
 
+    private ServerMetaData getMetaDataResolver() {
+        ServerMetaData cache = metaDataCache;
+        if(cache != null) {
+            return cache;
+        }
+        return createMetaDataResolver();
+    }
+
     /**
      * Creates a {@code ServerMetaData} object by requesting one through the database server type
      * @return {@code ServerMetaData} for this database server using the same data source
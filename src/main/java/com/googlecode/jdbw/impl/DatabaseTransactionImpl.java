@@ -22,11 +22,14 @@ package com.googlecode.jdbw.impl;
 import com.googlecode.jdbw.*;
 import com.googlecode.jdbw.util.BatchUpdateHandlerAdapter;
 import com.googlecode.jdbw.util.ExecuteResultHandlerAdapter;
+import com.googlecode.jdbw.util.GuardedExecutionListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -34,9 +37,11 @@ import java.util.List;
  *
  * @author Martin Berglund
  */
-class DatabaseTransactionImpl implements DatabaseTransaction {
+class DatabaseTransactionImpl implements DatabaseTransaction, CursorSQLExecutor, ChunkedBatchSQLExecutor {
     private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseTransactionImpl.class);
     private final TransactionIsolation transactionIsolation;
+    private final ExecutionListener executionListener;
+    private final long startTime;
     private Connection connection;
     private SQLExecutor executor;
     private boolean initialized;
@@ -44,10 +49,13 @@ class DatabaseTransactionImpl implements DatabaseTransaction {
     DatabaseTransactionImpl(
             Connection connection,
             SQLExecutor executor,
-            TransactionIsolation transactionIsolation) {
+            TransactionIsolation transactionIsolation,
+            ExecutionListener executionListener) {
         this.connection = connection;
         this.transactionIsolation = transactionIsolation;
         this.executor = executor;
+        this.executionListener = GuardedExecutionListener.guard(executionListener);
+        this.startTime = System.nanoTime();
         this.initialized = false;
     }
 
@@ -68,6 +76,7 @@ class DatabaseTransactionImpl implements DatabaseTransaction {
             }
         }
         connection = null;
+        reportCompleted(true);
     }
 
     @Override
@@ -87,6 +96,7 @@ class DatabaseTransactionImpl implements DatabaseTransaction {
             }
         }
         connection = null;
+        reportCompleted(false);
     }
 
     @Override
@@ -130,6 +140,22 @@ class DatabaseTransactionImpl implements DatabaseTransaction {
         executor.batchWrite(handler, SQL, parameters);
     }
 
+    @Override
+    public synchronized void batchWrite(BatchUpdateHandler handler, String SQL, Iterator<Object[]> parameters, int chunkSize, boolean commitAfterEachChunk) throws SQLException {
+        if (connection == null) {
+            throw new SQLException("Tried to call DefaultDatabaseTransaction.query after commit, rollback or revoked!");
+        }
+
+        if (!initialized) {
+            initialize();
+        }
+
+        if (!(executor instanceof ChunkedBatchSQLExecutor)) {
+            throw new SQLFeatureNotSupportedException("The executor of this transaction doesn't support chunked batch writes");
+        }
+        ((ChunkedBatchSQLExecutor) executor).batchWrite(handler, SQL, parameters, chunkSize, commitAfterEachChunk);
+    }
+
     @Override
     public void batchWrite(List<String> batchedSQL) throws SQLException {
         batchWrite(new BatchUpdateHandlerAdapter(), batchedSQL);
@@ -148,6 +174,33 @@ class DatabaseTransactionImpl implements DatabaseTransaction {
         executor.batchWrite(handler, batchedSQL);
     }
 
+    @Override
+    public RowCursor openCursor(String SQL, Object... parameters) throws SQLException {
+        return openCursor(0, SQL, parameters);
+    }
+
+    @Override
+    public synchronized RowCursor openCursor(int fetchSize, String SQL, Object... parameters) throws SQLException {
+        if (connection == null) {
+            throw new SQLException("Tried to call DefaultDatabaseTransaction.openCursor after commit, rollback or revoked!");
+        }
+
+        if (!initialized) {
+            initialize();
+        }
+
+        if (!(executor instanceof CursorSQLExecutor)) {
+            throw new SQLFeatureNotSupportedException("The executor of this transaction doesn't support cursors");
+        }
+        return ((CursorSQLExecutor) executor).openCursor(fetchSize, SQL, parameters);
+    }
+
+    private void reportCompleted(boolean committed) {
+        if (executionListener != null) {
+            executionListener.onTransactionCompleted(committed, System.nanoTime() - startTime);
+        }
+    }
+
     private void initialize() throws SQLException {
         connection.setAutoCommit(false);
         connection.setTransactionIsolation(transactionIsolation.getConstant());
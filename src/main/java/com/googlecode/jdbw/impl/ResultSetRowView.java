@@ -0,0 +1,102 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.impl;
+
+import com.googlecode.jdbw.RowView;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Package private {@code RowView} implementation used by {@code SQLExecutorImpl}, reading straight from the current
+ * row of the {@code ResultSet} it wraps.
+ *
+ * @author Martin Berglund
+ */
+class ResultSetRowView implements RowView {
+    private final ResultSet resultSet;
+    private final int columnCount;
+
+    ResultSetRowView(ResultSet resultSet, int columnCount) {
+        this.resultSet = resultSet;
+        this.columnCount = columnCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) throws SQLException {
+        resultSet.getObject(columnIndex + 1);
+        return resultSet.wasNull();
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return resultSet.wasNull();
+    }
+
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+        return resultSet.getInt(columnIndex + 1);
+    }
+
+    @Override
+    public long getLong(int columnIndex) throws SQLException {
+        return resultSet.getLong(columnIndex + 1);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) throws SQLException {
+        return resultSet.getDouble(columnIndex + 1);
+    }
+
+    @Override
+    public boolean getBoolean(int columnIndex) throws SQLException {
+        return resultSet.getBoolean(columnIndex + 1);
+    }
+
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+        return resultSet.getString(columnIndex + 1);
+    }
+
+    @Override
+    public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+        return resultSet.getBigDecimal(columnIndex + 1);
+    }
+
+    @Override
+    public Object getObject(int columnIndex) throws SQLException {
+        return resultSet.getObject(columnIndex + 1);
+    }
+
+    @Override
+    public Object[] toArray() throws SQLException {
+        Object[] row = new Object[columnCount];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = resultSet.getObject(i + 1);
+        }
+        return row;
+    }
+}
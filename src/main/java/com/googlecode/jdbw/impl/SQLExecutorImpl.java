@@ -23,14 +23,19 @@ import com.googlecode.jdbw.*;
 import com.googlecode.jdbw.util.BatchUpdateHandlerAdapter;
 import com.googlecode.jdbw.util.Cancellable;
 import com.googlecode.jdbw.util.ExecuteResultHandlerAdapter;
+import com.googlecode.jdbw.util.GuardedExecutionListener;
 import com.googlecode.jdbw.util.NullValue;
+import com.googlecode.jdbw.util.PreparedStatementCache;
+import com.googlecode.jdbw.util.PreparedStatementCache.StatementType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 
 /**
@@ -41,19 +46,36 @@ import java.util.Objects;
  * Normally, you wouldn't use this class directly, but rather through classes such as the {@code AutoExecutor} or
  * the {@code DatabaseTransaction}, which is using this class behind the scenes. You call methods on
  * {@code DatabaseConnection} to get one of those.
+ * <p>
+ * If the connection passed in can be unwrapped to a {@code PreparedStatementCache}, prepared statements will be taken
+ * from and returned to that cache instead of being prepared and closed on every call.
  *
  * @author Martin Berglund
  * @see AutoExecutor
  * @see DatabaseTransaction
  * @see DatabaseConnection
  */
-public abstract class SQLExecutorImpl implements SQLExecutor {
+public abstract class SQLExecutorImpl implements CursorSQLExecutor, ChunkedBatchSQLExecutor, ObservableSQLExecutor {
     private static final Logger LOGGER = LoggerFactory.getLogger(SQLExecutorImpl.class);
 
     protected final Connection connection;
+    private final PreparedStatementCache statementCache;
+    private volatile ExecutionListener executionListener;
 
     protected SQLExecutorImpl(Connection connection) {
         this.connection = connection;
+        this.statementCache = findStatementCache(connection);
+        this.executionListener = null;
+    }
+
+    /**
+     * Sets a listener that will be told about the timing and row counts of every statement executed through this
+     * executor
+     * @param executionListener Listener to report to, or {@code null} to stop reporting
+     */
+    @Override
+    public void setExecutionListener(ExecutionListener executionListener) {
+        this.executionListener = GuardedExecutionListener.guard(executionListener);
     }
 
     @Override
@@ -69,24 +91,28 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
     @Override
     public void execute(ExecuteResultHandler handler, int maxRowsToFetch, int queryTimeoutInSeconds, String SQL, Object... parameters) throws SQLException {
         ResultSet resultSet = null;
-        final PreparedStatement statement = prepareExecuteStatement(SQL);
+        final StatementType statementType = canGetGeneratedKeys(SQL) ? StatementType.INSERT : StatementType.GENERAL;
+        final StatementTimer timer = new StatementTimer();
+        PreparedStatement preparedStatement = null;
+        StatementCancellable cancellable = null;
+        boolean reusable = false;
         try {
+            final PreparedStatement statement = prepareExecuteStatement(statementType, SQL);
+            preparedStatement = statement;
             for (int i = 0; i < parameters.length; i++) {
                 setParameter(statement, parameters[i], i + 1);
             }
 
             if(canCancelQueries()) {
-                handler.onCancellableCallback(new Cancellable() {
-                    @Override
-                    public void cancel() throws Exception {
-                        statement.cancel();
-                    }
-                });
+                cancellable = new StatementCancellable(statement);
+                handler.onCancellableCallback(cancellable);
             }
             
             setQueryTimeout(statement, queryTimeoutInSeconds);
             setMaxRowsToFetch(statement, maxRowsToFetch);
+            timer.startExecute();
             execute(statement);
+            timer.startFetch();
 
             if (canGetGeneratedKeys(SQL)) {
                 ResultSet generatedKeys = getGeneratedKeys(statement);
@@ -102,6 +128,7 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
             while (true) {
                 int updateCount = getUpdateCount(statement);
                 if (updateCount != -1) {
+                    timer.addUpdateCount(updateCount);
                     handler.onUpdateCount(updateCount);
                     if (getResultSet(statement) == null) {
                         statement.getMoreResults();
@@ -127,36 +154,58 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
                     handler.onWarning(warning);
                 }
 
-                while (resultSet.next() && !gotCancel) {
-                    Object[] row = new Object[resultSetMetaData.getColumnCount()];
-                    for (int i = 0; i < row.length; i++) {
-                        row[i] = resultSet.getObject(i + 1);
+                if (handler instanceof RowViewResultHandler) {
+                    RowViewResultHandler rowViewHandler = (RowViewResultHandler) handler;
+                    RowView rowView = new ResultSetRowView(resultSet, resultSetMetaData.getColumnCount());
+                    while (!gotCancel && resultSet.next()) {
+                        timer.rowsFetched++;
+                        if (!rowViewHandler.nextRow(rowView)) {
+                            gotCancel = true;
+                        }
                     }
-                    if (!handler.nextRow(row)) {
-                        gotCancel = true;
+                }
+                else {
+                    while (resultSet.next() && !gotCancel) {
+                        timer.rowsFetched++;
+                        Object[] row = new Object[resultSetMetaData.getColumnCount()];
+                        for (int i = 0; i < row.length; i++) {
+                            row[i] = resultSet.getObject(i + 1);
+                        }
+                        if (!handler.nextRow(row)) {
+                            gotCancel = true;
+                        }
                     }
                 }
                 statement.getMoreResults();
             }
             handler.onDone();
+            reusable = true;
         }
         finally {
+            timer.stop();
+            boolean failed = !reusable;
+            if (cancellable != null && cancellable.detach()) {
+                //The driver may still act on the cancel later, so the statement must not be picked up by another query
+                reusable = false;
+            }
             if (resultSet != null) {
                 try {
                     close(resultSet);
                 }
                 catch (SQLException e) {
                     LOGGER.error("Unable to close result set after query", e);
+                    reusable = false;
                 }
             }
-            if (statement != null) {
+            if (preparedStatement != null) {
                 try {
-                    close(statement);
+                    release(statementType, SQL, preparedStatement, reusable);
                 }
                 catch (SQLException e) {
                     LOGGER.error("Unable to close statement after query", e);
                 }
             }
+            report(ExecutionStatistics.Operation.EXECUTE, SQL, timer, 0, failed);
         }
     }
 
@@ -167,9 +216,14 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
 
     @Override
     public void batchWrite(BatchUpdateHandler handler, String SQL, List<Object[]> parameters) throws SQLException {
+        StatementTimer timer = new StatementTimer();
         PreparedStatement statement = null;
+        boolean reusable = false;
         try {
-            statement = prepareBatchUpdateStatement(SQL);
+            statement = takeCachedStatement(StatementType.BATCH, SQL);
+            if (statement == null) {
+                statement = prepareBatchUpdateStatement(SQL);
+            }
 
             for (Object[] row : parameters) {
                 for (int i = 0; i < row.length; i++) {
@@ -178,7 +232,10 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
                 addBatch(statement);
             }
 
+            timer.startExecute();
             int[] batchResult = executeBatch(statement);
+            timer.startFetch();
+            timer.addUpdateCounts(batchResult);
             handler.onBatchResult(batchResult);
 
             if (isBatchWriteGeneratedKeyRetrievalAvailable()) {
@@ -195,11 +252,88 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
             if (warning != null) {
                 handler.onWarning(warning);
             }
+            reusable = true;
         }
         finally {
+            timer.stop();
             if (statement != null) {
                 try {
-                    close(statement);
+                    release(StatementType.BATCH, SQL, statement, reusable);
+                }
+                catch (SQLException e) {
+                    LOGGER.error("Unable to close statement after batch write", e);
+                }
+            }
+            report(ExecutionStatistics.Operation.BATCH_WRITE, SQL, timer, parameters.size(), !reusable);
+        }
+    }
+
+    @Override
+    public void batchWrite(BatchUpdateHandler handler, String SQL, Iterator<Object[]> parameters, int chunkSize, boolean commitAfterEachChunk) throws SQLException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Cannot call batchWrite with chunkSize <= 0");
+        }
+        StatementTimer timer = new StatementTimer();
+        int rowsInChunk = 0;
+        PreparedStatement statement = null;
+        boolean reusable = false;
+        try {
+            statement = takeCachedStatement(StatementType.BATCH, SQL);
+            if (statement == null) {
+                statement = prepareBatchUpdateStatement(SQL);
+            }
+
+            while (parameters.hasNext()) {
+                rowsInChunk = 0;
+                while (rowsInChunk < chunkSize && parameters.hasNext()) {
+                    Object[] row = parameters.next();
+                    for (int i = 0; i < row.length; i++) {
+                        setParameter(statement, row[i], i + 1);
+                    }
+                    addBatch(statement);
+                    rowsInChunk++;
+                }
+
+                timer.startExecute();
+                int[] batchResult = executeBatch(statement);
+                timer.startFetch();
+                timer.addUpdateCounts(batchResult);
+                handler.onBatchResult(batchResult);
+
+                if (isBatchWriteGeneratedKeyRetrievalAvailable()) {
+                    ResultSet generatedKeys = getGeneratedKeys(statement);
+                    if (generatedKeys != null) {
+                        while (generatedKeys.next()) {
+                            handler.onGeneratedKey(generatedKeys.getObject(1));
+                        }
+                        generatedKeys.close();
+                    }
+                }
+
+                SQLWarning warning = getWarnings(statement);
+                if (warning != null) {
+                    handler.onWarning(warning);
+                    statement.clearWarnings();
+                }
+
+                if (commitAfterEachChunk && !connection.getAutoCommit()) {
+                    connection.commit();
+                }
+                timer.stop();
+                report(ExecutionStatistics.Operation.BATCH_WRITE, SQL, timer, rowsInChunk, false);
+                timer = new StatementTimer();
+                rowsInChunk = 0;
+            }
+            reusable = true;
+        }
+        finally {
+            if (!reusable) {
+                timer.stop();
+                report(ExecutionStatistics.Operation.BATCH_WRITE, SQL, timer, rowsInChunk, true);
+            }
+            if (statement != null) {
+                try {
+                    release(StatementType.BATCH, SQL, statement, reusable);
                 }
                 catch (SQLException e) {
                     LOGGER.error("Unable to close statement after batch write", e);
@@ -215,6 +349,8 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
 
     @Override
     public void batchWrite(BatchUpdateHandler handler, List<String> batchedSQL) throws SQLException {
+        StatementTimer timer = new StatementTimer();
+        boolean failed = true;
         Statement statement = null;
         try {
             statement = connection.createStatement();
@@ -222,7 +358,10 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
                 addBatch(statement, row);
             }
 
+            timer.startExecute();
             int[] batchResult = executeBatch(statement);
+            timer.startFetch();
+            timer.addUpdateCounts(batchResult);
             handler.onBatchResult(Arrays.copyOf(batchResult, batchResult.length));
 
             if (isBatchWriteGeneratedKeyRetrievalAvailable()) {
@@ -239,8 +378,10 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
             if (warning != null) {
                 handler.onWarning(warning);
             }
+            failed = false;
         }
         finally {
+            timer.stop();
             if (statement != null) {
                 try {
                     close(statement);
@@ -249,6 +390,72 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
                     LOGGER.error("Unable to close statement after batch write", e);
                 }
             }
+            // Statements in a batch like this usually only differ in their literals, so the first one is
+            // representative for the fingerprint
+            report(ExecutionStatistics.Operation.BATCH_WRITE, batchedSQL.isEmpty() ? "" : batchedSQL.get(0),
+                    timer, batchedSQL.size(), failed);
+        }
+    }
+
+    @Override
+    public RowCursor openCursor(String SQL, Object... parameters) throws SQLException {
+        return openCursor(0, SQL, parameters);
+    }
+
+    @Override
+    public RowCursor openCursor(int fetchSize, String SQL, Object... parameters) throws SQLException {
+        StatementTimer timer = new StatementTimer();
+        PreparedStatement statement;
+        try {
+            statement = takeCachedStatement(StatementType.GENERAL, SQL);
+            if (statement == null) {
+                statement = prepareGeneralStatement(SQL);
+            }
+        }
+        catch (SQLException | RuntimeException e) {
+            timer.stop();
+            report(ExecutionStatistics.Operation.CURSOR, SQL, timer, 0, true);
+            throw e;
+        }
+        int originalFetchSize = 0;
+        boolean success = false;
+        try {
+            for (int i = 0; i < parameters.length; i++) {
+                setParameter(statement, parameters[i], i + 1);
+            }
+            setQueryTimeout(statement, 0);
+            setMaxRowsToFetch(statement, 0);
+            if (fetchSize > 0) {
+                originalFetchSize = statement.getFetchSize();
+                setFetchSize(statement, fetchSize);
+            }
+            timer.startExecute();
+            execute(statement);
+
+            ResultSet resultSet = getResultSet(statement);
+            while (resultSet == null) {
+                if (!statement.getMoreResults() && getUpdateCount(statement) == -1) {
+                    break;
+                }
+                resultSet = getResultSet(statement);
+            }
+            // Rows are timed one by one as they are read, not including the time spent between reads
+            timer.stop();
+            RowCursor cursor = new ResultSetRowCursor(SQL, statement, resultSet, fetchSize > 0 ? originalFetchSize : -1, timer);
+            success = true;
+            return cursor;
+        }
+        finally {
+            if (!success) {
+                timer.stop();
+                report(ExecutionStatistics.Operation.CURSOR, SQL, timer, 0, true);
+                try {
+                    close(statement);
+                }
+                catch (SQLException e) {
+                    LOGGER.error("Unable to close statement after failing to open cursor", e);
+                }
+            }
         }
     }
 
@@ -329,6 +536,10 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
         statement.setMaxRows(maxRowsToFetch);
     }
 
+    protected void setFetchSize(PreparedStatement statement, int fetchSize) throws SQLException {
+        statement.setFetchSize(fetchSize);
+    }
+
     protected void execute(PreparedStatement statement) throws SQLException {
         statement.execute();
     }
@@ -349,8 +560,12 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
         return false;
     }
 
-    private PreparedStatement prepareExecuteStatement(String SQL) throws SQLException {
-        if (canGetGeneratedKeys(SQL)) {
+    private PreparedStatement prepareExecuteStatement(StatementType statementType, String SQL) throws SQLException {
+        PreparedStatement statement = takeCachedStatement(statementType, SQL);
+        if (statement != null) {
+            return statement;
+        }
+        if (statementType == StatementType.INSERT) {
             return prepareInsertStatement(SQL);
         }
         else {
@@ -358,6 +573,63 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
         }
     }
 
+    private PreparedStatement takeCachedStatement(StatementType statementType, String SQL) {
+        if (statementCache == null) {
+            return null;
+        }
+        return statementCache.take(statementType, SQL);
+    }
+
+    private void release(StatementType statementType, String SQL, PreparedStatement statement, boolean reusable) throws SQLException {
+        if (statementCache != null && reusable) {
+            try {
+                statement.clearParameters();
+                if (statementType == StatementType.BATCH) {
+                    statement.clearBatch();
+                }
+                statement.clearWarnings();
+                statementCache.release(statementType, SQL, statement);
+                return;
+            }
+            catch (SQLException e) {
+                LOGGER.warn("Unable to reset prepared statement for re-use, closing it instead", e);
+            }
+        }
+        close(statement);
+    }
+
+    private static PreparedStatementCache findStatementCache(Connection connection) {
+        if (connection == null) {
+            return null;
+        }
+        try {
+            if (connection.isWrapperFor(PreparedStatementCache.class)) {
+                return connection.unwrap(PreparedStatementCache.class);
+            }
+        }
+        catch (SQLException | RuntimeException e) {
+            LOGGER.debug("Unable to look up a prepared statement cache on the connection, statements won't be cached", e);
+        }
+        return null;
+    }
+
+    private void report(ExecutionStatistics.Operation operation, String SQL, StatementTimer timer, int batchSize, boolean failed) {
+        ExecutionListener listener = executionListener;
+        if (listener == null) {
+            return;
+        }
+        listener.onStatementExecuted(new ExecutionStatistics(
+                operation,
+                SQL,
+                timer.prepareNanos,
+                timer.executeNanos,
+                timer.fetchNanos,
+                timer.rowsFetched,
+                timer.updateCount,
+                batchSize,
+                failed));
+    }
+
     protected void executeUpdate(Statement statement, String SQL) throws SQLException {
         statement.executeUpdate(SQL, Statement.RETURN_GENERATED_KEYS);
     }
@@ -428,4 +700,257 @@ public abstract class SQLExecutorImpl implements SQLExecutor {
             statement.setObject(i, object);
         }
     }
+
+    /**
+     * The {@code Cancellable} handed to the result handler of a query. It's detached from the statement when the query
+     * is done, before the statement is released, so that a late call to {@code cancel()} can't reach a statement which
+     * has gone back to the cache and is now running another query. Calls after that are ignored.
+     */
+    private static class StatementCancellable implements Cancellable {
+        private Statement statement;
+        private boolean cancelled;
+
+        StatementCancellable(Statement statement) {
+            this.statement = statement;
+            this.cancelled = false;
+        }
+
+        @Override
+        public synchronized void cancel() throws SQLException {
+            if (statement != null) {
+                cancelled = true;
+                statement.cancel();
+            }
+        }
+
+        /**
+         * Detaches the statement, after which {@code cancel()} does nothing
+         * @return {@code true} if the statement was cancelled while it was attached
+         */
+        synchronized boolean detach() {
+            statement = null;
+            return cancelled;
+        }
+    }
+
+    private class ResultSetRowCursor implements RowCursor {
+        private final String SQL;
+        private final PreparedStatement statement;
+        private final ResultSet resultSet;
+        private final ResultSetInformation resultSetInformation;
+        private final int columnCount;
+        private final int fetchSizeToRestore;
+        private final StatementTimer timer;
+        private Object[] nextRow;
+        private boolean hasFetchedNext;
+        private boolean failed;
+        private boolean closed;
+        private long rowsRead;
+
+        ResultSetRowCursor(String SQL, PreparedStatement statement, ResultSet resultSet, int fetchSizeToRestore, StatementTimer timer) throws SQLException {
+            this.SQL = SQL;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.fetchSizeToRestore = fetchSizeToRestore;
+            this.timer = timer;
+            if (resultSet != null) {
+                ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
+                this.resultSetInformation = newResultSetInformation(resultSetMetaData, 0);
+                this.columnCount = resultSetMetaData.getColumnCount();
+            }
+            else {
+                this.resultSetInformation = null;
+                this.columnCount = 0;
+            }
+            this.nextRow = null;
+            this.hasFetchedNext = false;
+            this.failed = false;
+            this.closed = false;
+            this.rowsRead = 0;
+        }
+
+        @Override
+        public ResultSetInformation getResultSetInformation() {
+            return resultSetInformation;
+        }
+
+        @Override
+        public Object[] nextRow() throws SQLException {
+            Object[] row = peek();
+            hasFetchedNext = false;
+            nextRow = null;
+            if (row != null) {
+                rowsRead++;
+            }
+            return row;
+        }
+
+        @Override
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return peek() != null;
+            }
+            catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Object[] next() {
+            Object[] row;
+            try {
+                row = nextRow();
+            }
+            catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+            if (row == null) {
+                throw new NoSuchElementException("No more rows in cursor for " + SQL);
+            }
+            return row;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Cannot remove rows through a RowCursor");
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (resultSet != null) {
+                    SQLExecutorImpl.this.close(resultSet);
+                }
+            }
+            catch (SQLException e) {
+                failed = true;
+                throw e;
+            }
+            finally {
+                boolean reusable = !failed;
+                if (reusable && fetchSizeToRestore != -1) {
+                    try {
+                        setFetchSize(statement, fetchSizeToRestore);
+                    }
+                    catch (SQLException e) {
+                        reusable = false;
+                    }
+                }
+                release(StatementType.GENERAL, SQL, statement, reusable);
+                report(ExecutionStatistics.Operation.CURSOR, SQL, timer, 0, failed);
+            }
+        }
+
+        private Object[] peek() throws SQLException {
+            if (hasFetchedNext) {
+                return nextRow;
+            }
+            if (closed || resultSet == null) {
+                return null;
+            }
+            long startTime = System.nanoTime();
+            try {
+                if (resultSet.next()) {
+                    timer.rowsFetched++;
+                    Object[] row = new Object[columnCount];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = resultSet.getObject(i + 1);
+                    }
+                    nextRow = row;
+                }
+                else {
+                    nextRow = null;
+                }
+                hasFetchedNext = true;
+                return nextRow;
+            }
+            catch (SQLException e) {
+                failed = true;
+                throw e;
+            }
+            finally {
+                timer.fetchNanos += System.nanoTime() - startTime;
+            }
+        }
+    }
+
+    /**
+     * Keeps track of how long a statement spends in each phase; the time between two calls is added to the phase
+     * the statement was in
+     */
+    private static class StatementTimer {
+        private static final int PREPARE = 0;
+        private static final int EXECUTE = 1;
+        private static final int FETCH = 2;
+        private static final int STOPPED = 3;
+
+        private int phase;
+        private long phaseStarted;
+        long prepareNanos;
+        long executeNanos;
+        long fetchNanos;
+        long rowsFetched;
+        long updateCount;
+
+        StatementTimer() {
+            this.phase = PREPARE;
+            this.phaseStarted = System.nanoTime();
+            this.prepareNanos = 0;
+            this.executeNanos = 0;
+            this.fetchNanos = 0;
+            this.rowsFetched = 0;
+            this.updateCount = -1;
+        }
+
+        void startExecute() {
+            enter(EXECUTE);
+        }
+
+        void startFetch() {
+            enter(FETCH);
+        }
+
+        void stop() {
+            enter(STOPPED);
+        }
+
+        void addUpdateCount(int count) {
+            updateCount = Math.max(updateCount, 0) + count;
+        }
+
+        void addUpdateCounts(int[] counts) {
+            for (int count : counts) {
+                if (count >= 0) {
+                    addUpdateCount(count);
+                }
+            }
+        }
+
+        private void enter(int newPhase) {
+            long now = System.nanoTime();
+            long elapsed = now - phaseStarted;
+            switch (phase) {
+                case PREPARE:
+                    prepareNanos += elapsed;
+                    break;
+                case EXECUTE:
+                    executeNanos += elapsed;
+                    break;
+                case FETCH:
+                    fetchNanos += elapsed;
+                    break;
+            }
+            phase = newPhase;
+            phaseStarted = now;
+        }
+    }
 }
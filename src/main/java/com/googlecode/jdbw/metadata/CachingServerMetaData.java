@@ -0,0 +1,539 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.metadata;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@code ServerMetaData} decorator keeping everything it loads through another {@code ServerMetaData} in memory, so
+ * that tools walking the same catalogs, schemas and tables over and over only hit the database once. Lists are cached
+ * per catalog, schema and table, together with a name index so that looking up a single object by name is a map
+ * lookup once the list it belongs to has been loaded. Lookups by name that miss the cached lists are cached too,
+ * including the ones that didn't find anything.
+ * <p>
+ * The catalogs, schemas, tables, system tables, views and stored procedures handed out are created by this class, so
+ * that navigating further from them goes through the cache as well. Cached data is reloaded once it's older than the
+ * time-to-live, or you can drop parts of the cache explicitly with the {@code invalidate(..)} methods when you know the
+ * database structure has changed.
+ * <p>
+ * Please note that {@code Table} objects keep their own columns and indexes once loaded, until
+ * {@code Table.clearCachedData()} is called; {@code invalidate(Table)} will do this for you.
+ * @author Martin Berglund
+ */
+public class CachingServerMetaData implements ServerMetaData {
+
+    private enum Kind {
+        CATALOGS,
+        CATALOG,
+        SCHEMAS,
+        SCHEMA,
+        TABLES,
+        TABLE,
+        SYSTEM_TABLES,
+        SYSTEM_TABLE,
+        VIEWS,
+        VIEW,
+        STORED_PROCEDURES,
+        STORED_PROCEDURE,
+        FUNCTIONS,
+        FUNCTION,
+        TABLE_COLUMNS,
+        INDEXES,
+        VIEW_COLUMNS,
+    }
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final ServerMetaData backend;
+    private final long timeToLiveNanos;
+    private final ConcurrentHashMap<CacheKey, Entry> cache;
+
+    /**
+     * Creates a cache over {@code backend} which keeps the loaded meta data until it's invalidated
+     * @param backend Meta data resolver to load the data through
+     */
+    public CachingServerMetaData(ServerMetaData backend) {
+        this(backend, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a cache over {@code backend} which reloads meta data once it's older than {@code timeToLive}
+     * @param backend Meta data resolver to load the data through
+     * @param timeToLive How long to keep loaded meta data
+     * @param unit Unit of {@code timeToLive}
+     */
+    public CachingServerMetaData(ServerMetaData backend, long timeToLive, TimeUnit unit) {
+        if(backend == null) {
+            throw new IllegalArgumentException("Cannot create CachingServerMetaData with null backend");
+        }
+        if(timeToLive <= 0) {
+            throw new IllegalArgumentException("Cannot create CachingServerMetaData with timeToLive <= 0");
+        }
+        this.backend = backend;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return The meta data resolver this cache is loading through
+     */
+    public ServerMetaData getBackend() {
+        return backend;
+    }
+
+    @Override
+    public List<Catalog> getCatalogs() throws SQLException {
+        CacheKey key = new CacheKey(Kind.CATALOGS, null, null, null);
+        NamedList<Catalog> catalogs = lookup(key);
+        if(catalogs == null) {
+            catalogs = new NamedList<>();
+            for(Catalog catalog: backend.getCatalogs()) {
+                catalogs.add(catalog.getName(), new Catalog(this, catalog.getName()));
+            }
+            store(key, catalogs);
+        }
+        return catalogs.toList();
+    }
+
+    @Override
+    public Catalog getCatalog(String catalogName) throws SQLException {
+        CacheKey key = new CacheKey(Kind.CATALOG, catalogName, null, null);
+        Object cached = lookupByName(new CacheKey(Kind.CATALOGS, null, null, null), key, catalogName);
+        if(cached != null) {
+            return unwrap(cached);
+        }
+        Catalog catalog = backend.getCatalog(catalogName);
+        if(catalog != null) {
+            catalog = new Catalog(this, catalog.getName());
+        }
+        store(key, catalog);
+        return catalog;
+    }
+
+    @Override
+    public List<Schema> getSchemas(Catalog catalog) throws SQLException {
+        CacheKey key = new CacheKey(Kind.SCHEMAS, catalog.getName(), null, null);
+        NamedList<Schema> schemas = lookup(key);
+        if(schemas == null) {
+            schemas = new NamedList<>();
+            for(Schema schema: backend.getSchemas(catalog)) {
+                schemas.add(schema.getName(), new Schema(this, catalog, schema.getName()));
+            }
+            store(key, schemas);
+        }
+        return schemas.toList();
+    }
+
+    @Override
+    public Schema getSchema(Catalog catalog, String schemaName) throws SQLException {
+        CacheKey key = new CacheKey(Kind.SCHEMA, catalog.getName(), schemaName, null);
+        Object cached = lookupByName(new CacheKey(Kind.SCHEMAS, catalog.getName(), null, null), key, schemaName);
+        if(cached != null) {
+            return unwrap(cached);
+        }
+        Schema schema = backend.getSchema(catalog, schemaName);
+        if(schema != null) {
+            schema = new Schema(this, catalog, schema.getName());
+        }
+        store(key, schema);
+        return schema;
+    }
+
+    @Override
+    public List<Table> getTables(Schema schema) throws SQLException {
+        CacheKey key = schemaKey(Kind.TABLES, schema, null);
+        NamedList<Table> tables = lookup(key);
+        if(tables == null) {
+            tables = new NamedList<>();
+            for(Table table: backend.getTables(schema)) {
+                tables.add(table.getName(), new Table(this, schema, table.getName()));
+            }
+            store(key, tables);
+        }
+        return tables.toList();
+    }
+
+    @Override
+    public Table getTable(Schema schema, String tableName) throws SQLException {
+        CacheKey key = schemaKey(Kind.TABLE, schema, tableName);
+        Object cached = lookupByName(schemaKey(Kind.TABLES, schema, null), key, tableName);
+        if(cached != null) {
+            return unwrap(cached);
+        }
+        Table table = backend.getTable(schema, tableName);
+        if(table != null) {
+            table = new Table(this, schema, table.getName());
+        }
+        store(key, table);
+        return table;
+    }
+
+    @Override
+    public List<SystemTable> getSystemTables(Schema schema) throws SQLException {
+        CacheKey key = schemaKey(Kind.SYSTEM_TABLES, schema, null);
+        NamedList<SystemTable> systemTables = lookup(key);
+        if(systemTables == null) {
+            systemTables = new NamedList<>();
+            for(SystemTable systemTable: backend.getSystemTables(schema)) {
+                systemTables.add(systemTable.getName(), new SystemTable(this, schema, systemTable.getName()));
+            }
+            store(key, systemTables);
+        }
+        return systemTables.toList();
+    }
+
+    @Override
+    public SystemTable getSystemTable(Schema schema, String systemTableName) throws SQLException {
+        CacheKey key = schemaKey(Kind.SYSTEM_TABLE, schema, systemTableName);
+        Object cached = lookupByName(schemaKey(Kind.SYSTEM_TABLES, schema, null), key, systemTableName);
+        if(cached != null) {
+            return unwrap(cached);
+        }
+        SystemTable systemTable = backend.getSystemTable(schema, systemTableName);
+        if(systemTable != null) {
+            systemTable = new SystemTable(this, schema, systemTable.getName());
+        }
+        store(key, systemTable);
+        return systemTable;
+    }
+
+    @Override
+    public List<TableColumn> getColumns(Table table) throws SQLException {
+        CacheKey key = schemaKey(Kind.TABLE_COLUMNS, table.getSchema(), table.getName());
+        List<TableColumn> columns = lookup(key);
+        if(columns == null) {
+            columns = Collections.unmodifiableList(new ArrayList<>(backend.getColumns(table)));
+            store(key, columns);
+        }
+        return new ArrayList<>(columns);
+    }
+
+    @Override
+    public List<Index> getIndexes(Table table) throws SQLException {
+        CacheKey key = schemaKey(Kind.INDEXES, table.getSchema(), table.getName());
+        List<Index> indexes = lookup(key);
+        if(indexes == null) {
+            indexes = Collections.unmodifiableList(new ArrayList<>(backend.getIndexes(table)));
+            store(key, indexes);
+        }
+        return new ArrayList<>(indexes);
+    }
+
+    @Override
+    public List<View> getViews(Schema schema) throws SQLException {
+        CacheKey key = schemaKey(Kind.VIEWS, schema, null);
+        NamedList<View> views = lookup(key);
+        if(views == null) {
+            views = new NamedList<>();
+            for(View view: backend.getViews(schema)) {
+                views.add(view.getName(), new View(this, schema, view.getName()));
+            }
+            store(key, views);
+        }
+        return views.toList();
+    }
+
+    @Override
+    public View getView(Schema schema, String viewName) throws SQLException {
+        CacheKey key = schemaKey(Kind.VIEW, schema, viewName);
+        Object cached = lookupByName(schemaKey(Kind.VIEWS, schema, null), key, viewName);
+        if(cached != null) {
+            return unwrap(cached);
+        }
+        View view = backend.getView(schema, viewName);
+        if(view != null) {
+            view = new View(this, schema, view.getName());
+        }
+        store(key, view);
+        return view;
+    }
+
+    @Override
+    public List<ViewColumn> getColumns(View view) throws SQLException {
+        CacheKey key = schemaKey(Kind.VIEW_COLUMNS, view.getSchema(), view.getName());
+        List<ViewColumn> columns = lookup(key);
+        if(columns == null) {
+            columns = Collections.unmodifiableList(new ArrayList<>(backend.getColumns(view)));
+            store(key, columns);
+        }
+        return new ArrayList<>(columns);
+    }
+
+    @Override
+    public List<StoredProcedure> getStoredProcedures(Schema schema) throws SQLException {
+        CacheKey key = schemaKey(Kind.STORED_PROCEDURES, schema, null);
+        NamedList<StoredProcedure> procedures = lookup(key);
+        if(procedures == null) {
+            procedures = new NamedList<>();
+            for(StoredProcedure procedure: backend.getStoredProcedures(schema)) {
+                procedures.add(procedure.getName(), new StoredProcedure(this, schema, procedure.getName()));
+            }
+            store(key, procedures);
+        }
+        return procedures.toList();
+    }
+
+    @Override
+    public StoredProcedure getStoredProcedure(Schema schema, String procedureName) throws SQLException {
+        CacheKey key = schemaKey(Kind.STORED_PROCEDURE, schema, procedureName);
+        Object cached = lookupByName(schemaKey(Kind.STORED_PROCEDURES, schema, null), key, procedureName);
+        if(cached != null) {
+            return unwrap(cached);
+        }
+        StoredProcedure procedure = backend.getStoredProcedure(schema, procedureName);
+        if(procedure != null) {
+            procedure = new StoredProcedure(this, schema, procedure.getName());
+        }
+        store(key, procedure);
+        return procedure;
+    }
+
+    @Override
+    public List<Function> getFunctions(Schema schema) throws SQLException {
+        CacheKey key = schemaKey(Kind.FUNCTIONS, schema, null);
+        NamedList<Function> functions = lookup(key);
+        if(functions == null) {
+            functions = new NamedList<>();
+            for(Function function: backend.getFunctions(schema)) {
+                functions.add(function.getName(), function);
+            }
+            store(key, functions);
+        }
+        return functions.toList();
+    }
+
+    @Override
+    public Function getFunction(Schema schema, String functionName) throws SQLException {
+        CacheKey key = schemaKey(Kind.FUNCTION, schema, functionName);
+        Object cached = lookupByName(schemaKey(Kind.FUNCTIONS, schema, null), key, functionName);
+        if(cached != null) {
+            return unwrap(cached);
+        }
+        Function function = backend.getFunction(schema, functionName);
+        store(key, function);
+        return function;
+    }
+
+    /**
+     * Loads all tables in a schema, together with their columns and indexes, and returns them as a snapshot. The
+     * result is stored in this cache, so later calls to {@code getTables(..)}, {@code getColumns(..)} and
+     * {@code getIndexes(..)} for the schema won't go to the database, and a snapshot of a schema which is already
+     * fully cached is built from the cache. If the backend is a {@code DefaultServerMetaData}, its bulk loading is used;
+     * otherwise the tables are loaded one by one through this cache.
+     * @param schema Schema to take a snapshot of
+     * @return Snapshot of all tables in the schema
+     * @throws SQLException If there was an error reading the meta data
+     */
+    public SchemaSnapshot snapshot(Schema schema) throws SQLException {
+        NamedList<Table> tables = lookup(schemaKey(Kind.TABLES, schema, null));
+        if(tables != null && isFullyCached(schema, tables.toList())) {
+            return new SchemaSnapshot(schema, tables.toList());
+        }
+        if(!(backend instanceof DefaultServerMetaData)) {
+            return new SchemaSnapshot(schema, getTables(schema));
+        }
+        SchemaSnapshot snapshot = ((DefaultServerMetaData)backend).snapshot(schema, this);
+        tables = new NamedList<>();
+        for(Table table: snapshot.getTables()) {
+            tables.add(table.getName(), table);
+            store(schemaKey(Kind.TABLE_COLUMNS, schema, table.getName()), Collections.unmodifiableList(table.getColumns()));
+            store(schemaKey(Kind.INDEXES, schema, table.getName()), Collections.unmodifiableList(table.getIndexes()));
+        }
+        store(schemaKey(Kind.TABLES, schema, null), tables);
+        return snapshot;
+    }
+
+    /**
+     * Drops everything in the cache
+     */
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * Drops everything cached for a catalog, including its schemas and all objects in them. The list of catalogs
+     * itself is kept.
+     * @param catalog Catalog to drop from the cache
+     */
+    public void invalidate(Catalog catalog) {
+        invalidate(catalog.getName(), null, null);
+    }
+
+    /**
+     * Drops everything cached for a schema, including all objects in it
+     * @param schema Schema to drop from the cache
+     */
+    public void invalidate(Schema schema) {
+        invalidate(schema.getCatalog().getName(), schema.getName(), null);
+    }
+
+    /**
+     * Drops the cached columns and indexes of a table, both in this cache and in the {@code Table} object itself
+     * @param table Table to drop from the cache
+     */
+    public void invalidate(Table table) {
+        invalidate(table.getSchema().getCatalog().getName(), table.getSchema().getName(), table.getName());
+        table.clearCachedData();
+    }
+
+    private void invalidate(String catalogName, String schemaName, String name) {
+        Iterator<CacheKey> iterator = cache.keySet().iterator();
+        while(iterator.hasNext()) {
+            CacheKey key = iterator.next();
+            if(key.kind != Kind.CATALOGS
+                    && Objects.equals(key.catalogName, catalogName)
+                    && (schemaName == null || Objects.equals(key.schemaName, schemaName))
+                    && (name == null || Objects.equals(key.name, name))) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingServerMetaData{backend=" + backend + ", entries=" + cache.size() + "}";
+    }
+
+    private boolean isFullyCached(Schema schema, List<Table> tables) {
+        for(Table table: tables) {
+            if(lookup(schemaKey(Kind.TABLE_COLUMNS, schema, table.getName())) == null
+                    || lookup(schemaKey(Kind.INDEXES, schema, table.getName())) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CacheKey schemaKey(Kind kind, Schema schema, String name) {
+        return new CacheKey(kind, schema.getCatalog().getName(), schema.getName(), name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(CacheKey key) {
+        Entry entry = cache.get(key);
+        if(entry == null) {
+            return null;
+        }
+        if(System.nanoTime() - entry.loadedAt > timeToLiveNanos) {
+            cache.remove(key, entry);
+            return null;
+        }
+        return (T)entry.value;
+    }
+
+    /**
+     * Looks up a single object, first through the name index of the cached list it belongs to and then among the
+     * single objects previously looked up by name. Returns {@code NOT_FOUND} for cached misses and {@code null} if
+     * nothing is known about the name. A name missing from the list still goes to the backend, since some resolvers
+     * match names more loosely (case-insensitive, for example) when looking up a single object.
+     */
+    private Object lookupByName(CacheKey listKey, CacheKey key, String name) {
+        NamedList<?> list = lookup(listKey);
+        if(list != null) {
+            Object value = list.get(name);
+            if(value != null) {
+                return value;
+            }
+        }
+        return lookup(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unwrap(Object cached) {
+        return cached == NOT_FOUND ? null : (T)cached;
+    }
+
+    private void store(CacheKey key, Object value) {
+        cache.put(key, new Entry(value != null ? value : NOT_FOUND, System.nanoTime()));
+    }
+
+    private static class NamedList<T> {
+        private final List<T> items;
+        private final Map<String, T> itemsByName;
+
+        NamedList() {
+            this.items = new ArrayList<>();
+            this.itemsByName = new HashMap<>();
+        }
+
+        void add(String name, T item) {
+            items.add(item);
+            itemsByName.put(name, item);
+        }
+
+        T get(String name) {
+            return itemsByName.get(name);
+        }
+
+        List<T> toList() {
+            return new ArrayList<>(items);
+        }
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long loadedAt;
+
+        Entry(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static class CacheKey {
+        private final Kind kind;
+        private final String catalogName;
+        private final String schemaName;
+        private final String name;
+
+        CacheKey(Kind kind, String catalogName, String schemaName, String name) {
+            this.kind = kind;
+            this.catalogName = catalogName;
+            this.schemaName = schemaName;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, catalogName, schemaName, name);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey)obj;
+            return kind == other.kind
+                    && Objects.equals(catalogName, other.catalogName)
+                    && Objects.equals(schemaName, other.schemaName)
+                    && Objects.equals(name, other.name);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The result of a {@code MetaDataCrawler} run: snapshots of every schema that was crawled, grouped by catalog. Both
+ * catalogs and schemas are sorted by name. The snapshot cannot be modified.
+ * @see MetaDataCrawler
+ * @author Martin Berglund
+ */
+public class DatabaseSnapshot {
+
+    private final List<Catalog> catalogs;
+    private final Map<Catalog, List<SchemaSnapshot>> schemasByCatalog;
+    private final List<SchemaSnapshot> schemas;
+
+    /**
+     * Creates a new database snapshot out of a number of schema snapshots
+     * @param schemaSnapshots Snapshots of the schemas, in any order
+     */
+    public DatabaseSnapshot(List<SchemaSnapshot> schemaSnapshots) {
+        List<SchemaSnapshot> sorted = new ArrayList<>(schemaSnapshots);
+        Collections.sort(sorted, new Comparator<SchemaSnapshot>() {
+            @Override
+            public int compare(SchemaSnapshot o1, SchemaSnapshot o2) {
+                int result = o1.getSchema().getCatalog().compareTo(o2.getSchema().getCatalog());
+                if(result == 0) {
+                    result = o1.getSchema().compareTo(o2.getSchema());
+                }
+                return result;
+            }
+        });
+        Map<Catalog, List<SchemaSnapshot>> map = new LinkedHashMap<>();
+        for(SchemaSnapshot snapshot: sorted) {
+            Catalog catalog = snapshot.getSchema().getCatalog();
+            if(!map.containsKey(catalog)) {
+                map.put(catalog, new ArrayList<SchemaSnapshot>());
+            }
+            map.get(catalog).add(snapshot);
+        }
+        for(Map.Entry<Catalog, List<SchemaSnapshot>> entry: map.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        this.catalogs = Collections.unmodifiableList(new ArrayList<>(map.keySet()));
+        this.schemasByCatalog = Collections.unmodifiableMap(new HashMap<>(map));
+        this.schemas = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * @return All catalogs that had at least one schema crawled
+     */
+    public List<Catalog> getCatalogs() {
+        return catalogs;
+    }
+
+    /**
+     * @return Snapshots of all schemas that were crawled
+     */
+    public List<SchemaSnapshot> getSchemas() {
+        return schemas;
+    }
+
+    /**
+     * Returns the snapshots of all schemas crawled in a particular catalog
+     * @param catalog Catalog to get the schemas for
+     * @return Snapshots of the schemas in the catalog, empty if none were crawled
+     */
+    public List<SchemaSnapshot> getSchemas(Catalog catalog) {
+        List<SchemaSnapshot> result = schemasByCatalog.get(catalog);
+        if(result == null) {
+            return Collections.emptyList();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the snapshot of a schema by name
+     * @param catalogName Name of the catalog the schema belongs to
+     * @param schemaName Name of the schema
+     * @return Snapshot of the schema or {@code null} if there was no such schema among those crawled
+     */
+    public SchemaSnapshot getSchema(String catalogName, String schemaName) {
+        for(SchemaSnapshot snapshot: schemas) {
+            Schema schema = snapshot.getSchema();
+            if(Objects.equals(schema.getName(), schemaName) && Objects.equals(schema.getCatalog().getName(), catalogName)) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseSnapshot{catalogs=" + catalogs.size() + ", schemas=" + schemas.size() + "}";
+    }
+}
@@ -23,12 +23,15 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -44,6 +47,8 @@ import javax.sql.DataSource;
 public class DefaultServerMetaData implements ServerMetaData {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultServerMetaData.class);
+    private static final Map<String, Integer> SQL_TYPES_BY_NAME = createSQLTypesByName();
+
     protected final DataSource dataSource;
 
     /**
@@ -211,19 +216,11 @@ public class DefaultServerMetaData implements ServerMetaData {
     public List<TableColumn> getColumns(Table table) throws SQLException {
         try (Connection pooledConnection = dataSource.getConnection()) {
             List<TableColumn> result = new ArrayList<>();
-            ResultSet resultSet = getTableColumnMetadata(pooledConnection, table);
-            while (resultSet.next()) {
-                result.add(
-                        createTableColumn(
-                                table,
-                                resultSet.getInt("ORDINAL_POSITION"),
-                                resultSet.getString("COLUMN_NAME"),
-                                resultSet.getInt("DATA_TYPE"),
-                                resultSet.getString("TYPE_NAME"),
-                                resultSet.getInt("COLUMN_SIZE"),
-                                resultSet.getInt("DECIMAL_DIGITS"),
-                                resultSet.getInt("NULLABLE"),
-                                resultSet.getString("IS_AUTOINCREMENT")));
+            try (ResultSet resultSet = getTableColumnMetadata(pooledConnection, table)) {
+                boolean hasAutoIncrement = hasColumn(resultSet.getMetaData(), "IS_AUTOINCREMENT");
+                while (resultSet.next()) {
+                    result.add(readTableColumn(table, resultSet, hasAutoIncrement));
+                }
             }
             return result;
         }
@@ -237,25 +234,86 @@ public class DefaultServerMetaData implements ServerMetaData {
         Map<String, TableColumn> tableColumns = table.getColumnMap();
 
         try (Connection pooledConnection = dataSource.getConnection()) {
-            Map<String, Index> result = new HashMap<>();
-            ResultSet resultSet = getIndexMetadata(pooledConnection, table);
-            while (resultSet.next()) {
-                String indexName = resultSet.getString("INDEX_NAME");
-                String columnName = resultSet.getString("COLUMN_NAME");
-                if (result.containsKey(indexName)) {
-                    result.get(indexName).addColumn(tableColumns.get(columnName));
+            return readIndexes(pooledConnection, table, tableColumns);
+        }
+    }
+
+    /**
+     * Loads all tables in a schema, together with their columns and indexes, and returns them as a snapshot. Unlike
+     * going through {@code getTables(..)} and then calling {@code getColumns()} and {@code getIndexes()} on each table,
+     * this will do all the work on one connection and read the columns of all tables in a single call to
+     * {@code DatabaseMetaData.getColumns(..)}. JDBC can't list the indexes for more than one table at a time, so
+     * unless {@code getSchemaIndexMetadata(..)} has been overridden to read them all at once, indexes are still read
+     * table by table, but on the same connection.
+     * <p>
+     * The tables in the returned snapshot have their columns and indexes cached.
+     * @param schema Schema to take a snapshot of
+     * @return Snapshot of all tables in the schema
+     * @throws SQLException If there was an error reading the meta data
+     */
+    public SchemaSnapshot snapshot(Schema schema) throws SQLException {
+        return snapshot(schema, this);
+    }
+
+    /**
+     * Takes a snapshot like {@code snapshot(Schema)}, but the tables in it will load any further meta data through
+     * {@code owner}. This lets {@code CachingServerMetaData} bulk load a schema through this resolver and still hand
+     * out the tables as its own. Resolvers changing how snapshots are taken should override this method.
+     * @param schema Schema to take a snapshot of
+     * @param owner Meta data resolver the tables in the snapshot should belong to
+     * @return Snapshot of all tables in the schema
+     * @throws SQLException If there was an error reading the meta data
+     */
+    protected SchemaSnapshot snapshot(Schema schema, ServerMetaData owner) throws SQLException {
+        try (Connection pooledConnection = dataSource.getConnection()) {
+            Map<String, Table> tables = new LinkedHashMap<>();
+            for (String tableName : readResultSetColumn(getTableMetadata(pooledConnection, schema, null), 3)) {
+                tables.put(tableName, owner == this ? createTable(schema, tableName) : new Table(owner, schema, tableName));
+            }
+
+            Map<String, List<TableColumn>> columnsByTable = new HashMap<>();
+            for (String tableName : tables.keySet()) {
+                columnsByTable.put(tableName, new ArrayList<TableColumn>());
+            }
+            try (ResultSet resultSet = getSchemaColumnMetadata(pooledConnection, schema)) {
+                boolean hasAutoIncrement = hasColumn(resultSet.getMetaData(), "IS_AUTOINCREMENT");
+                while (resultSet.next()) {
+                    Table table = tables.get(resultSet.getString("TABLE_NAME"));
+                    if (table == null) {
+                        //Column of a view or system table
+                        continue;
+                    }
+                    columnsByTable.get(table.getName()).add(readTableColumn(table, resultSet, hasAutoIncrement));
+                }
+            }
+
+            Map<String, Map<String, TableColumn>> columnMaps = new HashMap<>();
+            for (Table table : tables.values()) {
+                Map<String, TableColumn> columnMap = new HashMap<>();
+                for (TableColumn column : columnsByTable.get(table.getName())) {
+                    columnMap.put(column.getName(), column);
+                }
+                columnMaps.put(table.getName(), columnMap);
+            }
+
+            Map<String, List<Index>> indexesByTable = null;
+            ResultSet indexResultSet = getSchemaIndexMetadata(pooledConnection, schema);
+            if (indexResultSet != null) {
+                indexesByTable = readIndexes(indexResultSet, tables, columnMaps);
+            }
+            for (Table table : tables.values()) {
+                List<TableColumn> columns = columnsByTable.get(table.getName());
+                Collections.sort(columns);
+                List<Index> indexes;
+                if (indexesByTable != null) {
+                    indexes = indexesByTable.get(table.getName());
                 }
                 else {
-                    result.put(indexName,
-                            createIndex(
-                                    table,
-                                    indexName,
-                                    resultSet.getShort("TYPE"),
-                                    !resultSet.getBoolean("NON_UNIQUE"),
-                                    tableColumns.get(columnName)));
+                    indexes = readIndexes(pooledConnection, table, columnMaps.get(table.getName()));
                 }
+                table.setCachedData(columns, indexes);
             }
-            return sortIndexList(new ArrayList<>(result.values()));
+            return new SchemaSnapshot(schema, new ArrayList<>(tables.values()));
         }
     }
 
@@ -345,6 +403,80 @@ public class DefaultServerMetaData implements ServerMetaData {
         }
     }
     
+    protected TableColumn readTableColumn(Table table, ResultSet resultSet, boolean hasAutoIncrement) throws SQLException {
+        return createTableColumn(
+                table,
+                resultSet.getInt("ORDINAL_POSITION"),
+                resultSet.getString("COLUMN_NAME"),
+                readSQLType(resultSet),
+                resultSet.getString("TYPE_NAME"),
+                resultSet.getInt("COLUMN_SIZE"),
+                resultSet.getInt("DECIMAL_DIGITS"),
+                resultSet.getInt("NULLABLE"),
+                hasAutoIncrement ? resultSet.getString("IS_AUTOINCREMENT") : null);
+    }
+
+    /**
+     * Reads the {@code java.sql.Types} code of the column on the current row of a column meta data result set. The
+     * result sets from {@code DatabaseMetaData} has this in the {@code DATA_TYPE} column; resolvers that read column
+     * meta data with their own queries can override this to work it out from the type name instead, see
+     * {@code getSQLType(..)}.
+     * @param resultSet Column meta data result set, positioned on the column to read
+     * @return Type code of the column, from {@code java.sql.Types}
+     * @throws SQLException If there was an error reading from the result set
+     */
+    protected int readSQLType(ResultSet resultSet) throws SQLException {
+        return resultSet.getInt("DATA_TYPE");
+    }
+
+    /**
+     * Translates the name of a data type, as the database server calls it, to a {@code java.sql.Types} code. This
+     * knows about the common standard SQL names and a few vendor specific ones; resolvers for a particular database
+     * server can override it to handle their own types. Anything not recognized is {@code Types.OTHER}.
+     * @param typeName Name of the data type
+     * @return Type code from {@code java.sql.Types}
+     */
+    protected int getSQLType(String typeName) {
+        if (typeName == null) {
+            return Types.OTHER;
+        }
+        Integer sqlType = SQL_TYPES_BY_NAME.get(typeName.toUpperCase());
+        return sqlType != null ? sqlType : Types.OTHER;
+    }
+
+    /**
+     * Runs a meta data query against the database and returns the result set. The statement will be closed together
+     * with the result set.
+     * @param pooledConnection Connection to run the query on
+     * @param SQL Query to run
+     * @param parameters Parameters to the query
+     * @return Result set of the query
+     * @throws SQLException If there was an error running the query
+     */
+    protected ResultSet executeMetaDataQuery(Connection pooledConnection, String SQL, Object... parameters) throws SQLException {
+        PreparedStatement statement = pooledConnection.prepareStatement(SQL);
+        try {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.closeOnCompletion();
+            return statement.executeQuery();
+        }
+        catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+    }
+
+    protected boolean hasColumn(ResultSetMetaData resultSetMetaData, String columnLabel) throws SQLException {
+        for (int i = 1; i <= resultSetMetaData.getColumnCount(); i++) {
+            if (columnLabel.equalsIgnoreCase(resultSetMetaData.getColumnLabel(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected Catalog createCatalog(String catalogName) {
         return new Catalog(this, catalogName);
     }
@@ -462,6 +594,29 @@ public class DefaultServerMetaData implements ServerMetaData {
                 null /* columnNamePattern */);
     }
 
+    protected ResultSet getSchemaColumnMetadata(Connection pooledConnection, Schema schema) throws SQLException {
+        return pooledConnection.getMetaData().getColumns(
+                schema.getCatalog().getName(), 
+                schema.getName(), 
+                "%", 
+                "%");
+    }
+
+    /**
+     * Returns the index meta data of all tables in a schema, in the same format as
+     * {@code DatabaseMetaData.getIndexInfo(..)} (but only the {@code TABLE_NAME}, {@code INDEX_NAME},
+     * {@code COLUMN_NAME}, {@code NON_UNIQUE} and {@code TYPE} columns are used), ordered by table, index and column
+     * position. Since there is no way to do this through JDBC, the default implementation returns {@code null}, which
+     * makes {@code snapshot(..)} read the indexes table by table.
+     * @param pooledConnection Connection to read the meta data on
+     * @param schema Schema to read index meta data for
+     * @return Index meta data for the whole schema, or {@code null} if this isn't supported
+     * @throws SQLException If there was an error reading the meta data
+     */
+    protected ResultSet getSchemaIndexMetadata(Connection pooledConnection, Schema schema) throws SQLException {
+        return null;
+    }
+
     protected ResultSet getViewColumnMetadata(Connection pooledConnection, View view) throws SQLException {
         return pooledConnection.getMetaData().getColumns(
                 view.getSchema().getCatalog().getName(), 
@@ -484,8 +639,108 @@ public class DefaultServerMetaData implements ServerMetaData {
                 functionName);
     }
 
+    protected List<Index> readIndexes(Connection pooledConnection, Table table, Map<String, TableColumn> tableColumns) throws SQLException {
+        return readIndexes(
+                getIndexMetadata(pooledConnection, table),
+                Collections.singletonMap(table.getName(), table),
+                Collections.singletonMap(table.getName(), tableColumns))
+                .get(table.getName());
+    }
+
+    protected Map<String, List<Index>> readIndexes(
+            ResultSet resultSet,
+            Map<String, Table> tables,
+            Map<String, Map<String, TableColumn>> tableColumns) throws SQLException {
+
+        Map<String, Map<String, Index>> indexesByTable = new HashMap<>();
+        for (String tableName : tables.keySet()) {
+            indexesByTable.put(tableName, new HashMap<String, Index>());
+        }
+        try {
+            while (resultSet.next()) {
+                Table table = tables.get(resultSet.getString("TABLE_NAME"));
+                if (table == null) {
+                    continue;
+                }
+                Map<String, Index> result = indexesByTable.get(table.getName());
+                Map<String, TableColumn> columns = tableColumns.get(table.getName());
+                String indexName = resultSet.getString("INDEX_NAME");
+                String columnName = resultSet.getString("COLUMN_NAME");
+                if (result.containsKey(indexName)) {
+                    result.get(indexName).addColumn(columns.get(columnName));
+                }
+                else {
+                    result.put(indexName,
+                            createIndex(
+                                    table,
+                                    indexName,
+                                    resultSet.getShort("TYPE"),
+                                    !resultSet.getBoolean("NON_UNIQUE"),
+                                    columns.get(columnName)));
+                }
+            }
+        }
+        finally {
+            resultSet.close();
+        }
+        Map<String, List<Index>> result = new HashMap<>();
+        for (Map.Entry<String, Map<String, Index>> entry : indexesByTable.entrySet()) {
+            result.put(entry.getKey(), sortIndexList(new ArrayList<>(entry.getValue().values())));
+        }
+        return result;
+    }
+
     protected List<Index> sortIndexList(List<Index> indexes) {
         Collections.sort(indexes);
         return indexes;
     }
+
+    private static Map<String, Integer> createSQLTypesByName() {
+        Map<String, Integer> map = new HashMap<>();
+        map.put("BIT", Types.BIT);
+        map.put("BOOLEAN", Types.BOOLEAN);
+        map.put("BOOL", Types.BOOLEAN);
+        map.put("TINYINT", Types.TINYINT);
+        map.put("SMALLINT", Types.SMALLINT);
+        map.put("INT2", Types.SMALLINT);
+        map.put("MEDIUMINT", Types.INTEGER);
+        map.put("INT", Types.INTEGER);
+        map.put("INTEGER", Types.INTEGER);
+        map.put("INT4", Types.INTEGER);
+        map.put("BIGINT", Types.BIGINT);
+        map.put("INT8", Types.BIGINT);
+        map.put("REAL", Types.REAL);
+        map.put("FLOAT4", Types.REAL);
+        map.put("FLOAT", Types.FLOAT);
+        map.put("DOUBLE", Types.DOUBLE);
+        map.put("DOUBLE PRECISION", Types.DOUBLE);
+        map.put("FLOAT8", Types.DOUBLE);
+        map.put("NUMERIC", Types.NUMERIC);
+        map.put("DECIMAL", Types.DECIMAL);
+        map.put("CHAR", Types.CHAR);
+        map.put("CHARACTER", Types.CHAR);
+        map.put("BPCHAR", Types.CHAR);
+        map.put("NCHAR", Types.NCHAR);
+        map.put("VARCHAR", Types.VARCHAR);
+        map.put("CHARACTER VARYING", Types.VARCHAR);
+        map.put("VARCHAR_IGNORECASE", Types.VARCHAR);
+        map.put("TEXT", Types.VARCHAR);
+        map.put("NVARCHAR", Types.NVARCHAR);
+        map.put("CLOB", Types.CLOB);
+        map.put("CHARACTER LARGE OBJECT", Types.CLOB);
+        map.put("BINARY", Types.BINARY);
+        map.put("VARBINARY", Types.VARBINARY);
+        map.put("BINARY VARYING", Types.VARBINARY);
+        map.put("BYTEA", Types.BINARY);
+        map.put("BLOB", Types.BLOB);
+        map.put("BINARY LARGE OBJECT", Types.BLOB);
+        map.put("DATE", Types.DATE);
+        map.put("TIME", Types.TIME);
+        map.put("TIME WITHOUT TIME ZONE", Types.TIME);
+        map.put("DATETIME", Types.TIMESTAMP);
+        map.put("TIMESTAMP", Types.TIMESTAMP);
+        map.put("TIMESTAMP WITHOUT TIME ZONE", Types.TIMESTAMP);
+        map.put("ARRAY", Types.ARRAY);
+        return Collections.unmodifiableMap(map);
+    }
 }
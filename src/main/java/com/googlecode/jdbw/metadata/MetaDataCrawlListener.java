@@ -0,0 +1,48 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.metadata;
+
+import java.util.List;
+
+/**
+ * Callback interface for following the progress of a {@code MetaDataCrawler}. The callbacks are made on the thread
+ * that called {@code crawl(..)}, one at a time, so implementations don't need to be thread-safe, but they should be
+ * quick since the crawler won't hand out any new work while a callback is running.
+ * @see MetaDataCrawler
+ * @author Martin Berglund
+ */
+public interface MetaDataCrawlListener {
+
+    /**
+     * Called when the list of schemas in a catalog has been loaded. The schemas will be loaded after this.
+     * @param catalog Catalog whose schemas were loaded
+     * @param schemas All schemas in the catalog
+     */
+    void onCatalogLoaded(Catalog catalog, List<Schema> schemas);
+
+    /**
+     * Called when a schema has been loaded, with all its tables, columns and indexes.
+     * @param snapshot The loaded schema
+     * @param schemasLoaded How many schemas have been loaded so far, including this one
+     * @param schemasFound How many schemas the crawler has found so far; this will grow while catalogs are still being
+     *                     listed
+     */
+    void onSchemaLoaded(SchemaSnapshot snapshot, int schemasLoaded, int schemasFound);
+}
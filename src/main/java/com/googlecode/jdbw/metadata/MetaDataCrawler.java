@@ -0,0 +1,216 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.metadata;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Loads the structure of a whole database, or a selection of catalogs or schemas, by running the meta data lookups
+ * concurrently instead of one after the other. Listing the schemas of a catalog and loading a schema (through
+ * {@code Schema.snapshot()}, which reads all its tables, columns and indexes) are each one task, and each task uses
+ * one connection from the meta data resolver's data source while it runs. At most {@code parallelism} tasks are
+ * running at the same time, so as long as the connection pool has at least that many connections to spare the
+ * crawler won't starve the rest of the application. Schemas are loaded as soon as the catalog listing them has been
+ * read, so there is no waiting for all catalogs before the first schema is loaded.
+ * <p>
+ * If any lookup fails, the crawl is aborted, the tasks still waiting are cancelled and the error is thrown from
+ * {@code crawl(..)}.
+ * @see DatabaseSnapshot
+ * @see MetaDataCrawlListener
+ * @author Martin Berglund
+ */
+public class MetaDataCrawler {
+
+    private final ServerMetaData metaDataResolver;
+    private final ExecutorService executorService;
+    private final int parallelism;
+    private volatile MetaDataCrawlListener listener;
+
+    /**
+     * Creates a new crawler
+     * @param metaDataResolver Meta data resolver to load catalogs from
+     * @param executorService Executor service to run the lookups on, which is not shut down by the crawler
+     * @param parallelism Maximum number of lookups to run at the same time, which is also the maximum number of
+     *                    connections the crawler will use
+     */
+    public MetaDataCrawler(ServerMetaData metaDataResolver, ExecutorService executorService, int parallelism) {
+        if(metaDataResolver == null) {
+            throw new IllegalArgumentException("Cannot create a MetaDataCrawler with null metaDataResolver");
+        }
+        if(executorService == null) {
+            throw new IllegalArgumentException("Cannot create a MetaDataCrawler with null executorService");
+        }
+        if(parallelism <= 0) {
+            throw new IllegalArgumentException("Cannot create a MetaDataCrawler with parallelism <= 0");
+        }
+        this.metaDataResolver = metaDataResolver;
+        this.executorService = executorService;
+        this.parallelism = parallelism;
+        this.listener = null;
+    }
+
+    /**
+     * Sets a listener that is told about the progress of the crawl
+     * @param listener Listener to notify, or {@code null} to remove the current listener
+     */
+    public void setListener(MetaDataCrawlListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return Maximum number of lookups this crawler runs at the same time
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Loads every schema in every catalog of the database
+     * @return Snapshot of all schemas in the database
+     * @throws SQLException If any of the lookups failed
+     */
+    public DatabaseSnapshot crawl() throws SQLException {
+        return crawl(metaDataResolver.getCatalogs());
+    }
+
+    /**
+     * Loads every schema in a number of catalogs
+     * @param catalogs Catalogs to load
+     * @return Snapshot of all schemas in the catalogs
+     * @throws SQLException If any of the lookups failed
+     */
+    public DatabaseSnapshot crawl(Collection<Catalog> catalogs) throws SQLException {
+        return run(catalogs, new ArrayList<Schema>());
+    }
+
+    /**
+     * Loads a number of schemas
+     * @param schemas Schemas to load
+     * @return Snapshot of the schemas
+     * @throws SQLException If any of the lookups failed
+     */
+    public DatabaseSnapshot crawlSchemas(Collection<Schema> schemas) throws SQLException {
+        return run(new ArrayList<Catalog>(), schemas);
+    }
+
+    private DatabaseSnapshot run(Collection<Catalog> catalogs, Collection<Schema> schemas) throws SQLException {
+        CompletionService<Object> completionService = new ExecutorCompletionService<>(executorService);
+        Deque<Callable<Object>> waiting = new ArrayDeque<>();
+        List<Future<Object>> futures = new ArrayList<>();
+        List<SchemaSnapshot> result = new ArrayList<>();
+        int running = 0;
+        int schemasFound = schemas.size();
+
+        for(Catalog catalog: catalogs) {
+            waiting.add(new CatalogTask(catalog));
+        }
+        for(Schema schema: schemas) {
+            waiting.add(new SchemaTask(schema));
+        }
+        try {
+            while(!waiting.isEmpty() || running > 0) {
+                while(!waiting.isEmpty() && running < parallelism) {
+                    futures.add(completionService.submit(waiting.poll()));
+                    running++;
+                }
+                Object completed = completionService.take().get();
+                running--;
+
+                MetaDataCrawlListener listener = this.listener;
+                if(completed instanceof CatalogTask) {
+                    CatalogTask catalogTask = (CatalogTask)completed;
+                    for(Schema schema: catalogTask.schemas) {
+                        waiting.add(new SchemaTask(schema));
+                    }
+                    schemasFound += catalogTask.schemas.size();
+                    if(listener != null) {
+                        listener.onCatalogLoaded(catalogTask.catalog, catalogTask.schemas);
+                    }
+                }
+                else {
+                    SchemaSnapshot snapshot = (SchemaSnapshot)completed;
+                    result.add(snapshot);
+                    if(listener != null) {
+                        listener.onSchemaLoaded(snapshot, result.size(), schemasFound);
+                    }
+                }
+            }
+            return new DatabaseSnapshot(result);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while crawling database meta data", e);
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof SQLException) {
+                throw (SQLException)e.getCause();
+            }
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new SQLException("Error when crawling database meta data", e.getCause());
+        }
+        finally {
+            for(Future<Object> future: futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static class CatalogTask implements Callable<Object> {
+        private final Catalog catalog;
+        private List<Schema> schemas;
+
+        CatalogTask(Catalog catalog) {
+            this.catalog = catalog;
+            this.schemas = null;
+        }
+
+        @Override
+        public Object call() throws Exception {
+            schemas = catalog.getSchemas();
+            return this;
+        }
+    }
+
+    private static class SchemaTask implements Callable<Object> {
+        private final Schema schema;
+
+        SchemaTask(Schema schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        public Object call() throws Exception {
+            return schema.snapshot();
+        }
+    }
+}
@@ -103,6 +103,24 @@ public class Schema implements Comparable<Schema> {
         return metaDataResolver.getTable(this, tableName);
     }
 
+    /**
+     * Loads all tables under this schema together with their columns and indexes and returns them as a
+     * {@code SchemaSnapshot}. If the meta data resolver is a {@code DefaultServerMetaData}, this will use its bulk
+     * loading. A {@code CachingServerMetaData} takes the snapshot through its backend the same way and keeps the
+     * result, see {@code CachingServerMetaData.snapshot(..)}. Otherwise the tables are loaded one by one.
+     * @return Snapshot of all tables in this schema
+     * @throws SQLException If an error occurred while reading the meta data
+     */
+    public SchemaSnapshot snapshot() throws SQLException {
+        if(metaDataResolver instanceof CachingServerMetaData) {
+            return ((CachingServerMetaData)metaDataResolver).snapshot(this);
+        }
+        if(metaDataResolver instanceof DefaultServerMetaData) {
+            return ((DefaultServerMetaData)metaDataResolver).snapshot(this);
+        }
+        return new SchemaSnapshot(this, getTables());
+    }
+
     /**
      * Loads all views under this schema, creates matching {@code View} objects and returns them.
      * @return List of all views in this schema
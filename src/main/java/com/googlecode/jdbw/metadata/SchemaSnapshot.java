@@ -0,0 +1,252 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.metadata;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory copy of all tables in a schema, together with their columns and indexes. The tables in a snapshot have
+ * their columns and indexes already loaded, so going through them doesn't touch the database (unless you call
+ * {@code Table.clearCachedData()} on one of them, in which case it will load them again through its meta data
+ * resolver). The snapshot itself cannot be modified.
+ * <p>
+ * Snapshots can be written to a stream with {@code writeTo(..)} and read back with {@code readFrom(..)}, which lets a
+ * tool start up with the schema structure it saw last time instead of loading it all from the database again.
+ * @see DefaultServerMetaData#snapshot(Schema)
+ * @see Schema#snapshot()
+ * @author Martin Berglund
+ */
+public class SchemaSnapshot {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Schema schema;
+    private final long createdAt;
+    private final List<Table> tables;
+    private final Map<String, Table> tablesByName;
+
+    /**
+     * Creates a snapshot out of tables that have already been loaded. This will load the columns and indexes of every
+     * table that doesn't have them cached yet.
+     * @param schema Schema the tables belongs to
+     * @param tables All tables in the schema
+     * @throws SQLException If there was an error while loading columns or indexes
+     */
+    public SchemaSnapshot(Schema schema, List<Table> tables) throws SQLException {
+        this(schema, tables, System.currentTimeMillis());
+    }
+
+    private SchemaSnapshot(Schema schema, List<Table> tables, long createdAt) throws SQLException {
+        this.schema = schema;
+        this.createdAt = createdAt;
+        this.tables = Collections.unmodifiableList(new ArrayList<>(tables));
+        Map<String, Table> map = new HashMap<>();
+        for(Table table: tables) {
+            table.getColumns();
+            table.getIndexes();
+            map.put(table.getName(), table);
+        }
+        this.tablesByName = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return Schema this is a snapshot of
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return When the snapshot was taken, in milliseconds since the epoch
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return All tables in the schema at the time of the snapshot
+     */
+    public List<Table> getTables() {
+        return tables;
+    }
+
+    /**
+     * Returns a table in the snapshot by name
+     * @param tableName Name of the table
+     * @return The table or {@code null} if there was no table with this name
+     */
+    public Table getTable(String tableName) {
+        return tablesByName.get(tableName);
+    }
+
+    /**
+     * Writes the snapshot to a stream, in a binary format that can be read back using {@code readFrom(..)}. The stream
+     * is not closed.
+     * @param outputStream Stream to write to
+     * @throws IOException If there was an error writing to the stream
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(createdAt);
+        writeString(out, schema.getCatalog().getName());
+        writeString(out, schema.getName());
+        out.writeInt(tables.size());
+        try {
+            for(Table table: tables) {
+                writeString(out, table.getName());
+                List<TableColumn> columns = table.getColumns();
+                out.writeInt(columns.size());
+                for(TableColumn column: columns) {
+                    out.writeInt(column.getOrdinalPosition());
+                    writeString(out, column.getName());
+                    out.writeInt(column.getSqlType());
+                    writeString(out, column.getNativeTypeName());
+                    out.writeInt(column.getColumnSize());
+                    out.writeInt(column.getDecimalDigits());
+                    out.writeInt(toJDBCNullable(column.getNullable()));
+                    writeString(out, column.getAutoIncrement());
+                }
+                List<Index> indexes = table.getIndexes();
+                out.writeInt(indexes.size());
+                for(Index index: indexes) {
+                    writeString(out, index.getName());
+                    out.writeBoolean(index.isUnique());
+                    out.writeBoolean(index.isClustered());
+                    out.writeBoolean(index.isPrimaryKey());
+                    out.writeInt(index.getNrOfColumns());
+                    for(String columnName: index.getColumnNames()) {
+                        writeString(out, columnName);
+                    }
+                }
+            }
+        }
+        catch(SQLException e) {
+            //Can't really happen since all tables in the snapshot have their data cached
+            throw new IOException("Unable to load table meta data while writing schema snapshot", e);
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a snapshot previously written by {@code writeTo(..)}. The catalog, schema and tables of the snapshot will
+     * be created with {@code metaDataResolver} so that anything not part of the snapshot, like the views in the
+     * schema, can still be loaded from the database.
+     * @param inputStream Stream to read from
+     * @param metaDataResolver Meta data resolver the catalog, schema and tables should use
+     * @return The snapshot read from the stream
+     * @throws IOException If there was an error reading from the stream or the data wasn't a schema snapshot
+     */
+    public static SchemaSnapshot readFrom(InputStream inputStream, ServerMetaData metaDataResolver) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        int version = in.readInt();
+        if(version != FORMAT_VERSION) {
+            throw new IOException("Unsupported schema snapshot format version " + version);
+        }
+        long createdAt = in.readLong();
+        Catalog catalog = new Catalog(metaDataResolver, readString(in));
+        Schema schema = new Schema(metaDataResolver, catalog, readString(in));
+        int numberOfTables = in.readInt();
+        List<Table> tables = new ArrayList<>(numberOfTables);
+        for(int i = 0; i < numberOfTables; i++) {
+            Table table = new Table(metaDataResolver, schema, readString(in));
+            int numberOfColumns = in.readInt();
+            List<TableColumn> columns = new ArrayList<>(numberOfColumns);
+            Map<String, TableColumn> columnMap = new HashMap<>();
+            for(int j = 0; j < numberOfColumns; j++) {
+                TableColumn column = new TableColumn(
+                        table,
+                        in.readInt(),
+                        readString(in),
+                        in.readInt(),
+                        readString(in),
+                        in.readInt(),
+                        in.readInt(),
+                        in.readInt(),
+                        readString(in));
+                columns.add(column);
+                columnMap.put(column.getName(), column);
+            }
+            int numberOfIndexes = in.readInt();
+            List<Index> indexes = new ArrayList<>(numberOfIndexes);
+            for(int j = 0; j < numberOfIndexes; j++) {
+                String indexName = readString(in);
+                boolean unique = in.readBoolean();
+                boolean clustered = in.readBoolean();
+                boolean primaryKey = in.readBoolean();
+                TableColumn[] indexColumns = new TableColumn[in.readInt()];
+                for(int k = 0; k < indexColumns.length; k++) {
+                    indexColumns[k] = columnMap.get(readString(in));
+                }
+                indexes.add(new Index(table, indexName, unique, clustered, primaryKey, indexColumns));
+            }
+            table.setCachedData(columns, indexes);
+            tables.add(table);
+        }
+        try {
+            return new SchemaSnapshot(schema, tables, createdAt);
+        }
+        catch(SQLException e) {
+            //Can't really happen since all tables have their data cached
+            throw new IOException("Unable to create schema snapshot", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaSnapshot{" + schema.getCatalog().getName() + "." + schema.getName() + ", tables=" + tables.size() + "}";
+    }
+
+    private static int toJDBCNullable(Nullability nullability) {
+        switch(nullability) {
+            case NULLABLE:
+                return DatabaseMetaData.columnNullable;
+            case NOT_NULLABLE:
+                return DatabaseMetaData.columnNoNulls;
+            default:
+                return DatabaseMetaData.columnNullableUnknown;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        out.writeBoolean(string != null);
+        if(string != null) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        if(in.readBoolean()) {
+            return in.readUTF();
+        }
+        return null;
+    }
+}
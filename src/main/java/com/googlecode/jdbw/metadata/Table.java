@@ -46,8 +46,9 @@ public class Table implements Comparable<Table> {
     private final ServerMetaData metaDataResolver;
     private final Schema schema;
     private final String name;
-    private List<TableColumn> cachedColumns;
-    private List<Index> cachedIndexes;
+    private volatile List<TableColumn> cachedColumns;
+    private volatile Map<String, TableColumn> cachedColumnMap;
+    private volatile List<Index> cachedIndexes;
 
     /**
      * Creates a new table object based on a specified schema that it belongs to, a name and a meta-data resolving
@@ -61,6 +62,7 @@ public class Table implements Comparable<Table> {
         this.schema = schema;
         this.name = tableName;
         this.cachedColumns = null;
+        this.cachedColumnMap = null;
         this.cachedIndexes = null;
     }
 
@@ -91,7 +93,7 @@ public class Table implements Comparable<Table> {
         if(getPrimaryKey() != null) {
             return getPrimaryKey();
         }
-        for(Index index : getIndexes()) {
+        for(Index index : loadIndexes()) {
             if(index.isUnique()) {
                 return index;
             }
@@ -106,7 +108,7 @@ public class Table implements Comparable<Table> {
      * @throws SQLException In an error occurred while reading information from the database
      */
     public Index getPrimaryKey() throws SQLException {
-        for(Index index : getIndexes()) {
+        for(Index index : loadIndexes()) {
             if(index.isPrimaryKey()) {
                 return index;
             }
@@ -121,13 +123,39 @@ public class Table implements Comparable<Table> {
      * @throws SQLException In an error occurred while reading information from the database
      */
     public List<TableColumn> getColumns() throws SQLException {
+        return new ArrayList<>(loadColumns());
+    }
+
+    private List<TableColumn> loadColumns() throws SQLException {
         List<TableColumn> cache = this.cachedColumns;
         if(cache == null) {
-            cache = metaDataResolver.getColumns(this);
+            cache = cacheColumns(metaDataResolver.getColumns(this));
+        }
+        return cache;
+    }
+
+    private List<TableColumn> cacheColumns(List<TableColumn> columns) {
+        List<TableColumn> cache = Collections.unmodifiableList(new ArrayList<>(columns));
+        Map<String, TableColumn> columnMap = new HashMap<>();
+        for(TableColumn column: cache) {
+            columnMap.put(column.getName(), column);
         }
+        this.cachedColumnMap = columnMap;
+        this.cachedColumns = cache;
         return cache;
     }
 
+    /**
+     * Fills the column and index caches with data that has already been loaded, for example when loading all tables
+     * of a schema in bulk
+     * @param columns Columns of this table, in order
+     * @param indexes Indexes of this table, including the primary key
+     */
+    void setCachedData(List<TableColumn> columns, List<Index> indexes) {
+        cacheColumns(columns);
+        this.cachedIndexes = Collections.unmodifiableList(new ArrayList<>(indexes));
+    }
+
     /**
      * Loads all the indexes in this table, creates {@code Index} objects for them and returns those in a list. This
      * will include the primary key of the table, if there is one.
@@ -135,9 +163,14 @@ public class Table implements Comparable<Table> {
      * @throws SQLException In an error occurred while reading information from the database
      */
     public List<Index> getIndexes() throws SQLException {
+        return new ArrayList<>(loadIndexes());
+    }
+
+    private List<Index> loadIndexes() throws SQLException {
         List<Index> cache = this.cachedIndexes;
         if(cache == null) {
-            cache = metaDataResolver.getIndexes(this);
+            cache = Collections.unmodifiableList(new ArrayList<>(metaDataResolver.getIndexes(this)));
+            this.cachedIndexes = cache;
         }
         return cache;
     }
@@ -150,7 +183,7 @@ public class Table implements Comparable<Table> {
      */
     public Map<String, Index> getIndexMap() throws SQLException {
         Map<String, Index> indexMap = new TreeMap<>();
-        for(Index index : getIndexes()) {
+        for(Index index : loadIndexes()) {
             indexMap.put(index.getName(), index);
         }
         return new HashMap<>(indexMap);
@@ -163,7 +196,13 @@ public class Table implements Comparable<Table> {
      * @throws SQLException In an error occurred while reading information from the database
      */
     public TableColumn getColumn(String columnName) throws SQLException {
-        for(TableColumn column: getColumns()) {
+        loadColumns();
+        Map<String, TableColumn> columnMap = this.cachedColumnMap;
+        if(columnMap != null) {
+            return columnMap.get(columnName);
+        }
+        //The cache was cleared concurrently
+        for(TableColumn column: loadColumns()) {
             if(Objects.equals(column.getName(), columnName)) {
                 return column;
             }
@@ -180,7 +219,7 @@ public class Table implements Comparable<Table> {
      * columns in the table
      */
     public TableColumn getColumn(int columnIndex) throws SQLException {
-        return getColumns().get(columnIndex);
+        return loadColumns().get(columnIndex);
     }
 
     /**
@@ -190,11 +229,11 @@ public class Table implements Comparable<Table> {
      * @throws SQLException In an error occurred while reading information from the database
      */
     public Map<String, TableColumn> getColumnMap() throws SQLException {
-        Map<String, TableColumn> columnMap = new TreeMap<>();
-        for(TableColumn column : getColumns()) {
+        Map<String, TableColumn> columnMap = new HashMap<>();
+        for(TableColumn column : loadColumns()) {
             columnMap.put(column.getName(), column);
         }
-        return new HashMap<>(columnMap);
+        return columnMap;
     }
 
     /**
@@ -204,7 +243,7 @@ public class Table implements Comparable<Table> {
      * the database
      */
     public int getColumnCount() throws SQLException {
-        return getColumns().size();
+        return loadColumns().size();
     }
 
     @Override
@@ -218,6 +257,7 @@ public class Table implements Comparable<Table> {
      */
     public void clearCachedData() {
         cachedColumns = null;
+        cachedColumnMap = null;
         cachedIndexes = null;
     }
     
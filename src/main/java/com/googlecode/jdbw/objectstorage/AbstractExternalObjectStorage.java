@@ -18,15 +18,53 @@
  */
 package com.googlecode.jdbw.objectstorage;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public abstract class AbstractExternalObjectStorage extends AbstractObjectStorage implements ExternalObjectStorage {
     private final ObjectStorage localStorage;
+    private volatile boolean readThrough;
+    private volatile int remoteFetchSize;
 
     public AbstractExternalObjectStorage(ObjectStorage backend) {
         this.localStorage = backend;
+        this.readThrough = true;
+        this.remoteFetchSize = 500;
+    }
+
+    /**
+     * Decides what {@code getSome(..)} does when only some of the objects are found locally. In read-through mode,
+     * which is the default, the missing objects are fetched remotely and merged with the local ones. With read-through
+     * turned off, {@code getSome(..)} only goes remote if none of the objects were found locally.
+     * @param readThrough {@code true} to fetch missing objects remotely
+     */
+    public void setReadThrough(boolean readThrough) {
+        this.readThrough = readThrough;
+    }
+
+    public boolean isReadThrough() {
+        return readThrough;
+    }
+
+    /**
+     * @param remoteFetchSize Maximum number of keys {@code getSome(..)} will pass to one call of
+     *                        {@code remoteGetSome(..)}, to keep the {@code IN (...)} lists of the remote queries bounded
+     */
+    public void setRemoteFetchSize(int remoteFetchSize) {
+        if(remoteFetchSize <= 0) {
+            throw new IllegalArgumentException("Cannot call setRemoteFetchSize(..) with remoteFetchSize <= 0");
+        }
+        this.remoteFetchSize = remoteFetchSize;
+    }
+
+    public int getRemoteFetchSize() {
+        return remoteFetchSize;
     }
 
     protected ObjectStorage getLocalStorage() {
@@ -70,10 +108,54 @@ public abstract class AbstractExternalObjectStorage extends AbstractObjectStorag
     @Override
     public <K, O extends Storable<K>> List<O> getSome(Class<O> type, Collection<K> keys) {
         List<O> objects = localStorage.getSome(type, keys);
-        if(objects.isEmpty()) {
-            objects = remoteGetSome(type, keys);
+        if(!readThrough) {
+            if(objects.isEmpty()) {
+                objects = remoteGetSome(type, keys);
+            }
+            return objects;
+        }
+        
+        Map<K, O> found = new HashMap<>();
+        for(O object: objects) {
+            found.put(object.getId(), object);
+        }
+        Set<K> missing = new LinkedHashSet<>();
+        for(K key: keys) {
+            if(!found.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        if(missing.isEmpty()) {
+            return objects;
+        }
+        
+        List<K> chunk = new ArrayList<>(Math.min(missing.size(), remoteFetchSize));
+        for(K key: missing) {
+            chunk.add(key);
+            if(chunk.size() == remoteFetchSize) {
+                fetchRemotely(type, chunk, found);
+                chunk = new ArrayList<>(remoteFetchSize);
+            }
+        }
+        if(!chunk.isEmpty()) {
+            fetchRemotely(type, chunk, found);
+        }
+        
+        //Merge back into the order the keys were asked for
+        List<O> result = new ArrayList<>(keys.size());
+        for(K key: keys) {
+            O object = found.get(key);
+            if(object != null) {
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
+    private <K, O extends Storable<K>> void fetchRemotely(Class<O> type, List<K> keys, Map<K, O> found) {
+        for(O object: remoteGetSome(type, keys)) {
+            found.put(object.getId(), object);
         }
-        return objects;
     }
 
     @Override
@@ -0,0 +1,36 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.objectstorage;
+
+/**
+ * Callback receiving objects one by one as they are read, so that large amounts of objects can be processed without
+ * first collecting them all into a list.
+ * @param <O> Type of the objects
+ * @author Martin Berglund
+ */
+public interface ObjectConsumer<O extends Storable<?>> {
+    
+    /**
+     * Called once for every object read. If the objects are read by several threads in parallel, this method will be
+     * called concurrently and must be thread-safe.
+     * @param object Object that was read
+     */
+    void accept(O object);
+}
@@ -0,0 +1,46 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.objectstorage;
+
+import com.googlecode.jdbw.SQLDialect;
+
+/**
+ * Optional extension of {@code TableMapping} for mappings that can select a range of ids. {@code JDBCObjectStorage}
+ * uses this to split {@code getAll(...)} into several range queries running in parallel, when that has been turned on
+ * through {@code setParallelScan(...)}; tables with mappings that don't implement this are read with one query.
+ * @author Martin Berglund
+ */
+public interface RangeScanTableMapping extends TableMapping {
+
+    /**
+     * Returns an SQL statement selecting the same columns as {@code getSelectAll(..)}, but only for the rows with an
+     * id between the two parameters, inclusive
+     * @param dialect Dialect of the database server the statement is for
+     * @return SQL of the select statement, or {@code null} if this isn't supported for the dialect
+     */
+    String getSelectAllInRange(SQLDialect dialect);
+
+    /**
+     * Returns an SQL statement selecting the lowest and highest id of the table, in a single row
+     * @param dialect Dialect of the database server the statement is for
+     * @return SQL of the select statement, or {@code null} if this isn't supported for the dialect
+     */
+    String getSelectIdRange(SQLDialect dialect);
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.objectstorage;
+
+import com.googlecode.jdbw.SQLDialect;
+
+/**
+ * Optional extension of {@code TableMapping} for mappings that can generate a single statement which inserts objects
+ * or updates them if they are already stored. {@code JDBCObjectStorage} will use this for {@code putAll(...)} when it's
+ * available, instead of selecting the existing keys and then inserting and updating separately.
+ * @author Martin Berglund
+ */
+public interface UpsertTableMapping extends TableMapping {
+    
+    /**
+     * Returns an SQL statement which will insert or update {@code numberOfObjects} objects. The parameters are the
+     * id followed by the field values in field order, for one object after another.
+     * @param dialect Dialect of the database server the statement is for
+     * @param numberOfObjects How many objects the statement should write, must be at least 1
+     * @return SQL of the upsert statement, or {@code null} if this isn't supported for the dialect or the number of
+     * objects
+     */
+    String getUpsert(SQLDialect dialect, int numberOfObjects);
+}
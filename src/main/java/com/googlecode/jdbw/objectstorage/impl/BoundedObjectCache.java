@@ -0,0 +1,679 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.ObjectCache;
+import com.googlecode.jdbw.objectstorage.ObjectCacheFactory;
+import com.googlecode.jdbw.objectstorage.Storable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@code ObjectCache} with a maximum size, unlike {@code ConcurrentHashMapObjectCache} which keeps everything that
+ * was ever put into it. The cache is bounded either by the number of objects or by their total weight, as decided by a
+ * {@code Weigher}, and will evict the least recently used objects first. Objects can also be set to expire a certain
+ * time after they were put in the cache or after they were last read.
+ * <p>
+ * Optionally, the cache can use frequency based admission in the style of W-TinyLFU: new objects go into a small
+ * LRU window and when they fall out of it, they are only allowed to replace the least recently used object of the main
+ * area if they have been asked for more often, according to a compact frequency sketch of recent lookups. This keeps
+ * a large scan over rarely used objects from flushing out the frequently used ones.
+ * <p>
+ * Lookups don't take any lock: the objects are kept in a {@code ConcurrentHashMap} and every lookup is only recorded
+ * in a small per-thread-stripe buffer. The LRU order and the frequency sketch are updated from these buffers in
+ * batches, by whichever thread next holds the lock, which is taken by writes and when a buffer fills up. When the
+ * buffers are full because the lock is busy, further lookups are not recorded, so under heavy concurrent reads the
+ * eviction order is an approximation of LRU.
+ * <p>
+ * Hits, misses, evictions and expirations are counted and can be read through the getters. Use {@code Factory} to
+ * configure the cache and plug it into {@code DefaultObjectStorage}.
+ * @param <K> Type of the object id
+ * @param <V> Type of the objects
+ * @see PerTypeObjectCacheFactory
+ * @author Martin Berglund
+ */
+public class BoundedObjectCache<K, V extends Storable<K>> implements ObjectCache<K, V> {
+
+    private static final int MAXIMUM_READ_BUFFERS = 16;
+
+    /**
+     * Calculates the weight of an object, for caches that are bounded by total weight rather than number of objects
+     * @param <V> Type of the objects
+     */
+    public interface Weigher<V> {
+        /**
+         * @param object Object to weigh
+         * @return Weight of the object, must be zero or positive
+         */
+        int weigh(V object);
+    }
+
+    /**
+     * An {@code ObjectCacheFactory} creating {@code BoundedObjectCache}s. The setters return the factory itself so
+     * that they can be chained.
+     * <p>
+     * Compared to {@code ConcurrentHashMapObjectCache}, reads are still lock-free but pay for recording the lookup, and
+     * every write takes a lock shared by the whole cache to update the LRU order and evict. Caches that are mostly
+     * written to from many threads at once will therefore scale worse than an unbounded one;
+     * {@code BoundedObjectCacheBenchmark} measures concurrent reads of both.
+     * @param <K> Type of the object id
+     * @param <V> Type of the objects
+     */
+    public static class Factory<K, V extends Storable<K>> implements ObjectCacheFactory<K, V> {
+        private long maximumWeight;
+        private Weigher<? super V> weigher;
+        private long expireAfterWrite;
+        private long expireAfterAccess;
+        private boolean frequencyAdmission;
+
+        /**
+         * Creates a factory with the default settings: at most 10000 objects, no expiration and plain LRU eviction
+         */
+        public Factory() {
+            this.maximumWeight = 10000;
+            this.weigher = null;
+            this.expireAfterWrite = 0;
+            this.expireAfterAccess = 0;
+            this.frequencyAdmission = false;
+        }
+
+        /**
+         * @param maximumSize Maximum number of objects in the cache
+         * @return Itself
+         */
+        public Factory<K, V> setMaximumSize(long maximumSize) {
+            if(maximumSize <= 0) {
+                throw new IllegalArgumentException("Cannot call setMaximumSize(..) with maximumSize <= 0");
+            }
+            this.maximumWeight = maximumSize;
+            this.weigher = null;
+            return this;
+        }
+
+        /**
+         * @param maximumWeight Maximum total weight of the objects in the cache
+         * @param weigher Calculates the weight of each object as it's put into the cache
+         * @return Itself
+         */
+        public Factory<K, V> setMaximumWeight(long maximumWeight, Weigher<? super V> weigher) {
+            if(maximumWeight <= 0) {
+                throw new IllegalArgumentException("Cannot call setMaximumWeight(..) with maximumWeight <= 0");
+            }
+            if(weigher == null) {
+                throw new IllegalArgumentException("Cannot call setMaximumWeight(..) with null weigher");
+            }
+            this.maximumWeight = maximumWeight;
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * @param expireAfterWrite How long an object stays in the cache after it was put there; 0 disables this
+         * @param timeUnit Unit of {@code expireAfterWrite}
+         * @return Itself
+         */
+        public Factory<K, V> setExpireAfterWrite(long expireAfterWrite, TimeUnit timeUnit) {
+            this.expireAfterWrite = timeUnit.toNanos(expireAfterWrite);
+            return this;
+        }
+
+        /**
+         * @param expireAfterAccess How long an object stays in the cache after it was last read or written; 0 disables
+         *                          this
+         * @param timeUnit Unit of {@code expireAfterAccess}
+         * @return Itself
+         */
+        public Factory<K, V> setExpireAfterAccess(long expireAfterAccess, TimeUnit timeUnit) {
+            this.expireAfterAccess = timeUnit.toNanos(expireAfterAccess);
+            return this;
+        }
+
+        /**
+         * @param frequencyAdmission If {@code true}, new objects have to be more frequently used than the object they
+         *                           would replace to be let into the main area of the cache
+         * @return Itself
+         */
+        public Factory<K, V> setFrequencyAdmission(boolean frequencyAdmission) {
+            this.frequencyAdmission = frequencyAdmission;
+            return this;
+        }
+
+        @Override
+        public BoundedObjectCache<K, V> createObjectCache() {
+            return new BoundedObjectCache<>(this);
+        }
+    }
+
+    private final long maximumWeight;
+    private final Weigher<? super V> weigher;
+    private final long expireAfterWrite;
+    private final long expireAfterAccess;
+    private final long windowMaximumWeight;
+    private final long mainMaximumWeight;
+    private final FrequencySketch frequencySketch;
+    private final ConcurrentHashMap<K, Entry<V>> data;
+    private final LinkedHashMap<K, Entry<V>> window;
+    private final LinkedHashMap<K, Entry<V>> main;
+    private final ReadBuffer<K>[] readBuffers;
+    private final ReentrantLock lock;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private long windowWeight;
+    private long mainWeight;
+    private long evictions;
+    private long expirations;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private BoundedObjectCache(Factory<K, V> factory) {
+        this.maximumWeight = factory.maximumWeight;
+        this.weigher = factory.weigher;
+        this.expireAfterWrite = factory.expireAfterWrite;
+        this.expireAfterAccess = factory.expireAfterAccess;
+        if(factory.frequencyAdmission && maximumWeight > 1) {
+            //Like W-TinyLFU, give 1% of the cache to the admission window
+            this.windowMaximumWeight = Math.max(1, maximumWeight / 100);
+            this.frequencySketch = new FrequencySketch(maximumWeight);
+        }
+        else {
+            this.windowMaximumWeight = 0;
+            this.frequencySketch = null;
+        }
+        this.mainMaximumWeight = maximumWeight - windowMaximumWeight;
+        this.data = new ConcurrentHashMap<>();
+        this.window = new LinkedHashMap<>(16, 0.75f, true);
+        this.main = new LinkedHashMap<>(16, 0.75f, true);
+        int stripes = 1;
+        while(stripes < Runtime.getRuntime().availableProcessors() && stripes < MAXIMUM_READ_BUFFERS) {
+            stripes <<= 1;
+        }
+        this.readBuffers = new ReadBuffer[stripes];
+        for(int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+        this.lock = new ReentrantLock();
+        this.hits = new AtomicLong(0);
+        this.misses = new AtomicLong(0);
+        this.windowWeight = 0;
+        this.mainWeight = 0;
+        this.evictions = 0;
+        this.expirations = 0;
+    }
+
+    @Override
+    public V get(K key) {
+        Entry<V> entry = data.get(key);
+        recordRead(key);
+        if(entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if(isExpiring()) {
+            long now = System.nanoTime();
+            if(isExpired(entry, now)) {
+                expire(key, entry);
+                misses.incrementAndGet();
+                return null;
+            }
+            entry.accessTime = now;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    @Override
+    public Collection<V> values() {
+        lock.lock();
+        try {
+            drainReadBuffers();
+            removeExpired();
+            List<V> values = new ArrayList<>(window.size() + main.size());
+            for(Entry<V> entry: main.values()) {
+                values.add(entry.value);
+            }
+            for(Entry<V> entry: window.values()) {
+                values.add(entry.value);
+            }
+            return values;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(Collection<K> ids) {
+        lock.lock();
+        try {
+            drainReadBuffers();
+            for(K id: ids) {
+                if(!removeEntry(id, true)) {
+                    removeEntry(id, false);
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.lock();
+        try {
+            drainReadBuffers();
+            data.clear();
+            window.clear();
+            main.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(V o) {
+        K key = o.getId();
+        int weight = weigher != null ? weigher.weigh(o) : 1;
+        lock.lock();
+        try {
+            drainReadBuffers();
+            if(!removeEntry(key, true)) {
+                removeEntry(key, false);
+            }
+            if(weight > maximumWeight) {
+                //Would push out everything else and still not fit
+                evictions++;
+                return;
+            }
+            if(frequencySketch != null) {
+                frequencySketch.increment(key);
+            }
+            Entry<V> entry = new Entry<>(o, weight, isExpiring() ? System.nanoTime() : 0);
+            data.put(key, entry);
+            if(frequencySketch != null) {
+                window.put(key, entry);
+                windowWeight += weight;
+                evictFromWindow();
+            }
+            else {
+                main.put(key, entry);
+                mainWeight += weight;
+                evictFromMain(null);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            removeExpired();
+            return window.size() + main.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Maximum number of objects, or maximum total weight if a {@code Weigher} is used, this cache can hold
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * @return Total weight of the objects currently in the cache, which is the number of objects if there is no
+     * {@code Weigher}
+     */
+    public long getWeight() {
+        lock.lock();
+        try {
+            return windowWeight + mainWeight;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of times {@code get(..)} found the object in the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of times {@code get(..)} didn't find the object in the cache
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return Number of objects that have been removed, or not let in, because the cache was full
+     */
+    public long getEvictions() {
+        lock.lock();
+        try {
+            return evictions;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of objects that have been removed because they expired
+     */
+    public long getExpirations() {
+        lock.lock();
+        try {
+            return expirations;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "BoundedObjectCache{size=" + (window.size() + main.size()) + ", weight=" + (windowWeight + mainWeight) +
+                    ", maximumWeight=" + maximumWeight + ", hits=" + hits.get() + ", misses=" + misses.get() +
+                    ", evictions=" + evictions + ", expirations=" + expirations + "}";
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remembers that a key was looked up so that its position in the LRU order, and its frequency, can be updated the
+     * next time the lock is held. Drains the buffers right away if they are filling up and the lock is free.
+     */
+    private void recordRead(K key) {
+        ReadBuffer<K> buffer = readBuffers[(int)Thread.currentThread().getId() & (readBuffers.length - 1)];
+        if(buffer.offer(key) && lock.tryLock()) {
+            try {
+                drainReadBuffers();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        for(ReadBuffer<K> buffer: readBuffers) {
+            K key;
+            while((key = buffer.poll()) != null) {
+                if(frequencySketch != null) {
+                    frequencySketch.increment(key);
+                }
+                //Looking the key up moves it to the most recently used end of the access ordered map
+                if(window.get(key) == null) {
+                    main.get(key);
+                }
+            }
+        }
+    }
+
+    private void expire(K key, Entry<V> entry) {
+        lock.lock();
+        try {
+            if(data.get(key) == entry) {
+                if(!removeEntry(key, true)) {
+                    removeEntry(key, false);
+                }
+                expirations++;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictFromWindow() {
+        while(windowWeight > windowMaximumWeight) {
+            Iterator<Map.Entry<K, Entry<V>>> iterator = window.entrySet().iterator();
+            Map.Entry<K, Entry<V>> candidate = iterator.next();
+            iterator.remove();
+            windowWeight -= candidate.getValue().weight;
+            main.put(candidate.getKey(), candidate.getValue());
+            mainWeight += candidate.getValue().weight;
+            evictFromMain(candidate.getKey());
+        }
+    }
+
+    private void evictFromMain(K candidate) {
+        while(mainWeight > mainMaximumWeight) {
+            Iterator<Map.Entry<K, Entry<V>>> iterator = main.entrySet().iterator();
+            Map.Entry<K, Entry<V>> victim = iterator.next();
+            K toEvict = victim.getKey();
+            if(candidate != null && !candidate.equals(toEvict) &&
+                    frequencySketch.frequency(candidate) <= frequencySketch.frequency(toEvict)) {
+                //The object coming from the window isn't used more often than the one it would replace
+                toEvict = candidate;
+                candidate = null;
+            }
+            removeEntry(toEvict, false);
+            evictions++;
+        }
+    }
+
+    private boolean removeEntry(K key, boolean fromWindow) {
+        Entry<V> entry = fromWindow ? window.remove(key) : main.remove(key);
+        if(entry == null) {
+            return false;
+        }
+        data.remove(key, entry);
+        if(fromWindow) {
+            windowWeight -= entry.weight;
+        }
+        else {
+            mainWeight -= entry.weight;
+        }
+        return true;
+    }
+
+    private void removeExpired() {
+        if(!isExpiring()) {
+            return;
+        }
+        long now = System.nanoTime();
+        removeExpired(window, now);
+        removeExpired(main, now);
+    }
+
+    private void removeExpired(LinkedHashMap<K, Entry<V>> area, long now) {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = area.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> mapEntry = iterator.next();
+            Entry<V> entry = mapEntry.getValue();
+            if(isExpired(entry, now)) {
+                iterator.remove();
+                data.remove(mapEntry.getKey(), entry);
+                if(area == window) {
+                    windowWeight -= entry.weight;
+                }
+                else {
+                    mainWeight -= entry.weight;
+                }
+                expirations++;
+            }
+        }
+    }
+
+    private boolean isExpiring() {
+        return expireAfterWrite > 0 || expireAfterAccess > 0;
+    }
+
+    private boolean isExpired(Entry<V> entry, long now) {
+        return (expireAfterWrite > 0 && now - entry.writeTime >= expireAfterWrite) ||
+                (expireAfterAccess > 0 && now - entry.accessTime >= expireAfterAccess);
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final int weight;
+        final long writeTime;
+        volatile long accessTime;
+
+        Entry(V value, int weight, long now) {
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * Lossy buffer of recently looked up keys, written to by any number of threads without locking and drained by the
+     * thread holding the cache lock. A key offered while the buffer is full is dropped.
+     * @param <E> Type of the buffered keys
+     */
+    private static class ReadBuffer<E> {
+        private static final int SIZE = 32;
+        private static final int DRAIN_THRESHOLD = SIZE / 2;
+
+        private final AtomicReferenceArray<E> slots;
+        private final AtomicLong writeCount;
+        private volatile long readCount;
+
+        ReadBuffer() {
+            this.slots = new AtomicReferenceArray<>(SIZE);
+            this.writeCount = new AtomicLong(0);
+            this.readCount = 0;
+        }
+
+        /**
+         * @param element Element to add to the buffer
+         * @return {@code true} if the buffer is filling up and should be drained
+         */
+        boolean offer(E element) {
+            long writes = writeCount.get();
+            long pending = writes - readCount;
+            if(pending >= SIZE) {
+                return true;
+            }
+            if(writeCount.compareAndSet(writes, writes + 1)) {
+                slots.lazySet((int)(writes & (SIZE - 1)), element);
+            }
+            return pending + 1 >= DRAIN_THRESHOLD;
+        }
+
+        /**
+         * Takes the oldest element out of the buffer, must only be called by the thread holding the cache lock
+         * @return Oldest element, or {@code null} if the buffer is empty
+         */
+        E poll() {
+            long reads = readCount;
+            int index = (int)(reads & (SIZE - 1));
+            E element = slots.get(index);
+            if(element != null) {
+                slots.lazySet(index, null);
+                readCount = reads + 1;
+            }
+            return element;
+        }
+    }
+
+    /**
+     * Count-min sketch of counters saturating at 15, estimating how often each key has been used recently. All counters are
+     * halved after a number of increments proportional to the size of the sketch, so that old popularity fades.
+     */
+    private static class FrequencySketch {
+        private static final int[] SEEDS = { 0x97cb3127, 0xb4b82e4b, 0x6f2cd1d5, 0x2c5ff2eb };
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(long expectedSize) {
+            int size = (int)Math.max(16, Math.min(expectedSize, 1 << 20));
+            //8 counters per expected key keeps the estimates of rarely used keys low
+            int width = (Integer.highestOneBit(size - 1) << 1) * 8;
+            this.counters = new byte[SEEDS.length][width];
+            this.mask = width - 1;
+            this.sampleSize = size * 10;
+            this.additions = 0;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for(int i = 0; i < SEEDS.length; i++) {
+                int index = indexOf(hash, i);
+                if(counters[i][index] < 15) {
+                    counters[i][index]++;
+                    added = true;
+                }
+            }
+            if(added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = Integer.MAX_VALUE;
+            for(int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, counters[i][indexOf(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for(byte[] row: counters) {
+                for(int i = 0; i < row.length; i++) {
+                    row[i] = (byte)(row[i] >>> 1);
+                }
+            }
+            additions /= 2;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            return hash ^ (hash >>> 11);
+        }
+    }
+}
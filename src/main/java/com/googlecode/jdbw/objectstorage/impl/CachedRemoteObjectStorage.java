@@ -20,21 +20,38 @@ package com.googlecode.jdbw.objectstorage.impl;
 
 import com.googlecode.jdbw.objectstorage.AbstractExternalObjectStorage;
 import com.googlecode.jdbw.objectstorage.ObjectStorage;
+import com.googlecode.jdbw.objectstorage.ObjectStorageException;
 import com.googlecode.jdbw.objectstorage.Storable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 
 /**
- *
+ * External object storage keeping a local cache in front of a remote object storage, typically a
+ * {@code JDBCObjectStorage}.
+ * <p>
+ * Remote loads are coalesced: if several threads miss the same key at the same time, only the first one queries the
+ * remote storage and the others wait for and share its result. The same goes for concurrent {@code remoteGetAll(..)}
+ * calls on the same type. This keeps a cold or freshly cleared cache from sending a burst of identical queries to the
+ * database.
  * @author Martin Berglund
  */
 public class CachedRemoteObjectStorage extends AbstractExternalObjectStorage {
     
     private final ObjectStorage remoteObjectStorage;
+    private final ConcurrentHashMap<LoadKey, Load<Storable<?>>> keyLoads;
+    private final ConcurrentHashMap<Class<?>, Load<List<?>>> typeLoads;
 
     public CachedRemoteObjectStorage(ObjectStorage remoteObjectStorage, ObjectStorage localCache) {
         super(localCache);
         this.remoteObjectStorage = remoteObjectStorage;
+        this.keyLoads = new ConcurrentHashMap<>();
+        this.typeLoads = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -86,23 +103,152 @@ public class CachedRemoteObjectStorage extends AbstractExternalObjectStorage {
     }
     
     @Override
+    @SuppressWarnings("unchecked")
     public <K, O extends Storable<K>> List<O> remoteGetSome(Class<O> type, Collection<K> keys) {
-        List<O> objects = remoteObjectStorage.getSome(type, keys);
-        localPut(objects);
+        //Join loads already in flight for some of the keys, and start one load for all the others
+        Map<K, Load<Storable<?>>> joinedLoads = new LinkedHashMap<>();
+        Map<K, Load<Storable<?>>> ownLoads = new LinkedHashMap<>();
+        for(K key: keys) {
+            if(joinedLoads.containsKey(key) || ownLoads.containsKey(key)) {
+                continue;
+            }
+            LoadKey loadKey = new LoadKey(type, key);
+            Load<Storable<?>> load = new Load<>();
+            Load<Storable<?>> existing = keyLoads.putIfAbsent(loadKey, load);
+            if(existing != null) {
+                joinedLoads.put(key, existing);
+            }
+            else {
+                ownLoads.put(key, load);
+            }
+        }
+        
+        List<O> ownObjects = new ArrayList<>();
+        if(!ownLoads.isEmpty()) {
+            try {
+                ownObjects = remoteObjectStorage.getSome(type, new ArrayList<>(ownLoads.keySet()));
+                localPut(ownObjects);
+                for(O object: ownObjects) {
+                    Load<Storable<?>> load = ownLoads.get(object.getId());
+                    if(load != null) {
+                        load.complete(object);
+                    }
+                }
+                for(Load<Storable<?>> load: ownLoads.values()) {
+                    load.complete(null);
+                }
+            }
+            catch(Throwable e) {
+                //Errors too, or the threads that joined these loads would wait forever
+                for(Load<Storable<?>> load: ownLoads.values()) {
+                    load.fail(e);
+                }
+                throw e;
+            }
+            finally {
+                for(Map.Entry<K, Load<Storable<?>>> entry: ownLoads.entrySet()) {
+                    keyLoads.remove(new LoadKey(type, entry.getKey()), entry.getValue());
+                }
+            }
+        }
+        if(joinedLoads.isEmpty()) {
+            return ownObjects;
+        }
+        
+        List<O> objects = new ArrayList<>(ownObjects);
+        for(Load<Storable<?>> load: joinedLoads.values()) {
+            O object = (O)load.await();
+            if(object != null) {
+                objects.add(object);
+            }
+        }
         return objects;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <K, O extends Storable<K>> List<O> remoteGetAll(Class<O> type) {
-        List<O> objects = remoteObjectStorage.getAll(type);
-        localRemoveAll(type);
-        localPut(objects);
-        return objects;
+        Load<List<?>> load = new Load<>();
+        Load<List<?>> existing = typeLoads.putIfAbsent(type, load);
+        if(existing != null) {
+            return new ArrayList<>((List<O>)existing.await());
+        }
+        try {
+            List<O> objects = remoteObjectStorage.getAll(type);
+            localRemoveAll(type);
+            localPut(objects);
+            load.complete(objects);
+            return objects;
+        }
+        catch(Throwable e) {
+            load.fail(e);
+            throw e;
+        }
+        finally {
+            typeLoads.remove(type, load);
+        }
     }
 
     @Override
     public <O extends Storable<?>> int remoteGetSize(Class<O> type) {
         return remoteObjectStorage.getSize(type);
     }
-    
+
+    private static class LoadKey {
+        private final Class<?> type;
+        private final Object key;
+
+        LoadKey(Class<?> type, Object key) {
+            this.type = type;
+            this.key = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + Objects.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof LoadKey)) {
+                return false;
+            }
+            LoadKey other = (LoadKey)obj;
+            return type == other.type && Objects.equals(key, other.key);
+        }
+    }
+
+    private static class Load<T> {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile T result;
+        private volatile Throwable failure;
+
+        void complete(T result) {
+            if(done.getCount() > 0) {
+                this.result = result;
+                done.countDown();
+            }
+        }
+
+        void fail(Throwable failure) {
+            if(done.getCount() > 0) {
+                this.failure = failure;
+                done.countDown();
+            }
+        }
+
+        T await() {
+            try {
+                done.await();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ObjectStorageException("Interrupted while waiting for another thread to load from the remote storage", e);
+            }
+            if(failure != null) {
+                throw new ObjectStorageException("Remote load in another thread failed", failure);
+            }
+            return result;
+        }
+    }
 }
@@ -22,23 +22,49 @@ import com.googlecode.jdbw.objectstorage.FieldMapping;
 import com.googlecode.jdbw.objectstorage.Storable;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
+/**
+ * Field mapping which finds the fields of a storable interface by its getters, ordering the fields by name. Everything
+ * is resolved in the constructor; looking up a field name or index from a method after that is a single hash map
+ * lookup, and the field name and type lists are shared, immutable lists.
+ * @author Martin Berglund
+ */
 public class DefaultFieldMapping implements FieldMapping {
 
     private final Class<? extends Storable<?>> objectType;
     private final Map<String, Integer> fieldIndexMap;
-    private final SortedMap<String, Class<?>> fieldTypeMap;
+    private final Map<String, String> methodNameToFieldName;
+    private final Map<Method, Integer> methodIndexMap;
+    private final List<String> fieldNames;
+    private final List<Class<?>> fieldTypes;
 
     public DefaultFieldMapping(Class<? extends Storable<?>> objectType) {
         this.objectType = objectType;
-        this.fieldIndexMap = new TreeMap<>();
-        this.fieldTypeMap = new TreeMap<>();
-        resolveFields();
+        this.fieldIndexMap = new HashMap<>();
+        this.methodNameToFieldName = new HashMap<>();
+
+        SortedMap<String, Class<?>> fieldTypeMap = resolveFields();
+        this.fieldNames = Collections.unmodifiableList(Arrays.asList(fieldTypeMap.keySet().toArray(new String[fieldTypeMap.size()])));
+        this.fieldTypes = Collections.unmodifiableList(Arrays.asList(fieldTypeMap.values().toArray(new Class<?>[fieldTypeMap.size()])));
+        for(int i = 0; i < fieldNames.size(); i++) {
+            fieldIndexMap.put(fieldNames.get(i), i);
+        }
+
+        Map<Method, Integer> methodIndexes = new HashMap<>();
+        for(Method method: objectType.getMethods()) {
+            String fieldName = methodNameToFieldName.get(method.getName());
+            if(fieldName != null && !method.getName().startsWith("set") && fieldIndexMap.containsKey(fieldName)) {
+                methodIndexes.put(method, fieldIndexMap.get(fieldName));
+            }
+        }
+        this.methodIndexMap = Collections.unmodifiableMap(methodIndexes);
     }
     
     @Override
@@ -53,13 +79,11 @@ public class DefaultFieldMapping implements FieldMapping {
 
     @Override
     public String getFieldName(String methodName) {
-        if(methodName.startsWith("get") || methodName.startsWith("set")) {
-            return Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
+        String fieldName = methodNameToFieldName.get(methodName);
+        if(fieldName != null) {
+            return fieldName;
         }
-        else if(methodName.startsWith("is")) {
-            return Character.toLowerCase(methodName.charAt(2)) + methodName.substring(3);
-        }
-        return null;
+        return resolveFieldName(methodName);
     }
 
     @Override
@@ -69,20 +93,69 @@ public class DefaultFieldMapping implements FieldMapping {
 
     @Override
     public int getFieldIndex(Method method) {
+        Integer index = methodIndexMap.get(method);
+        if(index != null) {
+            return index;
+        }
         return getFieldIndex(getFieldName(method.getName()));
     }
     
     @Override
     public List<String> getFieldNames() {
-        return new ArrayList<>(fieldTypeMap.keySet());
+        return fieldNames;
     }
 
     @Override
     public List<Class<?>> getFieldTypes() {
-        return new ArrayList<>(fieldTypeMap.values());
+        return fieldTypes;
+    }
+
+    /**
+     * Returns an immutable map from every getter of the object type to the index of the field it reads, so that
+     * callers resolving a {@code Method} on every call don't need to go through the field name
+     * @return Map from getter method to field index
+     */
+    Map<Method, Integer> getMethodIndexes() {
+        return methodIndexMap;
+    }
+
+    /**
+     * Returns the map from getter to field index for any field mapping. For a {@code DefaultFieldMapping} this is the
+     * table built in the constructor, for other implementations it's resolved through {@code getFieldName(..)} and
+     * {@code getFieldIndex(..)}, so callers should hold on to the result.
+     * @param fieldMapping Field mapping to get the getters of
+     * @return Map from getter method to field index
+     */
+    static Map<Method, Integer> getMethodIndexes(FieldMapping fieldMapping) {
+        if(fieldMapping instanceof DefaultFieldMapping) {
+            return ((DefaultFieldMapping)fieldMapping).getMethodIndexes();
+        }
+        Map<Method, Integer> methodIndexes = new HashMap<>();
+        List<String> fieldNames = fieldMapping.getFieldNames();
+        for(Method method: fieldMapping.getObjectType().getMethods()) {
+            if(method.getParameterTypes().length > 0 || method.getName().equals("getId")) {
+                continue;
+            }
+            String fieldName = fieldMapping.getFieldName(method);
+            if(fieldName != null && fieldNames.contains(fieldName)) {
+                methodIndexes.put(method, fieldMapping.getFieldIndex(fieldName));
+            }
+        }
+        return Collections.unmodifiableMap(methodIndexes);
+    }
+
+    private static String resolveFieldName(String methodName) {
+        if(methodName.startsWith("get") || methodName.startsWith("set")) {
+            return Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
+        }
+        else if(methodName.startsWith("is")) {
+            return Character.toLowerCase(methodName.charAt(2)) + methodName.substring(3);
+        }
+        return null;
     }
     
-    private void resolveFields() {
+    private SortedMap<String, Class<?>> resolveFields() {
+        SortedMap<String, Class<?>> fieldTypeMap = new TreeMap<>();
         for(Method method: objectType.getMethods()) {
             if((method.getModifiers() & Modifier.STATIC) != 0) {
                 continue;
@@ -94,24 +167,24 @@ public class DefaultFieldMapping implements FieldMapping {
                     continue;
                 }
                 //Found a field!
-                fieldName = getFieldName(method.getName());
+                fieldName = getFieldName(method);
             }
             else if(method.getName().startsWith("is")) {
                 if(method.getName().length() <= 2) {
                     continue;
                 }
                 //Found a field!
-                fieldName = getFieldName(method.getName());
+                fieldName = getFieldName(method);
+            }
+            else if(method.getName().startsWith("set") && method.getName().length() > 3) {
+                methodNameToFieldName.put(method.getName(), getFieldName(method));
             }
             
             if(fieldName != null) {
                 fieldTypeMap.put(fieldName, method.getReturnType());
+                methodNameToFieldName.put(method.getName(), fieldName);
             }
         }
-        
-        int index = 0;
-        for(String fieldName: fieldTypeMap.keySet()) {
-            fieldIndexMap.put(fieldName, index++);
-        }
+        return fieldTypeMap;
     }
 }
@@ -25,6 +25,7 @@ import com.googlecode.jdbw.objectstorage.ObjectBuilderFactory;
 import com.googlecode.jdbw.objectstorage.ObjectCache;
 import com.googlecode.jdbw.objectstorage.ObjectCacheFactory;
 import com.googlecode.jdbw.objectstorage.ObjectStorageException;
+import com.googlecode.jdbw.objectstorage.SelfDescribingStorable;
 import com.googlecode.jdbw.objectstorage.Storable;
 
 import java.lang.reflect.InvocationHandler;
@@ -59,8 +60,35 @@ public class DefaultObjectStorage extends AbstractObjectStorage {
         if(objectType == null) {
             throw new IllegalArgumentException("Passing null to register(...) is not allowed");
         }
-        storageCells.putIfAbsent(objectType, 
-                new Cell(fieldMappingFactory.createFieldMapping(objectType), objectCacheFactory.createObjectCache()));
+        //The id type of the storable isn't known here, getCell(..) restores the proper type parameters
+        @SuppressWarnings("unchecked")
+        Class<Storable<Object>> storableType = (Class<Storable<Object>>)objectType;
+        storageCells.putIfAbsent(objectType, createCell(storableType));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, O extends Storable<K>> Cell<K, O> createCell(Class<O> objectType) {
+        ObjectCache<K, O> objectCache;
+        if(objectCacheFactory instanceof PerTypeObjectCacheFactory) {
+            objectCache = ((PerTypeObjectCacheFactory)objectCacheFactory).createObjectCache(objectType);
+        }
+        else {
+            objectCache = (ObjectCache<K, O>)objectCacheFactory.createObjectCache();
+        }
+        return new Cell<>(fieldMappingFactory.createFieldMapping(objectType), objectCache);
+    }
+
+    /**
+     * Returns the cache holding all objects of a type, for example to read the statistics of a
+     * {@code BoundedObjectCache}
+     * @param objectType Type to get the cache for
+     * @return Cache of this type
+     */
+    public <K, O extends Storable<K>> ObjectCache<K, O> getObjectCache(Class<O> objectType) {
+        if(!storageCells.containsKey(objectType)) {
+            throw new IllegalArgumentException("Trying to call getObjectCache(...) on unregistered type " + objectType.getName());
+        }
+        return getCell(objectType).cache;
     }
 
     @Override
@@ -70,7 +98,10 @@ public class DefaultObjectStorage extends AbstractObjectStorage {
         }
         //noinspection rawtypes
         Class<? extends Storable> objectType = object.getClass();
-        if(object instanceof Proxy) {
+        if(object instanceof SelfDescribingStorable) {
+            objectType = ((SelfDescribingStorable)object).storableType();
+        }
+        else if(object instanceof Proxy) {
             objectType = ((ObjectProxyHandler)Proxy.getInvocationHandler(object)).getObjectType();
         }
         return contains(objectType, object.getId());
@@ -146,7 +177,10 @@ public class DefaultObjectStorage extends AbstractObjectStorage {
         }
         //noinspection rawtypes
         Class<? extends Storable> objectType = object.getClass();
-        if(object instanceof Proxy) {
+        if(object instanceof SelfDescribingStorable) {
+            objectType = ((SelfDescribingStorable)object).storableType();
+        }
+        else if(object instanceof Proxy) {
             objectType = ((ObjectProxyHandler)Proxy.getInvocationHandler(object)).getObjectType();
         }
         if(!storageCells.containsKey(objectType)) {
@@ -19,12 +19,44 @@
 package com.googlecode.jdbw.objectstorage.impl;
 
 import com.googlecode.jdbw.SQLDialect;
+import com.googlecode.jdbw.UpsertSQLDialect;
 import com.googlecode.jdbw.objectstorage.Storable;
-import com.googlecode.jdbw.objectstorage.TableMapping;
+import com.googlecode.jdbw.objectstorage.RangeScanTableMapping;
+import com.googlecode.jdbw.objectstorage.UpsertTableMapping;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class DefaultTableMapping extends DefaultFieldMapping implements TableMapping {
+/**
+ * Table mapping which maps each field to a column of the same name. The generated SQL is remembered per dialect (by
+ * dialect class, dialects are expected to be stateless), so each statement is only built once; statements with
+ * {@code IN (...)} lists are remembered for up to {@code MAX_CACHED_IN_LIST_SIZE} parameters.
+ * @author Martin Berglund
+ */
+public class DefaultTableMapping extends DefaultFieldMapping implements UpsertTableMapping, RangeScanTableMapping {
+    
+    /**
+     * Largest {@code IN (...)} list size for which the generated SQL is cached
+     */
+    public static final int MAX_CACHED_IN_LIST_SIZE = 512;
+    
+    private enum StatementType {
+        SELECT_ALL,
+        SELECT_ALL_IN_RANGE,
+        SELECT_ID_RANGE,
+        SELECT_SOME,
+        SELECT_KEYS,
+        SELECT_COUNT,
+        SELECT_CONTAINS,
+        INSERT,
+        UPDATE,
+        DELETE,
+        DELETE_ALL,
+        UPSERT,
+    }
     
     private final String tableName;
+    private final ConcurrentHashMap<StatementKey, String> statements;
     
     public DefaultTableMapping(Class<? extends Storable<?>> objectType) {
         this(objectType, objectType.getSimpleName());
@@ -33,6 +65,7 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
     public DefaultTableMapping(Class<? extends Storable<?>> objectType, String tableName) {
         super(objectType);
         this.tableName = tableName;
+        this.statements = new ConcurrentHashMap<>();
     }
     
     @Override
@@ -47,6 +80,10 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
 
     @Override
     public String getSelectAll(SQLDialect dialect) {
+        return getStatement(StatementType.SELECT_ALL, dialect, 0);
+    }
+
+    protected String createSelectAll(SQLDialect dialect) {
         StringBuilder sb = new StringBuilder("SELECT ");
         sb.append(dialect.escapeIdentifier("id"));
         for(String fieldName: getFieldNames()) {
@@ -56,8 +93,31 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
         return sb.toString();
     }
 
+    @Override
+    public String getSelectAllInRange(SQLDialect dialect) {
+        return getStatement(StatementType.SELECT_ALL_IN_RANGE, dialect, 0);
+    }
+
+    protected String createSelectAllInRange(SQLDialect dialect) {
+        return createSelectAll(dialect) + " WHERE " + dialect.escapeIdentifier("id") + " BETWEEN ? AND ?";
+    }
+
+    @Override
+    public String getSelectIdRange(SQLDialect dialect) {
+        return getStatement(StatementType.SELECT_ID_RANGE, dialect, 0);
+    }
+
+    protected String createSelectIdRange(SQLDialect dialect) {
+        return "SELECT MIN(" + dialect.escapeIdentifier("id") + "), MAX(" + dialect.escapeIdentifier("id") + ") FROM " +
+                dialect.escapeIdentifier(getTableName());
+    }
+
     @Override
     public String getSelectSome(SQLDialect dialect, int numberOfObjects) {
+        return getStatement(StatementType.SELECT_SOME, dialect, numberOfObjects);
+    }
+
+    protected String createSelectSome(SQLDialect dialect, int numberOfObjects) {
         if(numberOfObjects <= 0) {
             throw new IllegalArgumentException("Cannot call DefaultTableMapping.getSelectSome with numberOfObjects <= 0 ");
         }
@@ -78,6 +138,10 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
 
     @Override
     public String getSelectKeys(SQLDialect dialect, int numberOfObjects) {
+        return getStatement(StatementType.SELECT_KEYS, dialect, numberOfObjects);
+    }
+
+    protected String createSelectKeys(SQLDialect dialect, int numberOfObjects) {
         if(numberOfObjects <= 0) {
             throw new IllegalArgumentException("Cannot call DefaultTableMapping.getSelectKeys with numberOfObjects <= 0 ");
         }
@@ -95,11 +159,19 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
 
     @Override
     public String getSelectCount(SQLDialect sqlDialect) {
+        return getStatement(StatementType.SELECT_COUNT, sqlDialect, 0);
+    }
+
+    protected String createSelectCount(SQLDialect sqlDialect) {
         return "SELECT COUNT(" + sqlDialect.escapeIdentifier("id") + ") FROM " + sqlDialect.escapeIdentifier(getTableName());
     }
 
     @Override
     public String getSelectContains(SQLDialect sqlDialect) {
+        return getStatement(StatementType.SELECT_CONTAINS, sqlDialect, 0);
+    }
+
+    protected String createSelectContains(SQLDialect sqlDialect) {
         return "SELECT COUNT(" + sqlDialect.escapeIdentifier("id") + ") FROM " +
                 sqlDialect.escapeIdentifier(getTableName()) + " WHERE " +
                 sqlDialect.escapeIdentifier("id") + " = ?";
@@ -107,6 +179,10 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
 
     @Override
     public String getInsert(SQLDialect dialect) {
+        return getStatement(StatementType.INSERT, dialect, 0);
+    }
+
+    protected String createInsert(SQLDialect dialect) {
         StringBuilder sb = new StringBuilder("INSERT INTO ");
         sb.append(dialect.escapeIdentifier(getTableName()));
         sb.append(" (");
@@ -123,6 +199,10 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
 
     @Override
     public String getUpdate(SQLDialect dialect) {
+        return getStatement(StatementType.UPDATE, dialect, 0);
+    }
+
+    protected String createUpdate(SQLDialect dialect) {
         StringBuilder sb = new StringBuilder("UPDATE ");
         sb.append(dialect.escapeIdentifier(getTableName()));
         sb.append(" SET ");
@@ -137,6 +217,10 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
 
     @Override
     public String getDelete(SQLDialect dialect, int numberOfObjectsToDelete) {
+        return getStatement(StatementType.DELETE, dialect, numberOfObjectsToDelete);
+    }
+
+    protected String createDelete(SQLDialect dialect, int numberOfObjectsToDelete) {
         if(numberOfObjectsToDelete <= 0) {
             throw new IllegalArgumentException("Cannot call DefaultTableMapping.getDelete(...) with numberOfObjectsToDelete <= 0");
         }
@@ -151,6 +235,105 @@ public class DefaultTableMapping extends DefaultFieldMapping implements TableMap
 
     @Override
     public String getDeleteAll(SQLDialect dialect) {
+        return getStatement(StatementType.DELETE_ALL, dialect, 0);
+    }
+
+    protected String createDeleteAll(SQLDialect dialect) {
         return "DELETE FROM " + dialect.escapeIdentifier(getTableName());
     }
+
+    /**
+     * Returns the dialect's upsert statement for this table if the dialect implements {@code UpsertSQLDialect},
+     * otherwise {@code null}
+     */
+    @Override
+    public String getUpsert(SQLDialect dialect, int numberOfObjects) {
+        if(!(dialect instanceof UpsertSQLDialect)) {
+            return null;
+        }
+        return getStatement(StatementType.UPSERT, dialect, numberOfObjects);
+    }
+
+    protected String createUpsert(SQLDialect dialect, int numberOfObjects) {
+        if(numberOfObjects <= 0) {
+            throw new IllegalArgumentException("Cannot call DefaultTableMapping.getUpsert(...) with numberOfObjects <= 0");
+        }
+        List<String> columns = new ArrayList<>();
+        for(String fieldName: getFieldNames()) {
+            columns.add(getColumnName(fieldName));
+        }
+        return ((UpsertSQLDialect)dialect).getUpsertStatement(getTableName(), getColumnName("id"), columns, numberOfObjects);
+    }
+
+    private String getStatement(StatementType statementType, SQLDialect dialect, int size) {
+        if(size > MAX_CACHED_IN_LIST_SIZE) {
+            return createStatement(statementType, dialect, size);
+        }
+        StatementKey key = new StatementKey(statementType, dialect.getClass(), size);
+        String sql = statements.get(key);
+        if(sql == null) {
+            sql = createStatement(statementType, dialect, size);
+            if(sql != null) {
+                statements.putIfAbsent(key, sql);
+            }
+        }
+        return sql;
+    }
+
+    private String createStatement(StatementType statementType, SQLDialect dialect, int size) {
+        switch(statementType) {
+            case SELECT_ALL:
+                return createSelectAll(dialect);
+            case SELECT_ALL_IN_RANGE:
+                return createSelectAllInRange(dialect);
+            case SELECT_ID_RANGE:
+                return createSelectIdRange(dialect);
+            case SELECT_SOME:
+                return createSelectSome(dialect, size);
+            case SELECT_KEYS:
+                return createSelectKeys(dialect, size);
+            case SELECT_COUNT:
+                return createSelectCount(dialect);
+            case SELECT_CONTAINS:
+                return createSelectContains(dialect);
+            case INSERT:
+                return createInsert(dialect);
+            case UPDATE:
+                return createUpdate(dialect);
+            case DELETE:
+                return createDelete(dialect, size);
+            case DELETE_ALL:
+                return createDeleteAll(dialect);
+            case UPSERT:
+                return createUpsert(dialect, size);
+            default:
+                throw new IllegalArgumentException("Unknown statement type " + statementType);
+        }
+    }
+
+    private static class StatementKey {
+        private final StatementType statementType;
+        private final Class<?> dialectClass;
+        private final int size;
+
+        StatementKey(StatementType statementType, Class<?> dialectClass, int size) {
+            this.statementType = statementType;
+            this.dialectClass = dialectClass;
+            this.size = size;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * statementType.hashCode() + dialectClass.hashCode()) * 31 + size;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey other = (StatementKey)obj;
+            return statementType == other.statementType && dialectClass == other.dialectClass && size == other.size;
+        }
+    }
 }
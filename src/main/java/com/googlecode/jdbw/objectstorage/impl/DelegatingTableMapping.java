@@ -21,6 +21,8 @@ package com.googlecode.jdbw.objectstorage.impl;
 import com.googlecode.jdbw.SQLDialect;
 import com.googlecode.jdbw.objectstorage.Storable;
 import com.googlecode.jdbw.objectstorage.TableMapping;
+import com.googlecode.jdbw.objectstorage.RangeScanTableMapping;
+import com.googlecode.jdbw.objectstorage.UpsertTableMapping;
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -29,7 +31,7 @@ import java.util.List;
  * TableMappingFactory so that you can extend only the methods you are interested in.
  * @author Martin Berglund
  */
-public class DelegatingTableMapping implements TableMapping {
+public class DelegatingTableMapping implements UpsertTableMapping, RangeScanTableMapping {
     private final TableMapping backend;
 
     public DelegatingTableMapping(TableMapping backend) {
@@ -51,6 +53,22 @@ public class DelegatingTableMapping implements TableMapping {
         return backend.getSelectAll(dialect);
     }
 
+    @Override
+    public String getSelectAllInRange(SQLDialect dialect) {
+        if(backend instanceof RangeScanTableMapping) {
+            return ((RangeScanTableMapping)backend).getSelectAllInRange(dialect);
+        }
+        return null;
+    }
+
+    @Override
+    public String getSelectIdRange(SQLDialect dialect) {
+        if(backend instanceof RangeScanTableMapping) {
+            return ((RangeScanTableMapping)backend).getSelectIdRange(dialect);
+        }
+        return null;
+    }
+
     @Override
     public String getSelectSome(SQLDialect dialect, int numberOfObjects) {
         return backend.getSelectSome(dialect, numberOfObjects);
@@ -91,6 +109,14 @@ public class DelegatingTableMapping implements TableMapping {
         return backend.getDeleteAll(sqlDialect);
     }
 
+    @Override
+    public String getUpsert(SQLDialect dialect, int numberOfObjects) {
+        if(backend instanceof UpsertTableMapping) {
+            return ((UpsertTableMapping)backend).getUpsert(dialect, numberOfObjects);
+        }
+        return null;
+    }
+
     @Override
     public Class<? extends Storable<?>> getObjectType() {
         return backend.getObjectType();
@@ -0,0 +1,128 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.FieldMapping;
+import com.googlecode.jdbw.objectstorage.ObjectStorageException;
+import com.googlecode.jdbw.objectstorage.Storable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pulls the id and field values out of storable objects of one type, in the order given by a field mapping. This is
+ * built the first time a field mapping is used for writing and then reused for every object written with it. Objects created by jdbw itself, through
+ * {@code GeneratedObjectFactory} or {@code ImmutableObjectFactory}, already keep their values in field index order so
+ * they are simply copied; any other implementation of the storable interface is read through one cached
+ * {@code MethodHandle} per getter.
+ * @author Martin Berglund
+ */
+class FieldValueExtractor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final FieldMapping fieldMapping;
+    private final List<String> fieldNames;
+    private final MethodHandle[] getters;
+
+    FieldValueExtractor(FieldMapping fieldMapping) {
+        this.fieldMapping = fieldMapping;
+        this.fieldNames = fieldMapping.getFieldNames();
+        this.getters = new MethodHandle[fieldNames.size()];
+        for(Map.Entry<Method, Integer> entry: DefaultFieldMapping.getMethodIndexes(fieldMapping).entrySet()) {
+            Method method = entry.getKey();
+            try {
+                method.setAccessible(true);
+                getters[entry.getValue()] = MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+            }
+            catch(Exception e) {
+                throw new ObjectStorageException("Unable to access " + method.getDeclaringClass().getName() + "." + method.getName() + "()", e);
+            }
+        }
+        for(int i = 0; i < getters.length; i++) {
+            if(getters[i] == null) {
+                throw new ObjectStorageException("No getter found for field " + fieldNames.get(i) + " of " + fieldMapping.getObjectType().getName());
+            }
+        }
+    }
+
+    /**
+     * @param otherFieldMapping Field mapping to check
+     * @return {@code true} if this extractor orders the values the same way as {@code otherFieldMapping}
+     */
+    boolean isCompatible(FieldMapping otherFieldMapping) {
+        return fieldMapping == otherFieldMapping ||
+                (fieldMapping.getObjectType() == otherFieldMapping.getObjectType() && fieldNames.equals(otherFieldMapping.getFieldNames()));
+    }
+
+    /**
+     * Extracts the id and all values of an object
+     * @param object Object to extract values from
+     * @param idAtFirst If {@code true}, the id is put first in the array, otherwise last
+     * @return Array holding the id and the values of the object
+     */
+    Object[] extract(Storable<?> object, boolean idAtFirst) {
+        Object[] result = new Object[getters.length + 1];
+        int offset = idAtFirst ? 1 : 0;
+        Object[] values = getValuesIfCompatible(object);
+        if(values != null) {
+            System.arraycopy(values, 0, result, offset, values.length);
+        }
+        else {
+            for(int i = 0; i < getters.length; i++) {
+                result[i + offset] = invoke(getters[i], object);
+            }
+        }
+        result[idAtFirst ? 0 : result.length - 1] = object.getId();
+        return result;
+    }
+
+    private Object[] getValuesIfCompatible(Storable<?> object) {
+        if(object instanceof GeneratedStorable) {
+            GeneratedStorable generatedStorable = (GeneratedStorable)object;
+            if(isCompatible(generatedStorable.getFieldMapping())) {
+                return generatedStorable.getFieldValues();
+            }
+        }
+        else if(object instanceof Proxy) {
+            InvocationHandler invocationHandler = Proxy.getInvocationHandler(object);
+            if(invocationHandler instanceof ObjectProxyHandler) {
+                ObjectProxyHandler objectProxyHandler = (ObjectProxyHandler)invocationHandler;
+                if(isCompatible(objectProxyHandler.getFieldMapping())) {
+                    return objectProxyHandler.getFields();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Object invoke(MethodHandle getter, Object object) {
+        try {
+            return (Object)getter.invokeExact(object);
+        }
+        catch(Throwable e) {
+            throw new ObjectStorageException("Failed transform, couldn't copy value from object due to " + e.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.FieldMapping;
+import com.googlecode.jdbw.objectstorage.ObjectFactory;
+import com.googlecode.jdbw.objectstorage.Storable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@code ObjectFactory} creating immutable objects just like {@code ImmutableObjectFactory}, but instead of wrapping
+ * the values in a reflective {@code Proxy} it generates a concrete class for each storable interface, with one field
+ * per value. Creating an object is then a plain constructor call and calling a getter is a field read, which the JIT
+ * can inline like any other code.
+ * <p>
+ * The class for a type is generated the first time an object of that type is created, or when calling
+ * {@code prepare(..)}; {@code JDBCObjectStorage} does this when a type is registered. Types which can't be implemented
+ * by a generated class, such as interfaces that aren't public, are handled by an {@code ImmutableObjectFactory}
+ * instead.
+ * <p>
+ * This factory isn't used unless asked for, {@code JDBCObjectStorage} creates proxy objects through
+ * {@code ImmutableObjectFactory} by default. To use generated classes, pass an instance of this factory to the
+ * {@code JDBCObjectStorage} constructor.
+ * @see GeneratedStorable
+ * @author Martin Berglund
+ */
+public class GeneratedObjectFactory implements ObjectFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeneratedObjectFactory.class);
+
+    private final ConcurrentHashMap<Class<?>, Prototype> prototypes;
+    private final ImmutableObjectFactory fallbackFactory;
+
+    public GeneratedObjectFactory() {
+        this.prototypes = new ConcurrentHashMap<>();
+        this.fallbackFactory = new ImmutableObjectFactory();
+    }
+
+    /**
+     * Generates the class for a storable type ahead of time, so that the first object of this type doesn't need to
+     * pay for it. Calling this method again for the same type does nothing.
+     * @param type Storable type to generate a class for
+     * @param fieldMapping Field mapping of the type
+     * @return {@code true} if objects of this type will be created through a generated class, {@code false} if the
+     * factory will fall back to proxy objects for this type
+     */
+    public boolean prepare(Class<? extends Storable<?>> type, FieldMapping fieldMapping) {
+        return getPrototype(type, fieldMapping).instance != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <O extends Storable<?>> O newObject(Class<O> type, FieldMapping fieldMapping, Object... idAndValues) {
+        Prototype prototype = getPrototype(type, fieldMapping);
+        if(prototype.instance == null || !prototype.isCompatible(fieldMapping)) {
+            return fallbackFactory.newObject(type, fieldMapping, idAndValues);
+        }
+        return (O)prototype.instance.newInstance(fieldMapping, idAndValues);
+    }
+
+    private Prototype getPrototype(Class<? extends Storable<?>> type, FieldMapping fieldMapping) {
+        Prototype prototype = prototypes.get(type);
+        if(prototype == null) {
+            prototype = createPrototype(type, fieldMapping);
+            Prototype existing = prototypes.putIfAbsent(type, prototype);
+            if(existing != null) {
+                prototype = existing;
+            }
+        }
+        return prototype;
+    }
+
+    private Prototype createPrototype(Class<? extends Storable<?>> type, FieldMapping fieldMapping) {
+        if(!type.isInterface() || !isAccessible(type)) {
+            LOGGER.debug("{} is not a public interface, will use proxy objects for this type", type.getName());
+            return new Prototype(fieldMapping, null);
+        }
+        for(Method method: type.getMethods()) {
+            if(!isAccessible(method.getReturnType())) {
+                LOGGER.debug("{}.{}() returns a type that isn't public, will use proxy objects for this type", type.getName(), method.getName());
+                return new Prototype(fieldMapping, null);
+            }
+            for(Class<?> parameterType: method.getParameterTypes()) {
+                if(!isAccessible(parameterType)) {
+                    LOGGER.debug("{}.{}(..) takes a type that isn't public, will use proxy objects for this type", type.getName(), method.getName());
+                    return new Prototype(fieldMapping, null);
+                }
+            }
+        }
+        try {
+            StorableClassGenerator generator = new StorableClassGenerator(type, fieldMapping);
+            GeneratedClassLoader classLoader = new GeneratedClassLoader(type.getClassLoader());
+            Class<?> generatedClass = classLoader.define(generator.getClassName(), generator.generate());
+            Object[] idAndValues = new Object[fieldMapping.getFieldNames().size() + 1];
+            GeneratedStorable instance = (GeneratedStorable)generatedClass
+                    .getConstructor(FieldMapping.class, Object[].class)
+                    .newInstance(fieldMapping, idAndValues);
+            return new Prototype(fieldMapping, instance);
+        }
+        catch(Exception | LinkageError e) {
+            LOGGER.warn("Unable to generate a class for " + type.getName() + ", will use proxy objects for this type", e);
+            return new Prototype(fieldMapping, null);
+        }
+    }
+
+    private static boolean isAccessible(Class<?> type) {
+        while(type.isArray()) {
+            type = type.getComponentType();
+        }
+        if(type.isPrimitive()) {
+            return true;
+        }
+        for(Class<?> current = type; current != null; current = current.getDeclaringClass()) {
+            if(!Modifier.isPublic(current.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Prototype {
+        private final FieldMapping fieldMapping;
+        private final List<String> fieldNames;
+        private final GeneratedStorable instance;
+
+        Prototype(FieldMapping fieldMapping, GeneratedStorable instance) {
+            this.fieldMapping = fieldMapping;
+            this.fieldNames = fieldMapping.getFieldNames();
+            this.instance = instance;
+        }
+
+        boolean isCompatible(FieldMapping otherFieldMapping) {
+            //The generated getters read their values by index, so another field mapping for the same type can only
+            //share the class if it orders the fields the same way
+            return fieldMapping == otherFieldMapping || fieldNames.equals(otherFieldMapping.getFieldNames());
+        }
+    }
+
+    private static class GeneratedClassLoader extends ClassLoader {
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            //The storable interface might have been loaded by a class loader that can't see jdbw itself
+            return Class.forName(name, false, GeneratedStorable.class.getClassLoader());
+        }
+    }
+}
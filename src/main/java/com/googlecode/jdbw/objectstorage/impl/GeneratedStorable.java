@@ -0,0 +1,91 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.FieldMapping;
+import com.googlecode.jdbw.objectstorage.SelfDescribingStorable;
+import com.googlecode.jdbw.objectstorage.Storable;
+import java.util.Objects;
+
+/**
+ * Base class of the {@code Storable} implementations generated by {@code GeneratedObjectFactory}. The generated
+ * subclasses add one field per value in the field mapping and implement the getters of the storable interface as
+ * plain field reads; this class holds the id and implements {@code equals}, {@code hashCode} and {@code toString} the
+ * same way as the proxy objects created by {@code ImmutableObjectFactory}.
+ * <p>
+ * This class is public only because the generated classes are defined by their own class loader; you shouldn't need to
+ * use it directly.
+ * @see GeneratedObjectFactory
+ * @author Martin Berglund
+ */
+public abstract class GeneratedStorable implements SelfDescribingStorable {
+
+    private final FieldMapping fieldMapping;
+    private final Object id;
+
+    protected GeneratedStorable(FieldMapping fieldMapping, Object id) {
+        this.fieldMapping = fieldMapping;
+        this.id = id;
+    }
+
+    public Object getId() {
+        return id;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <O extends Storable<?>> Class<O> storableType() {
+        return (Class<O>)fieldMapping.getObjectType();
+    }
+
+    /**
+     * Returns a copy of all the values of this object, ordered the same way as the field names of the field mapping
+     * @return New array with the values of this object
+     */
+    public abstract Object[] getFieldValues();
+
+    /**
+     * Creates a new object of the same generated class
+     * @param fieldMapping Field mapping of the new object
+     * @param idAndValues The id of the new object followed by its values, in field index order
+     * @return New object
+     */
+    protected abstract GeneratedStorable newInstance(FieldMapping fieldMapping, Object[] idAndValues);
+
+    protected FieldMapping getFieldMapping() {
+        return fieldMapping;
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj != null &&
+                fieldMapping.getObjectType().isAssignableFrom(obj.getClass()) &&
+                Objects.equals(id, ((Storable<?>)obj).getId());
+    }
+
+    @Override
+    public String toString() {
+        return fieldMapping.getObjectType().getSimpleName() + ":" + id;
+    }
+}
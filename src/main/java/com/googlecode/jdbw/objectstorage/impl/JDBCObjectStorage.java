@@ -19,29 +19,46 @@
 package com.googlecode.jdbw.objectstorage.impl;
 
 import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.CursorSQLExecutor;
 import com.googlecode.jdbw.DatabaseTransaction;
+import com.googlecode.jdbw.RetryPolicy;
+import com.googlecode.jdbw.RowCursor;
+import com.googlecode.jdbw.SQLDialect;
 import com.googlecode.jdbw.TransactionIsolation;
 import com.googlecode.jdbw.objectstorage.AbstractObjectStorage;
 import com.googlecode.jdbw.objectstorage.FieldMapping;
 import com.googlecode.jdbw.objectstorage.ObjectBuilderFactory;
+import com.googlecode.jdbw.objectstorage.ObjectConsumer;
 import com.googlecode.jdbw.objectstorage.ObjectFactory;
 import com.googlecode.jdbw.objectstorage.ObjectStorageException;
 import com.googlecode.jdbw.objectstorage.Storable;
 import com.googlecode.jdbw.objectstorage.TableMapping;
 import com.googlecode.jdbw.objectstorage.TableMappingFactory;
+import com.googlecode.jdbw.objectstorage.RangeScanTableMapping;
+import com.googlecode.jdbw.objectstorage.UpsertTableMapping;
 import com.googlecode.jdbw.util.BatchUpdateHandlerAdapter;
+import com.googlecode.jdbw.util.FixedIntervalRetryPolicy;
+import com.googlecode.jdbw.util.ExecuteResultHandlerAdapter;
 import com.googlecode.jdbw.util.SQLWorker;
 import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,11 +66,32 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(JDBCObjectStorage.class);
     
+    /**
+     * Number of keys in each {@code IN (...)} list sent to the database. Key sets are split and padded to these sizes
+     * so that the same few statements are used over and over, instead of one unique statement per number of keys.
+     */
+    private final static int[] IN_LIST_SIZES = { 1, 8, 32, 128, 512 };
+    
+    /**
+     * Number of objects written by each multi-row upsert statement, objects that don't fill up a whole statement are
+     * written using the single-row upsert statement instead
+     */
+    private final static int UPSERT_ROWS_PER_STATEMENT = 32;
+    
+    /**
+     * Number of rows to ask the driver to fetch at a time when streaming a table through {@code getAll(...)}
+     */
+    private final static int SCAN_FETCH_SIZE = 1000;
+    
     private final DatabaseConnection databaseConnection;
     private final TableMappingFactory tableMappingFactory;
     private final ObjectFactory objectFactory;
     private final ConcurrentHashMap<Class<?>, TableMapping> tableMappings;
-    private final int retryAttempts;
+    private final ConcurrentHashMap<FieldMapping, FieldValueExtractor> fieldValueExtractors;
+    private final RetryPolicy retryPolicy;
+    private volatile int scanPartitions;
+    private volatile ExecutorService scanExecutorService;
+    private volatile boolean upsert;
 
     public JDBCObjectStorage(DatabaseConnection databaseConnection) {
         this(databaseConnection, new DefaultTableMappingFactory());
@@ -75,12 +113,24 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
             TableMappingFactory tableMappingFactory, 
             ObjectFactory objectFactory,
             int retryAttempts) {
+        this(databaseConnection, tableMappingFactory, objectFactory, new FixedIntervalRetryPolicy(0, TimeUnit.MILLISECONDS, retryAttempts));
+    }
+    
+    public JDBCObjectStorage(
+            DatabaseConnection databaseConnection, 
+            TableMappingFactory tableMappingFactory, 
+            ObjectFactory objectFactory,
+            RetryPolicy retryPolicy) {
         
         this.databaseConnection = databaseConnection;
         this.tableMappingFactory = tableMappingFactory;
         this.objectFactory = objectFactory;
         this.tableMappings = new ConcurrentHashMap<>();
-        this.retryAttempts = retryAttempts;
+        this.fieldValueExtractors = new ConcurrentHashMap<>();
+        this.retryPolicy = retryPolicy;
+        this.scanPartitions = 1;
+        this.scanExecutorService = null;
+        this.upsert = false;
     }
 
     protected DatabaseConnection getDatabaseConnection() {
@@ -92,7 +142,11 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
         if(objectType == null) {
             throw new IllegalArgumentException("Cannot call JDBCObjectStorage.register(...) with null object");
         }
-        tableMappings.putIfAbsent(objectType, tableMappingFactory.createTableMapping(objectType));
+        TableMapping tableMapping = tableMappingFactory.createTableMapping(objectType);
+        TableMapping existing = tableMappings.putIfAbsent(objectType, tableMapping);
+        if(existing == null && objectFactory instanceof GeneratedObjectFactory) {
+            ((GeneratedObjectFactory)objectFactory).prepare(objectType, tableMapping);
+        }
     }
 
     @Override
@@ -144,13 +198,13 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
         }
         
         TableMapping tableMapping = tableMappings.get(type);        
-        String sql = tableMapping.getSelectSome(
-                databaseConnection.getServerType().getSQLDialect(),
-                ids.size());
-        List<Object[]> rows;
+        List<Object[]> rows = new ArrayList<>();
         try {
-            Object[] keysAsArray = ids.toArray();
-            rows = new SQLWorker(databaseConnection.createAutoExecutor()).query(sql, keysAsArray);
+            SQLWorker worker = new SQLWorker(databaseConnection.createAutoExecutor());
+            for(Object[] keys: splitIntoInLists(new LinkedHashSet<>(ids).toArray())) {
+                String sql = tableMapping.getSelectSome(databaseConnection.getServerType().getSQLDialect(), keys.length);
+                rows.addAll(worker.query(sql, keys));
+            }
         }
         catch(SQLException e) {
             throw new ObjectStorageException("Database error when calling JDBCObjectStorage.getSome(...) with {type=" +
@@ -159,11 +213,67 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
         return transform(type, tableMapping, rows);
     }
 
+    /**
+     * Makes {@code getAll(...)} split the table into {@code partitions} ranges of ids and read them concurrently, each
+     * on its own connection, using threads from {@code executorService}. This only applies to tables with integer ids
+     * and a table mapping implementing {@code RangeScanTableMapping}, other tables are still read with one query. The
+     * executor service is not shut down by this class.
+     * <p>
+     * Each range is read in its own {@code READ_COMMITTED} transaction, so a parallel scan doesn't see one consistent
+     * snapshot of the table; rows written while the scan is running may or may not be included, and a row whose id
+     * changes can be missed or read twice.
+     * @param partitions Number of id ranges to split the table into, 1 turns off parallel reading
+     * @param executorService Executor service running the range queries, may be {@code null} if partitions is 1
+     */
+    public void setParallelScan(int partitions, ExecutorService executorService) {
+        if(partitions < 1) {
+            throw new IllegalArgumentException("Cannot call JDBCObjectStorage.setParallelScan(...) with partitions < 1");
+        }
+        if(partitions > 1 && executorService == null) {
+            throw new IllegalArgumentException("Cannot call JDBCObjectStorage.setParallelScan(...) with null executorService");
+        }
+        this.scanPartitions = partitions;
+        this.scanExecutorService = executorService;
+    }
+
+    public int getScanPartitions() {
+        return scanPartitions;
+    }
+
+    /**
+     * Makes {@code putAll(...)} write objects with the dialect's upsert statement, in one round trip, instead of first
+     * selecting which keys already exist and then inserting and updating. This is off by default since the statements
+     * need a recent enough server: {@code ON CONFLICT} on PostgreSQL requires 9.5 and {@code MERGE} on Sybase ASE
+     * requires 15.7. Types whose table mapping doesn't implement {@code UpsertTableMapping}, or has no upsert statement
+     * for the dialect, are still written the normal way.
+     * <p>
+     * One upsert statement can't contain the same key twice, so if several objects passed to the same
+     * {@code putAll(...)} call have the same id, only the last of them is written.
+     * @param upsert If {@code true}, write through upsert statements where the table mapping supports it
+     */
+    public void setUpsert(boolean upsert) {
+        this.upsert = upsert;
+    }
+
+    public boolean isUpsert() {
+        return upsert;
+    }
+
     @Override
     public <K, O extends Storable<K>> List<O> getAll(Class<O> type) {
         if(!tableMappings.containsKey(type)) {
             throw new IllegalArgumentException("Cannot call JDBCObjectStorage.getAll(...) non-registered type " + type.getSimpleName());
         }
+        if(scanPartitions > 1) {
+            final List<O> result = Collections.synchronizedList(new ArrayList<O>());
+            getAll(type, new ObjectConsumer<O>() {
+                @Override
+                public void accept(O object) {
+                    result.add(object);
+                }
+            });
+            return new ArrayList<>(result);
+        }
         TableMapping tableMapping = tableMappings.get(type);        
         String sql = tableMapping.getSelectAll(databaseConnection.getServerType().getSQLDialect());
         List<Object[]> rows;
@@ -176,6 +286,159 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
         return transform(type, tableMapping, rows);
     }
 
+    /**
+     * Reads all objects of a type and hands them to a consumer as they arrive, instead of returning them all in one
+     * list. If parallel scanning has been turned on through {@code setParallelScan(...)}, the consumer will be called
+     * from several threads at the same time and the objects will not come in any particular order. The id ranges are
+     * then read in separate {@code READ_COMMITTED} transactions, so there is no consistent snapshot across the scan.
+     * @param type Type of the objects to read
+     * @param consumer Consumer to receive the objects
+     * @throws ObjectStorageException If there was a database error
+     */
+    public <O extends Storable<?>> void getAll(Class<O> type, ObjectConsumer<? super O> consumer) {
+        if(!tableMappings.containsKey(type)) {
+            throw new IllegalArgumentException("Cannot call JDBCObjectStorage.getAll(...) non-registered type " + type.getSimpleName());
+        }
+        if(consumer == null) {
+            throw new IllegalArgumentException("Cannot call JDBCObjectStorage.getAll(...) with null consumer");
+        }
+        TableMapping tableMapping = tableMappings.get(type);
+        SQLDialect dialect = databaseConnection.getServerType().getSQLDialect();
+        int partitions = scanPartitions;
+        ExecutorService executorService = scanExecutorService;
+        try {
+            List<long[]> ranges = null;
+            String rangeSQL = null;
+            if(partitions > 1 && tableMapping instanceof RangeScanTableMapping) {
+                rangeSQL = ((RangeScanTableMapping)tableMapping).getSelectAllInRange(dialect);
+                if(rangeSQL != null) {
+                    ranges = splitIdRange((RangeScanTableMapping)tableMapping, dialect, partitions);
+                }
+            }
+            if(ranges == null) {
+                scan(type, tableMapping, consumer, tableMapping.getSelectAll(dialect));
+            }
+            else {
+                scanInParallel(type, tableMapping, consumer, rangeSQL, ranges, executorService);
+            }
+        }
+        catch(SQLException e) {
+            throw new ObjectStorageException("Database error when calling JDBCObjectStorage.getAll(...) with {type=" + type + "}", e);
+        }
+    }
+
+    /**
+     * Splits the id range of the table into inclusive ranges, or returns {@code null} if the ids aren't integers or
+     * the mapping can't select the id range
+     */
+    private List<long[]> splitIdRange(RangeScanTableMapping tableMapping, SQLDialect dialect, int partitions) throws SQLException {
+        String sql = tableMapping.getSelectIdRange(dialect);
+        if(sql == null) {
+            return null;
+        }
+        Object[] minMax = new SQLWorker(databaseConnection.createAutoExecutor()).top(sql);
+        if(minMax == null || minMax[0] == null) {
+            return Collections.emptyList();
+        }
+        if(!isInteger(minMax[0]) || !isInteger(minMax[1])) {
+            return null;
+        }
+        long min = ((Number)minMax[0]).longValue();
+        long max = ((Number)minMax[1]).longValue();
+        if(max - min < 0) {
+            //The range doesn't fit in a long
+            return null;
+        }
+        long step = (max - min) / partitions + 1;
+        List<long[]> ranges = new ArrayList<>();
+        for(long start = min; start <= max && start >= min; start += step) {
+            ranges.add(new long[] { start, Math.min(max, start + step - 1) });
+        }
+        return ranges;
+    }
+
+    private static boolean isInteger(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private <O extends Storable<?>> void scanInParallel(
+            final Class<O> type,
+            final TableMapping tableMapping,
+            final ObjectConsumer<? super O> consumer,
+            final String sql,
+            List<long[]> ranges,
+            ExecutorService executorService) throws SQLException {
+        
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for(final long[] range: ranges) {
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        scan(type, tableMapping, consumer, sql, range[0], range[1]);
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> future: futures) {
+                future.get();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ObjectStorageException("Interrupted while reading all objects of type " + type.getSimpleName(), e);
+        }
+        catch(ExecutionException e) {
+            if(e.getCause() instanceof SQLException) {
+                throw (SQLException)e.getCause();
+            }
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new ObjectStorageException("Error when reading all objects of type " + type.getSimpleName(), e.getCause());
+        }
+        finally {
+            for(Future<Void> future: futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <O extends Storable<?>> void scan(
+            final Class<O> type,
+            final TableMapping tableMapping,
+            final ObjectConsumer<? super O> consumer,
+            String sql,
+            Object... parameters) throws SQLException {
+        
+        //Inside a transaction, so that drivers which only stream results with auto-commit off will honour the fetch size
+        DatabaseTransaction transaction = databaseConnection.beginTransaction(TransactionIsolation.READ_COMMITTED);
+        try {
+            if(transaction instanceof CursorSQLExecutor) {
+                try(RowCursor cursor = ((CursorSQLExecutor)transaction).openCursor(SCAN_FETCH_SIZE, sql, parameters)) {
+                    Object[] row;
+                    while((row = cursor.nextRow()) != null) {
+                        consumer.accept(objectFactory.newObject(type, tableMapping, row));
+                    }
+                }
+            }
+            else {
+                transaction.execute(new ExecuteResultHandlerAdapter() {
+                    @Override
+                    public boolean nextRow(Object... row) {
+                        consumer.accept(objectFactory.newObject(type, tableMapping, row));
+                        return true;
+                    }
+                }, sql, parameters);
+            }
+            transaction.commit();
+        }
+        catch(SQLException | RuntimeException e) {
+            rollback(transaction);
+            throw e;
+        }
+    }
+
     @Override
     public <O extends Storable<?>> int getSize(Class<O> type) {
         if(!tableMappings.containsKey(type)) {
@@ -219,14 +482,32 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
             throw new IllegalArgumentException("Cannot call JDBCObjectStorage.remove(...) non-registered type " + objectType.getSimpleName());
         }
         
-        String sql = tableMappings.get(objectType).getDelete(
-                databaseConnection.getServerType().getSQLDialect(),
-                ids.size());
+        TableMapping tableMapping = tableMappings.get(objectType);
+        List<Object[]> inLists = splitIntoInLists(new LinkedHashSet<>(ids).toArray());
+        if(inLists.isEmpty()) {
+            return;
+        }
+        DatabaseTransaction transaction = null;
         try {
-            Object[] keysAsArray = ids.toArray();
-            new SQLWorker(databaseConnection.createAutoExecutor()).write(sql, keysAsArray);
+            SQLWorker worker;
+            if(inLists.size() == 1) {
+                worker = new SQLWorker(databaseConnection.createAutoExecutor());
+            }
+            else {
+                //Keep the delete atomic even though it's split up into several statements
+                transaction = databaseConnection.beginTransaction(TransactionIsolation.READ_COMMITTED);
+                worker = new SQLWorker(transaction);
+            }
+            for(Object[] keys: inLists) {
+                String sql = tableMapping.getDelete(databaseConnection.getServerType().getSQLDialect(), keys.length);
+                worker.write(sql, keys);
+            }
+            if(transaction != null) {
+                transaction.commit();
+            }
         }
         catch(SQLException e) {
+            rollback(transaction);
             throw new ObjectStorageException("Database error when calling JDBCObjectStorage.remove(...) with {type=" +
                     objectType + "} and {ids=" + ids + "}", e);
         }
@@ -280,63 +561,92 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
         return transform(fieldMapping, object, true);
     }
     
+    /**
+     * Extracts the id and field values of an object. The getters are looked up the first time a field mapping is used
+     * here and then cached for that mapping, so an {@code ObjectStorageException} for a field without a getter is
+     * thrown by the first write of the type rather than by {@code register(...)}.
+     * @param fieldMapping Field mapping deciding the order of the values
+     * @param object Object to extract values from
+     * @param idAtFirst If {@code true}, the id is put first in the array, otherwise last
+     * @return Array holding the id and the values of the object
+     */
     protected <O extends Storable<?>> Object[] transform(FieldMapping fieldMapping, O object, boolean idAtFirst) {
-        Object[] result = new Object[fieldMapping.getFieldNames().size() + 1];
-        if(idAtFirst) {
-            result[0] = object.getId();
-        }
-        for(Method method: fieldMapping.getObjectType().getMethods()) {
-            if(fieldMapping.getFieldName(method) == null || "getId".equals(method.getName())) {
-                continue;
-            }
-            try {
-                method.setAccessible(true);
-                result[fieldMapping.getFieldIndex(method) + (idAtFirst ? 1 : 0)] = method.invoke(object);
-            }
-            catch(Exception e) {
-                throw new ObjectStorageException("Failed transform, couldn't copy value from object due to " + e.getClass().getSimpleName(), e);
+        return getFieldValueExtractor(fieldMapping).extract(object, idAtFirst);
+    }
+
+    private FieldValueExtractor getFieldValueExtractor(FieldMapping fieldMapping) {
+        FieldValueExtractor extractor = fieldValueExtractors.get(fieldMapping);
+        if(extractor == null) {
+            extractor = new FieldValueExtractor(fieldMapping);
+            FieldValueExtractor existing = fieldValueExtractors.putIfAbsent(fieldMapping, extractor);
+            if(existing != null) {
+                extractor = existing;
             }
         }
-        if(!idAtFirst) {
-            result[result.length - 1] = object.getId();
-        }
-        return result;
+        return extractor;
     }
 
     private <O extends Storable<?>> List<O> doRetryingPutAll(Class<O> objectType, Collection<O> objects, TableMapping tableMapping) throws ObjectStorageException {
-        for(int i = 0; i < retryAttempts; i++) {
+        RetryPolicy.Execution retry = retryPolicy.start();
+        for(int attempt = 1; ; attempt++) {
+            long delay;
             try {
+                retry.beforeAttempt();
                 doPutAll(objectType, objects, tableMapping);
+                retry.onSuccess();
                 break;
             }
             catch(SQLException e) {
-                if(i + 1 >= retryAttempts) {
+                delay = retry.onFailure(e, databaseConnection.getServerType().isConnectionError(e));
+                if(delay < 0) {
                     throw new ObjectStorageException("Database error when calling JDBCObjectStorage.putAll(...) with {type=" +
                             objectType + "} and {objects=" + objects + "}", e);
                 }
                 else {
                     LOGGER.warn("Database error when calling JDBCObjectStorage.putAll(...) with "
-                            + "type={} and objects={}, retrying attempt {} of {}...",
-                            objectType, objects, i + 1, retryAttempts);
+                            + "type={} and objects={}, retrying after attempt {}...",
+                            objectType, objects, attempt);
                     LOGGER.warn("Stack trace for the previous error", e);
                 }
             }
+            sleep(delay);
         }
         return new ArrayList<>(objects);
     }
 
+    private static void sleep(long milliseconds) {
+        if(milliseconds <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(milliseconds);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     protected <O extends Object & Storable<?>> void doPutAll(Class<O> objectType, Collection<O> objects, TableMapping tableMapping) throws SQLException {
+        SQLDialect dialect = databaseConnection.getServerType().getSQLDialect();
+        if(upsert && tableMapping instanceof UpsertTableMapping
+                && ((UpsertTableMapping)tableMapping).getUpsert(dialect, 1) != null) {
+            doUpsertAll(objects, (UpsertTableMapping)tableMapping, dialect);
+            return;
+        }
         DatabaseTransaction transaction = null;
         try {
-            int count = 0;
-            Object[] allKeys = new Object[objects.size()];
+            Set<Object> allKeys = new LinkedHashSet<>();
             for(O object: objects) {
-                allKeys[count++] = object.getId();
+                allKeys.add(object.getId());
             }
-            String sql = tableMapping.getSelectKeys(databaseConnection.getServerType().getSQLDialect(), objects.size());
+            String sql;
             transaction = databaseConnection.beginTransaction(TransactionIsolation.REPEATABLE_READ);
             SQLWorker worker = new SQLWorker(transaction);
-            Set<Object> existingRows = new HashSet<>(worker.leftColumn(sql, allKeys));
+            Set<Object> existingRows = new HashSet<>();
+            for(Object[] keys: splitIntoInLists(allKeys.toArray())) {
+                sql = tableMapping.getSelectKeys(databaseConnection.getServerType().getSQLDialect(), keys.length);
+                existingRows.addAll(worker.leftColumn(sql, keys));
+            }
             List<O> toBeUpdated = new ArrayList<>();
             List<O> toBeInserted = new ArrayList<>();
             for(O object: objects) {
@@ -366,16 +676,92 @@ public class JDBCObjectStorage extends AbstractObjectStorage {
             transaction.commit();
         }
         catch(SQLException e) {
-            try {
-                if(transaction != null) {
-                    transaction.rollback();
+            rollback(transaction);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the objects through upsert statements, using multi-row statements as far as possible. Since one upsert
+     * statement cannot contain the same key twice, only the last object for each id is written.
+     */
+    private <O extends Storable<?>> void doUpsertAll(Collection<O> objects, UpsertTableMapping tableMapping, SQLDialect dialect) throws SQLException {
+        Map<Object, O> objectsById = new LinkedHashMap<>();
+        for(O object: objects) {
+            objectsById.put(object.getId(), object);
+        }
+        List<O> toBeWritten = new ArrayList<>(objectsById.values());
+        String multiRowSQL = tableMapping.getUpsert(dialect, UPSERT_ROWS_PER_STATEMENT);
+        int multiRowObjects = 0;
+        if(multiRowSQL != null) {
+            multiRowObjects = toBeWritten.size() - toBeWritten.size() % UPSERT_ROWS_PER_STATEMENT;
+        }
+        DatabaseTransaction transaction = null;
+        try {
+            transaction = databaseConnection.beginTransaction(TransactionIsolation.READ_COMMITTED);
+            if(multiRowObjects > 0) {
+                List<Object[]> batch = new ArrayList<>();
+                for(int offset = 0; offset < multiRowObjects; offset += UPSERT_ROWS_PER_STATEMENT) {
+                    List<Object> parameters = new ArrayList<>();
+                    for(O o: toBeWritten.subList(offset, offset + UPSERT_ROWS_PER_STATEMENT)) {
+                        parameters.addAll(Arrays.asList(transform(tableMapping, o)));
+                    }
+                    batch.add(parameters.toArray());
                 }
+                transaction.batchWrite(new BatchUpdateHandlerAdapter(), multiRowSQL, batch);
             }
-            catch(SQLException e2) {
-                //We don't really care about this
-                LOGGER.debug("Database error when trying to rollback transaction after previous error (logged below)", e2);
+            if(multiRowObjects < toBeWritten.size()) {
+                List<Object[]> batch = new ArrayList<>();
+                for(O o: toBeWritten.subList(multiRowObjects, toBeWritten.size())) {
+                    batch.add(transform(tableMapping, o));
+                }
+                transaction.batchWrite(new BatchUpdateHandlerAdapter(), tableMapping.getUpsert(dialect, 1), batch);
             }
+            transaction.commit();
+        }
+        catch(SQLException e) {
+            rollback(transaction);
             throw e;
         }
     }
+
+    private static void rollback(DatabaseTransaction transaction) {
+        try {
+            if(transaction != null) {
+                transaction.rollback();
+            }
+        }
+        catch(SQLException e2) {
+            //We don't really care about this
+            LOGGER.debug("Database error when trying to rollback transaction after previous error (logged below)", e2);
+        }
+    }
+
+    /**
+     * Splits keys into arrays sized as one of the {@code IN_LIST_SIZES}, filling up the last array by repeating its
+     * last key. Repeating a key in an {@code IN (...)} list doesn't change the result of the query, but the same key in
+     * two different arrays would match its row twice, so callers must pass keys without duplicates.
+     */
+    static List<Object[]> splitIntoInLists(Object[] keys) {
+        List<Object[]> inLists = new ArrayList<>();
+        int maxSize = IN_LIST_SIZES[IN_LIST_SIZES.length - 1];
+        int offset = 0;
+        while(offset < keys.length) {
+            int remaining = keys.length - offset;
+            int size = maxSize;
+            for(int inListSize: IN_LIST_SIZES) {
+                if(inListSize >= remaining) {
+                    size = inListSize;
+                    break;
+                }
+            }
+            int taken = Math.min(size, remaining);
+            Object[] inList = new Object[size];
+            System.arraycopy(keys, offset, inList, 0, taken);
+            Arrays.fill(inList, taken, size, keys[offset + taken - 1]);
+            inLists.add(inList);
+            offset += taken;
+        }
+        return inLists;
+    }
 }
@@ -23,15 +23,22 @@ import com.googlecode.jdbw.objectstorage.ObjectStorageException;
 import com.googlecode.jdbw.objectstorage.Storable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
 
 class ObjectProxyHandler implements InvocationHandler {
     private final FieldMapping fieldMapping;
+    private final Map<Method, Integer> methodIndexes;
     private final Object key;
     private final Object[] fields;
 
     ObjectProxyHandler(FieldMapping fieldMapping, Object key, Object... fields) {
         this.fieldMapping = fieldMapping;
+        //Only a DefaultFieldMapping has the lookup table ready, anything else goes through getFieldIndex(..)
+        this.methodIndexes = fieldMapping instanceof DefaultFieldMapping ?
+                ((DefaultFieldMapping)fieldMapping).getMethodIndexes() :
+                Collections.<Method, Integer>emptyMap();
         this.key = key;
         this.fields = fields;
     }
@@ -41,6 +48,10 @@ class ObjectProxyHandler implements InvocationHandler {
         if(Objects.equals(method.getName(), "getId")) {
             return getKey();
         }
+        Integer fieldIndex = methodIndexes.get(method);
+        if(fieldIndex != null) {
+            return fields[fieldIndex];
+        }
         else if(fieldMapping.getFieldName(method) != null) {
             if(method.getName().startsWith("set")) {
                 throw new ObjectStorageException("Error trying to modify immutable object");
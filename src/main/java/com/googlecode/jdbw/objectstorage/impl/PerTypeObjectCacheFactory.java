@@ -0,0 +1,92 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.ObjectCache;
+import com.googlecode.jdbw.objectstorage.ObjectCacheFactory;
+import com.googlecode.jdbw.objectstorage.Storable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code ObjectCacheFactory} which lets you pick a different cache factory for each storable type, for example a
+ * {@code BoundedObjectCache} for a large table and the default unbounded cache for small lookup tables. When
+ * {@code DefaultObjectStorage} registers a type, it will ask this factory for a cache for that particular type; types
+ * without a factory of their own get a cache from the default factory.
+ * @author Martin Berglund
+ */
+public class PerTypeObjectCacheFactory implements ObjectCacheFactory<Object, Storable<Object>> {
+
+    private final ObjectCacheFactory<?, ?> defaultFactory;
+    private final ConcurrentHashMap<Class<?>, ObjectCacheFactory<?, ?>> factories;
+
+    /**
+     * Creates a factory which will use {@code ConcurrentHashMapObjectCache} for all types not configured otherwise
+     */
+    public PerTypeObjectCacheFactory() {
+        this(new ConcurrentHashMapObjectCache.Factory<>());
+    }
+
+    /**
+     * @param defaultFactory Factory to use for all types not configured otherwise
+     */
+    public PerTypeObjectCacheFactory(ObjectCacheFactory<?, ?> defaultFactory) {
+        if(defaultFactory == null) {
+            throw new IllegalArgumentException("Cannot create PerTypeObjectCacheFactory with null defaultFactory");
+        }
+        this.defaultFactory = defaultFactory;
+        this.factories = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Sets the cache factory to use for a particular type. This needs to be called before the type is registered with
+     * the object storage.
+     * @param objectType Type to use the factory for
+     * @param factory Factory creating the cache for this type
+     * @return Itself
+     */
+    public PerTypeObjectCacheFactory setFactory(Class<? extends Storable<?>> objectType, ObjectCacheFactory<?, ?> factory) {
+        if(objectType == null || factory == null) {
+            throw new IllegalArgumentException("Cannot call PerTypeObjectCacheFactory.setFactory(..) with null parameters");
+        }
+        factories.put(objectType, factory);
+        return this;
+    }
+
+    /**
+     * Creates a cache for a particular type
+     * @param objectType Type to create a cache for
+     * @param <K> Type of the id of {@code objectType}
+     * @param <O> Type to create a cache for
+     * @return New cache, created by the factory configured for this type or by the default factory
+     */
+    @SuppressWarnings("unchecked")
+    public <K, O extends Storable<K>> ObjectCache<K, O> createObjectCache(Class<O> objectType) {
+        ObjectCacheFactory<?, ?> factory = factories.get(objectType);
+        if(factory == null) {
+            factory = defaultFactory;
+        }
+        //The factory was registered for this type through setFactory(..), so the cache holds objects of this type
+        return (ObjectCache<K, O>)factory.createObjectCache();
+    }
+
+    @Override
+    public ObjectCache<?, ? extends Storable<?>> createObjectCache() {
+        return defaultFactory.createObjectCache();
+    }
+}
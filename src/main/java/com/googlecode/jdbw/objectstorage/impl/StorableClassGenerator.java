@@ -0,0 +1,527 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.FieldMapping;
+import com.googlecode.jdbw.objectstorage.ObjectStorageException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the class file of a {@code GeneratedStorable} subclass implementing a storable interface. Every value in the
+ * field mapping gets its own field, assigned once in the constructor, and every getter reads its field directly. There
+ * is no branching code in any of the generated methods, so the class files don't need any stack map frames.
+ * @author Martin Berglund
+ */
+class StorableClassGenerator {
+
+    private static final String GENERATED_PACKAGE = "com/googlecode/jdbw/objectstorage/impl/generated/";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String BASE_CLASS = internalName(GeneratedStorable.class);
+    private static final String FIELD_MAPPING_DESCRIPTOR = descriptor(FieldMapping.class);
+    private static final String EXCEPTION = internalName(ObjectStorageException.class);
+    private static final AtomicInteger COUNTER = new AtomicInteger(0);
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int AALOAD = 0x32;
+    private static final int AASTORE = 0x53;
+    private static final int DUP = 0x59;
+    private static final int IRETURN = 0xac;
+    private static final int LRETURN = 0xad;
+    private static final int FRETURN = 0xae;
+    private static final int DRETURN = 0xaf;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int NEW = 0xbb;
+    private static final int ANEWARRAY = 0xbd;
+    private static final int ATHROW = 0xbf;
+    private static final int CHECKCAST = 0xc0;
+
+    private final Class<?> objectType;
+    private final FieldMapping fieldMapping;
+    private final String className;
+    private final ConstantPool constantPool;
+
+    StorableClassGenerator(Class<?> objectType, FieldMapping fieldMapping) {
+        this.objectType = objectType;
+        this.fieldMapping = fieldMapping;
+        this.className = GENERATED_PACKAGE + objectType.getName().replace('.', '_').replace('$', '_') +
+                "$Storable" + COUNTER.incrementAndGet();
+        this.constantPool = new ConstantPool();
+    }
+
+    /**
+     * @return Binary name of the class being generated
+     */
+    String getClassName() {
+        return className.replace('/', '.');
+    }
+
+    /**
+     * Generates the class file
+     * @return Bytes of the class file
+     */
+    byte[] generate() {
+        try {
+            int fieldCount = fieldMapping.getFieldNames().size();
+            ByteArrayOutputStream methods = new ByteArrayOutputStream();
+            DataOutputStream methodsOut = new DataOutputStream(methods);
+            int methodCount = 0;
+
+            writeConstructor(methodsOut, fieldCount);
+            writeNewInstance(methodsOut);
+            writeGetFieldValues(methodsOut, fieldCount);
+            methodCount += 3;
+
+            Set<String> implemented = new HashSet<>();
+            for(Method method: objectType.getMethods()) {
+                if(Modifier.isStatic(method.getModifiers()) || !Modifier.isAbstract(method.getModifiers())) {
+                    continue;
+                }
+                if(!implemented.add(method.getName() + methodDescriptor(method))) {
+                    continue;
+                }
+                if(isImplementedByBaseClass(method)) {
+                    continue;
+                }
+                writeMethod(methodsOut, method);
+                methodCount++;
+            }
+
+            ByteArrayOutputStream fields = new ByteArrayOutputStream();
+            DataOutputStream fieldsOut = new DataOutputStream(fields);
+            for(int i = 0; i < fieldCount; i++) {
+                fieldsOut.writeShort(ACC_PRIVATE | ACC_FINAL);
+                fieldsOut.writeShort(constantPool.utf8(fieldName(i)));
+                fieldsOut.writeShort(constantPool.utf8("L" + OBJECT + ";"));
+                fieldsOut.writeShort(0);
+            }
+
+            int thisClass = constantPool.classRef(className);
+            int superClass = constantPool.classRef(BASE_CLASS);
+            int objectInterface = constantPool.classRef(internalName(objectType));
+
+            ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(classFile);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(51);
+            constantPool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(objectInterface);
+            out.writeShort(fieldCount);
+            fieldsOut.flush();
+            fields.writeTo(out);
+            out.writeShort(methodCount);
+            methodsOut.flush();
+            methods.writeTo(out);
+            out.writeShort(0);
+            out.flush();
+            return classFile.toByteArray();
+        }
+        catch(IOException e) {
+            throw new ObjectStorageException("Unable to generate class for " + objectType.getName(), e);
+        }
+    }
+
+    /*
+     * public <init>(FieldMapping fieldMapping, Object[] idAndValues) {
+     *     super(fieldMapping, idAndValues[0]);
+     *     this.field0 = idAndValues[1];
+     *     ...
+     * }
+     */
+    private void writeConstructor(DataOutputStream out, int fieldCount) throws IOException {
+        Code code = new Code();
+        code.op(ALOAD_0);
+        code.op(ALOAD_1);
+        code.op(ALOAD_2);
+        code.op(ICONST_0);
+        code.op(AALOAD);
+        code.op(INVOKESPECIAL, constantPool.methodRef(BASE_CLASS, "<init>", "(" + FIELD_MAPPING_DESCRIPTOR + "L" + OBJECT + ";)V"));
+        for(int i = 0; i < fieldCount; i++) {
+            code.op(ALOAD_0);
+            code.op(ALOAD_2);
+            code.pushInt(i + 1);
+            code.op(AALOAD);
+            code.op(PUTFIELD, fieldRef(i));
+        }
+        code.op(RETURN);
+        writeMethod(out, "<init>", constructorDescriptor(), code, 4, 3);
+    }
+
+    /*
+     * protected GeneratedStorable newInstance(FieldMapping fieldMapping, Object[] idAndValues) {
+     *     return new ThisClass(fieldMapping, idAndValues);
+     * }
+     */
+    private void writeNewInstance(DataOutputStream out) throws IOException {
+        Code code = new Code();
+        code.op(NEW, constantPool.classRef(className));
+        code.op(DUP);
+        code.op(ALOAD_1);
+        code.op(ALOAD_2);
+        code.op(INVOKESPECIAL, constantPool.methodRef(className, "<init>", constructorDescriptor()));
+        code.op(ARETURN);
+        writeMethod(out, "newInstance", "(" + FIELD_MAPPING_DESCRIPTOR + "[L" + OBJECT + ";)L" + BASE_CLASS + ";", code, 4, 3);
+    }
+
+    /*
+     * public Object[] getFieldValues() {
+     *     return new Object[] { field0, field1, ... };
+     * }
+     */
+    private void writeGetFieldValues(DataOutputStream out, int fieldCount) throws IOException {
+        Code code = new Code();
+        code.pushInt(fieldCount);
+        code.op(ANEWARRAY, constantPool.classRef(OBJECT));
+        for(int i = 0; i < fieldCount; i++) {
+            code.op(DUP);
+            code.pushInt(i);
+            code.op(ALOAD_0);
+            code.op(GETFIELD, fieldRef(i));
+            code.op(AASTORE);
+        }
+        code.op(ARETURN);
+        writeMethod(out, "getFieldValues", "()[L" + OBJECT + ";", code, 4, 1);
+    }
+
+    private void writeMethod(DataOutputStream out, Method method) throws IOException {
+        String fieldName = fieldMapping.getFieldName(method);
+        Class<?> returnType = method.getReturnType();
+        if("getId".equals(method.getName()) && method.getParameterTypes().length == 0) {
+            //The interface narrows the return type of getId(), check the id from the base class
+            Code code = new Code();
+            code.op(ALOAD_0);
+            code.op(INVOKESPECIAL, constantPool.methodRef(BASE_CLASS, "getId", "()L" + OBJECT + ";"));
+            writeReturn(code, returnType);
+            writeMethod(out, method.getName(), methodDescriptor(method), code, 2, 1);
+        }
+        else if(fieldName != null && method.getName().startsWith("set")) {
+            writeThrowingMethod(out, method, "Error trying to modify immutable object");
+        }
+        else if(fieldName != null &&
+                method.getParameterTypes().length == 0 &&
+                returnType != void.class &&
+                fieldMapping.getFieldNames().contains(fieldName)) {
+            Code code = new Code();
+            code.op(ALOAD_0);
+            code.op(GETFIELD, fieldRef(fieldMapping.getFieldIndex(fieldName)));
+            writeReturn(code, returnType);
+            writeMethod(out, method.getName(), methodDescriptor(method), code, 2, 1);
+        }
+        else {
+            writeThrowingMethod(out, method, "Unknown method call: " + objectType.getName() + "." + method.getName());
+        }
+    }
+
+    private void writeReturn(Code code, Class<?> returnType) throws IOException {
+        if(returnType == Object.class) {
+            code.op(ARETURN);
+        }
+        else if(returnType.isPrimitive()) {
+            Class<?> wrapper = wrapperOf(returnType);
+            code.op(CHECKCAST, constantPool.classRef(internalName(wrapper)));
+            code.op(INVOKEVIRTUAL, constantPool.methodRef(internalName(wrapper), returnType.getName() + "Value", "()" + descriptor(returnType)));
+            if(returnType == long.class) {
+                code.op(LRETURN);
+            }
+            else if(returnType == float.class) {
+                code.op(FRETURN);
+            }
+            else if(returnType == double.class) {
+                code.op(DRETURN);
+            }
+            else {
+                code.op(IRETURN);
+            }
+        }
+        else {
+            code.op(CHECKCAST, constantPool.classRef(internalName(returnType)));
+            code.op(ARETURN);
+        }
+    }
+
+    private void writeThrowingMethod(DataOutputStream out, Method method, String message) throws IOException {
+        Code code = new Code();
+        code.op(NEW, constantPool.classRef(EXCEPTION));
+        code.op(DUP);
+        code.op(LDC_W, constantPool.string(message));
+        code.op(INVOKESPECIAL, constantPool.methodRef(EXCEPTION, "<init>", "(Ljava/lang/String;)V"));
+        code.op(ATHROW);
+        int locals = 1;
+        for(Class<?> parameterType: method.getParameterTypes()) {
+            locals += parameterType == long.class || parameterType == double.class ? 2 : 1;
+        }
+        writeMethod(out, method.getName(), methodDescriptor(method), code, 3, locals);
+    }
+
+    private void writeMethod(DataOutputStream out, String name, String descriptor, Code code, int maxStack, int maxLocals) throws IOException {
+        byte[] bytecode = code.toByteArray();
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(constantPool.utf8(name));
+        out.writeShort(constantPool.utf8(descriptor));
+        out.writeShort(1);
+        out.writeShort(constantPool.utf8("Code"));
+        out.writeInt(12 + bytecode.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(bytecode.length);
+        out.write(bytecode);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private boolean isImplementedByBaseClass(Method method) {
+        try {
+            Method baseMethod = GeneratedStorable.class.getMethod(method.getName(), method.getParameterTypes());
+            return !Modifier.isAbstract(baseMethod.getModifiers()) && baseMethod.getReturnType() == method.getReturnType();
+        }
+        catch(NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private int fieldRef(int index) throws IOException {
+        return constantPool.fieldRef(className, fieldName(index), "L" + OBJECT + ";");
+    }
+
+    private static String fieldName(int index) {
+        return "field" + index;
+    }
+
+    private static String constructorDescriptor() {
+        return "(" + FIELD_MAPPING_DESCRIPTOR + "[L" + OBJECT + ";)V";
+    }
+
+    private static String methodDescriptor(Method method) {
+        StringBuilder sb = new StringBuilder("(");
+        for(Class<?> parameterType: method.getParameterTypes()) {
+            sb.append(descriptor(parameterType));
+        }
+        return sb.append(")").append(descriptor(method.getReturnType())).toString();
+    }
+
+    private static String internalName(Class<?> type) {
+        if(type.isArray()) {
+            return descriptor(type);
+        }
+        return type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if(type.isArray()) {
+            return type.getName().replace('.', '/');
+        }
+        else if(type == void.class) {
+            return "V";
+        }
+        else if(type == boolean.class) {
+            return "Z";
+        }
+        else if(type == byte.class) {
+            return "B";
+        }
+        else if(type == char.class) {
+            return "C";
+        }
+        else if(type == short.class) {
+            return "S";
+        }
+        else if(type == int.class) {
+            return "I";
+        }
+        else if(type == long.class) {
+            return "J";
+        }
+        else if(type == float.class) {
+            return "F";
+        }
+        else if(type == double.class) {
+            return "D";
+        }
+        return "L" + internalName(type) + ";";
+    }
+
+    private static Class<?> wrapperOf(Class<?> primitive) {
+        if(primitive == boolean.class) {
+            return Boolean.class;
+        }
+        else if(primitive == byte.class) {
+            return Byte.class;
+        }
+        else if(primitive == char.class) {
+            return Character.class;
+        }
+        else if(primitive == short.class) {
+            return Short.class;
+        }
+        else if(primitive == int.class) {
+            return Integer.class;
+        }
+        else if(primitive == long.class) {
+            return Long.class;
+        }
+        else if(primitive == float.class) {
+            return Float.class;
+        }
+        return Double.class;
+    }
+
+    private static class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        void op(int opcode) {
+            bytes.write(opcode);
+        }
+
+        void op(int opcode, int constantIndex) {
+            bytes.write(opcode);
+            bytes.write(constantIndex >> 8);
+            bytes.write(constantIndex);
+        }
+
+        void pushInt(int value) {
+            if(value >= 0 && value <= 5) {
+                bytes.write(ICONST_0 + value);
+            }
+            else if(value <= Byte.MAX_VALUE) {
+                bytes.write(BIPUSH);
+                bytes.write(value);
+            }
+            else if(value <= Short.MAX_VALUE) {
+                op(SIPUSH, value);
+            }
+            else {
+                throw new ObjectStorageException("Cannot generate a storable class with more than " + Short.MAX_VALUE + " fields");
+            }
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    private static class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int nextIndex = 1;
+
+        int utf8(String value) throws IOException {
+            Integer index = entries.get("U" + value);
+            if(index == null) {
+                out.writeByte(1);
+                out.writeUTF(value);
+                index = add("U" + value);
+            }
+            return index;
+        }
+
+        int string(String value) throws IOException {
+            return reference("S" + value, 8, utf8(value));
+        }
+
+        int classRef(String internalName) throws IOException {
+            return reference("C" + internalName, 7, utf8(internalName));
+        }
+
+        int fieldRef(String owner, String name, String descriptor) throws IOException {
+            return memberRef("F", 9, owner, name, descriptor);
+        }
+
+        int methodRef(String owner, String name, String descriptor) throws IOException {
+            return memberRef("M", 10, owner, name, descriptor);
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            out.flush();
+            target.writeShort(nextIndex);
+            bytes.writeTo(target);
+        }
+
+        private int memberRef(String kind, int tag, String owner, String name, String descriptor) throws IOException {
+            Integer index = entries.get(kind + owner + "." + name + descriptor);
+            if(index != null) {
+                return index;
+            }
+            int ownerIndex = classRef(owner);
+            int nameAndTypeIndex = nameAndType(name, descriptor);
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndTypeIndex);
+            return add(kind + owner + "." + name + descriptor);
+        }
+
+        private int nameAndType(String name, String descriptor) throws IOException {
+            Integer index = entries.get("N" + name + descriptor);
+            if(index != null) {
+                return index;
+            }
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            return add("N" + name + descriptor);
+        }
+
+        private int reference(String key, int tag, int utf8Index) throws IOException {
+            Integer index = entries.get(key);
+            if(index == null) {
+                out.writeByte(tag);
+                out.writeShort(utf8Index);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            int index = nextIndex++;
+            entries.put(key, index);
+            return index;
+        }
+    }
+}
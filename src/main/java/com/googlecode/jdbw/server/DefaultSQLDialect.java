@@ -28,9 +28,7 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.sql.Types;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -38,17 +36,29 @@ import java.util.regex.Pattern;
 
 /**
  * A default implementation of {@code SQLDialect} providing some functionality which is common to most database servers.
+ * <p>
+ * All formatting is done by the {@code append*} methods, which write straight into a {@code StringBuilder}; the
+ * {@code format*} methods are wrappers around these. Dates are broken down using a {@code Calendar} kept per thread, so
+ * this class is safe to use from several threads at once without any locking.
+ * <p>
+ * Subclasses changing how values are formatted must override the {@code append*} methods. Overriding a
+ * {@code format*} method, such as {@code formatBinary(..)} or {@code formatDateTime(..)}, only changes what that method
+ * returns, since the rest of the dialect never calls it. Dialects written against older versions of this class, where
+ * the {@code format*} methods did the formatting, need to move those overrides to the matching {@code append*} method.
+ * An {@code append*} override must not call its own {@code format*} counterpart, since that would call back into the
+ * override.
  * @author Martin Berglund
  */
 public class DefaultSQLDialect implements SQLDialect {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultSQLDialect.class);
     private static final Pattern decimalTimestampPattern = Pattern.compile("..............\\...?.?");
-    private static final DateFormat decimalTimestampFormat = new SimpleDateFormat("yyyyMMddHHmmss.SSS");
-    private static final DateFormat defaultTimestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-    private static final DateFormat defaultDateFormat = new SimpleDateFormat("yyyy-MM-dd");
-    private static final DateFormat defaultTimeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
-
+    private static final ThreadLocal<Calendar> calendars = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
 
     @Override
     public String escapeString(String string) {
@@ -62,63 +72,208 @@ public class DefaultSQLDialect implements SQLDialect {
 
     @Override
     public String formatDateTime(Date date) {
-        synchronized(defaultTimestampFormat) {
-            return defaultTimestampFormat.format(date);
-        }
+        StringBuilder sb = new StringBuilder(23);
+        appendDateTime(sb, date);
+        return sb.toString();
     }
 
     @Override
     public String formatDate(Date date) {
-        synchronized(defaultDateFormat) {
-            return defaultDateFormat.format(date);
-        }
+        StringBuilder sb = new StringBuilder(10);
+        appendDate(sb, date);
+        return sb.toString();
     }
 
     @Override
     public String formatTime(Date date) {
-        synchronized(defaultTimeFormat) {
-            return defaultTimeFormat.format(date);
-        }
+        StringBuilder sb = new StringBuilder(12);
+        appendTime(sb, date);
+        return sb.toString();
     }
 
     @Override
     public String formatValue(Object value, int targetType) {
+        StringBuilder sb = new StringBuilder(32);
+        appendValue(sb, value, targetType);
+        return sb.toString();
+    }
+
+    /**
+     * Works like {@code formatValue(..)} but appends the formatted value to a {@code StringBuilder} instead of
+     * returning it, which saves creating a string for every value when building a larger piece of SQL.
+     * @param sb {@code StringBuilder} to append the value to
+     * @param value Value to be formatted
+     * @param targetType java.sql.Types constant of the type you want to format the value as
+     */
+    public void appendValue(StringBuilder sb, Object value, int targetType) {
         if(value == null) {
-            return "null";
+            sb.append("null");
+        }
+        else if(isBigDecimal(targetType)) {
+            appendDecimal(sb, value);
+        }
+        else if(isBoolean(targetType)) {
+            appendBoolean(sb, value);
+        }
+        else if(isFloatingPoint(targetType)) {
+            appendFloatingPoint(sb, value);
+        }
+        else if(isString(targetType)) {
+            appendString(sb, value);
+        }
+        else if(isInteger(targetType)) {
+            appendInteger(sb, value);
+        }
+        else if(isDatetime(targetType)) {
+            appendDatetime(sb, value);
+        }
+        else if(isDate(targetType)) {
+            appendDate(sb, value);
+        }
+        else if(isTime(targetType)) {
+            appendTime(sb, value);
+        }
+        else if(isBinary(targetType)) {
+            appendBinary(sb, value);
+        }
+        else {
+            throw new IllegalArgumentException("Called DefaultDatabaseServerTraits.formatValue with an "
+                    + "unimplemented java.sql.Types constant (" + targetType + ")");
+        }
+    }
+
+    /**
+     * Appends a date and time in the preferred format of this database server, which by default is
+     * {@code yyyy-MM-dd HH:mm:ss.SSS} in the local time zone. This is used by {@code formatDateTime(..)}.
+     * @param sb {@code StringBuilder} to append to
+     * @param date Date to format
+     */
+    protected void appendDateTime(StringBuilder sb, Date date) {
+        Calendar calendar = getCalendar(date);
+        appendDate(sb, calendar);
+        sb.append(' ');
+        appendTime(sb, calendar, true);
+    }
+
+    /**
+     * Appends a date in the preferred format of this database server, which by default is {@code yyyy-MM-dd} in the
+     * local time zone. This is used by {@code formatDate(..)}.
+     * @param sb {@code StringBuilder} to append to
+     * @param date Date to format
+     */
+    protected void appendDate(StringBuilder sb, Date date) {
+        appendDate(sb, getCalendar(date));
+    }
+
+    /**
+     * Appends a time of day in the preferred format of this database server, which by default is
+     * {@code HH:mm:ss.SSS} in the local time zone. This is used by {@code formatTime(..)}.
+     * @param sb {@code StringBuilder} to append to
+     * @param date Date to format
+     */
+    protected void appendTime(StringBuilder sb, Date date) {
+        appendTime(sb, getCalendar(date), true);
+    }
+
+    /**
+     * Appends a date and time as a decimal number on the form {@code yyyyMMddHHmmss.SSS}, in the local time zone. Some
+     * legacy schemas store timestamps in {@code DECIMAL(17, 3)} columns in this format.
+     * @param sb {@code StringBuilder} to append to
+     * @param date Date to format
+     */
+    protected void appendDecimalTimestamp(StringBuilder sb, Date date) {
+        Calendar calendar = getCalendar(date);
+        appendNumber(sb, calendar.get(Calendar.YEAR), 4);
+        appendNumber(sb, calendar.get(Calendar.MONTH) + 1, 2);
+        appendNumber(sb, calendar.get(Calendar.DAY_OF_MONTH), 2);
+        appendNumber(sb, calendar.get(Calendar.HOUR_OF_DAY), 2);
+        appendNumber(sb, calendar.get(Calendar.MINUTE), 2);
+        appendNumber(sb, calendar.get(Calendar.SECOND), 2);
+        sb.append('.');
+        appendNumber(sb, calendar.get(Calendar.MILLISECOND), 3);
+    }
+
+    /**
+     * Appends the hours, minutes and seconds of a calendar as {@code HH:mm:ss}, followed by {@code .SSS} if
+     * {@code withMilliseconds} is set
+     * @param sb {@code StringBuilder} to append to
+     * @param calendar Calendar set to the time to format
+     * @param withMilliseconds If the milliseconds should be included
+     */
+    protected static void appendTime(StringBuilder sb, Calendar calendar, boolean withMilliseconds) {
+        appendNumber(sb, calendar.get(Calendar.HOUR_OF_DAY), 2);
+        sb.append(':');
+        appendNumber(sb, calendar.get(Calendar.MINUTE), 2);
+        sb.append(':');
+        appendNumber(sb, calendar.get(Calendar.SECOND), 2);
+        if(withMilliseconds) {
+            sb.append('.');
+            appendNumber(sb, calendar.get(Calendar.MILLISECOND), 3);
+        }
+    }
+
+    /**
+     * Appends the year, month and day of a calendar as {@code yyyy-MM-dd}
+     * @param sb {@code StringBuilder} to append to
+     * @param calendar Calendar set to the date to format
+     */
+    protected static void appendDate(StringBuilder sb, Calendar calendar) {
+        appendNumber(sb, calendar.get(Calendar.YEAR), 4);
+        sb.append('-');
+        appendNumber(sb, calendar.get(Calendar.MONTH) + 1, 2);
+        sb.append('-');
+        appendNumber(sb, calendar.get(Calendar.DAY_OF_MONTH), 2);
+    }
+
+    /**
+     * Returns the calendar belonging to the current thread, set to a particular date. The calendar is shared by all
+     * dialects on the same thread, so it must not be held on to.
+     * @param date Date to set the calendar to
+     * @return Calendar of the current thread
+     */
+    protected static Calendar getCalendar(Date date) {
+        Calendar calendar = calendars.get();
+        calendar.setTime(date);
+        return calendar;
+    }
+
+    /**
+     * Parses a timestamp on the {@code yyyyMMddHHmmss.SSS} format, as written by {@code appendDecimalTimestamp(..)}
+     * @param decimalTimestamp String to parse
+     * @return The date the string represents, or {@code null} if the string isn't a timestamp on this format
+     */
+    protected static Date parseDecimalTimestamp(String decimalTimestamp) {
+        int length = decimalTimestamp.length();
+        if(length < 16 || length > 18 || decimalTimestamp.charAt(14) != '.') {
+            return null;
+        }
+        for(int i = 0; i < length; i++) {
+            if(i != 14 && !Character.isDigit(decimalTimestamp.charAt(i))) {
+                return null;
+            }
         }
+        Calendar calendar = calendars.get();
+        calendar.clear();
+        calendar.set(
+                Integer.parseInt(decimalTimestamp.substring(0, 4)),
+                Integer.parseInt(decimalTimestamp.substring(4, 6)) - 1,
+                Integer.parseInt(decimalTimestamp.substring(6, 8)),
+                Integer.parseInt(decimalTimestamp.substring(8, 10)),
+                Integer.parseInt(decimalTimestamp.substring(10, 12)),
+                Integer.parseInt(decimalTimestamp.substring(12, 14)));
+        calendar.set(Calendar.MILLISECOND, Integer.parseInt(decimalTimestamp.substring(15)));
+        return calendar.getTime();
+    }
 
-        if(isBigDecimal(targetType)) {
-            return formatDecimal(value);
-        }
-        if(isBoolean(targetType)) {
-            return formatBoolean(value);
-        }
-        if(isFloatingPoint(targetType)) {
-            return formatFloatingPoint(value);
+    private static void appendNumber(StringBuilder sb, int value, int minimumDigits) {
+        for(int limit = POWERS_OF_TEN[minimumDigits - 1]; limit > 1 && value < limit; limit /= 10) {
+            sb.append('0');
         }
-        if(isString(targetType)) {
-            return formatString(value);
-        }
-        if(isInteger(targetType)) {
-            return formatInteger(value);
-        }
-        if(isDatetime(targetType)) {
-            return formatDatetime(value);
-        }
-        if(isDate(targetType)) {
-            return formatDate(value);
-        }
-        if(isTime(targetType)) {
-            return formatTime(value);
-        }
-        if(isBinary(targetType)) {
-            return formatBinary(value);
-        }
-
-        throw new IllegalArgumentException("Called DefaultDatabaseServerTraits.formatValue with an "
-                + "unimplemented java.sql.Types constant (" + targetType + ")");
+        sb.append(value);
     }
 
+    private static final int[] POWERS_OF_TEN = { 1, 10, 100, 1000 };
+
     @Override
     public String[] getCreateTableStatement(String schemaName, String name, List<? extends Column> columns, List<Index> indexes) {
         throw new UnsupportedOperationException("getCreateTableStatement(..) is not implemented in " + getClass().getName());
@@ -173,19 +328,14 @@ public class DefaultSQLDialect implements SQLDialect {
         }
 
         if(object instanceof BigDecimal && isDatetime(targetColumnType.getSqlType())) {
-            try {
-                synchronized(decimalTimestampFormat) {
-                    return decimalTimestampFormat.parse(((BigDecimal) object).toPlainString());
-                }
-            } catch(ParseException e) {
-                return object;
-            }
+            Date date = parseDecimalTimestamp(((BigDecimal) object).toPlainString());
+            return date != null ? date : object;
         }
         if(object instanceof Date && isBigDecimal(targetColumnType.getSqlType())
                 && targetColumnType.getColumnSize() == 17 && targetColumnType.getDecimalDigits() == 3) {
-            synchronized(decimalTimestampFormat) {
-                return new BigDecimal(decimalTimestampFormat.format((Date) object));
-            }
+            StringBuilder sb = new StringBuilder(18);
+            appendDecimalTimestamp(sb, (Date) object);
+            return new BigDecimal(sb.toString());
         }
         if(object instanceof UUID && isString(targetColumnType.getSqlType())) {
             return object.toString();
@@ -271,126 +421,229 @@ public class DefaultSQLDialect implements SQLDialect {
                 || sqlType == Types.VARBINARY;
     }
 
-    protected String formatDecimal(Object value) {
+    protected void appendDecimal(StringBuilder sb, Object value) {
         if(value instanceof BigDecimal) {
-            return ((BigDecimal) value).stripTrailingZeros().toPlainString();
+            sb.append(((BigDecimal) value).stripTrailingZeros().toPlainString());
+            return;
         }
         if(value instanceof BigInteger) {
-            return value.toString();
+            sb.append(value);
+            return;
         }
         try {
-            return new BigDecimal(value.toString()).toPlainString();
+            sb.append(new BigDecimal(value.toString()).toPlainString());
         } catch(NumberFormatException e) {
             throw new IllegalArgumentException("Could not format type " + value.getClass().getName() + " to a decimal");
         }
     }
 
-    protected String formatBoolean(Object value) {
+    protected void appendBoolean(StringBuilder sb, Object value) {
         if(value instanceof Boolean) {
-            if((Boolean) value) {
-                return "true";
-            } else {
-                return "false";
-            }
+            sb.append(((Boolean) value).booleanValue());
+            return;
         }
         if(value instanceof String) {
-            if(Boolean.parseBoolean((String) value)) {
-                return "true";
-            } else {
-                return "false";
-            }
+            sb.append(Boolean.parseBoolean((String) value));
+            return;
         }
         if(value instanceof Number) {
-            if(((Number)value).longValue() != 0) {
-                return "true";
-            }
-            else {
-                return "false";
-            }
+            sb.append(((Number)value).longValue() != 0);
+            return;
         }
         throw new IllegalArgumentException("Could not format type " + value.getClass().getName() + " to a boolean");
     }
 
-    protected String formatFloatingPoint(Object value) {
-        if(value instanceof Float || value instanceof Double) {
-            return value.toString();
+    protected void appendFloatingPoint(StringBuilder sb, Object value) {
+        if(value instanceof Double) {
+            sb.append(((Double) value).doubleValue());
+            return;
+        }
+        if(value instanceof Float) {
+            sb.append(((Float) value).floatValue());
+            return;
         }
         if(value instanceof BigDecimal) {
-            return ((BigDecimal) value).toPlainString();
+            sb.append(((BigDecimal) value).toPlainString());
+            return;
         }
 
         try {
-            return new BigDecimal(value.toString()).toPlainString();
+            sb.append(new BigDecimal(value.toString()).toPlainString());
         } catch(NumberFormatException e) {
             throw new IllegalArgumentException("Could not format type " + value.getClass().getName() + " to a floating point");
         }
     }
 
-    protected String formatString(Object value) {
-        return "'" + escapeString(value.toString()) + "'";
+    protected void appendString(StringBuilder sb, Object value) {
+        sb.append('\'').append(escapeString(value.toString())).append('\'');
     }
 
-    protected String formatInteger(Object value) {
+    protected void appendInteger(StringBuilder sb, Object value) {
         if(value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
-            return value.toString();
+            sb.append(((Number) value).longValue());
+            return;
         }
         if(value instanceof BigInteger) {
-            return value.toString();
+            sb.append(value);
+            return;
         }
         if(value instanceof Boolean) {
-            if(((Boolean)value).booleanValue()) {
-                return "1";
-            }
-            else {
-                return "0";
-            }
+            sb.append(((Boolean) value).booleanValue() ? '1' : '0');
+            return;
         }
 
         try {
-            return new BigDecimal(value.toString()).toBigInteger().toString();
+            sb.append(new BigDecimal(value.toString()).toBigInteger());
         } catch(NumberFormatException e) {
             throw new IllegalArgumentException("Could not format type " + value.getClass().getName() + " to an integer");
         }
     }
 
-    protected String formatDatetime(Object value) {
+    protected void appendDatetime(StringBuilder sb, Object value) {
         if(value instanceof Date) {
-            return "'" + formatDateTime((Date) value) + "'";
+            sb.append('\'');
+            appendDateTime(sb, (Date) value);
+            sb.append('\'');
+            return;
         }
         if(value instanceof BigDecimal
                 && decimalTimestampPattern.matcher(((BigDecimal) value).toPlainString()).matches()) {
-            try {
-                synchronized(decimalTimestampFormat) {
-                    return formatDatetime(decimalTimestampFormat.parse(((BigDecimal) value).toPlainString()));
-                }
-            }
-            catch(ParseException e) {
-                LOGGER.error("Failed to parse " + ((BigDecimal)value).toPlainString() + " as a date using pattern " +
-                        "YYYYMMDDHHmmss.SSS");
+            Date date = parseDecimalTimestamp(((BigDecimal) value).toPlainString());
+            if(date != null) {
+                appendDatetime(sb, date);
+                return;
             }
+            LOGGER.error("Failed to parse " + ((BigDecimal)value).toPlainString() + " as a date using pattern " +
+                    "YYYYMMDDHHmmss.SSS");
         }
 
 
         throw new IllegalArgumentException("Could not format type " + value.getClass().getName() + " to a datetime");
     }
 
-    protected String formatDate(Object value) {
+    protected void appendDate(StringBuilder sb, Object value) {
         if(value instanceof Date) {
-            return "'" + formatDate((Date) value) + "'";
+            sb.append('\'');
+            appendDate(sb, (Date) value);
+            sb.append('\'');
+            return;
         }
 
         throw new IllegalArgumentException("Could not format type " + value.getClass().getName() + " to a date");
     }
 
-    protected String formatTime(Object value) {
+    protected void appendTime(StringBuilder sb, Object value) {
         if(value instanceof Date) {
-            return "'" + formatTime((Date) value) + "'";
+            sb.append('\'');
+            appendTime(sb, (Date) value);
+            sb.append('\'');
+            return;
         }
 
         throw new IllegalArgumentException("Could not format type " + value.getClass().getName() + " to a time");
     }
 
-    protected String formatBinary(Object value) {
+    protected void appendBinary(StringBuilder sb, Object value) {
         throw new UnsupportedOperationException("Not yet implemented");
     }
+
+    protected String formatDecimal(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendDecimal(sb, value);
+        return sb.toString();
+    }
+
+    protected String formatBoolean(Object value) {
+        StringBuilder sb = new StringBuilder(5);
+        appendBoolean(sb, value);
+        return sb.toString();
+    }
+
+    protected String formatFloatingPoint(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendFloatingPoint(sb, value);
+        return sb.toString();
+    }
+
+    protected String formatString(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendString(sb, value);
+        return sb.toString();
+    }
+
+    protected String formatInteger(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendInteger(sb, value);
+        return sb.toString();
+    }
+
+    protected String formatDatetime(Object value) {
+        StringBuilder sb = new StringBuilder(25);
+        appendDatetime(sb, value);
+        return sb.toString();
+    }
+
+    protected String formatDate(Object value) {
+        StringBuilder sb = new StringBuilder(12);
+        appendDate(sb, value);
+        return sb.toString();
+    }
+
+    protected String formatTime(Object value) {
+        StringBuilder sb = new StringBuilder(14);
+        appendTime(sb, value);
+        return sb.toString();
+    }
+
+    protected String formatBinary(Object value) {
+        StringBuilder sb = new StringBuilder();
+        appendBinary(sb, value);
+        return sb.toString();
+    }
+
+    /**
+     * Escapes a string by doubling every single quote, which is how standard SQL escapes string literals. Returns the
+     * string itself if there was nothing to escape.
+     * @param string String to escape
+     * @return Escaped string
+     */
+    protected static String doubleSingleQuotes(String string) {
+        int quote = string.indexOf('\'');
+        if(quote == -1) {
+            return string;
+        }
+        StringBuilder sb = new StringBuilder(string.length() + 8);
+        int start = 0;
+        while(quote != -1) {
+            sb.append(string, start, quote + 1).append('\'');
+            start = quote + 1;
+            quote = string.indexOf('\'', start);
+        }
+        return sb.append(string, start, string.length()).toString();
+    }
+
+    /**
+     * Appends a parenthesized, comma-separated list of escaped column names, starting with the key column
+     */
+    protected void appendColumnList(StringBuilder sb, String keyColumn, List<String> columns) {
+        sb.append("(").append(escapeIdentifier(keyColumn));
+        for(String column: columns) {
+            sb.append(", ").append(escapeIdentifier(column));
+        }
+        sb.append(")");
+    }
+
+    /**
+     * Appends {@code numberOfRows} parenthesized rows of {@code numberOfColumns} parameters each, separated by commas,
+     * as used in a multi-row {@code VALUES} clause
+     */
+    protected void appendParameterRows(StringBuilder sb, int numberOfColumns, int numberOfRows) {
+        for(int row = 0; row < numberOfRows; row++) {
+            sb.append(row == 0 ? "(?" : ", (?");
+            for(int i = 1; i < numberOfColumns; i++) {
+                sb.append(", ?");
+            }
+            sb.append(")");
+        }
+    }
 }
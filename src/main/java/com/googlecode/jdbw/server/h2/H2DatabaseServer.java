@@ -58,12 +58,17 @@ public abstract class H2DatabaseServer extends AbstractDatabaseServer<H2Database
      * @return DatabaseConnection established to this H2 server
      */
     public DatabaseConnection connect(DataSourceFactory dataSourceFactory) {
-        if(!isAllowMultipleConnections() && !(dataSourceFactory instanceof OneSharedConnectionDataSource.Factory)) {
+        if(!isAllowMultipleConnections() && !isSingleConnectionFactory(dataSourceFactory)) {
             throw new IllegalArgumentException("You can't connect to a " + this + " with multiple connections");
         }
         return newConnectionFactory().connect(dataSourceFactory);
     }
     
+    private boolean isSingleConnectionFactory(DataSourceFactory dataSourceFactory) {
+        return dataSourceFactory instanceof OneSharedConnectionDataSource.Factory &&
+                ((OneSharedConnectionDataSource.Factory)dataSourceFactory).getNumberOfConnections() == 1;
+    }
+
     @Override
     public DatabaseServerType getServerType() {
         return serverType;
@@ -20,14 +20,21 @@ package com.googlecode.jdbw.server.h2;
 
 import com.googlecode.jdbw.metadata.Catalog;
 import com.googlecode.jdbw.metadata.DefaultServerMetaData;
+import com.googlecode.jdbw.metadata.Schema;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import javax.sql.DataSource;
 
 /**
- * A meta data resolver tuned to H2
+ * A meta data resolver tuned to H2. Unlike most other drivers, H2 answers {@code DatabaseMetaData} calls straight from
+ * its own schema objects, which is faster than querying its {@code INFORMATION_SCHEMA} views, so tables and columns
+ * are still read through JDBC. The only exception is {@code snapshot(..)}, which reads the indexes of the whole schema
+ * from {@code INFORMATION_SCHEMA} (as laid out in H2 2.x) in one query instead of one call per table.
  * @author Martin Berglund
  */
 public class H2MetaDataResolver extends DefaultServerMetaData {
@@ -50,4 +57,27 @@ public class H2MetaDataResolver extends DefaultServerMetaData {
     protected ResultSet getSchemaMetadata(Connection pooledConnection, Catalog catalog, String schemaName) throws SQLException {
         return pooledConnection.getMetaData().getSchemas();
     }
+
+    @Override
+    protected ResultSet getSchemaIndexMetadata(Connection pooledConnection, Schema schema) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        return executeMetaDataQuery(pooledConnection,
+                "SELECT TABLE_NAME, INDEX_NAME, COLUMN_NAME, NOT IS_UNIQUE AS NON_UNIQUE, " +
+                "       " + DatabaseMetaData.tableIndexOther + " AS TYPE " +
+                "FROM INFORMATION_SCHEMA.INDEX_COLUMNS " +
+                "WHERE 1 = 1" + createFilter(schema, parameters) + " " +
+                "ORDER BY TABLE_NAME, INDEX_NAME, ORDINAL_POSITION",
+                parameters.toArray());
+    }
+
+    private String createFilter(Schema schema, List<Object> parameters) {
+        StringBuilder sb = new StringBuilder();
+        if(schema.getCatalog().getName() != null) {
+            sb.append(" AND TABLE_CATALOG = ?");
+            parameters.add(schema.getCatalog().getName());
+        }
+        sb.append(" AND TABLE_SCHEMA = ?");
+        parameters.add(schema.getName());
+        return sb.toString();
+    }
 }
@@ -18,6 +18,7 @@
  */
 package com.googlecode.jdbw.server.h2;
 
+import com.googlecode.jdbw.UpsertSQLDialect;
 import com.googlecode.jdbw.metadata.Column;
 import com.googlecode.jdbw.metadata.Index;
 import com.googlecode.jdbw.metadata.Nullability;
@@ -30,16 +31,26 @@ import java.util.List;
  * H2 SQL dialect specific traits
  * @author Martin Berglund
  */
-public class H2SQLDialect extends DefaultSQLDialect {
+public class H2SQLDialect extends DefaultSQLDialect implements UpsertSQLDialect {
 
     @Override
     public String escapeIdentifier(String identifier) {
         return "\"" + identifier + "\"";
     }
 
+    @Override
+    public String getUpsertStatement(String tableName, String keyColumn, List<String> columns, int numberOfRows) {
+        StringBuilder sb = new StringBuilder("MERGE INTO ");
+        sb.append(escapeIdentifier(tableName)).append(" ");
+        appendColumnList(sb, keyColumn, columns);
+        sb.append(" KEY (").append(escapeIdentifier(keyColumn)).append(") VALUES ");
+        appendParameterRows(sb, columns.size() + 1, numberOfRows);
+        return sb.toString();
+    }
+
     @Override
     public String escapeString(String string) {
-        return string.replaceAll("'", "''");
+        return doubleSingleQuotes(string);
     }
 
     @Override
@@ -18,13 +18,13 @@
  */
 package com.googlecode.jdbw.server.mysql;
 
+import com.googlecode.jdbw.UpsertSQLDialect;
 import com.googlecode.jdbw.metadata.Column;
 import com.googlecode.jdbw.metadata.Index;
 import com.googlecode.jdbw.metadata.Nullability;
 import com.googlecode.jdbw.server.DefaultSQLDialect;
 import com.googlecode.jdbw.util.StringUtils;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
@@ -33,21 +33,18 @@ import java.util.Objects;
  * This class implements various traits and dialectal features of the MySQL-brand SQL.
  * @author Martin Berglund
  */
-class MySQLDialect extends DefaultSQLDialect {
+class MySQLDialect extends DefaultSQLDialect implements UpsertSQLDialect {
 
     //Package private
     MySQLDialect() {
     }
-    
-    private static final DateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-    private static final DateFormat mysqlDecimalDateFormat = new SimpleDateFormat("yyyyMMddHHmmss.SSS");
 
     @Override
-    protected String formatDecimal(Object value) {
+    protected void appendDecimal(StringBuilder sb, Object value) {
         if(value instanceof Date) {
-            return mysqlDecimalDateFormat.format((Date) value);
+            appendDecimalTimestamp(sb, (Date) value);
         } else {
-            return super.formatDecimal(value);
+            super.appendDecimal(sb, value);
         }
     }
     
@@ -65,17 +62,17 @@ class MySQLDialect extends DefaultSQLDialect {
     }
 
     @Override
-    protected String formatBinary(Object value) {
+    protected void appendBinary(StringBuilder sb, Object value) {
         if(value instanceof byte[]) {
-            return "UNHEX(" + getHex((byte[]) value) + ")";
+            sb.append("UNHEX(").append(getHex((byte[]) value)).append(")");
         } else {
-            return super.formatBinary(value);
+            super.appendBinary(sb, value);
         }
     }
 
     @Override
     public String escapeString(String string) {
-        StringBuilder buffer = new StringBuilder(string.length());
+        StringBuilder buffer = null;
         int start = 0, last = 0;
         int length = string.length();
         while(last < length) {
@@ -86,14 +83,20 @@ class MySQLDialect extends DefaultSQLDialect {
                 case '"':
                 case '\t':
                 case '\\':
-                    buffer.append(string.substring(start, last));
+                    if(buffer == null) {
+                        buffer = new StringBuilder(length + 8);
+                    }
+                    buffer.append(string, start, last);
                     start = last + 1;
-                    buffer.append("\\").append(c);
+                    buffer.append('\\').append(c);
                     break;
             }
             last++;
         }
-        return buffer.append(string.substring(start, last)).toString();
+        if(buffer == null) {
+            return string;
+        }
+        return buffer.append(string, start, last).toString();
     }
 
     @Override
@@ -102,8 +105,29 @@ class MySQLDialect extends DefaultSQLDialect {
     }
 
     @Override
-    public synchronized String formatDateTime(Date timestamp) {
-        return timestampFormat.format(timestamp);
+    public String getUpsertStatement(String tableName, String keyColumn, List<String> columns, int numberOfRows) {
+        StringBuilder sb = new StringBuilder("INSERT INTO ");
+        sb.append(escapeIdentifier(tableName)).append(" ");
+        appendColumnList(sb, keyColumn, columns);
+        sb.append(" VALUES ");
+        appendParameterRows(sb, columns.size() + 1, numberOfRows);
+        sb.append(" ON DUPLICATE KEY UPDATE ");
+        if(columns.isEmpty()) {
+            return sb.append(escapeIdentifier(keyColumn)).append(" = ").append(escapeIdentifier(keyColumn)).toString();
+        }
+        for(String column: columns) {
+            sb.append(escapeIdentifier(column)).append(" = VALUES(").append(escapeIdentifier(column)).append("), ");
+        }
+        sb.delete(sb.length() - 2, sb.length());
+        return sb.toString();
+    }
+
+    @Override
+    protected void appendDateTime(StringBuilder sb, Date date) {
+        Calendar calendar = getCalendar(date);
+        appendDate(sb, calendar);
+        sb.append(' ');
+        appendTime(sb, calendar, false);
     }
 
     @Override
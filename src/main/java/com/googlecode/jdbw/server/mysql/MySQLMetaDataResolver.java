@@ -20,16 +20,21 @@
 package com.googlecode.jdbw.server.mysql;
 
 import com.googlecode.jdbw.metadata.*;
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import javax.sql.DataSource;
 
 /**
- * A meta data resolver tuned for MySQL
+ * A meta data resolver tuned for MySQL. Tables, columns and indexes are read with set-based queries against
+ * {@code information_schema} rather than through {@code DatabaseMetaData}, which is very slow on servers with large
+ * catalogs, and {@code snapshot(..)} reads the indexes of the whole database in one query.
  * @author Martin Berglund
  */
 class MySQLMetaDataResolver extends DefaultServerMetaData {
@@ -53,6 +58,84 @@ class MySQLMetaDataResolver extends DefaultServerMetaData {
         }
     }
 
+    @Override
+    protected ResultSet getTableMetadata(Connection pooledConnection, Schema schema, String tableName) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        return executeMetaDataQuery(pooledConnection,
+                "SELECT TABLE_SCHEMA AS TABLE_CAT, NULL AS TABLE_SCHEM, TABLE_NAME " +
+                "FROM information_schema.TABLES " +
+                "WHERE TABLE_TYPE = 'BASE TABLE'" + createFilter(schema, tableName, parameters) + " " +
+                "ORDER BY TABLE_NAME",
+                parameters.toArray());
+    }
+
+    @Override
+    protected ResultSet getTableColumnMetadata(Connection pooledConnection, Table table) throws SQLException {
+        return getColumnMetadata(pooledConnection, table.getSchema(), table.getName());
+    }
+
+    @Override
+    protected ResultSet getSchemaColumnMetadata(Connection pooledConnection, Schema schema) throws SQLException {
+        return getColumnMetadata(pooledConnection, schema, null);
+    }
+
+    @Override
+    protected ResultSet getIndexMetadata(Connection pooledConnection, Table table) throws SQLException {
+        return getIndexMetadata(pooledConnection, table.getSchema(), table.getName());
+    }
+
+    @Override
+    protected ResultSet getSchemaIndexMetadata(Connection pooledConnection, Schema schema) throws SQLException {
+        return getIndexMetadata(pooledConnection, schema, null);
+    }
+
+    @Override
+    protected int readSQLType(ResultSet resultSet) throws SQLException {
+        return getSQLType(resultSet.getString("TYPE_NAME"));
+    }
+
+    @Override
+    protected int getSQLType(String typeName) {
+        //Follows the type mapping of MySQL Connector/J
+        switch(typeName) {
+            case "TINYINT UNSIGNED":
+            case "SMALLINT UNSIGNED":
+                return Types.SMALLINT;
+            case "MEDIUMINT UNSIGNED":
+                return Types.INTEGER;
+            case "INT UNSIGNED":
+            case "BIGINT UNSIGNED":
+                return Types.BIGINT;
+            case "FLOAT":
+            case "FLOAT UNSIGNED":
+                return Types.REAL;
+            case "DOUBLE UNSIGNED":
+                return Types.DOUBLE;
+            case "DECIMAL UNSIGNED":
+                return Types.DECIMAL;
+            case "YEAR":
+                return Types.DATE;
+            case "ENUM":
+            case "SET":
+                return Types.CHAR;
+            case "TINYTEXT":
+            case "TEXT":
+            case "MEDIUMTEXT":
+            case "LONGTEXT":
+            case "JSON":
+                return Types.LONGVARCHAR;
+            case "TINYBLOB":
+            case "BLOB":
+            case "MEDIUMBLOB":
+            case "LONGBLOB":
+                return Types.LONGVARBINARY;
+            case "GEOMETRY":
+                return Types.BINARY;
+            default:
+                return super.getSQLType(typeName);
+        }
+    }
+
     @Override
     protected TableColumn createTableColumn(
             Table table,
@@ -99,4 +182,52 @@ class MySQLMetaDataResolver extends DefaultServerMetaData {
     protected Index createIndex(Table table, String indexName, short type, boolean unique, TableColumn firstColumn) {
         return super.createIndex(table, indexName, Objects.equals("PRIMARY", indexName) ? DatabaseMetaData.tableIndexClustered : type, unique, firstColumn);
     }
+
+    private ResultSet getColumnMetadata(Connection pooledConnection, Schema schema, String tableName) throws SQLException {
+        //Connector/J reports TINYINT(1) as a single bit, which is turned into a boolean column above
+        List<Object> parameters = new ArrayList<>();
+        return executeMetaDataQuery(pooledConnection,
+                "SELECT TABLE_NAME, COLUMN_NAME, ORDINAL_POSITION, " +
+                "       CASE WHEN COLUMN_TYPE = 'tinyint(1)' THEN 'BIT' " +
+                "            WHEN COLUMN_TYPE LIKE '% unsigned%' THEN CONCAT(UPPER(DATA_TYPE), ' UNSIGNED') " +
+                "            ELSE UPPER(DATA_TYPE) END AS TYPE_NAME, " +
+                "       CASE WHEN COLUMN_TYPE = 'tinyint(1)' THEN 1 " +
+                "            ELSE LEAST(COALESCE(CHARACTER_MAXIMUM_LENGTH, NUMERIC_PRECISION, 0), " + Integer.MAX_VALUE + ") END AS COLUMN_SIZE, " +
+                "       COALESCE(NUMERIC_SCALE, DATETIME_PRECISION, 0) AS DECIMAL_DIGITS, " +
+                "       CASE WHEN IS_NULLABLE = 'YES' THEN " + DatabaseMetaData.columnNullable +
+                "            ELSE " + DatabaseMetaData.columnNoNulls + " END AS NULLABLE, " +
+                "       CASE WHEN EXTRA LIKE '%auto_increment%' THEN 'YES' ELSE 'NO' END AS IS_AUTOINCREMENT " +
+                "FROM information_schema.COLUMNS " +
+                "WHERE 1 = 1" + createFilter(schema, tableName, parameters) + " " +
+                "ORDER BY TABLE_NAME, ORDINAL_POSITION",
+                parameters.toArray());
+    }
+
+    private ResultSet getIndexMetadata(Connection pooledConnection, Schema schema, String tableName) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        return executeMetaDataQuery(pooledConnection,
+                "SELECT TABLE_NAME, INDEX_NAME, COLUMN_NAME, NON_UNIQUE, " +
+                "       " + DatabaseMetaData.tableIndexOther + " AS TYPE " +
+                "FROM information_schema.STATISTICS " +
+                "WHERE 1 = 1" + createFilter(schema, tableName, parameters) + " " +
+                "ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX",
+                parameters.toArray());
+    }
+
+    private String createFilter(Schema schema, String tableName, List<Object> parameters) {
+        //MySQL calls the database a schema while JDBC (and we) call it a catalog
+        StringBuilder sb = new StringBuilder();
+        if(schema.getCatalog().getName() != null) {
+            sb.append(" AND TABLE_SCHEMA = ?");
+            parameters.add(schema.getCatalog().getName());
+        }
+        else {
+            sb.append(" AND TABLE_SCHEMA = DATABASE()");
+        }
+        if(tableName != null) {
+            sb.append(" AND TABLE_NAME = ?");
+            parameters.add(tableName);
+        }
+        return sb.toString();
+    }
 }
@@ -1,14 +1,38 @@
 package com.googlecode.jdbw.server.postgresql;
 
+import com.googlecode.jdbw.UpsertSQLDialect;
 import com.googlecode.jdbw.server.DefaultSQLDialect;
+import java.util.List;
 
 /**
  * PostgreSQL dialect definition
  * @author martin
  */
-public class PostgreSQLDialect extends DefaultSQLDialect {
+public class PostgreSQLDialect extends DefaultSQLDialect implements UpsertSQLDialect {
     @Override
     public String getUseCatalogStatement(String catalogName) {
         return null;
     }
+
+    /**
+     * Creates an {@code INSERT INTO ... ON CONFLICT (...) DO UPDATE} statement, which requires PostgreSQL 9.5 or later
+     */
+    @Override
+    public String getUpsertStatement(String tableName, String keyColumn, List<String> columns, int numberOfRows) {
+        StringBuilder sb = new StringBuilder("INSERT INTO ");
+        sb.append(escapeIdentifier(tableName)).append(" ");
+        appendColumnList(sb, keyColumn, columns);
+        sb.append(" VALUES ");
+        appendParameterRows(sb, columns.size() + 1, numberOfRows);
+        sb.append(" ON CONFLICT (").append(escapeIdentifier(keyColumn)).append(")");
+        if(columns.isEmpty()) {
+            return sb.append(" DO NOTHING").toString();
+        }
+        sb.append(" DO UPDATE SET ");
+        for(String column: columns) {
+            sb.append(escapeIdentifier(column)).append(" = EXCLUDED.").append(escapeIdentifier(column)).append(", ");
+        }
+        sb.delete(sb.length() - 2, sb.length());
+        return sb.toString();
+    }
 }
@@ -0,0 +1,206 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.server.postgresql;
+
+import com.googlecode.jdbw.metadata.DefaultServerMetaData;
+import com.googlecode.jdbw.metadata.Schema;
+import com.googlecode.jdbw.metadata.Table;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+/**
+ * A meta data resolver tuned for PostgreSQL. Tables, columns and indexes are read with set-based queries against
+ * {@code pg_catalog} rather than through {@code DatabaseMetaData}, and {@code snapshot(..)} reads the indexes of the
+ * whole schema in one query. The queries need PostgreSQL 10 or later; on older servers this resolver falls back to
+ * {@code DatabaseMetaData}, just like {@code DefaultServerMetaData}.
+ * @author Martin Berglund
+ */
+class PostgreSQLMetaDataResolver extends DefaultServerMetaData {
+
+    /**
+     * First version of PostgreSQL with all the catalog features used by the queries below (identity columns)
+     */
+    private static final int MINIMUM_CATALOG_QUERY_VERSION = 10;
+
+    private volatile Boolean catalogQueries;
+
+    PostgreSQLMetaDataResolver(DataSource dataSource) {
+        super(dataSource);
+        this.catalogQueries = null;
+    }
+
+    @Override
+    protected ResultSet getTableMetadata(Connection pooledConnection, Schema schema, String tableName) throws SQLException {
+        if(!useCatalogQueries(pooledConnection)) {
+            return super.getTableMetadata(pooledConnection, schema, tableName);
+        }
+        List<Object> parameters = new ArrayList<>();
+        return executeMetaDataQuery(pooledConnection,
+                "SELECT current_database() AS TABLE_CAT, n.nspname AS TABLE_SCHEM, c.relname AS TABLE_NAME " +
+                "FROM pg_catalog.pg_class c " +
+                "     JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE c.relkind = 'r'" + createFilter(schema, tableName, parameters) + " " +
+                "ORDER BY c.relname",
+                parameters.toArray());
+    }
+
+    @Override
+    protected ResultSet getTableColumnMetadata(Connection pooledConnection, Table table) throws SQLException {
+        if(!useCatalogQueries(pooledConnection)) {
+            return super.getTableColumnMetadata(pooledConnection, table);
+        }
+        return getColumnMetadata(pooledConnection, table.getSchema(), table.getName());
+    }
+
+    @Override
+    protected ResultSet getSchemaColumnMetadata(Connection pooledConnection, Schema schema) throws SQLException {
+        if(!useCatalogQueries(pooledConnection)) {
+            return super.getSchemaColumnMetadata(pooledConnection, schema);
+        }
+        return getColumnMetadata(pooledConnection, schema, null);
+    }
+
+    @Override
+    protected ResultSet getIndexMetadata(Connection pooledConnection, Table table) throws SQLException {
+        if(!useCatalogQueries(pooledConnection)) {
+            return super.getIndexMetadata(pooledConnection, table);
+        }
+        return getIndexMetadata(pooledConnection, table.getSchema(), table.getName());
+    }
+
+    @Override
+    protected ResultSet getSchemaIndexMetadata(Connection pooledConnection, Schema schema) throws SQLException {
+        if(!useCatalogQueries(pooledConnection)) {
+            return super.getSchemaIndexMetadata(pooledConnection, schema);
+        }
+        return getIndexMetadata(pooledConnection, schema, null);
+    }
+
+    @Override
+    protected int readSQLType(ResultSet resultSet) throws SQLException {
+        //The column result set always comes from one of the methods above, so the server version is known by now
+        if(Boolean.FALSE.equals(catalogQueries)) {
+            return super.readSQLType(resultSet);
+        }
+        return getSQLType(resultSet.getString("TYPE_NAME"));
+    }
+
+    @Override
+    protected int getSQLType(String typeName) {
+        //Follows the type mapping of the PostgreSQL JDBC driver
+        if(typeName.startsWith("_")) {
+            return Types.ARRAY;
+        }
+        switch(typeName) {
+            case "bool":
+                return Types.BIT;
+            case "serial":
+                return Types.INTEGER;
+            case "bigserial":
+            case "oid":
+                return Types.BIGINT;
+            case "name":
+                return Types.VARCHAR;
+            case "money":
+                return Types.DOUBLE;
+            case "timetz":
+                return Types.TIME;
+            case "timestamptz":
+                return Types.TIMESTAMP;
+            default:
+                return super.getSQLType(typeName);
+        }
+    }
+
+    private boolean useCatalogQueries(Connection pooledConnection) throws SQLException {
+        Boolean result = catalogQueries;
+        if(result == null) {
+            result = pooledConnection.getMetaData().getDatabaseMajorVersion() >= MINIMUM_CATALOG_QUERY_VERSION;
+            catalogQueries = result;
+        }
+        return result;
+    }
+
+    private ResultSet getColumnMetadata(Connection pooledConnection, Schema schema, String tableName) throws SQLException {
+        //atttypmod holds the length of character types (plus 4) and the precision and scale of numeric types (plus 4,
+        //precision in the upper 16 bits); like the JDBC driver we report integer columns backed by a sequence as serial
+        List<Object> parameters = new ArrayList<>();
+        return executeMetaDataQuery(pooledConnection,
+                "SELECT c.relname AS TABLE_NAME, a.attname AS COLUMN_NAME, a.attnum AS ORDINAL_POSITION, " +
+                "       CASE WHEN s.is_sequence AND t.typname = 'int4' THEN 'serial' " +
+                "            WHEN s.is_sequence AND t.typname = 'int8' THEN 'bigserial' " +
+                "            ELSE t.typname END AS TYPE_NAME, " +
+                "       CASE WHEN t.typname IN ('varchar', 'bpchar') AND a.atttypmod > 4 THEN a.atttypmod - 4 " +
+                "            WHEN t.typname = 'numeric' AND a.atttypmod > 4 THEN ((a.atttypmod - 4) >> 16) & 65535 " +
+                "            WHEN t.typname IN ('varchar', 'text', 'bytea') THEN " + Integer.MAX_VALUE + " " +
+                "            ELSE 0 END AS COLUMN_SIZE, " +
+                "       CASE WHEN t.typname = 'numeric' AND a.atttypmod > 4 THEN (a.atttypmod - 4) & 65535 " +
+                "            ELSE 0 END AS DECIMAL_DIGITS, " +
+                "       CASE WHEN a.attnotnull THEN " + DatabaseMetaData.columnNoNulls +
+                "            ELSE " + DatabaseMetaData.columnNullable + " END AS NULLABLE, " +
+                "       CASE WHEN s.is_sequence OR a.attidentity <> '' THEN 'YES' ELSE 'NO' END AS IS_AUTOINCREMENT " +
+                "FROM pg_catalog.pg_attribute a " +
+                "     JOIN pg_catalog.pg_class c ON c.oid = a.attrelid " +
+                "     JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+                "     JOIN pg_catalog.pg_type t ON t.oid = a.atttypid " +
+                "     LEFT JOIN pg_catalog.pg_attrdef d ON d.adrelid = a.attrelid AND d.adnum = a.attnum " +
+                "     CROSS JOIN LATERAL (SELECT COALESCE(pg_catalog.pg_get_expr(d.adbin, d.adrelid) LIKE 'nextval(%', false) AS is_sequence) s " +
+                "WHERE c.relkind = 'r' AND a.attnum > 0 AND NOT a.attisdropped" + createFilter(schema, tableName, parameters) + " " +
+                "ORDER BY c.relname, a.attnum",
+                parameters.toArray());
+    }
+
+    private ResultSet getIndexMetadata(Connection pooledConnection, Schema schema, String tableName) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        return executeMetaDataQuery(pooledConnection,
+                "SELECT c.relname AS TABLE_NAME, i.relname AS INDEX_NAME, a.attname AS COLUMN_NAME, " +
+                "       NOT x.indisunique AS NON_UNIQUE, " +
+                "       CASE WHEN x.indisclustered THEN " + DatabaseMetaData.tableIndexClustered +
+                "            WHEN am.amname = 'hash' THEN " + DatabaseMetaData.tableIndexHashed +
+                "            ELSE " + DatabaseMetaData.tableIndexOther + " END AS TYPE " +
+                "FROM pg_catalog.pg_index x " +
+                "     JOIN pg_catalog.pg_class c ON c.oid = x.indrelid " +
+                "     JOIN pg_catalog.pg_class i ON i.oid = x.indexrelid " +
+                "     JOIN pg_catalog.pg_am am ON am.oid = i.relam " +
+                "     JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace " +
+                "     CROSS JOIN LATERAL unnest(x.indkey::int2[]) WITH ORDINALITY AS k(attnum, position) " +
+                "     LEFT JOIN pg_catalog.pg_attribute a ON a.attrelid = c.oid AND a.attnum = k.attnum " +
+                "WHERE c.relkind = 'r'" + createFilter(schema, tableName, parameters) + " " +
+                "ORDER BY c.relname, i.relname, k.position",
+                parameters.toArray());
+    }
+
+    private String createFilter(Schema schema, String tableName, List<Object> parameters) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(" AND n.nspname = ?");
+        parameters.add(schema.getName());
+        if(tableName != null) {
+            sb.append(" AND c.relname = ?");
+            parameters.add(tableName);
+        }
+        return sb.toString();
+    }
+}
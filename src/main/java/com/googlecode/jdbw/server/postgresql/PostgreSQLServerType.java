@@ -19,7 +19,9 @@
 package com.googlecode.jdbw.server.postgresql;
 
 import com.googlecode.jdbw.SQLDialect;
+import com.googlecode.jdbw.metadata.ServerMetaData;
 import com.googlecode.jdbw.server.AbstractDatabaseType;
+import javax.sql.DataSource;
 
 /**
  * DatabaseServerType implementation for PostgreSQL
@@ -41,4 +43,9 @@ public class PostgreSQLServerType extends AbstractDatabaseType {
     public String getName() {
         return "PostgreSQL";
     }    
+
+    @Override
+    public ServerMetaData createMetaDataResolver(DataSource dataSource) {
+        return new PostgreSQLMetaDataResolver(dataSource);
+    }
 }
@@ -23,6 +23,8 @@ import com.googlecode.jdbw.metadata.Catalog;
 import com.googlecode.jdbw.metadata.DefaultServerMetaData;
 import com.googlecode.jdbw.metadata.Index;
 import com.googlecode.jdbw.metadata.Schema;
+import com.googlecode.jdbw.metadata.SchemaSnapshot;
+import com.googlecode.jdbw.metadata.ServerMetaData;
 import com.googlecode.jdbw.metadata.Table;
 import com.googlecode.jdbw.metadata.TableColumn;
 import com.googlecode.jdbw.util.SimpleResultSet;
@@ -78,6 +80,13 @@ class SybaseASEMetaDataResolver extends DefaultServerMetaData {
         }
     }
 
+    @Override
+    protected SchemaSnapshot snapshot(Schema schema, ServerMetaData owner) throws SQLException {
+        //The bulk loading in DefaultServerMetaData goes through DatabaseMetaData, which doesn't give us the indexes
+        //correctly on Sybase, so let each table load its columns and indexes through the overrides in here instead
+        return new SchemaSnapshot(schema, owner.getTables(schema));
+    }
+
     @Override
     protected ResultSet getStoredProcedureMetadata(Connection pooledConnection, Schema schema, String procedureName) throws SQLException {
         SQLWorker worker = new SQLWorker(new SybaseExecutor(pooledConnection));
@@ -19,6 +19,7 @@
 
 package com.googlecode.jdbw.server.sybase;
 
+import com.googlecode.jdbw.UpsertSQLDialect;
 import com.googlecode.jdbw.metadata.Column;
 import com.googlecode.jdbw.metadata.Index;
 import com.googlecode.jdbw.metadata.Nullability;
@@ -31,12 +32,12 @@ import java.util.List;
  * Sybase SQL dialect specific traits
  * @author Martin Berglund
  */
-public class SybaseASESQLDialect extends DefaultSQLDialect {
+public class SybaseASESQLDialect extends DefaultSQLDialect implements UpsertSQLDialect {
     
     @Override
     public String escapeString(String string)
     {
-        return string.replaceAll("'", "''");
+        return doubleSingleQuotes(string);
     }
 
     @Override
@@ -49,6 +50,37 @@ public class SybaseASESQLDialect extends DefaultSQLDialect {
         return "dbo";
     }
 
+    /**
+     * Creates a {@code MERGE INTO ... USING (SELECT ...)} statement, which requires ASE 15.7 or later. Since ASE doesn't
+     * support multi-row {@code VALUES}, this method returns {@code null} when asked for more than one row.
+     */
+    @Override
+    public String getUpsertStatement(String tableName, String keyColumn, List<String> columns, int numberOfRows) {
+        if(numberOfRows != 1) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder("MERGE INTO ");
+        sb.append(escapeIdentifier(tableName)).append(" AS dst USING (SELECT ? AS ").append(escapeIdentifier(keyColumn));
+        for(String column: columns) {
+            sb.append(", ? AS ").append(escapeIdentifier(column));
+        }
+        sb.append(") AS src ON dst.").append(escapeIdentifier(keyColumn)).append(" = src.").append(escapeIdentifier(keyColumn));
+        if(!columns.isEmpty()) {
+            sb.append(" WHEN MATCHED THEN UPDATE SET ");
+            for(String column: columns) {
+                sb.append(escapeIdentifier(column)).append(" = src.").append(escapeIdentifier(column)).append(", ");
+            }
+            sb.delete(sb.length() - 2, sb.length());
+        }
+        sb.append(" WHEN NOT MATCHED THEN INSERT ");
+        appendColumnList(sb, keyColumn, columns);
+        sb.append(" VALUES (src.").append(escapeIdentifier(keyColumn));
+        for(String column: columns) {
+            sb.append(", src.").append(escapeIdentifier(column));
+        }
+        return sb.append(")").toString();
+    }
+
     private static final String HEXES = "0123456789abcdef";
 
     private String getHex(byte... raw)
@@ -64,12 +96,12 @@ public class SybaseASESQLDialect extends DefaultSQLDialect {
     }
     
     @Override
-    protected String formatBinary(Object value) {
+    protected void appendBinary(StringBuilder sb, Object value) {
         if(value instanceof byte[]) {
-            return "0x" + getHex((byte[]) value);
+            sb.append("0x").append(getHex((byte[]) value));
         }
         else {
-            return super.formatBinary(value);
+            super.appendBinary(sb, value);
         }
     }
     
@@ -0,0 +1,430 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.BatchUpdateHandler;
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.ExecuteResultHandler;
+import com.googlecode.jdbw.ResultSetInformation;
+import com.googlecode.jdbw.RowView;
+import com.googlecode.jdbw.RowViewResultHandler;
+import com.googlecode.jdbw.SQLExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class runs queries and batch writes in the background on a bounded thread pool, so that independent queries can
+ * be sent to the database in parallel instead of one after the other. Every call returns immediately with a
+ * {@code Future} holding the result; any {@code SQLException} is reported through {@code Future.get()} as the cause of
+ * an {@code ExecutionException}. The queries are executed through an {@code AutoExecutor} created from the
+ * {@code DatabaseConnection}, so each query will take a connection from the pool and return it when done.
+ * <p>
+ * Cancelling a returned future with {@code cancel(..)} will, if the query has already been sent to the server, also
+ * cancel the JDBC statement through the {@code Cancellable} exposed by {@code ExecuteResultHandler.onCancellableCallback}.
+ * <p>
+ * By default a fixed pool of threads with a bounded work queue is created and owned by this object; once the queue is
+ * full, new calls will throw {@code RejectedExecutionException}. You can also supply your own {@code ExecutorService},
+ * for example one running virtual threads on JVMs supporting it. Make sure the number of concurrently running tasks
+ * doesn't exceed the size of your connection pool, or tasks will just queue up waiting for connections. Remember to
+ * call {@code close()} when you are done, to stop the thread pool.
+ *
+ * @see SQLWorker
+ * @author Martin Berglund
+ */
+public class AsyncSQLExecutor implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncSQLExecutor.class);
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger(1);
+
+    private final DatabaseConnection databaseConnection;
+    private final ExecutorService executorService;
+    private final boolean ownsExecutorService;
+
+    /**
+     * Creates a new {@code AsyncSQLExecutor} with a thread pool of {@code numberOfThreads} threads and a work queue that
+     * can hold up to {@code maxQueuedTasks} tasks waiting for a thread
+     * @param databaseConnection Database connection to run the queries on
+     * @param numberOfThreads How many queries to run concurrently at most
+     * @param maxQueuedTasks How many queries can be waiting for a thread before new calls are rejected
+     */
+    public AsyncSQLExecutor(DatabaseConnection databaseConnection, int numberOfThreads, int maxQueuedTasks) {
+        this(databaseConnection, createThreadPool(numberOfThreads, maxQueuedTasks), true);
+    }
+
+    /**
+     * Creates a new {@code AsyncSQLExecutor} that runs the queries on an externally managed {@code ExecutorService}.
+     * Closing this object will not shut down the executor service.
+     * @param databaseConnection Database connection to run the queries on
+     * @param executorService Executor service to run the queries on
+     */
+    public AsyncSQLExecutor(DatabaseConnection databaseConnection, ExecutorService executorService) {
+        this(databaseConnection, executorService, false);
+    }
+
+    private AsyncSQLExecutor(DatabaseConnection databaseConnection, ExecutorService executorService, boolean ownsExecutorService) {
+        if(databaseConnection == null) {
+            throw new IllegalArgumentException("Cannot create AsyncSQLExecutor with null databaseConnection");
+        }
+        if(executorService == null) {
+            throw new IllegalArgumentException("Cannot create AsyncSQLExecutor with null executorService");
+        }
+        this.databaseConnection = databaseConnection;
+        this.executorService = executorService;
+        this.ownsExecutorService = ownsExecutorService;
+    }
+
+    /**
+     * Sends a query to the database in the background and handles any results through a callback interface. Please
+     * note that the callbacks will be invoked on the background thread.
+     * @param handler Callback interface to use for any results of the query
+     * @param SQL SQL code to send to the database server, use ? for parameter substitution
+     * @param parameters List of parameters to insert into the query, must be one for every ? used
+     * @return Future which completes when the query is done
+     * @throws RejectedExecutionException If the work queue is full or this object has been closed
+     */
+    public Future<Void> execute(final ExecuteResultHandler handler, final String SQL, final Object... parameters) {
+        final StatementCanceller canceller = new StatementCanceller();
+        return submit(canceller, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                createExecutor().execute(canceller.wrap(handler), SQL, parameters);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Sends a query to the database in the background and returns the whole result as a list of Object arrays, just
+     * like {@code SQLWorker.query(..)}
+     * @param SQL SQL to send to the database server
+     * @param parameters Parameters to substitute ?:s for in the SQL string
+     * @return Future holding the entire result set, where each array in the list is one row in the result set
+     * @throws RejectedExecutionException If the work queue is full or this object has been closed
+     */
+    public Future<List<Object[]>> query(final String SQL, final Object... parameters) {
+        final StatementCanceller canceller = new StatementCanceller();
+        return submit(canceller, new Callable<List<Object[]>>() {
+            @Override
+            public List<Object[]> call() throws Exception {
+                final List<Object[]> result = new ArrayList<>();
+                createExecutor().execute(canceller.wrap(new ExecuteResultHandlerAdapter() {
+                    @Override
+                    public boolean nextRow(Object... row) {
+                        result.add(row);
+                        return true;
+                    }
+                }), SQL, parameters);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Sends a query to the database in the background and returns the first column of the first row, just like
+     * {@code SQLWorker.topLeftValue(..)}
+     * @param SQL SQL to send to the database server
+     * @param parameters Parameters to substitute ?:s for in the SQL string
+     * @return Future holding the first value of the result, or {@code null} if there were no rows
+     * @throws RejectedExecutionException If the work queue is full or this object has been closed
+     */
+    public Future<Object> topLeftValue(final String SQL, final Object... parameters) {
+        final StatementCanceller canceller = new StatementCanceller();
+        return submit(canceller, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                final Object[] result = new Object[1];
+                createExecutor().execute(canceller.wrap(new ExecuteResultHandlerAdapter() {
+                    @Override
+                    public boolean nextRow(Object... row) {
+                        result[0] = row[0];
+                        return false;
+                    }
+                }), 1, 0, SQL, parameters);
+                return result[0];
+            }
+        });
+    }
+
+    /**
+     * Sends a query to the database in the background, ignoring any result sets, and returns the total update count
+     * @param SQL SQL to send to the database server
+     * @param parameters Parameters to substitute ?:s for in the SQL string
+     * @return Future holding the sum of all update counts reported by the server
+     * @throws RejectedExecutionException If the work queue is full or this object has been closed
+     */
+    public Future<Integer> write(final String SQL, final Object... parameters) {
+        final StatementCanceller canceller = new StatementCanceller();
+        return submit(canceller, new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                final int[] updateCount = new int[1];
+                createExecutor().execute(canceller.wrap(new ExecuteResultHandlerAdapter() {
+                    @Override
+                    public void onUpdateCount(int count) {
+                        updateCount[0] += count;
+                    }
+                }), SQL, parameters);
+                return updateCount[0];
+            }
+        });
+    }
+
+    /**
+     * Executes a batch write in the background. Batch writes can't be cancelled through the JDBC statement, but
+     * cancelling the future before the batch has started will prevent it from running.
+     * @param handler Callback interface to use for any results of the batch, called on the background thread
+     * @param SQL SQL to use for all queries, use ? for the parameter substitution
+     * @param parameters List of object arrays, where one array equals one query sent to the server
+     * @return Future which completes when the batch has been written
+     * @throws RejectedExecutionException If the work queue is full or this object has been closed
+     */
+    public Future<Void> batchWrite(final BatchUpdateHandler handler, final String SQL, final List<Object[]> parameters) {
+        final StatementCanceller canceller = new StatementCanceller();
+        return submit(canceller, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                createExecutor().batchWrite(handler, SQL, parameters);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Stops accepting new queries and, if the thread pool was created by this object, shuts it down. Queries already
+     * submitted will still run to completion.
+     */
+    @Override
+    public void close() {
+        if(ownsExecutorService) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Creates the {@code SQLExecutor} each background task will use, by default an auto executor
+     * @return {@code SQLExecutor} to run a task on
+     */
+    protected SQLExecutor createExecutor() {
+        return databaseConnection.createAutoExecutor();
+    }
+
+    private <V> Future<V> submit(StatementCanceller canceller, Callable<V> callable) {
+        SQLFutureTask<V> task = new SQLFutureTask<>(callable, canceller);
+        executorService.execute(task);
+        return task;
+    }
+
+    private static ExecutorService createThreadPool(int numberOfThreads, int maxQueuedTasks) {
+        if(numberOfThreads <= 0) {
+            throw new IllegalArgumentException("Cannot create AsyncSQLExecutor with numberOfThreads <= 0");
+        }
+        if(maxQueuedTasks <= 0) {
+            throw new IllegalArgumentException("Cannot create AsyncSQLExecutor with maxQueuedTasks <= 0");
+        }
+        final String namePrefix = "jdbw-async-" + POOL_COUNTER.getAndIncrement() + "-";
+        return new ThreadPoolExecutor(
+                numberOfThreads,
+                numberOfThreads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(maxQueuedTasks),
+                new ThreadFactory() {
+                    private final AtomicInteger threadCounter = new AtomicInteger(1);
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, namePrefix + threadCounter.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Future that will cancel the running JDBC statement (if any) when cancelled
+     */
+    private static class SQLFutureTask<V> extends FutureTask<V> {
+        private final StatementCanceller canceller;
+
+        SQLFutureTask(Callable<V> callable, StatementCanceller canceller) {
+            super(callable);
+            this.canceller = canceller;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            }
+            finally {
+                canceller.complete();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if(cancelled) {
+                canceller.cancel();
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Keeps track of the {@code Cancellable} of the statement a task is running, so that cancelling the task can
+     * cancel the statement. If the task is cancelled before the statement has been created, the statement is
+     * cancelled as soon as it's registered. Once the task has completed, the statement is forgotten and any later
+     * cancel is ignored, since the statement may already have been handed to another query through the statement cache.
+     */
+    private static class StatementCanceller {
+        private Cancellable cancellable;
+        private boolean cancelled;
+        private boolean completed;
+
+        StatementCanceller() {
+            this.cancellable = null;
+            this.cancelled = false;
+            this.completed = false;
+        }
+
+        ExecuteResultHandler wrap(ExecuteResultHandler handler) {
+            if(handler instanceof RowViewResultHandler) {
+                return new CancellableCapturingRowViewHandler(this, (RowViewResultHandler)handler);
+            }
+            return new CancellableCapturingHandler(this, handler);
+        }
+
+        void register(Cancellable cancellable) {
+            synchronized(this) {
+                if(completed) {
+                    return;
+                }
+                if(!cancelled) {
+                    this.cancellable = cancellable;
+                    return;
+                }
+            }
+            cancelStatement(cancellable);
+        }
+
+        void cancel() {
+            Cancellable toCancel;
+            synchronized(this) {
+                if(completed) {
+                    return;
+                }
+                cancelled = true;
+                toCancel = cancellable;
+            }
+            if(toCancel != null) {
+                cancelStatement(toCancel);
+            }
+        }
+
+        synchronized void complete() {
+            completed = true;
+            cancellable = null;
+        }
+
+        private static void cancelStatement(Cancellable cancellable) {
+            try {
+                cancellable.cancel();
+            }
+            catch(Exception e) {
+                LOGGER.warn("Unable to cancel statement", e);
+            }
+        }
+    }
+
+    private static class CancellableCapturingHandler implements ExecuteResultHandler {
+        private final StatementCanceller canceller;
+        private final ExecuteResultHandler handler;
+
+        CancellableCapturingHandler(StatementCanceller canceller, ExecuteResultHandler handler) {
+            this.canceller = canceller;
+            this.handler = handler;
+        }
+
+        @Override
+        public boolean onResultSet(ResultSetInformation information) {
+            return handler.onResultSet(information);
+        }
+
+        @Override
+        public boolean nextRow(Object... row) {
+            return handler.nextRow(row);
+        }
+
+        @Override
+        public void onUpdateCount(int updateCount) {
+            handler.onUpdateCount(updateCount);
+        }
+
+        @Override
+        public void onGeneratedKey(Object object) {
+            handler.onGeneratedKey(object);
+        }
+
+        @Override
+        public void onWarning(SQLWarning warning) {
+            handler.onWarning(warning);
+        }
+
+        @Override
+        public void onDone() {
+            handler.onDone();
+        }
+
+        @Override
+        public void onCancellableCallback(Cancellable cancelCallback) {
+            canceller.register(cancelCallback);
+            handler.onCancellableCallback(cancelCallback);
+        }
+    }
+
+    private static class CancellableCapturingRowViewHandler extends CancellableCapturingHandler implements RowViewResultHandler {
+        private final RowViewResultHandler handler;
+
+        CancellableCapturingRowViewHandler(StatementCanceller canceller, RowViewResultHandler handler) {
+            super(canceller, handler);
+            this.handler = handler;
+        }
+
+        @Override
+        public boolean nextRow(RowView row) throws SQLException {
+            return handler.nextRow(row);
+        }
+    }
+}
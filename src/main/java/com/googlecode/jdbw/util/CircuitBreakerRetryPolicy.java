@@ -0,0 +1,199 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.RetryPolicy;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Retry policy wrapping another policy with a circuit breaker. When {@code failureThreshold} connection errors have
+ * happened in a row, counted over all operations sharing this policy, the breaker opens and every operation fails
+ * immediately with an {@code SQLTransientConnectionException} instead of trying to reach the database server.
+ * <p>
+ * After {@code openTime} has passed, the breaker is half-open: exactly one operation is let through as a probe while
+ * all others keep failing fast. If the probe reaches the database server, the breaker closes and the count of
+ * connection errors starts over; if it fails with a connection error, the breaker opens for a new period. A probe that
+ * hasn't reported back within {@code openTime} is given up on and the next operation becomes the probe instead.
+ * <p>
+ * To have any effect, the same policy object needs to be shared by everything talking to the database server.
+ * @author Martin Berglund
+ */
+public class CircuitBreakerRetryPolicy implements RetryPolicy {
+
+    private static final State CLOSED = new State(false, 0);
+
+    private final RetryPolicy retryPolicy;
+    private final int failureThreshold;
+    private final long openTimeNanos;
+    private final AtomicInteger consecutiveConnectionErrors;
+    private final AtomicLong timesOpened;
+    private final AtomicReference<State> state;
+
+    /**
+     * Creates a new circuit breaker
+     * @param retryPolicy Policy deciding how to retry while the breaker is closed
+     * @param failureThreshold Number of connection errors in a row that will open the breaker
+     * @param openTime How long the breaker stays open before letting a probe through
+     * @param openTimeUnit Unit of the open time
+     */
+    public CircuitBreakerRetryPolicy(RetryPolicy retryPolicy, int failureThreshold, long openTime, TimeUnit openTimeUnit) {
+        if(retryPolicy == null) {
+            throw new IllegalArgumentException("Cannot create CircuitBreakerRetryPolicy with null retryPolicy");
+        }
+        if(failureThreshold <= 0) {
+            throw new IllegalArgumentException("Cannot create CircuitBreakerRetryPolicy with failureThreshold <= 0");
+        }
+        this.retryPolicy = retryPolicy;
+        this.failureThreshold = failureThreshold;
+        this.openTimeNanos = openTimeUnit.toNanos(openTime);
+        this.consecutiveConnectionErrors = new AtomicInteger(0);
+        this.timesOpened = new AtomicLong(0);
+        this.state = new AtomicReference<>(CLOSED);
+    }
+
+    @Override
+    public Execution start() {
+        final Execution execution = retryPolicy.start();
+        return new Execution() {
+            private boolean rejected = false;
+            private State probe = null;
+
+            @Override
+            public void beforeAttempt() throws SQLException {
+                while(probe == null) {
+                    State current = state.get();
+                    if(current == CLOSED) {
+                        break;
+                    }
+                    long now = System.nanoTime();
+                    if(now - current.until < 0) {
+                        rejected = true;
+                        throw new SQLTransientConnectionException("Circuit breaker is open after " +
+                                consecutiveConnectionErrors.get() + " connection errors in a row, failing fast");
+                    }
+                    //The open period, or the time given to the previous probe, is over; try to become the probe
+                    State halfOpen = new State(true, now + openTimeNanos);
+                    if(state.compareAndSet(current, halfOpen)) {
+                        probe = halfOpen;
+                    }
+                }
+                execution.beforeAttempt();
+            }
+
+            @Override
+            public void onSuccess() {
+                close();
+                execution.onSuccess();
+            }
+
+            @Override
+            public long onFailure(SQLException error, boolean connectionError) {
+                if(rejected) {
+                    return -1;
+                }
+                if(!connectionError) {
+                    //The database server answered, so the connection is working
+                    close();
+                    return execution.onFailure(error, connectionError);
+                }
+                if(probe != null) {
+                    state.compareAndSet(probe, new State(false, System.nanoTime() + openTimeNanos));
+                    probe = null;
+                    return -1;
+                }
+                if(state.get() != CLOSED) {
+                    return -1;
+                }
+                if(consecutiveConnectionErrors.incrementAndGet() >= failureThreshold) {
+                    if(state.compareAndSet(CLOSED, new State(false, System.nanoTime() + openTimeNanos))) {
+                        timesOpened.incrementAndGet();
+                    }
+                    return -1;
+                }
+                return execution.onFailure(error, connectionError);
+            }
+
+            private void close() {
+                if(probe != null) {
+                    if(state.compareAndSet(probe, CLOSED)) {
+                        consecutiveConnectionErrors.set(0);
+                    }
+                    probe = null;
+                }
+                else if(state.get() == CLOSED) {
+                    consecutiveConnectionErrors.set(0);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return {@code true} if the breaker is currently failing operations without trying them, either because it's
+     * open or because it's half-open and a probe is in progress
+     */
+    public boolean isOpen() {
+        State current = state.get();
+        return current != CLOSED && System.nanoTime() - current.until < 0;
+    }
+
+    /**
+     * @return {@code true} if the breaker is half-open, with one operation let through to probe the database server
+     */
+    public boolean isHalfOpen() {
+        return state.get().probing;
+    }
+
+    /**
+     * @return Number of connection errors in a row seen so far
+     */
+    public int getConsecutiveConnectionErrors() {
+        return consecutiveConnectionErrors.get();
+    }
+
+    /**
+     * @return Number of times the breaker has gone from closed to open
+     */
+    public long getTimesOpened() {
+        return timesOpened.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerRetryPolicy{retryPolicy=" + retryPolicy + ", failureThreshold=" + failureThreshold +
+                ", open=" + isOpen() + ", consecutiveConnectionErrors=" + getConsecutiveConnectionErrors() + "}";
+    }
+
+    /**
+     * Immutable state of the breaker, replaced as a whole so that exactly one operation can claim the probe
+     */
+    private static class State {
+        private final boolean probing;
+        private final long until;
+
+        State(boolean probing, long until) {
+            this.probing = probing;
+            this.until = until;
+        }
+    }
+}
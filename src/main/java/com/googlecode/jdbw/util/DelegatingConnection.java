@@ -17,7 +17,7 @@ import java.util.concurrent.Executor;
 abstract class DelegatingConnection implements Connection 
 {
     protected Connection _conn = null;
-    protected boolean _closed = false;
+    protected volatile boolean _closed = false;
     private boolean _cacheState = true;
     private Boolean _autoCommitCached = null;
     private Boolean _readOnlyCached = null;
@@ -173,17 +173,20 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public Statement createStatement() throws SQLException {
+        checkOpen();
         return _conn.createStatement();
     }
 
     @Override
     public Statement createStatement(int resultSetType,
                                      int resultSetConcurrency) throws SQLException {
+        checkOpen();
         return _conn.createStatement(resultSetType, resultSetConcurrency);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
+        checkOpen();
         return _conn.prepareStatement(sql);
     }
 
@@ -191,11 +194,13 @@ abstract class DelegatingConnection implements Connection
     public PreparedStatement prepareStatement(String sql,
                                               int resultSetType,
                                               int resultSetConcurrency) throws SQLException {
+        checkOpen();
         return _conn.prepareStatement(sql, resultSetType, resultSetConcurrency);
     }
 
     @Override
     public CallableStatement prepareCall(String sql) throws SQLException {
+        checkOpen();
         return _conn.prepareCall(sql);
     }
 
@@ -203,16 +208,19 @@ abstract class DelegatingConnection implements Connection
     public CallableStatement prepareCall(String sql,
                                          int resultSetType,
                                          int resultSetConcurrency) throws SQLException {
+        checkOpen();
         return _conn.prepareCall(sql, resultSetType, resultSetConcurrency);
     }
 
     @Override
     public void clearWarnings() throws SQLException {
+        checkOpen();
         _conn.clearWarnings();
     }
 
     @Override
     public void commit() throws SQLException {
+        checkOpen();
         _conn.commit();
     }
 
@@ -227,6 +235,7 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public boolean getAutoCommit() throws SQLException {
+        checkOpen();
         if(_cacheState && _autoCommitCached != null) {
             return _autoCommitCached;
         }
@@ -236,31 +245,37 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public String getCatalog() throws SQLException {
+        checkOpen();
         return _conn.getCatalog();
     }
 
     @Override
     public DatabaseMetaData getMetaData() throws SQLException {
+        checkOpen();
         return _conn.getMetaData();
     }
 
     @Override
     public int getTransactionIsolation() throws SQLException {
+        checkOpen();
         return _conn.getTransactionIsolation();
     }
 
     @Override
     public Map<String,Class<?>> getTypeMap() throws SQLException {
+        checkOpen();
         return _conn.getTypeMap();
     }
 
     @Override
     public SQLWarning getWarnings() throws SQLException {
+        checkOpen();
         return _conn.getWarnings();
     }
 
     @Override
     public boolean isReadOnly() throws SQLException {
+        checkOpen();
         if(_cacheState && _readOnlyCached != null) {
             return _readOnlyCached;
         }
@@ -270,11 +285,13 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public String nativeSQL(String sql) throws SQLException {
+        checkOpen();
         return _conn.nativeSQL(sql);
     }
 
     @Override
     public void rollback() throws SQLException {
+        checkOpen();
         _conn.rollback();
     }
 
@@ -298,6 +315,7 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public void setAutoCommit(boolean autoCommit) throws SQLException {
+        checkOpen();
         try {
             _conn.setAutoCommit(autoCommit);
             if(_cacheState)
@@ -311,11 +329,13 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public void setCatalog(String catalog) throws SQLException {
+        checkOpen();
         _conn.setCatalog(catalog);
     }
 
     @Override
     public void setReadOnly(boolean readOnly) throws SQLException {
+        checkOpen();
         try {
             _conn.setReadOnly(readOnly);
             if(_cacheState)
@@ -329,11 +349,13 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public void setTransactionIsolation(int level) throws SQLException {
+        checkOpen();
         _conn.setTransactionIsolation(level);
     }
 
     @Override
     public void setTypeMap(Map<String,Class<?>> map) throws SQLException {
+        checkOpen();
         _conn.setTypeMap(map);
     }
 
@@ -362,31 +384,37 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public int getHoldability() throws SQLException {
+        checkOpen();
         return _conn.getHoldability();
     }
 
     @Override
     public void setHoldability(int holdability) throws SQLException {
+        checkOpen();
         _conn.setHoldability(holdability);
     }
 
     @Override
     public java.sql.Savepoint setSavepoint() throws SQLException {
+        checkOpen();
         return _conn.setSavepoint();
     }
 
     @Override
     public java.sql.Savepoint setSavepoint(String name) throws SQLException {
+        checkOpen();
         return _conn.setSavepoint(name);
     }
 
     @Override
     public void rollback(java.sql.Savepoint savepoint) throws SQLException {
+        checkOpen();
         _conn.rollback(savepoint);
     }
 
     @Override
     public void releaseSavepoint(java.sql.Savepoint savepoint) throws SQLException {
+        checkOpen();
         _conn.releaseSavepoint(savepoint);
     }
 
@@ -394,6 +422,7 @@ abstract class DelegatingConnection implements Connection
     public Statement createStatement(int resultSetType,
                                      int resultSetConcurrency,
                                      int resultSetHoldability) throws SQLException {
+        checkOpen();
         return _conn.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
     }
 
@@ -401,6 +430,7 @@ abstract class DelegatingConnection implements Connection
     public PreparedStatement prepareStatement(String sql, int resultSetType,
                                               int resultSetConcurrency,
                                               int resultSetHoldability) throws SQLException {
+        checkOpen();
         return _conn.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
     }
 
@@ -408,32 +438,38 @@ abstract class DelegatingConnection implements Connection
     public CallableStatement prepareCall(String sql, int resultSetType,
                                          int resultSetConcurrency,
                                          int resultSetHoldability) throws SQLException {
+        checkOpen();
         return _conn.prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        checkOpen();
         return _conn.prepareStatement(sql, autoGeneratedKeys);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, int columnIndexes[]) throws SQLException {
+        checkOpen();
         return _conn.prepareStatement(sql, columnIndexes);
     }
 
     @Override
     public PreparedStatement prepareStatement(String sql, String columnNames[]) throws SQLException {
+        checkOpen();
         return _conn.prepareStatement(sql, columnNames);
     }
 
     /* JDBC_4_ANT_KEY_BEGIN */
     @Override
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        checkOpen();
         return iface.isAssignableFrom(getClass()) || _conn.isWrapperFor(iface);
     }
 
     @Override
     public <T> T unwrap(Class<T> iface) throws SQLException {
+        checkOpen();
         if(iface.isAssignableFrom(getClass())) {
             return iface.cast(this);
         }
@@ -447,81 +483,109 @@ abstract class DelegatingConnection implements Connection
 
     @Override
     public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        checkOpen();
         return _conn.createArrayOf(typeName, elements);
     }
 
     @Override
     public Blob createBlob() throws SQLException {
+        checkOpen();
         return _conn.createBlob();
     }
 
     @Override
     public Clob createClob() throws SQLException {
+        checkOpen();
         return _conn.createClob();
     }
 
     @Override
     public NClob createNClob() throws SQLException {
+        checkOpen();
         return _conn.createNClob();
     }
 
     @Override
     public SQLXML createSQLXML() throws SQLException {
+        checkOpen();
         return _conn.createSQLXML();
     }
 
     @Override
     public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        checkOpen();
         return _conn.createStruct(typeName, attributes);
     }
 
     @Override
     public boolean isValid(int timeout) throws SQLException {
+        if(_closed) {
+            return false;
+        }
         return _conn.isValid(timeout);
     }
 
     @Override
     public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        try {
+            checkOpen();
+        }
+        catch(SQLException e) {
+            throw new SQLClientInfoException(e.getMessage(), null, e);
+        }
         _conn.setClientInfo(name, value);
     }
 
     @Override
     public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        try {
+            checkOpen();
+        }
+        catch(SQLException e) {
+            throw new SQLClientInfoException(e.getMessage(), null, e);
+        }
         _conn.setClientInfo(properties);
     }
 
     @Override
     public Properties getClientInfo() throws SQLException {
+        checkOpen();
         return _conn.getClientInfo();
     }
 
     @Override
     public String getClientInfo(String name) throws SQLException {
+        checkOpen();
         return _conn.getClientInfo(name);
     }
     
     @Override
     public void setSchema(String schema) throws SQLException {
+        checkOpen();
         _conn.setSchema(schema);
     }
 
     @Override
     public String getSchema() throws SQLException {
+        checkOpen();
         return _conn.getSchema();
     }
 
     @Override
     public void abort(Executor executor) throws SQLException {
+        checkOpen();
         _conn.abort(executor);
     }
 
     @Override
     public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        checkOpen();
         _conn.setNetworkTimeout(executor, milliseconds);
     }
 
     @Override
     public int getNetworkTimeout() throws SQLException {
+        checkOpen();
         return _conn.getNetworkTimeout();
     }
 }
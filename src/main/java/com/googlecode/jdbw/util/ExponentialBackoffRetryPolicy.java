@@ -0,0 +1,119 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.RetryPolicy;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry policy doubling the wait between every attempt, up to a maximum delay, with random jitter. The actual wait
+ * before attempt <i>n</i> is picked at random between zero and {@code min(maxDelay, initialDelay * 2^(n-1))}, which
+ * spreads out the retries of threads that all failed at the same time instead of having them hit the database server
+ * in lockstep when it comes back.
+ * <p>
+ * The operation gives up when it has been tried {@code maxAttempts} times or when waiting for the next attempt would
+ * take it past {@code maxElapsedTime} counted from the first attempt, whichever comes first.
+ * @author Martin Berglund
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxElapsedMillis;
+    private final int maxAttempts;
+
+    /**
+     * Creates a new exponential backoff policy without limit on the number of attempts
+     * @param initialDelay Upper bound of the wait before the second attempt
+     * @param maxDelay Largest upper bound of the wait between two attempts
+     * @param maxElapsedTime Give up if the next attempt would start this long after the first one
+     * @param timeUnit Unit of the delays and the maximum elapsed time
+     */
+    public ExponentialBackoffRetryPolicy(long initialDelay, long maxDelay, long maxElapsedTime, TimeUnit timeUnit) {
+        this(initialDelay, maxDelay, maxElapsedTime, timeUnit, -1);
+    }
+
+    /**
+     * Creates a new exponential backoff policy
+     * @param initialDelay Upper bound of the wait before the second attempt
+     * @param maxDelay Largest upper bound of the wait between two attempts
+     * @param maxElapsedTime Give up if the next attempt would start this long after the first one
+     * @param timeUnit Unit of the delays and the maximum elapsed time
+     * @param maxAttempts How many times to try the operation in total before giving up (-1 means unlimited)
+     */
+    public ExponentialBackoffRetryPolicy(long initialDelay, long maxDelay, long maxElapsedTime, TimeUnit timeUnit, int maxAttempts) {
+        if(initialDelay <= 0 || maxDelay < initialDelay) {
+            throw new IllegalArgumentException("Cannot create ExponentialBackoffRetryPolicy with initialDelay <= 0 or maxDelay < initialDelay");
+        }
+        if(maxElapsedTime <= 0) {
+            throw new IllegalArgumentException("Cannot create ExponentialBackoffRetryPolicy with maxElapsedTime <= 0");
+        }
+        if(maxAttempts < -1) {
+            throw new IllegalArgumentException("Cannot create ExponentialBackoffRetryPolicy with maxAttempts < -1");
+        }
+        this.initialDelayMillis = timeUnit.toMillis(initialDelay);
+        this.maxDelayMillis = timeUnit.toMillis(maxDelay);
+        this.maxElapsedMillis = timeUnit.toMillis(maxElapsedTime);
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public Execution start() {
+        return new Execution() {
+            private final long startTime = System.nanoTime();
+            private int attempts = 0;
+
+            @Override
+            public void beforeAttempt() throws SQLException {
+                attempts++;
+            }
+
+            @Override
+            public void onSuccess() {
+            }
+
+            @Override
+            public long onFailure(SQLException error, boolean connectionError) {
+                if(maxAttempts != -1 && attempts >= maxAttempts) {
+                    return -1;
+                }
+                long ceiling = initialDelayMillis;
+                for(int i = 1; i < attempts && ceiling < maxDelayMillis; i++) {
+                    ceiling *= 2;
+                }
+                ceiling = Math.min(ceiling, maxDelayMillis);
+                long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                if(elapsedMillis + delay > maxElapsedMillis) {
+                    return -1;
+                }
+                return delay;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "ExponentialBackoffRetryPolicy{initialDelayMillis=" + initialDelayMillis +
+                ", maxDelayMillis=" + maxDelayMillis + ", maxElapsedMillis=" + maxElapsedMillis +
+                ", maxAttempts=" + maxAttempts + "}";
+    }
+}
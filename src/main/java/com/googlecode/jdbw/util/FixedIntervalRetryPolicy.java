@@ -0,0 +1,81 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.RetryPolicy;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry policy waiting the same amount of time before every new attempt. This is how the {@code AutoExecutor} has
+ * always retried connection errors, but since every thread will retry in lockstep you probably want to use an
+ * {@code ExponentialBackoffRetryPolicy} against a database server that can fail over.
+ * @author Martin Berglund
+ */
+public class FixedIntervalRetryPolicy implements RetryPolicy {
+
+    private final long intervalMillis;
+    private final int maxAttempts;
+
+    /**
+     * Creates a new fixed interval retry policy
+     * @param interval How long to wait between the attempts
+     * @param intervalTimeUnit Unit of the interval
+     * @param maxAttempts How many times to try the operation in total before giving up (-1 means unlimited)
+     */
+    public FixedIntervalRetryPolicy(long interval, TimeUnit intervalTimeUnit, int maxAttempts) {
+        if(interval < 0) {
+            throw new IllegalArgumentException("Cannot create FixedIntervalRetryPolicy with interval < 0");
+        }
+        if(maxAttempts < -1) {
+            throw new IllegalArgumentException("Cannot create FixedIntervalRetryPolicy with maxAttempts < -1");
+        }
+        this.intervalMillis = intervalTimeUnit.toMillis(interval);
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public Execution start() {
+        return new Execution() {
+            private int attempts = 0;
+
+            @Override
+            public void beforeAttempt() throws SQLException {
+                attempts++;
+            }
+
+            @Override
+            public void onSuccess() {
+            }
+
+            @Override
+            public long onFailure(SQLException error, boolean connectionError) {
+                if(maxAttempts != -1 && attempts >= maxAttempts) {
+                    return -1;
+                }
+                return intervalMillis;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "FixedIntervalRetryPolicy{intervalMillis=" + intervalMillis + ", maxAttempts=" + maxAttempts + "}";
+    }
+}
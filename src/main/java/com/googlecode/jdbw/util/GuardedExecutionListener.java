@@ -0,0 +1,99 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.ExecutionListener;
+import com.googlecode.jdbw.ExecutionStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+
+/**
+ * {@code ExecutionListener} wrapper that logs and swallows any {@code RuntimeException} thrown by the listener it
+ * wraps. The listener callbacks are invoked while a connection is held or a transaction is being completed, so a
+ * broken metrics hook must not be allowed to abort the caller and leak the connection. Executors and connections
+ * wrap every listener they are given with {@link #guard(ExecutionListener)}.
+ *
+ * @author Martin Berglund
+ */
+public final class GuardedExecutionListener implements ExecutionListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GuardedExecutionListener.class);
+
+    /**
+     * Wraps a listener so that exceptions thrown from its callbacks are logged instead of propagated
+     * @param listener Listener to wrap, may be {@code null}
+     * @return Guarded listener, {@code listener} itself if it's already guarded or {@code null} if it was
+     * {@code null}
+     */
+    public static ExecutionListener guard(ExecutionListener listener) {
+        if(listener == null || listener instanceof GuardedExecutionListener) {
+            return listener;
+        }
+        return new GuardedExecutionListener(listener);
+    }
+
+    private final ExecutionListener listener;
+
+    private GuardedExecutionListener(ExecutionListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void onConnectionAcquired(long acquireTimeNanos) {
+        try {
+            listener.onConnectionAcquired(acquireTimeNanos);
+        }
+        catch(RuntimeException e) {
+            LOGGER.warn("Execution listener threw an exception, ignoring", e);
+        }
+    }
+
+    @Override
+    public void onStatementExecuted(ExecutionStatistics statistics) {
+        try {
+            listener.onStatementExecuted(statistics);
+        }
+        catch(RuntimeException e) {
+            LOGGER.warn("Execution listener threw an exception, ignoring", e);
+        }
+    }
+
+    @Override
+    public void onRetry(String SQL, int attempt, SQLException cause) {
+        try {
+            listener.onRetry(SQL, attempt, cause);
+        }
+        catch(RuntimeException e) {
+            LOGGER.warn("Execution listener threw an exception, ignoring", e);
+        }
+    }
+
+    @Override
+    public void onTransactionCompleted(boolean committed, long durationNanos) {
+        try {
+            listener.onTransactionCompleted(committed, durationNanos);
+        }
+        catch(RuntimeException e) {
+            LOGGER.warn("Execution listener threw an exception, ignoring", e);
+        }
+    }
+}
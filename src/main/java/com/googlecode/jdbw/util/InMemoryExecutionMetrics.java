@@ -0,0 +1,331 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.ExecutionListener;
+import com.googlecode.jdbw.ExecutionStatistics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@code ExecutionListener} keeping latency histograms and counters in memory, grouped on the fingerprint of the
+ * SQL. Register it on a {@code ConfigurableDatabaseConnection} and call {@code getStatementMetrics()} to find the
+ * statements that the application is spending most time on:
+ * <pre>
+ *     InMemoryExecutionMetrics metrics = new InMemoryExecutionMetrics();
+ *     ((ConfigurableDatabaseConnection)databaseConnection).setExecutionListener(metrics);
+ *     ...
+ *     for(InMemoryExecutionMetrics.StatementMetrics statement: metrics.getStatementMetrics()) {
+ *         System.out.println(statement);
+ *     }
+ * </pre>
+ * To bound the memory used, at most {@code maxFingerprints} distinct statements are tracked; anything after that is
+ * added to a shared entry with the fingerprint {@code OTHER_FINGERPRINT}.
+ * @see SQLFingerprint
+ * @author Martin Berglund
+ */
+public class InMemoryExecutionMetrics implements ExecutionListener {
+
+    /**
+     * Fingerprint used for statements which didn't fit when {@code maxFingerprints} was reached
+     */
+    public static final String OTHER_FINGERPRINT = "<other>";
+
+    private final int maxFingerprints;
+    private final ConcurrentMap<String, StatementMetrics> statementMetrics;
+    private final LatencyHistogram connectionAcquireTime;
+    private final LatencyHistogram transactionTime;
+    private final AtomicLong commits;
+    private final AtomicLong rollbacks;
+    private final AtomicLong retries;
+
+    /**
+     * Creates a new metrics collector tracking at most 1000 distinct statements
+     */
+    public InMemoryExecutionMetrics() {
+        this(1000);
+    }
+
+    /**
+     * Creates a new metrics collector
+     * @param maxFingerprints Maximum number of distinct statements to track
+     */
+    public InMemoryExecutionMetrics(int maxFingerprints) {
+        if(maxFingerprints <= 0) {
+            throw new IllegalArgumentException("Cannot create InMemoryExecutionMetrics with maxFingerprints <= 0");
+        }
+        this.maxFingerprints = maxFingerprints;
+        this.statementMetrics = new ConcurrentHashMap<>();
+        this.connectionAcquireTime = new LatencyHistogram();
+        this.transactionTime = new LatencyHistogram();
+        this.commits = new AtomicLong(0);
+        this.rollbacks = new AtomicLong(0);
+        this.retries = new AtomicLong(0);
+    }
+
+    @Override
+    public void onConnectionAcquired(long acquireTimeNanos) {
+        connectionAcquireTime.record(acquireTimeNanos);
+    }
+
+    @Override
+    public void onStatementExecuted(ExecutionStatistics statistics) {
+        StatementMetrics metrics = getOrCreate(statistics.getFingerprint());
+        metrics.executions.incrementAndGet();
+        if(statistics.isFailed()) {
+            metrics.failures.incrementAndGet();
+        }
+        metrics.prepareTime.record(statistics.getPrepareTime(TimeUnit.NANOSECONDS));
+        metrics.executeTime.record(statistics.getExecuteTime(TimeUnit.NANOSECONDS));
+        metrics.fetchTime.record(statistics.getFetchTime(TimeUnit.NANOSECONDS));
+        metrics.totalTime.record(statistics.getTotalTime(TimeUnit.NANOSECONDS));
+        metrics.rowsFetched.addAndGet(statistics.getRowsFetched());
+        if(statistics.getUpdateCount() > 0) {
+            metrics.rowsUpdated.addAndGet(statistics.getUpdateCount());
+        }
+        metrics.batchedRows.addAndGet(statistics.getBatchSize());
+    }
+
+    @Override
+    public void onRetry(String SQL, int attempt, SQLException cause) {
+        retries.incrementAndGet();
+        getOrCreate(SQLFingerprint.of(SQL)).retries.incrementAndGet();
+    }
+
+    @Override
+    public void onTransactionCompleted(boolean committed, long durationNanos) {
+        if(committed) {
+            commits.incrementAndGet();
+        }
+        else {
+            rollbacks.incrementAndGet();
+        }
+        transactionTime.record(durationNanos);
+    }
+
+    /**
+     * Returns the metrics of all statements tracked, with the statement having the highest total time spent first
+     * @return List of metrics per statement fingerprint
+     */
+    public List<StatementMetrics> getStatementMetrics() {
+        List<StatementMetrics> result = new ArrayList<>(statementMetrics.values());
+        Collections.sort(result, new Comparator<StatementMetrics>() {
+            @Override
+            public int compare(StatementMetrics o1, StatementMetrics o2) {
+                long total1 = o1.getTotalTime().getTotal(TimeUnit.NANOSECONDS);
+                long total2 = o2.getTotalTime().getTotal(TimeUnit.NANOSECONDS);
+                return total1 < total2 ? 1 : (total1 == total2 ? 0 : -1);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Looks up the metrics of one statement
+     * @param SQL SQL, or fingerprint, of the statement
+     * @return Metrics of the statement or {@code null} if it hasn't been seen
+     */
+    public StatementMetrics getStatementMetrics(String SQL) {
+        return statementMetrics.get(SQLFingerprint.of(SQL));
+    }
+
+    /**
+     * @return Histogram of how long it took to get a connection from the data source
+     */
+    public LatencyHistogram getConnectionAcquireTime() {
+        return connectionAcquireTime;
+    }
+
+    /**
+     * @return Histogram of how long transactions were kept open, from start to commit or rollback
+     */
+    public LatencyHistogram getTransactionTime() {
+        return transactionTime;
+    }
+
+    /**
+     * @return Number of transactions committed
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * @return Number of transactions rolled back
+     */
+    public long getRollbacks() {
+        return rollbacks.get();
+    }
+
+    /**
+     * @return Number of times a statement was retried because of a connection error
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Throws away all metrics collected so far
+     */
+    public void reset() {
+        statementMetrics.clear();
+        connectionAcquireTime.reset();
+        transactionTime.reset();
+        commits.set(0);
+        rollbacks.set(0);
+        retries.set(0);
+    }
+
+    private StatementMetrics getOrCreate(String fingerprint) {
+        StatementMetrics metrics = statementMetrics.get(fingerprint);
+        if(metrics != null) {
+            return metrics;
+        }
+        if(statementMetrics.size() >= maxFingerprints) {
+            fingerprint = OTHER_FINGERPRINT;
+        }
+        StatementMetrics newMetrics = new StatementMetrics(fingerprint);
+        metrics = statementMetrics.putIfAbsent(fingerprint, newMetrics);
+        return metrics != null ? metrics : newMetrics;
+    }
+
+    /**
+     * Metrics collected for all statements sharing one fingerprint
+     */
+    public static class StatementMetrics {
+        private final String fingerprint;
+        private final AtomicLong executions;
+        private final AtomicLong failures;
+        private final AtomicLong retries;
+        private final AtomicLong rowsFetched;
+        private final AtomicLong rowsUpdated;
+        private final AtomicLong batchedRows;
+        private final LatencyHistogram prepareTime;
+        private final LatencyHistogram executeTime;
+        private final LatencyHistogram fetchTime;
+        private final LatencyHistogram totalTime;
+
+        StatementMetrics(String fingerprint) {
+            this.fingerprint = fingerprint;
+            this.executions = new AtomicLong(0);
+            this.failures = new AtomicLong(0);
+            this.retries = new AtomicLong(0);
+            this.rowsFetched = new AtomicLong(0);
+            this.rowsUpdated = new AtomicLong(0);
+            this.batchedRows = new AtomicLong(0);
+            this.prepareTime = new LatencyHistogram();
+            this.executeTime = new LatencyHistogram();
+            this.fetchTime = new LatencyHistogram();
+            this.totalTime = new LatencyHistogram();
+        }
+
+        /**
+         * @return Fingerprint of the statements these metrics are for
+         */
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * @return Number of times the statement was executed (for chunked batch writes, number of chunks)
+         */
+        public long getExecutions() {
+            return executions.get();
+        }
+
+        /**
+         * @return Number of executions that failed with an exception
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /**
+         * @return Number of times the statement was retried because of a connection error
+         */
+        public long getRetries() {
+            return retries.get();
+        }
+
+        /**
+         * @return Total number of rows read from the result sets of the statement
+         */
+        public long getRowsFetched() {
+            return rowsFetched.get();
+        }
+
+        /**
+         * @return Total of all positive update counts reported by the statement
+         */
+        public long getRowsUpdated() {
+            return rowsUpdated.get();
+        }
+
+        /**
+         * @return Total number of rows sent to the statement through batch writes
+         */
+        public long getBatchedRows() {
+            return batchedRows.get();
+        }
+
+        /**
+         * @return Histogram of the time spent preparing the statement and binding parameters
+         */
+        public LatencyHistogram getPrepareTime() {
+            return prepareTime;
+        }
+
+        /**
+         * @return Histogram of the time spent executing the statement
+         */
+        public LatencyHistogram getExecuteTime() {
+            return executeTime;
+        }
+
+        /**
+         * @return Histogram of the time spent reading the result of the statement
+         */
+        public LatencyHistogram getFetchTime() {
+            return fetchTime;
+        }
+
+        /**
+         * @return Histogram of the total time spent on the statement
+         */
+        public LatencyHistogram getTotalTime() {
+            return totalTime;
+        }
+
+        @Override
+        public String toString() {
+            return "StatementMetrics{fingerprint=" + fingerprint + ", executions=" + getExecutions() +
+                    ", failures=" + getFailures() + ", retries=" + getRetries() +
+                    ", rowsFetched=" + getRowsFetched() + ", rowsUpdated=" + getRowsUpdated() +
+                    ", batchedRows=" + getBatchedRows() + ", totalTime=" + totalTime + "}";
+        }
+    }
+}
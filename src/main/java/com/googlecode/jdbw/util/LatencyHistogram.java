@@ -0,0 +1,170 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations, recorded in nanoseconds. Values are sorted into logarithmic buckets with four
+ * buckets for every power of two, so percentiles are reported with an error of at most 25% no matter the magnitude,
+ * using a fixed and small amount of memory. Recording is safe to do from several threads at the same time.
+ * @author Martin Berglund
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final AtomicLong count;
+    private final AtomicLong total;
+    private final AtomicLong max;
+
+    /**
+     * Creates a new, empty histogram
+     */
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong(0);
+        this.total = new AtomicLong(0);
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * Adds one duration to the histogram
+     * @param nanos Duration in nanoseconds, negative values are counted as zero
+     */
+    public void record(long nanos) {
+        if(nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+        long currentMax = max.get();
+        while(nanos > currentMax && !max.compareAndSet(currentMax, nanos)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return Number of durations recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @param unit Unit to return the time in
+     * @return Sum of all durations recorded
+     */
+    public long getTotal(TimeUnit unit) {
+        return unit.convert(total.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit Unit to return the time in
+     * @return Average of all durations recorded, or 0 if nothing has been recorded
+     */
+    public long getMean(TimeUnit unit) {
+        long currentCount = count.get();
+        if(currentCount == 0) {
+            return 0;
+        }
+        return unit.convert(total.get() / currentCount, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit Unit to return the time in
+     * @return Longest duration recorded
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns an estimate of the duration which the given percentage of all recorded durations were shorter than or
+     * equal to. The estimate is the upper bound of the bucket holding the percentile, but never more than the longest
+     * duration recorded.
+     * @param percentile Percentile to look up, between 0 and 100
+     * @param unit Unit to return the time in
+     * @return Estimated percentile, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        if(percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Cannot call getPercentile with a percentile outside of 0 - 100");
+        }
+        long currentCount = count.get();
+        if(currentCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long)Math.ceil(currentCount * percentile / 100.0));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if(seen >= target) {
+                return unit.convert(Math.min(upperBoundOf(i), max.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Clears all recorded durations. Durations recorded concurrently with the reset may or may not be kept.
+     */
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + getCount() +
+                ", meanMicros=" + getMean(TimeUnit.MICROSECONDS) +
+                ", p50Micros=" + getPercentile(50, TimeUnit.MICROSECONDS) +
+                ", p99Micros=" + getPercentile(99, TimeUnit.MICROSECONDS) +
+                ", maxMicros=" + getMax(TimeUnit.MICROSECONDS) + "}";
+    }
+
+    private static int bucketOf(long nanos) {
+        if(nanos < SUB_BUCKETS) {
+            return (int)nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int)(nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if(bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS;
+        int subBucket = bucket % SUB_BUCKETS;
+        long lowerBound = (long)(SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
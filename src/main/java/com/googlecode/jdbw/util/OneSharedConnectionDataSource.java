@@ -27,16 +27,29 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 import javax.sql.DataSource;
 
 /**
- * Very primitive database connection source which only keeps one connection in the pool. There is no reconnection logic
- * or anything, it just hands out the same connection to one user at a time. Calling getConnection() on this object
- * while another process is using that connection will block until the connection is returned to the pool. Needless to
- * say, <b>don't use this in a production environment!</b>
+ * Very primitive database connection source which only keeps one connection (or a fixed, small number of connections)
+ * in the pool. There is no reconnection logic or anything, it just hands out the same connection to one user at a
+ * time. Calling getConnection() on this object while another process is using that connection will block until the
+ * connection is returned to the pool, or until the wait timeout expires if one has been set. Needless to say,
+ * <b>don't use this in a production environment!</b>
+ * <p>
+ * This class keeps track of how many threads are waiting for a connection and for how long, which is useful for
+ * spotting contention on the shared connection or a caller that forgot to close its connection.
  * @author Martin Berglund
  */
 public class OneSharedConnectionDataSource implements DataSource {
@@ -47,12 +60,66 @@ public class OneSharedConnectionDataSource implements DataSource {
      * A {@code DataSourceFactory} implementation that will create {@code OneSharedConnectionDataSource} objects
      */
     public static class Factory implements DataSourceFactory {
+        private final int numberOfConnections;
+        private final int statementCacheSize;
+        private final long waitTimeout;
+        private final TimeUnit waitTimeoutUnit;
+
+        /**
+         * Creates a factory for data sources without any prepared statement caching
+         */
+        public Factory() {
+            this(0);
+        }
+
+        /**
+         * Creates a factory for data sources that will keep up to {@code statementCacheSize} prepared statements open
+         * on the shared connection, see {@link PreparedStatementCache}
+         * @param statementCacheSize Maximum number of prepared statements to cache, 0 disables caching
+         */
+        public Factory(int statementCacheSize) {
+            this(1, statementCacheSize, 0, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Creates a factory for data sources that share {@code numberOfConnections} connections between all users
+         * @param numberOfConnections How many connections to open and share
+         * @param statementCacheSize Maximum number of prepared statements to cache per connection, 0 disables caching
+         * @param waitTimeout How long to wait for a connection before giving up, 0 means wait forever
+         * @param waitTimeoutUnit Unit of {@code waitTimeout}
+         */
+        public Factory(int numberOfConnections, int statementCacheSize, long waitTimeout, TimeUnit waitTimeoutUnit) {
+            this.numberOfConnections = numberOfConnections;
+            this.statementCacheSize = statementCacheSize;
+            this.waitTimeout = waitTimeout;
+            this.waitTimeoutUnit = waitTimeoutUnit;
+        }
+
+        /**
+         * @return How many connections the data sources created by this factory will share
+         */
+        public int getNumberOfConnections() {
+            return numberOfConnections;
+        }
+
         @Override
         public DataSource newDataSource(String jdbcUrl, Properties properties) {
+            List<Connection> connections = new ArrayList<>();
             try {
-                return new OneSharedConnectionDataSource(DriverManager.getConnection(jdbcUrl, properties));
+                for(int i = 0; i < numberOfConnections; i++) {
+                    connections.add(DriverManager.getConnection(jdbcUrl, properties));
+                }
+                return new OneSharedConnectionDataSource(connections, statementCacheSize, waitTimeout, waitTimeoutUnit);
             }
             catch(SQLException e) {
+                for(Connection connection: connections) {
+                    try {
+                        connection.close();
+                    }
+                    catch(SQLException e2) {
+                        LOGGER.error("Unable to close database connection", e2);
+                    }
+                }
                 throw new RuntimeException(e);
             }
         }
@@ -64,82 +131,291 @@ public class OneSharedConnectionDataSource implements DataSource {
     }
     
     private final ArrayBlockingQueue<Connection> connectionQueue;
+    private final Map<Connection, PreparedStatementCache> statementCaches;
+    private final List<PreparedStatementCache> statementCacheList;
+    private final int numberOfConnections;
+    private final long waitTimeoutMillis;
+    private final AtomicInteger waitingThreads;
+    private final AtomicLong acquireCount;
+    private final AtomicLong totalWaitTimeNanos;
+    private final AtomicLong maxWaitTimeNanos;
+    private final AtomicLong timeoutCount;
+    private volatile PrintWriter logWriter;
+    private volatile int loginTimeout;
 
     /**
      * Creates a {@code OneSharedConnectionDataSource} object based on a {@code Connection} passed in.
      * @param connection Connection that the new {@code OneSharedConnectionDataSource} will use
      */
     public OneSharedConnectionDataSource(Connection connection) {
-        this.connectionQueue = new ArrayBlockingQueue<>(1);
-        this.connectionQueue.add(connection);
+        this(connection, 0);
     }
 
     /**
-     * Closes the underlying database connection, once it's not used by any other thread. You don't have to call this
-     * method if you close the connection externally, there is no state inside this object that requires to be cleared
-     * out except for the actual connection.
+     * Creates a {@code OneSharedConnectionDataSource} object based on a {@code Connection} passed in, which will keep
+     * up to {@code statementCacheSize} prepared statements open on the connection so that they can be re-used by
+     * subsequent transactions and auto executors.
+     * @param connection Connection that the new {@code OneSharedConnectionDataSource} will use
+     * @param statementCacheSize Maximum number of prepared statements to cache, 0 disables caching
      */
-    public void close() {
-        try {
-            connectionQueue.take().close();
+    public OneSharedConnectionDataSource(Connection connection, int statementCacheSize) {
+        this(Collections.singletonList(connection), statementCacheSize, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a {@code OneSharedConnectionDataSource} object that hands out a fixed set of connections, one user per
+     * connection at a time. If all connections are in use, {@code getConnection()} will wait up to {@code waitTimeout}
+     * for one to be returned and then fail with an {@code SQLTransientConnectionException}.
+     * @param connections Connections that the new {@code OneSharedConnectionDataSource} will use
+     * @param statementCacheSize Maximum number of prepared statements to cache per connection, 0 disables caching
+     * @param waitTimeout How long to wait for a connection before giving up, 0 means wait forever
+     * @param waitTimeoutUnit Unit of {@code waitTimeout}
+     */
+    public OneSharedConnectionDataSource(List<Connection> connections, int statementCacheSize, long waitTimeout, TimeUnit waitTimeoutUnit) {
+        if(connections.isEmpty()) {
+            throw new IllegalArgumentException("Cannot create a OneSharedConnectionDataSource without any connections");
+        }
+        if(statementCacheSize < 0) {
+            throw new IllegalArgumentException("Cannot create a OneSharedConnectionDataSource with statementCacheSize < 0");
         }
-        catch(SQLException | InterruptedException e) {
-            LOGGER.error("Unable to close database connection", e);
+        if(waitTimeout < 0) {
+            throw new IllegalArgumentException("Cannot create a OneSharedConnectionDataSource with waitTimeout < 0");
+        }
+        this.numberOfConnections = connections.size();
+        this.connectionQueue = new ArrayBlockingQueue<>(numberOfConnections);
+        this.connectionQueue.addAll(connections);
+        this.statementCaches = new IdentityHashMap<>();
+        this.statementCacheList = new ArrayList<>();
+        if(statementCacheSize > 0) {
+            for(Connection connection: connections) {
+                PreparedStatementCache statementCache = new PreparedStatementCache(statementCacheSize);
+                statementCaches.put(connection, statementCache);
+                statementCacheList.add(statementCache);
+            }
+        }
+        this.waitTimeoutMillis = waitTimeoutUnit.toMillis(waitTimeout);
+        this.waitingThreads = new AtomicInteger(0);
+        this.acquireCount = new AtomicLong(0);
+        this.totalWaitTimeNanos = new AtomicLong(0);
+        this.maxWaitTimeNanos = new AtomicLong(0);
+        this.timeoutCount = new AtomicLong(0);
+        this.logWriter = null;
+        this.loginTimeout = 0;
+    }
+
+    /**
+     * Returns the prepared statement cache used for the shared connection, so that hit/miss/eviction statistics can be
+     * inspected. If there are multiple connections, this returns the cache of the first one.
+     * @return Prepared statement cache of the shared connection or {@code null} if statement caching is disabled
+     */
+    public PreparedStatementCache getStatementCache() {
+        return statementCacheList.isEmpty() ? null : statementCacheList.get(0);
+    }
+
+    /**
+     * Returns the prepared statement caches of all the shared connections
+     * @return List of all prepared statement caches, empty if statement caching is disabled
+     */
+    public List<PreparedStatementCache> getStatementCaches() {
+        return Collections.unmodifiableList(statementCacheList);
+    }
+
+    /**
+     * @return How many connections this data source is sharing
+     */
+    public int getNumberOfConnections() {
+        return numberOfConnections;
+    }
+
+    /**
+     * @return How many connections are currently not in use
+     */
+    public int getAvailableConnections() {
+        return connectionQueue.size();
+    }
+
+    /**
+     * @return How many threads are currently waiting in {@code getConnection()} for a connection to become available
+     */
+    public int getWaitingThreads() {
+        return waitingThreads.get();
+    }
+
+    /**
+     * @return How many times a connection has been successfully handed out
+     */
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    /**
+     * @param timeUnit Unit to return the wait time in
+     * @return Total time spent by all callers waiting for a connection
+     */
+    public long getTotalWaitTime(TimeUnit timeUnit) {
+        return timeUnit.convert(totalWaitTimeNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param timeUnit Unit to return the wait time in
+     * @return Longest time any single caller has waited for a connection
+     */
+    public long getMaxWaitTime(TimeUnit timeUnit) {
+        return timeUnit.convert(maxWaitTimeNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return How many times {@code getConnection()} has given up waiting because of the wait timeout
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Closes the underlying database connections, once they are not used by any other thread. You don't have to call
+     * this method if you close the connections externally, there is no state inside this object that requires to be
+     * cleared out except for the actual connections.
+     */
+    public void close() {
+        for(int i = 0; i < numberOfConnections; i++) {
+            try {
+                Connection connection = connectionQueue.take();
+                PreparedStatementCache statementCache = statementCaches.get(connection);
+                if(statementCache != null) {
+                    statementCache.close();
+                }
+                connection.close();
+            }
+            catch(SQLException | InterruptedException e) {
+                LOGGER.error("Unable to close database connection", e);
+            }
         }
     }
 
     @Override
     public Connection getConnection() throws SQLException {
+        final Connection connection;
+        long startTime = System.nanoTime();
+        waitingThreads.incrementAndGet();
         try {
-            return new DelegatingConnection(connectionQueue.take()) {
-                @Override
-                public void close() throws SQLException {
-                    //We don't need to call .offer(...) here since the capacity is only 1
-                    connectionQueue.add(_conn);
-                }
-            };
+            if(waitTimeoutMillis > 0) {
+                connection = connectionQueue.poll(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            else {
+                connection = connectionQueue.take();
+            }
         }
         catch(InterruptedException e) {
-            return null;
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for one of the " + numberOfConnections +
+                    " shared connections", e);
+        }
+        finally {
+            waitingThreads.decrementAndGet();
         }
+        long waitTime = System.nanoTime() - startTime;
+        totalWaitTimeNanos.addAndGet(waitTime);
+        long currentMax = maxWaitTimeNanos.get();
+        while(waitTime > currentMax && !maxWaitTimeNanos.compareAndSet(currentMax, waitTime)) {
+            currentMax = maxWaitTimeNanos.get();
+        }
+        if(connection == null) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTransientConnectionException("Timed out after " + waitTimeoutMillis + " ms waiting for one " +
+                    "of the " + numberOfConnections + " shared connections, " + waitingThreads.get() + " other " +
+                    "thread(s) are waiting");
+        }
+        acquireCount.incrementAndGet();
+
+        final PreparedStatementCache statementCache = statementCaches.get(connection);
+        return new DelegatingConnection(connection) {
+            @Override
+            public synchronized void close() throws SQLException {
+                //Guard against returning the same connection twice, which would hand it out to two users at once
+                if(_closed) {
+                    return;
+                }
+                _closed = true;
+                connectionQueue.add(_conn);
+            }
+
+            @Override
+            public boolean isWrapperFor(Class<?> iface) throws SQLException {
+                checkOpen();
+                if(statementCache != null && iface == PreparedStatementCache.class) {
+                    return true;
+                }
+                return super.isWrapperFor(iface);
+            }
+
+            @Override
+            public <T> T unwrap(Class<T> iface) throws SQLException {
+                checkOpen();
+                if(statementCache != null && iface == PreparedStatementCache.class) {
+                    return iface.cast(statementCache);
+                }
+                return super.unwrap(iface);
+            }
+        };
     }
 
+    /**
+     * Not supported, this data source only hands out the connections it was created with
+     * @throws SQLFeatureNotSupportedException Always
+     */
     @Override
     public Connection getConnection(String username, String password) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        throw new SQLFeatureNotSupportedException("OneSharedConnectionDataSource can only hand out the connections " +
+                "it was created with");
     }
 
     @Override
     public PrintWriter getLogWriter() throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return logWriter;
     }
 
+    /**
+     * Stores a log writer, as required by {@code DataSource}. This data source logs through SLF4J and never writes
+     * to it.
+     * @param out Log writer
+     */
     @Override
-    public int getLoginTimeout() throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logWriter = out;
     }
 
-    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
-        throw new UnsupportedOperationException("Not supported yet.");
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
     }
 
+    /**
+     * Stores a login timeout, as required by {@code DataSource}. The connections are already open when they are
+     * passed in, so this value is never applied; use the wait timeout to limit how long {@code getConnection()} may
+     * take.
+     * @param seconds Login timeout in seconds
+     */
     @Override
-    public void setLogWriter(PrintWriter out) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeout = seconds;
     }
 
     @Override
-    public void setLoginTimeout(int seconds) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet.");
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("OneSharedConnectionDataSource logs through SLF4J, not " +
+                "java.util.logging");
     }
 
     @Override
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        return iface.isInstance(this);
     }
 
     @Override
     public <T> T unwrap(Class<T> iface) throws SQLException {
-        throw new UnsupportedOperationException("Not supported yet.");
+        if(iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("OneSharedConnectionDataSource is not a wrapper for " + iface.getName());
     }
 }
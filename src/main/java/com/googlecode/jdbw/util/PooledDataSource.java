@@ -0,0 +1,640 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.DataSourceFactory;
+import org.slf4j.LoggerFactory;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * A simple, dependency-free connection pool. Connections are created through {@code DriverManager} on demand, up to a
+ * maximum number, and kept in a lock-free idle queue when returned. The most recently returned connection is handed
+ * out first, so that surplus connections stay idle and can be evicted.
+ * <p>
+ * The pool has these features, all configured through the {@code Factory}:
+ * <ul>
+ *     <li>A minimum number of connections that the pool will try to keep open at all times</li>
+ *     <li>A maximum number of connections; callers will wait for up to {@code borrowTimeout} milliseconds for a
+ *     connection to be returned when the pool is exhausted</li>
+ *     <li>Validation of connections with {@code Connection.isValid(..)} before handing them out</li>
+ *     <li>Eviction of connections that have been idle for longer than {@code idleTimeout}, down to the minimum size</li>
+ *     <li>Leak detection, which logs a warning with the stack trace of the borrower for any connection that has been
+ *     checked out for longer than {@code leakDetectionThreshold}</li>
+ *     <li>An optional {@code PreparedStatementCache} per physical connection</li>
+ * </ul>
+ * Eviction, leak detection and refilling up to the minimum size is done by one background maintenance thread per pool.
+ * @author Martin Berglund
+ */
+public class PooledDataSource implements DataSource {
+
+    private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(PooledDataSource.class);
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger(1);
+
+    /**
+     * A {@code DataSourceFactory} implementation that will create {@code PooledDataSource} objects. The setters return
+     * the factory itself so that they can be chained.
+     */
+    public static class Factory implements DataSourceFactory {
+        private int minSize;
+        private int maxSize;
+        private long borrowTimeout;
+        private int validationTimeoutSeconds;
+        private boolean validateOnBorrow;
+        private long idleTimeout;
+        private long leakDetectionThreshold;
+        private long maintenanceInterval;
+        private int statementCacheSize;
+
+        /**
+         * Creates a factory with the default settings: 0 to 10 connections, 30 seconds borrow timeout, validation on
+         * borrow with a 5 second timeout, 10 minutes idle timeout, no leak detection and no statement caching
+         */
+        public Factory() {
+            this.minSize = 0;
+            this.maxSize = 10;
+            this.borrowTimeout = 30000;
+            this.validationTimeoutSeconds = 5;
+            this.validateOnBorrow = true;
+            this.idleTimeout = 600000;
+            this.leakDetectionThreshold = 0;
+            this.maintenanceInterval = 30000;
+            this.statementCacheSize = 0;
+        }
+
+        /**
+         * @param minSize Number of connections the pool will try to keep open, even when they are idle
+         * @return Itself
+         */
+        public Factory setMinSize(int minSize) {
+            this.minSize = minSize;
+            return this;
+        }
+
+        /**
+         * @param maxSize Maximum number of connections the pool can have open at the same time
+         * @return Itself
+         */
+        public Factory setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * @param borrowTimeout How long {@code getConnection()} will wait for a connection when the pool is exhausted
+         * @param timeUnit Unit of {@code borrowTimeout}
+         * @return Itself
+         */
+        public Factory setBorrowTimeout(long borrowTimeout, TimeUnit timeUnit) {
+            this.borrowTimeout = timeUnit.toMillis(borrowTimeout);
+            return this;
+        }
+
+        /**
+         * @param validateOnBorrow If {@code true}, idle connections are checked with {@code Connection.isValid(..)}
+         *                         before they are handed out
+         * @param validationTimeoutSeconds Timeout, in seconds, to pass to {@code Connection.isValid(..)}
+         * @return Itself
+         */
+        public Factory setValidateOnBorrow(boolean validateOnBorrow, int validationTimeoutSeconds) {
+            this.validateOnBorrow = validateOnBorrow;
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        /**
+         * @param idleTimeout How long a connection can stay idle before it's closed, if the pool has more than
+         *                    {@code minSize} connections; 0 disables eviction
+         * @param timeUnit Unit of {@code idleTimeout}
+         * @return Itself
+         */
+        public Factory setIdleTimeout(long idleTimeout, TimeUnit timeUnit) {
+            this.idleTimeout = timeUnit.toMillis(idleTimeout);
+            return this;
+        }
+
+        /**
+         * @param leakDetectionThreshold How long a connection can be checked out before a warning is logged about a
+         *                               possible leak; 0 disables leak detection
+         * @param timeUnit Unit of {@code leakDetectionThreshold}
+         * @return Itself
+         */
+        public Factory setLeakDetectionThreshold(long leakDetectionThreshold, TimeUnit timeUnit) {
+            this.leakDetectionThreshold = timeUnit.toMillis(leakDetectionThreshold);
+            return this;
+        }
+
+        /**
+         * @param maintenanceInterval How often the maintenance thread evicts idle connections, detects leaks and
+         *                            refills the pool up to {@code minSize}
+         * @param timeUnit Unit of {@code maintenanceInterval}
+         * @return Itself
+         */
+        public Factory setMaintenanceInterval(long maintenanceInterval, TimeUnit timeUnit) {
+            this.maintenanceInterval = timeUnit.toMillis(maintenanceInterval);
+            return this;
+        }
+
+        /**
+         * @param statementCacheSize Number of prepared statements to cache per connection, 0 disables caching
+         * @return Itself
+         * @see PreparedStatementCache
+         */
+        public Factory setStatementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        @Override
+        public DataSource newDataSource(String jdbcUrl, Properties properties) {
+            return new PooledDataSource(jdbcUrl, properties, this);
+        }
+
+        @Override
+        public void close(DataSource previouslyConstructedDataSource) {
+            ((PooledDataSource)previouslyConstructedDataSource).close();
+        }
+    }
+
+    private final String jdbcUrl;
+    private final Properties properties;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeout;
+    private final int validationTimeoutSeconds;
+    private final boolean validateOnBorrow;
+    private final long idleTimeout;
+    private final long leakDetectionThreshold;
+    private final int statementCacheSize;
+
+    private final ConcurrentLinkedDeque<PooledConnection> idleConnections;
+    private final ConcurrentLinkedDeque<PooledConnection> borrowedConnections;
+    private final Semaphore borrowPermits;
+    private final AtomicInteger totalConnections;
+    private final AtomicLong leaksDetected;
+    private final ScheduledExecutorService maintenanceExecutor;
+    private volatile boolean closed;
+    private volatile PrintWriter logWriter;
+    private volatile int loginTimeout;
+
+    PooledDataSource(String jdbcUrl, Properties properties, Factory settings) {
+        if(settings.maxSize <= 0) {
+            throw new IllegalArgumentException("Cannot create a PooledDataSource with maxSize <= 0");
+        }
+        if(settings.minSize < 0 || settings.minSize > settings.maxSize) {
+            throw new IllegalArgumentException("Cannot create a PooledDataSource with minSize < 0 or minSize > maxSize");
+        }
+        if(settings.statementCacheSize < 0) {
+            throw new IllegalArgumentException("Cannot create a PooledDataSource with statementCacheSize < 0");
+        }
+        this.jdbcUrl = jdbcUrl;
+        this.properties = new Properties();
+        this.properties.putAll(properties);
+        this.minSize = settings.minSize;
+        this.maxSize = settings.maxSize;
+        this.borrowTimeout = settings.borrowTimeout;
+        this.validationTimeoutSeconds = settings.validationTimeoutSeconds;
+        this.validateOnBorrow = settings.validateOnBorrow;
+        this.idleTimeout = settings.idleTimeout;
+        this.leakDetectionThreshold = settings.leakDetectionThreshold;
+        this.statementCacheSize = settings.statementCacheSize;
+
+        this.idleConnections = new ConcurrentLinkedDeque<>();
+        this.borrowedConnections = new ConcurrentLinkedDeque<>();
+        this.borrowPermits = new Semaphore(maxSize, true);
+        this.totalConnections = new AtomicInteger(0);
+        this.leaksDetected = new AtomicLong(0);
+        this.closed = false;
+        this.logWriter = null;
+        this.loginTimeout = 0;
+
+        final String threadName = "jdbw-pool-maintenance-" + POOL_COUNTER.getAndIncrement();
+        this.maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.maintenanceExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    maintain();
+                }
+                catch(RuntimeException e) {
+                    LOGGER.error("Unexpected error during connection pool maintenance", e);
+                }
+            }
+        }, 0, Math.max(1, settings.maintenanceInterval), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Closes all idle connections and stops the maintenance thread. Connections that are currently checked out will be
+     * closed when they are returned to the pool.
+     */
+    public void close() {
+        closed = true;
+        maintenanceExecutor.shutdownNow();
+        PooledConnection pooledConnection;
+        while((pooledConnection = idleConnections.pollFirst()) != null) {
+            destroy(pooledConnection);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if(closed) {
+            throw new SQLException("Cannot get a connection from a closed PooledDataSource");
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            if(!borrowPermits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeout + " ms waiting for a " +
+                        "connection from the pool (" + maxSize + " connections checked out)");
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection from the pool", e);
+        }
+
+        try {
+            PooledConnection pooledConnection = borrow(startTime);
+            pooledConnection.onBorrow(leakDetectionThreshold > 0);
+            borrowedConnections.add(pooledConnection);
+            return new PooledConnectionHandle(pooledConnection);
+        }
+        catch(SQLException | RuntimeException e) {
+            borrowPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Number of physical connections currently open, idle or checked out
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return Number of connections currently sitting idle in the pool
+     */
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return Number of connections currently checked out of the pool
+     */
+    public int getActiveConnections() {
+        return borrowedConnections.size();
+    }
+
+    /**
+     * @return Number of threads waiting for a connection to become available
+     */
+    public int getWaitingThreads() {
+        return borrowPermits.getQueueLength();
+    }
+
+    /**
+     * @return How many times a connection has been reported as possibly leaked
+     */
+    public long getLeaksDetected() {
+        return leaksDetected.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PooledDataSource{" + jdbcUrl + ", total=" + getTotalConnections() + ", idle=" + getIdleConnections() +
+                ", active=" + getActiveConnections() + ", waiting=" + getWaitingThreads() + "}";
+    }
+
+    private PooledConnection borrow(long startTime) throws SQLException {
+        while(true) {
+            PooledConnection pooledConnection = idleConnections.pollFirst();
+            if(pooledConnection != null) {
+                if(!validateOnBorrow || isValid(pooledConnection)) {
+                    return pooledConnection;
+                }
+                destroy(pooledConnection);
+                continue;
+            }
+
+            int total = totalConnections.get();
+            if(total < maxSize) {
+                if(totalConnections.compareAndSet(total, total + 1)) {
+                    try {
+                        return createPooledConnection();
+                    }
+                    catch(SQLException | RuntimeException e) {
+                        totalConnections.decrementAndGet();
+                        throw e;
+                    }
+                }
+                continue;
+            }
+
+            //We hold a permit but all physical connections are taken; one is on its way back to the idle queue
+            if(System.currentTimeMillis() - startTime > borrowTimeout) {
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeout + " ms waiting for a " +
+                        "connection to be returned to the pool");
+            }
+            Thread.yield();
+        }
+    }
+
+    private boolean isValid(PooledConnection pooledConnection) {
+        try {
+            return pooledConnection.connection.isValid(validationTimeoutSeconds);
+        }
+        catch(SQLException e) {
+            LOGGER.debug("Connection validation failed", e);
+            return false;
+        }
+    }
+
+    private PooledConnection createPooledConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(jdbcUrl, properties);
+        PreparedStatementCache statementCache = statementCacheSize > 0 ? new PreparedStatementCache(statementCacheSize) : null;
+        return new PooledConnection(connection, statementCache);
+    }
+
+    private void giveBack(PooledConnection pooledConnection) {
+        borrowedConnections.remove(pooledConnection);
+        boolean reusable = !closed;
+        if(reusable) {
+            try {
+                if(pooledConnection.connection.isClosed()) {
+                    reusable = false;
+                }
+                else if(!pooledConnection.connection.getAutoCommit()) {
+                    //Don't let an unfinished transaction leak into the next borrower
+                    pooledConnection.connection.rollback();
+                    pooledConnection.connection.setAutoCommit(true);
+                }
+            }
+            catch(SQLException e) {
+                LOGGER.warn("Unable to reset connection returned to the pool, closing it", e);
+                reusable = false;
+            }
+        }
+        if(reusable) {
+            pooledConnection.onReturn();
+            idleConnections.addFirst(pooledConnection);
+        }
+        else {
+            destroy(pooledConnection);
+        }
+        borrowPermits.release();
+    }
+
+    private void destroy(PooledConnection pooledConnection) {
+        totalConnections.decrementAndGet();
+        if(pooledConnection.statementCache != null) {
+            pooledConnection.statementCache.close();
+        }
+        try {
+            pooledConnection.connection.close();
+        }
+        catch(SQLException e) {
+            LOGGER.warn("Unable to close pooled database connection", e);
+        }
+    }
+
+    private void maintain() {
+        if(closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        //Evict from the tail of the idle queue, where the least recently used connections are
+        if(idleTimeout > 0) {
+            Iterator<PooledConnection> iterator = idleConnections.descendingIterator();
+            while(iterator.hasNext() && totalConnections.get() > minSize) {
+                PooledConnection pooledConnection = iterator.next();
+                if(now - pooledConnection.lastReturned < idleTimeout) {
+                    break;
+                }
+                if(idleConnections.removeLastOccurrence(pooledConnection)) {
+                    destroy(pooledConnection);
+                }
+            }
+        }
+
+        if(leakDetectionThreshold > 0) {
+            for(PooledConnection pooledConnection: borrowedConnections) {
+                if(pooledConnection.checkForLeak(now, leakDetectionThreshold)) {
+                    leaksDetected.incrementAndGet();
+                    LOGGER.warn("Connection has been checked out of the pool for more than " + leakDetectionThreshold +
+                            " ms, it may have been leaked by this caller", pooledConnection.borrowStackTrace);
+                }
+            }
+        }
+
+        List<PooledConnection> created = new ArrayList<>();
+        while(!closed) {
+            int total = totalConnections.get();
+            if(total >= minSize) {
+                break;
+            }
+            if(!totalConnections.compareAndSet(total, total + 1)) {
+                continue;
+            }
+            try {
+                created.add(createPooledConnection());
+            }
+            catch(SQLException e) {
+                totalConnections.decrementAndGet();
+                LOGGER.warn("Unable to open connection to fill the pool up to its minimum size", e);
+                break;
+            }
+        }
+        for(PooledConnection pooledConnection: created) {
+            idleConnections.addLast(pooledConnection);
+        }
+    }
+
+    private static class PooledConnection {
+        private final Connection connection;
+        private final PreparedStatementCache statementCache;
+        private volatile long lastReturned;
+        private volatile long borrowedAt;
+        private volatile Exception borrowStackTrace;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection connection, PreparedStatementCache statementCache) {
+            this.connection = connection;
+            this.statementCache = statementCache;
+            this.lastReturned = System.currentTimeMillis();
+            this.borrowedAt = 0;
+            this.borrowStackTrace = null;
+            this.leakReported = false;
+        }
+
+        void onBorrow(boolean captureStackTrace) {
+            borrowedAt = System.currentTimeMillis();
+            borrowStackTrace = captureStackTrace ? new Exception("Connection borrowed here") : null;
+            leakReported = false;
+        }
+
+        void onReturn() {
+            lastReturned = System.currentTimeMillis();
+            borrowStackTrace = null;
+        }
+
+        boolean checkForLeak(long now, long threshold) {
+            if(leakReported || now - borrowedAt < threshold) {
+                return false;
+            }
+            leakReported = true;
+            return true;
+        }
+    }
+
+    /**
+     * The connection handed out to a borrower. Once it has been closed, and the physical connection gone back to the
+     * pool, every method except {@code close()}, {@code isClosed()} and {@code isValid(..)} throws, so that a stale
+     * handle can't be used to run statements on a connection that now belongs to someone else.
+     */
+    private class PooledConnectionHandle extends DelegatingConnection {
+        private final PooledConnection pooledConnection;
+
+        PooledConnectionHandle(PooledConnection pooledConnection) {
+            super(pooledConnection.connection);
+            this.pooledConnection = pooledConnection;
+        }
+
+        @Override
+        public synchronized void close() throws SQLException {
+            if(_closed) {
+                return;
+            }
+            _closed = true;
+            giveBack(pooledConnection);
+        }
+
+        @Override
+        protected void checkOpen() throws SQLException {
+            if(_closed) {
+                throw new SQLException("Connection has been closed");
+            }
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            checkOpen();
+            if(pooledConnection.statementCache != null && iface == PreparedStatementCache.class) {
+                return true;
+            }
+            return super.isWrapperFor(iface);
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            checkOpen();
+            if(pooledConnection.statementCache != null && iface == PreparedStatementCache.class) {
+                return iface.cast(pooledConnection.statementCache);
+            }
+            return super.unwrap(iface);
+        }
+    }
+
+    /**
+     * Not supported, the pool only opens connections with the credentials in the properties it was created with
+     * @throws SQLFeatureNotSupportedException Always
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("PooledDataSource can only hand out connections for the " +
+                "credentials it was created with");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return logWriter;
+    }
+
+    /**
+     * Stores a log writer, as required by {@code DataSource}. The pool itself logs through SLF4J and never writes
+     * to it.
+     * @param out Log writer
+     */
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.logWriter = out;
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return loginTimeout;
+    }
+
+    /**
+     * Stores a login timeout, as required by {@code DataSource}. Connections are opened through
+     * {@code DriverManager}, whose login timeout is global to the JVM, so the pool doesn't apply this value; use
+     * {@code Factory.setBorrowTimeout(..)} to limit how long {@code getConnection()} may take.
+     * @param seconds Login timeout in seconds
+     */
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.loginTimeout = seconds;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("PooledDataSource logs through SLF4J, not java.util.logging");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if(iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("PooledDataSource is not a wrapper for " + iface.getName());
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A bounded, least-recently-used cache of {@code PreparedStatement}s belonging to one physical database connection.
+ * Statements are keyed on the SQL text together with the {@code StatementType} they were prepared as, since the same
+ * SQL prepared with and without generated keys retrieval are different statements to the JDBC driver.
+ * <p>
+ * The cache works by checking statements out and back in again; while a statement is taken out of the cache by
+ * {@code take(..)} it is not visible to anyone else, so a nested query using the same SQL on the same connection will
+ * simply prepare a new statement. When the statement is handed back through {@code release(..)}, it goes back into the
+ * cache and, if the cache is full, the least recently used statement is closed and evicted.
+ * <p>
+ * A cache is normally owned by the {@code DataSource} handing out the connection; {@code SQLExecutorImpl} will find it
+ * by calling {@code unwrap(PreparedStatementCache.class)} on the connection it has been given.
+ * @see OneSharedConnectionDataSource
+ * @author Martin Berglund
+ */
+public class PreparedStatementCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    /**
+     * The different ways {@code SQLExecutorImpl} will prepare a statement
+     */
+    public enum StatementType {
+        /**
+         * Statement prepared for a regular query
+         */
+        GENERAL,
+        /**
+         * Statement prepared for an insert, with generated keys retrieval
+         */
+        INSERT,
+        /**
+         * Statement prepared for a batch write
+         */
+        BATCH,
+    }
+
+    private final int maxSize;
+    private final LinkedHashMap<Key, PreparedStatement> statements;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private boolean closed;
+
+    /**
+     * Creates a new statement cache which will hold at most {@code maxSize} statements
+     * @param maxSize Maximum number of prepared statements to keep open
+     */
+    public PreparedStatementCache(int maxSize) {
+        if(maxSize <= 0) {
+            throw new IllegalArgumentException("Cannot create a PreparedStatementCache with maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+        this.hits = 0;
+        this.misses = 0;
+        this.evictions = 0;
+        this.closed = false;
+    }
+
+    /**
+     * Takes a previously prepared statement out of the cache. The statement will not be available to anyone else
+     * until it has been given back through {@code release(..)}.
+     * @param statementType How the statement was prepared
+     * @param SQL SQL of the statement
+     * @return Cached statement or {@code null} if there was none available
+     */
+    public synchronized PreparedStatement take(StatementType statementType, String SQL) {
+        PreparedStatement statement = statements.remove(new Key(statementType, SQL));
+        if(statement != null) {
+            hits++;
+        }
+        else {
+            misses++;
+        }
+        return statement;
+    }
+
+    /**
+     * Puts a statement back into the cache, which will close and evict the least recently used statement if the cache
+     * is full. If the cache already holds a statement for this SQL (because the same SQL was in use twice at the same
+     * time) or the cache has been closed, the statement passed in is closed instead.
+     * <p>
+     * Once released, the statement may be handed to another query at any time, so the caller must make sure nothing
+     * can call {@code cancel()} on it anymore. A statement which has been cancelled should be closed rather than
+     * released, since some drivers process the cancel asynchronously and it could hit the next query.
+     * @param statementType How the statement was prepared
+     * @param SQL SQL of the statement
+     * @param statement Statement to put back into the cache
+     */
+    public void release(StatementType statementType, String SQL, PreparedStatement statement) {
+        List<PreparedStatement> toClose = new ArrayList<>();
+        synchronized(this) {
+            Key key = new Key(statementType, SQL);
+            if(closed || statements.containsKey(key)) {
+                toClose.add(statement);
+            }
+            else {
+                statements.put(key, statement);
+                Iterator<PreparedStatement> iterator = statements.values().iterator();
+                while(statements.size() > maxSize) {
+                    toClose.add(iterator.next());
+                    iterator.remove();
+                    evictions++;
+                }
+            }
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * Closes all statements in the cache and stops the cache from accepting any more statements. Call this before
+     * closing the connection the statements belong to.
+     */
+    public void close() {
+        List<PreparedStatement> toClose;
+        synchronized(this) {
+            closed = true;
+            toClose = new ArrayList<>(statements.values());
+            statements.clear();
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * @return How many statements the cache can hold before it starts evicting
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return Number of statements currently held by the cache
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * @return Number of times {@code take(..)} found a statement in the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of times {@code take(..)} didn't find a statement in the cache
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Number of statements that have been closed because the cache was full
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PreparedStatementCache{size=" + statements.size() + ", maxSize=" + maxSize + ", hits=" + hits +
+                ", misses=" + misses + ", evictions=" + evictions + "}";
+    }
+
+    private void closeAll(List<PreparedStatement> toClose) {
+        for(PreparedStatement statement: toClose) {
+            try {
+                statement.close();
+            }
+            catch(SQLException e) {
+                LOGGER.warn("Unable to close prepared statement removed from the cache", e);
+            }
+        }
+    }
+
+    private static class Key {
+        private final StatementType statementType;
+        private final String SQL;
+
+        Key(StatementType statementType, String SQL) {
+            this.statementType = statementType;
+            this.SQL = SQL;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * statementType.hashCode() + SQL.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return statementType == other.statementType && Objects.equals(SQL, other.SQL);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.RowView;
+import com.googlecode.jdbw.RowViewResultHandler;
+
+import java.sql.SQLException;
+
+/**
+ * This is a convenience class that implements RowViewResultHandler and provides a default method implementation for
+ * this interface. You can then override only the methods that you care about.
+ *
+ * @author Martin Berglund
+ */
+public class RowViewResultHandlerAdapter extends ExecuteResultHandlerAdapter implements RowViewResultHandler {
+    @Override
+    public boolean nextRow(RowView row) throws SQLException {
+        return true;
+    }
+}
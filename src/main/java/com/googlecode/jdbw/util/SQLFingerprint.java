@@ -0,0 +1,147 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL into a fingerprint that is the same for all statements only differing in literal values, comments
+ * and whitespace, so that for example
+ * <pre>
+ *     SELECT * FROM "Customer" WHERE id IN (1, 2, 3) AND name = 'Bob'
+ * </pre>
+ * and
+ * <pre>
+ *     select * from "Customer"
+ *       where id in (?) and name = ?
+ * </pre>
+ * both have the fingerprint {@code SELECT * FROM "Customer" WHERE ID IN (?+) AND NAME = ?}. Quoted identifiers are
+ * kept as they are, everything else is upper-cased. Recently computed fingerprints are cached, since the same SQL is
+ * normally executed over and over.
+ * @author Martin Berglund
+ */
+public class SQLFingerprint {
+
+    private static final int MAX_CACHED_FINGERPRINTS = 1024;
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\?(?: ?, ?\\?)*\\)");
+    private static final ConcurrentMap<String, String> CACHE = new ConcurrentHashMap<>();
+
+    private SQLFingerprint() {
+    }
+
+    /**
+     * Returns the fingerprint of a statement
+     * @param SQL SQL to normalize
+     * @return Fingerprint of the SQL
+     */
+    public static String of(String SQL) {
+        if(SQL == null) {
+            return null;
+        }
+        String fingerprint = CACHE.get(SQL);
+        if(fingerprint == null) {
+            fingerprint = normalize(SQL);
+            if(CACHE.size() >= MAX_CACHED_FINGERPRINTS) {
+                CACHE.clear();
+            }
+            CACHE.put(SQL, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    private static String normalize(String SQL) {
+        StringBuilder sb = new StringBuilder(SQL.length());
+        int length = SQL.length();
+        int i = 0;
+        while(i < length) {
+            char c = SQL.charAt(i);
+            if(Character.isWhitespace(c)) {
+                while(i < length && Character.isWhitespace(SQL.charAt(i))) {
+                    i++;
+                }
+                appendSpace(sb);
+            }
+            else if(c == '-' && i + 1 < length && SQL.charAt(i + 1) == '-') {
+                while(i < length && SQL.charAt(i) != '\n') {
+                    i++;
+                }
+                appendSpace(sb);
+            }
+            else if(c == '/' && i + 1 < length && SQL.charAt(i + 1) == '*') {
+                int end = SQL.indexOf("*/", i + 2);
+                i = end == -1 ? length : end + 2;
+                appendSpace(sb);
+            }
+            else if(c == '\'') {
+                i++;
+                while(i < length) {
+                    if(SQL.charAt(i) == '\'') {
+                        if(i + 1 < length && SQL.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                sb.append('?');
+            }
+            else if(c == '"' || c == '`' || c == '[') {
+                char closing = c == '[' ? ']' : c;
+                int end = SQL.indexOf(closing, i + 1);
+                end = end == -1 ? length : end + 1;
+                sb.append(SQL, i, end);
+                i = end;
+            }
+            else if(Character.isDigit(c) && !isPartOfIdentifier(sb)) {
+                while(i < length && (Character.isLetterOrDigit(SQL.charAt(i)) || SQL.charAt(i) == '.')) {
+                    i++;
+                }
+                sb.append('?');
+            }
+            else {
+                sb.append(Character.toUpperCase(c));
+                i++;
+            }
+        }
+        int end = sb.length();
+        while(end > 0 && sb.charAt(end - 1) == ' ') {
+            end--;
+        }
+        sb.setLength(end);
+        return PARAMETER_LIST.matcher(sb).replaceAll("(?+)");
+    }
+
+    private static void appendSpace(StringBuilder sb) {
+        if(sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+            sb.append(' ');
+        }
+    }
+
+    private static boolean isPartOfIdentifier(StringBuilder sb) {
+        if(sb.length() == 0) {
+            return false;
+        }
+        char previous = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+}
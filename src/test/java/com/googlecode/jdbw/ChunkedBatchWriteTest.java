@@ -0,0 +1,135 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import com.googlecode.jdbw.util.BatchUpdateHandlerAdapter;
+import com.googlecode.jdbw.util.SQLWorker;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class ChunkedBatchWriteTest {
+
+    private static final String INSERT = "INSERT INTO \"Chunk\" VALUES(?, ?)";
+
+    private DatabaseConnection h2;
+
+    public ChunkedBatchWriteTest() {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("chunkedbatch").connect();
+        h2.createAutoExecutor().execute("CREATE TABLE \"Chunk\" (\"id\" INT PRIMARY KEY, \"value\" VARCHAR)");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        h2.createAutoExecutor().execute("DROP TABLE \"Chunk\"");
+        h2.close();
+    }
+
+    /**
+     * Test of batchWrite method, of class AutoExecutor.
+     */
+    @Test
+    public void testOneResultPerChunk() throws SQLException {
+        System.out.println("oneResultPerChunk");
+        final List<Integer> chunkSizes = new ArrayList<>();
+        h2.createAutoExecutor().batchWrite(new BatchUpdateHandlerAdapter() {
+            @Override
+            public void onBatchResult(int... returnCodes) {
+                chunkSizes.add(returnCodes.length);
+            }
+        }, INSERT, rows(0, 25), 10, false);
+        assertEquals(Arrays.asList(10, 10, 5), chunkSizes);
+        assertEquals(25, count());
+    }
+
+    /**
+     * Test of batchWrite method, of class DatabaseTransactionImpl.
+     */
+    @Test
+    public void testCommitAfterEachChunk() throws SQLException {
+        System.out.println("commitAfterEachChunk");
+        DatabaseTransaction transaction = h2.beginTransaction(TransactionIsolation.READ_COMMITTED);
+        try {
+            ((ChunkedBatchSQLExecutor)transaction).batchWrite(new BatchUpdateHandlerAdapter(), INSERT, rows(0, 20), 5, true);
+        }
+        finally {
+            transaction.rollback();
+        }
+        assertEquals(20, count());
+
+        transaction = h2.beginTransaction(TransactionIsolation.READ_COMMITTED);
+        try {
+            ((ChunkedBatchSQLExecutor)transaction).batchWrite(new BatchUpdateHandlerAdapter(), INSERT, rows(20, 40), 5, false);
+        }
+        finally {
+            transaction.rollback();
+        }
+        assertEquals(20, count());
+    }
+
+    /**
+     * Test of batchWrite method, of class AutoExecutor.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize() throws SQLException {
+        System.out.println("invalidChunkSize");
+        h2.createAutoExecutor().batchWrite(new BatchUpdateHandlerAdapter(), INSERT, rows(0, 1), 0, false);
+    }
+
+    private int count() throws SQLException {
+        return new SQLWorker(h2.createAutoExecutor()).topLeftValueAsInt("SELECT COUNT(*) FROM \"Chunk\"");
+    }
+
+    private Iterator<Object[]> rows(final int from, final int to) {
+        return new Iterator<Object[]>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public Object[] next() {
+                int id = next++;
+                return new Object[] { id, "value " + id };
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import com.googlecode.jdbw.util.OneSharedConnectionDataSource;
+import com.googlecode.jdbw.util.SQLWorker;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class RowCursorTest {
+
+    private DatabaseConnection h2;
+
+    public RowCursorTest() {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("rowcursor").connect(new OneSharedConnectionDataSource.Factory(4));
+        List<Object[]> rows = new ArrayList<>();
+        for(int i = 0; i < 1000; i++) {
+            rows.add(new Object[] { i, "row " + i });
+        }
+        AutoExecutor executor = h2.createAutoExecutor();
+        executor.execute("CREATE TABLE \"Row\" (\"id\" INT PRIMARY KEY, \"name\" VARCHAR)");
+        executor.batchWrite("INSERT INTO \"Row\" VALUES(?, ?)", rows);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        h2.createAutoExecutor().execute("DROP TABLE \"Row\"");
+        h2.close();
+    }
+
+    /**
+     * Test of openCursor method, of class AutoExecutor.
+     */
+    @Test
+    public void testReadAllRows() throws SQLException {
+        System.out.println("readAllRows");
+        long sum = 0;
+        try(RowCursor cursor = h2.createAutoExecutor().openCursor(50, "SELECT \"id\", \"name\" FROM \"Row\" ORDER BY \"id\"")) {
+            assertEquals(2, cursor.getResultSetInformation().getNumberOfColumns());
+            while(cursor.hasNext()) {
+                Object[] row = cursor.next();
+                assertEquals("row " + row[0], row[1]);
+                sum += (Integer)row[0];
+            }
+            assertEquals(1000, cursor.getRowsRead());
+            assertNull(cursor.nextRow());
+        }
+        assertEquals(999 * 1000 / 2, sum);
+    }
+
+    /**
+     * Test of close method, of class RowCursor.
+     */
+    @Test
+    public void testStopEarlyReleasesConnection() throws SQLException {
+        System.out.println("stopEarlyReleasesConnection");
+        AutoExecutor executor = h2.createAutoExecutor();
+        try(RowCursor cursor = executor.openCursor("SELECT \"id\" FROM \"Row\" ORDER BY \"id\" WHERE \"id\" >= ?", 10)) {
+            fail("Expected syntax error");
+        }
+        catch(SQLException e) {
+        }
+        try(RowCursor cursor = executor.openCursor("SELECT \"id\" FROM \"Row\" WHERE \"id\" >= ? ORDER BY \"id\"", 10)) {
+            assertEquals(10, cursor.nextRow()[0]);
+            assertEquals(11, cursor.nextRow()[0]);
+        }
+        //The shared connection must have been returned, otherwise this will block forever
+        assertEquals(1000L, ((Number)new SQLWorker(executor).topLeftValue("SELECT COUNT(*) FROM \"Row\"")).longValue());
+    }
+
+    /**
+     * Test of openCursor method, of class DatabaseTransactionImpl.
+     */
+    @Test
+    public void testCursorInsideTransaction() throws SQLException {
+        System.out.println("cursorInsideTransaction");
+        DatabaseTransaction transaction = h2.beginTransaction(TransactionIsolation.READ_COMMITTED);
+        try {
+            transaction.execute("DELETE FROM \"Row\" WHERE \"id\" >= 10");
+            try(RowCursor cursor = ((CursorSQLExecutor)transaction).openCursor("SELECT \"id\" FROM \"Row\"")) {
+                int count = 0;
+                while(cursor.hasNext()) {
+                    cursor.next();
+                    count++;
+                }
+                assertEquals(10, count);
+                try {
+                    cursor.next();
+                    fail("Expected NoSuchElementException");
+                }
+                catch(NoSuchElementException e) {
+                }
+            }
+        }
+        finally {
+            transaction.rollback();
+        }
+    }
+}
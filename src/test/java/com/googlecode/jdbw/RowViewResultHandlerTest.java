@@ -0,0 +1,113 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw;
+
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import com.googlecode.jdbw.util.RowViewResultHandlerAdapter;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class RowViewResultHandlerTest {
+
+    private DatabaseConnection h2;
+
+    public RowViewResultHandlerTest() {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("rowview").connect();
+        AutoExecutor executor = h2.createAutoExecutor();
+        executor.execute("CREATE TABLE \"Figures\" (\"id\" INT PRIMARY KEY, \"amount\" BIGINT, \"ratio\" DOUBLE, \"price\" DECIMAL(10,2), \"label\" VARCHAR)");
+        executor.execute("INSERT INTO \"Figures\" VALUES(1, 10000000000, 0.5, 12.50, 'one')");
+        executor.execute("INSERT INTO \"Figures\" VALUES(2, NULL, NULL, NULL, NULL)");
+        executor.execute("INSERT INTO \"Figures\" VALUES(3, 3, 1.5, 3.00, 'three')");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        h2.createAutoExecutor().execute("DROP TABLE \"Figures\"");
+        h2.close();
+    }
+
+    /**
+     * Test of nextRow method, of class RowViewResultHandler.
+     */
+    @Test
+    public void testTypedAccess() throws SQLException {
+        System.out.println("typedAccess");
+        final List<Object[]> rows = new ArrayList<>();
+        h2.createAutoExecutor().execute(new RowViewResultHandlerAdapter() {
+            @Override
+            public boolean nextRow(RowView row) throws SQLException {
+                assertEquals(5, row.getColumnCount());
+                if(row.getInt(0) == 2) {
+                    assertTrue(row.isNull(1));
+                    assertEquals(0L, row.getLong(1));
+                    assertTrue(row.wasNull());
+                    assertNull(row.getString(4));
+                }
+                else {
+                    assertFalse(row.isNull(1));
+                    assertEquals(row.getInt(0) == 1 ? 10000000000L : 3L, row.getLong(1));
+                    assertFalse(row.wasNull());
+                }
+                rows.add(row.toArray());
+                return true;
+            }
+
+            @Override
+            public boolean nextRow(Object... row) {
+                fail("nextRow(Object...) should not be called for a RowViewResultHandler");
+                return false;
+            }
+        }, "SELECT * FROM \"Figures\" ORDER BY \"id\"");
+        assertEquals(3, rows.size());
+        assertEquals("one", rows.get(0)[4]);
+        assertEquals(new BigDecimal("12.50"), rows.get(0)[3]);
+        assertEquals(1.5, (Double)rows.get(2)[2], 0.0);
+    }
+
+    /**
+     * Test of nextRow method, of class RowViewResultHandler.
+     */
+    @Test
+    public void testStopReadingRows() throws SQLException {
+        System.out.println("stopReadingRows");
+        final int[] count = new int[1];
+        h2.createAutoExecutor().execute(new RowViewResultHandlerAdapter() {
+            @Override
+            public boolean nextRow(RowView row) throws SQLException {
+                count[0]++;
+                return false;
+            }
+        }, "SELECT * FROM \"Figures\"");
+        assertEquals(1, count[0]);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.metadata;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import com.googlecode.jdbw.util.SQLWorker;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class CachingServerMetaDataTest {
+    
+    private DatabaseConnection h2;
+    private CountingServerMetaData backend;
+    
+    public CachingServerMetaDataTest() {
+    }
+    
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("metadata").connect();
+        new SQLWorker(h2.createAutoExecutor()).write("CREATE TABLE \"Person\" ("
+                + "\"id\" INT PRIMARY KEY, "
+                + "\"name\" VARCHAR)");
+        backend = new CountingServerMetaData(h2.getDataSource());
+    }
+    
+    @After
+    public void tearDown() throws SQLException {
+        new SQLWorker(h2.createAutoExecutor()).write("DROP TABLE \"Person\"");
+        h2.close();
+    }
+
+    /**
+     * Test of getTable and getColumns methods, of class CachingServerMetaData.
+     */
+    @Test
+    public void testNavigationIsCached() throws SQLException {
+        System.out.println("navigationIsCached");
+        CachingServerMetaData instance = new CachingServerMetaData(backend);
+        Schema schema = getPublicSchema(instance);
+        Table table = schema.getTable("Person");
+        assertNotNull(table);
+        assertSame(table, schema.getTable("Person"));
+        assertNull(schema.getTable("Missing"));
+        assertNull(schema.getTable("Missing"));
+        assertEquals(2, backend.tableLookups.get());
+        
+        List<Table> tables = schema.getTables();
+        assertEquals(1, tables.size());
+        assertSame(tables.get(0), instance.getTable(schema, "Person"));
+        assertEquals(1, backend.tableLists.get());
+        
+        Table otherTable = instance.getTable(schema, "Person");
+        assertEquals("name", otherTable.getColumn("name").getName());
+        assertNull(otherTable.getColumn("missing"));
+        otherTable.getPrimaryKey();
+        assertEquals("id", otherTable.getUniqueKey().getColumns().get(0).getName());
+        assertEquals(2, instance.getTable(schema, "Person").getColumnCount());
+        otherTable.getColumns().clear();
+        otherTable.getIndexes().clear();
+        assertEquals(2, otherTable.getColumnCount());
+        assertNotNull(otherTable.getUniqueKey());
+        assertEquals(1, backend.columnLoads.get());
+        assertEquals(1, backend.indexLoads.get());
+    }
+
+    /**
+     * Test of invalidate method, of class CachingServerMetaData.
+     */
+    @Test
+    public void testInvalidate() throws SQLException {
+        System.out.println("invalidate");
+        CachingServerMetaData instance = new CachingServerMetaData(backend);
+        Schema schema = getPublicSchema(instance);
+        Table table = schema.getTable("Person");
+        assertEquals(2, table.getColumnCount());
+        
+        new SQLWorker(h2.createAutoExecutor()).write("ALTER TABLE \"Person\" ADD \"age\" INT");
+        assertEquals(2, table.getColumnCount());
+        instance.invalidate(table);
+        assertEquals(3, table.getColumnCount());
+        assertEquals(2, backend.columnLoads.get());
+        
+        instance.invalidate(schema);
+        schema.getTable("Person");
+        assertEquals(2, backend.tableLookups.get());
+    }
+
+    /**
+     * Test of snapshot method, of class CachingServerMetaData.
+     */
+    @Test
+    public void testSnapshotIsCached() throws SQLException {
+        System.out.println("snapshotIsCached");
+        CachingServerMetaData instance = new CachingServerMetaData(backend);
+        Schema schema = getPublicSchema(instance);
+        SchemaSnapshot snapshot = schema.snapshot();
+        Table table = snapshot.getTable("Person");
+        assertEquals(2, table.getColumnCount());
+        assertEquals(1, backend.snapshots.get());
+        
+        assertSame(table, schema.getTable("Person"));
+        assertEquals(1, schema.getTables().size());
+        table.clearCachedData();
+        assertEquals(2, table.getColumnCount());
+        assertNotNull(table.getUniqueKey());
+        assertSame(table, schema.snapshot().getTable("Person"));
+        assertEquals(1, backend.snapshots.get());
+        assertEquals(0, backend.tableLists.get());
+        assertEquals(0, backend.tableLookups.get());
+        assertEquals(0, backend.columnLoads.get());
+        assertEquals(0, backend.indexLoads.get());
+        
+        instance.invalidate(table);
+        schema.snapshot();
+        assertEquals(2, backend.snapshots.get());
+    }
+
+    /**
+     * Test of the time-to-live of class CachingServerMetaData.
+     */
+    @Test
+    public void testTimeToLive() throws SQLException, InterruptedException {
+        System.out.println("timeToLive");
+        CachingServerMetaData instance = new CachingServerMetaData(backend, 20, TimeUnit.MILLISECONDS);
+        Schema schema = getPublicSchema(instance);
+        schema.getTables();
+        schema.getTables();
+        assertEquals(1, backend.tableLists.get());
+        Thread.sleep(50);
+        schema.getTables();
+        assertEquals(2, backend.tableLists.get());
+    }
+    
+    private Schema getPublicSchema(CachingServerMetaData instance) throws SQLException {
+        List<Catalog> catalogs = instance.getCatalogs();
+        assertEquals(1, catalogs.size());
+        assertSame(catalogs.get(0), instance.getCatalog(catalogs.get(0).getName()));
+        Schema schema = catalogs.get(0).getSchema("PUBLIC");
+        assertNotNull(schema);
+        return schema;
+    }
+    
+    private static class CountingServerMetaData extends DefaultServerMetaData {
+        private final AtomicInteger tableLists = new AtomicInteger();
+        private final AtomicInteger tableLookups = new AtomicInteger();
+        private final AtomicInteger columnLoads = new AtomicInteger();
+        private final AtomicInteger indexLoads = new AtomicInteger();
+        private final AtomicInteger snapshots = new AtomicInteger();
+
+        CountingServerMetaData(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        protected SchemaSnapshot snapshot(Schema schema, ServerMetaData owner) throws SQLException {
+            snapshots.incrementAndGet();
+            return super.snapshot(schema, owner);
+        }
+
+        @Override
+        public List<Table> getTables(Schema schema) throws SQLException {
+            tableLists.incrementAndGet();
+            return super.getTables(schema);
+        }
+
+        @Override
+        public Table getTable(Schema schema, String tableName) throws SQLException {
+            tableLookups.incrementAndGet();
+            return super.getTable(schema, tableName);
+        }
+
+        @Override
+        public List<TableColumn> getColumns(Table table) throws SQLException {
+            columnLoads.incrementAndGet();
+            return super.getColumns(table);
+        }
+
+        @Override
+        public List<Index> getIndexes(Table table) throws SQLException {
+            indexLoads.incrementAndGet();
+            return super.getIndexes(table);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.metadata;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import com.googlecode.jdbw.util.SQLWorker;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class MetaDataCrawlerTest {
+    
+    private static final int SCHEMAS = 5;
+    
+    private DatabaseConnection h2;
+    private ServerMetaData metaData;
+    private ExecutorService executorService;
+    
+    public MetaDataCrawlerTest() {
+    }
+    
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("crawler").connect();
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        for(int i = 0; i < SCHEMAS; i++) {
+            worker.write("CREATE SCHEMA \"Schema" + i + "\"");
+            for(int j = 0; j <= i; j++) {
+                worker.write("CREATE TABLE \"Schema" + i + "\".\"Table" + j + "\" ("
+                        + "\"id\" INT PRIMARY KEY, "
+                        + "\"name\" VARCHAR)");
+            }
+        }
+        metaData = h2.getServerType().createMetaDataResolver(h2.getDataSource());
+        executorService = Executors.newFixedThreadPool(4);
+    }
+    
+    @After
+    public void tearDown() throws SQLException {
+        executorService.shutdownNow();
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        for(int i = 0; i < SCHEMAS; i++) {
+            worker.write("DROP SCHEMA \"Schema" + i + "\" CASCADE");
+        }
+        h2.close();
+    }
+
+    /**
+     * Test of crawl method, of class MetaDataCrawler.
+     */
+    @Test
+    public void testCrawl() throws SQLException {
+        System.out.println("crawl");
+        MetaDataCrawler instance = new MetaDataCrawler(metaData, executorService, 3);
+        RecordingListener listener = new RecordingListener();
+        instance.setListener(listener);
+        DatabaseSnapshot result = instance.crawl();
+        
+        assertEquals(1, result.getCatalogs().size());
+        Catalog catalog = result.getCatalogs().get(0);
+        assertEquals(catalog.getSchemas().size(), result.getSchemas(catalog).size());
+        for(int i = 0; i < SCHEMAS; i++) {
+            SchemaSnapshot snapshot = result.getSchema(catalog.getName(), "Schema" + i);
+            assertNotNull(snapshot);
+            assertEquals(i + 1, snapshot.getTables().size());
+            assertEquals(2, snapshot.getTable("Table0").getColumnCount());
+            assertEquals(1, snapshot.getTable("Table0").getIndexes().size());
+        }
+        assertNull(result.getSchema(catalog.getName(), "Missing"));
+        
+        assertEquals(Arrays.asList(catalog), listener.catalogs);
+        assertEquals(result.getSchemas().size(), listener.schemasLoaded.size());
+        for(int i = 0; i < listener.schemasLoaded.size(); i++) {
+            assertEquals(i + 1, (int)listener.schemasLoaded.get(i));
+        }
+        assertEquals(result.getSchemas().size(), listener.lastSchemasFound);
+    }
+
+    /**
+     * Test of crawlSchemas method, of class MetaDataCrawler.
+     */
+    @Test
+    public void testCrawlSchemas() throws SQLException {
+        System.out.println("crawlSchemas");
+        Catalog catalog = metaData.getCatalogs().get(0);
+        List<Schema> schemas = new ArrayList<>();
+        schemas.add(catalog.getSchema("Schema1"));
+        schemas.add(catalog.getSchema("Schema3"));
+        DatabaseSnapshot result = new MetaDataCrawler(metaData, executorService, 2).crawlSchemas(schemas);
+        assertEquals(2, result.getSchemas().size());
+        assertEquals("Schema1", result.getSchemas().get(0).getSchema().getName());
+        assertEquals("Schema3", result.getSchemas().get(1).getSchema().getName());
+        assertEquals(4, result.getSchema(catalog.getName(), "Schema3").getTables().size());
+    }
+
+    /**
+     * Test of crawl method, of class MetaDataCrawler, when a lookup fails.
+     */
+    @Test
+    public void testCrawlFailure() throws SQLException {
+        System.out.println("crawlFailure");
+        ServerMetaData failing = new DefaultServerMetaData(h2.getDataSource()) {
+            @Override
+            public SchemaSnapshot snapshot(Schema schema) throws SQLException {
+                if(schema.getName().equals("Schema2")) {
+                    throw new SQLException("Failed on " + schema.getName());
+                }
+                return super.snapshot(schema);
+            }
+        };
+        try {
+            new MetaDataCrawler(failing, executorService, 2).crawl();
+            fail("Expected crawl to fail");
+        }
+        catch(SQLException e) {
+            assertEquals("Failed on Schema2", e.getMessage());
+        }
+    }
+    
+    private static class RecordingListener implements MetaDataCrawlListener {
+        private final List<Catalog> catalogs = new ArrayList<>();
+        private final List<Integer> schemasLoaded = new ArrayList<>();
+        private int lastSchemasFound = 0;
+
+        @Override
+        public void onCatalogLoaded(Catalog catalog, List<Schema> schemas) {
+            catalogs.add(catalog);
+        }
+
+        @Override
+        public void onSchemaLoaded(SchemaSnapshot snapshot, int schemasLoaded, int schemasFound) {
+            this.schemasLoaded.add(schemasLoaded);
+            this.lastSchemasFound = schemasFound;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.metadata;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import com.googlecode.jdbw.util.SQLWorker;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class SchemaSnapshotTest {
+    
+    private DatabaseConnection h2;
+    private CountingServerMetaData metaData;
+    
+    public SchemaSnapshotTest() {
+    }
+    
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("snapshot").connect();
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        worker.write("CREATE TABLE \"Person\" ("
+                + "\"id\" INT PRIMARY KEY, "
+                + "\"name\" VARCHAR(50) NOT NULL, "
+                + "\"age\" INT)");
+        worker.write("CREATE INDEX \"Person_name\" ON \"Person\" (\"name\", \"age\")");
+        worker.write("CREATE TABLE \"Address\" ("
+                + "\"id\" INT PRIMARY KEY, "
+                + "\"street\" VARCHAR)");
+        worker.write("CREATE VIEW \"PersonView\" AS SELECT \"id\", \"name\" FROM \"Person\"");
+        metaData = new CountingServerMetaData(h2.getDataSource());
+    }
+    
+    @After
+    public void tearDown() throws SQLException {
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        worker.write("DROP VIEW \"PersonView\"");
+        worker.write("DROP TABLE \"Address\"");
+        worker.write("DROP TABLE \"Person\"");
+        h2.close();
+    }
+
+    /**
+     * Test of snapshot method, of class DefaultServerMetaData.
+     */
+    @Test
+    public void testSnapshot() throws SQLException {
+        System.out.println("snapshot");
+        SchemaSnapshot snapshot = getPublicSchema().snapshot();
+        assertEquals(2, snapshot.getTables().size());
+        assertNull(snapshot.getTable("PersonView"));
+        
+        Table person = snapshot.getTable("Person");
+        assertEquals(3, person.getColumnCount());
+        assertEquals("id", person.getColumns().get(0).getName());
+        assertEquals("name", person.getColumns().get(1).getName());
+        assertEquals("age", person.getColumns().get(2).getName());
+        assertEquals(Nullability.NOT_NULLABLE, person.getColumn("name").getNullable());
+        assertEquals(2, person.getIndexes().size());
+        assertEquals(2, person.getIndexMap().get("Person_name").getNrOfColumns());
+        assertEquals(2, snapshot.getTable("Address").getColumnCount());
+        assertEquals(0, metaData.columnLoads.get());
+        assertEquals(0, metaData.indexLoads.get());
+    }
+
+    /**
+     * Test of writeTo and readFrom methods, of class SchemaSnapshot.
+     */
+    @Test
+    public void testWriteAndRead() throws SQLException, IOException {
+        System.out.println("writeAndRead");
+        SchemaSnapshot snapshot = getPublicSchema().snapshot();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        
+        SchemaSnapshot copy = SchemaSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()), metaData);
+        assertEquals(snapshot.getSchema(), copy.getSchema());
+        assertEquals(snapshot.getCreatedAt(), copy.getCreatedAt());
+        assertEquals(snapshot.getTables().size(), copy.getTables().size());
+        for(Table table: snapshot.getTables()) {
+            Table copiedTable = copy.getTable(table.getName());
+            assertNotNull(copiedTable);
+            assertEquals(table.getColumnCount(), copiedTable.getColumnCount());
+            for(TableColumn column: table.getColumns()) {
+                TableColumn copiedColumn = copiedTable.getColumn(column.getName());
+                assertEquals(column.getOrdinalPosition(), copiedColumn.getOrdinalPosition());
+                assertEquals(column.getSqlType(), copiedColumn.getSqlType());
+                assertEquals(column.getNativeTypeName(), copiedColumn.getNativeTypeName());
+                assertEquals(column.getColumnSize(), copiedColumn.getColumnSize());
+                assertEquals(column.getNullable(), copiedColumn.getNullable());
+            }
+            assertEquals(table.getIndexes().size(), copiedTable.getIndexes().size());
+            for(Index index: table.getIndexes()) {
+                Index copiedIndex = copiedTable.getIndexMap().get(index.getName());
+                assertEquals(index.isUnique(), copiedIndex.isUnique());
+                assertEquals(index.getColumnNames(), copiedIndex.getColumnNames());
+            }
+        }
+        assertEquals(0, metaData.columnLoads.get());
+        assertEquals(0, metaData.indexLoads.get());
+    }
+    
+    private Schema getPublicSchema() throws SQLException {
+        List<Catalog> catalogs = metaData.getCatalogs();
+        assertEquals(1, catalogs.size());
+        Schema schema = catalogs.get(0).getSchema("PUBLIC");
+        assertNotNull(schema);
+        return schema;
+    }
+    
+    private static class CountingServerMetaData extends DefaultServerMetaData {
+        private final AtomicInteger columnLoads = new AtomicInteger();
+        private final AtomicInteger indexLoads = new AtomicInteger();
+
+        CountingServerMetaData(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public List<TableColumn> getColumns(Table table) throws SQLException {
+            columnLoads.incrementAndGet();
+            return super.getColumns(table);
+        }
+
+        @Override
+        public List<Index> getIndexes(Table table) throws SQLException {
+            indexLoads.incrementAndGet();
+            return super.getIndexes(table);
+        }
+    }
+}
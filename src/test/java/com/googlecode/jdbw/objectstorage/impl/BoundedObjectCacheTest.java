@@ -0,0 +1,228 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.FieldMapping;
+import com.googlecode.jdbw.objectstorage.Storable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class BoundedObjectCacheTest {
+
+    public static interface Item extends Storable<Integer> {
+        String getValue();
+    }
+
+    private final GeneratedObjectFactory objectFactory = new GeneratedObjectFactory();
+    private final FieldMapping fieldMapping = new DefaultFieldMapping(Item.class);
+
+    public BoundedObjectCacheTest() {
+    }
+
+    /**
+     * Test of put method, of class BoundedObjectCache.
+     */
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        System.out.println("leastRecentlyUsedEviction");
+        BoundedObjectCache<Integer, Item> instance = new BoundedObjectCache.Factory<Integer, Item>()
+                .setMaximumSize(3)
+                .createObjectCache();
+        instance.put(item(1, "a"));
+        instance.put(item(2, "b"));
+        instance.put(item(3, "c"));
+        assertNotNull(instance.get(1));
+        instance.put(item(4, "d"));
+        assertEquals(3, instance.size());
+        assertNull(instance.get(2));
+        assertNotNull(instance.get(1));
+        assertNotNull(instance.get(3));
+        assertNotNull(instance.get(4));
+        assertEquals(1, instance.getEvictions());
+        assertEquals(4, instance.getHits());
+        assertEquals(1, instance.getMisses());
+    }
+
+    /**
+     * Test of put method, of class BoundedObjectCache.
+     */
+    @Test
+    public void testWeightEviction() {
+        System.out.println("weightEviction");
+        BoundedObjectCache<Integer, Item> instance = new BoundedObjectCache.Factory<Integer, Item>()
+                .setMaximumWeight(10, new BoundedObjectCache.Weigher<Item>() {
+                    @Override
+                    public int weigh(Item object) {
+                        return object.getValue().length();
+                    }
+                })
+                .createObjectCache();
+        instance.put(item(1, "aaaa"));
+        instance.put(item(2, "bbbb"));
+        assertEquals(8, instance.getWeight());
+        instance.put(item(3, "cccccc"));
+        assertEquals(10, instance.getWeight());
+        assertNull(instance.get(1));
+        assertNotNull(instance.get(3));
+        instance.put(item(4, "dddddddddddd"));
+        assertNull(instance.get(4));
+        assertEquals(2, instance.size());
+    }
+
+    /**
+     * Test of get method, of class BoundedObjectCache.
+     */
+    @Test
+    public void testExpiry() throws InterruptedException {
+        System.out.println("expiry");
+        BoundedObjectCache<Integer, Item> instance = new BoundedObjectCache.Factory<Integer, Item>()
+                .setExpireAfterWrite(50, TimeUnit.MILLISECONDS)
+                .createObjectCache();
+        instance.put(item(1, "a"));
+        assertNotNull(instance.get(1));
+        Thread.sleep(100);
+        assertNull(instance.get(1));
+        assertEquals(1, instance.getExpirations());
+
+        instance = new BoundedObjectCache.Factory<Integer, Item>()
+                .setExpireAfterAccess(200, TimeUnit.MILLISECONDS)
+                .createObjectCache();
+        instance.put(item(1, "a"));
+        instance.put(item(2, "b"));
+        for(int i = 0; i < 3; i++) {
+            Thread.sleep(100);
+            assertNotNull(instance.get(1));
+        }
+        assertEquals(1, instance.size());
+        assertEquals(1, instance.values().size());
+        assertEquals(1, instance.getExpirations());
+    }
+
+    /**
+     * Test of put method, of class BoundedObjectCache.
+     */
+    @Test
+    public void testFrequencyAdmission() {
+        System.out.println("frequencyAdmission");
+        BoundedObjectCache.Factory<Integer, Item> factory = new BoundedObjectCache.Factory<Integer, Item>().setMaximumSize(100);
+        BoundedObjectCache<Integer, Item> leastRecentlyUsed = factory.createObjectCache();
+        BoundedObjectCache<Integer, Item> instance = factory.setFrequencyAdmission(true).createObjectCache();
+        assertTrue(scanAndCountHotItems(instance) >= 40);
+        assertTrue(scanAndCountHotItems(leastRecentlyUsed) < 20);
+        assertTrue(instance.size() <= 100);
+    }
+
+    private int scanAndCountHotItems(BoundedObjectCache<Integer, Item> cache) {
+        for(int i = 0; i < 50; i++) {
+            cache.put(item(i, "hot"));
+            cache.get(i);
+        }
+        //A scan over lots of objects that are only used once, with the hot objects used now and then, shouldn't push
+        //out the hot objects
+        for(int i = 1000; i < 5000; i++) {
+            cache.put(item(i, "cold"));
+            if(i % 10 == 0) {
+                int hot = (i / 10) % 50;
+                if(cache.get(hot) == null) {
+                    cache.put(item(hot, "hot"));
+                }
+            }
+        }
+        int hotLeft = 0;
+        for(int i = 0; i < 50; i++) {
+            if(cache.get(i) != null) {
+                hotLeft++;
+            }
+        }
+        return hotLeft;
+    }
+
+    /**
+     * Test of get method, of class BoundedObjectCache, called from several threads while others are writing
+     */
+    @Test
+    public void testConcurrentReadsAndWrites() throws InterruptedException {
+        System.out.println("concurrentReadsAndWrites");
+        final BoundedObjectCache<Integer, Item> instance = new BoundedObjectCache.Factory<Integer, Item>()
+                .setMaximumSize(100)
+                .setFrequencyAdmission(true)
+                .createObjectCache();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[8];
+        for(int i = 0; i < threads.length; i++) {
+            final boolean writer = i % 4 == 0;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for(int j = 0; j < 20000; j++) {
+                            int id = j % 300;
+                            if(writer) {
+                                instance.put(item(id, "value"));
+                            }
+                            else {
+                                Item found = instance.get(id);
+                                if(found != null && found.getId() != id) {
+                                    throw new AssertionError("Got object " + found.getId() + " for id " + id);
+                                }
+                            }
+                        }
+                    }
+                    catch(Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for(Thread thread: threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertTrue(instance.size() <= 100);
+        assertEquals(6 * 20000, instance.getHits() + instance.getMisses());
+        assertEquals(instance.size(), instance.values().size());
+    }
+
+    /**
+     * Test of createObjectCache method, of class PerTypeObjectCacheFactory.
+     */
+    @Test
+    public void testPerTypeObjectCacheFactory() {
+        System.out.println("perTypeObjectCacheFactory");
+        PerTypeObjectCacheFactory factory = new PerTypeObjectCacheFactory()
+                .setFactory(Item.class, new BoundedObjectCache.Factory<Integer, Item>().setMaximumSize(2));
+        DefaultObjectStorage storage = new DefaultObjectStorage(new DefaultFieldMappingFactory(), factory);
+        storage.register(Item.class);
+        storage.putAll(item(1, "a"), item(2, "b"), item(3, "c"));
+        assertEquals(2, storage.getSize(Item.class));
+        assertTrue(storage.getObjectCache(Item.class) instanceof BoundedObjectCache);
+        assertEquals(1, ((BoundedObjectCache<?, ?>)storage.getObjectCache(Item.class)).getEvictions());
+    }
+
+    private Item item(int id, String value) {
+        return objectFactory.newObject(Item.class, fieldMapping, id, value);
+    }
+}
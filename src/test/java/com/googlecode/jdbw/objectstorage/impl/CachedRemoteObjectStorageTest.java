@@ -19,8 +19,22 @@
 package com.googlecode.jdbw.objectstorage.impl;
 
 import com.googlecode.jdbw.objectstorage.ObjectStorage;
+import com.googlecode.jdbw.objectstorage.ObjectStorageException;
+import com.googlecode.jdbw.objectstorage.Storable;
 import com.googlecode.jdbw.objectstorage.TestBase;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.AfterClass;
@@ -216,6 +230,180 @@ public class CachedRemoteObjectStorageTest extends TestBase {
         assertNotNull(localStorage.get(Person.class, sakamoto.getId()));
     }
 
+    /**
+     * Test of getSome method, of class CachedRemoteObjectStorage.
+     */
+    @Test
+    public void testGetSomePartialHit() {
+        System.out.println("getSomePartialHit");
+        final Person elvis = createElvis();
+        final Person jaques = createJaques();
+        final Person sakamoto = createSakamoto();
+        remoteStorage.putAll(elvis, jaques, sakamoto);
+        localStorage.put(jaques);
+        
+        cachedRemoteStorage.setRemoteFetchSize(1);
+        assertEquals(Arrays.asList(sakamoto, jaques, elvis), cachedRemoteStorage.getSome(Person.class, 3, 2, 4, 1));
+        assertEquals(3, localStorage.getSize(Person.class));
+        
+        localStorage.remove(Person.class, 1, 3);
+        cachedRemoteStorage.setReadThrough(false);
+        assertEquals(Arrays.asList(jaques), cachedRemoteStorage.getSome(Person.class, 1, 2, 3));
+    }
+
+    /**
+     * Test of get method, of class CachedRemoteObjectStorage, with many threads missing the same key
+     */
+    @Test
+    public void testConcurrentMissesShareOneRemoteLoad() throws Exception {
+        System.out.println("concurrentMissesShareOneRemoteLoad");
+        final AtomicInteger remoteLoads = new AtomicInteger(0);
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        DefaultObjectStorage slowRemoteStorage = new DefaultObjectStorage() {
+            @Override
+            public <K, O extends Storable<K>> List<O> getSome(Class<O> type, Collection<K> keys) {
+                remoteLoads.incrementAndGet();
+                loading.countDown();
+                awaitQuietly(release);
+                return super.getSome(type, keys);
+            }
+        };
+        final CachedRemoteObjectStorage instance = new CachedRemoteObjectStorage(slowRemoteStorage, new DefaultObjectStorage());
+        instance.register(Person.class);
+        final Person elvis = createElvis();
+        slowRemoteStorage.put(elvis);
+        
+        List<Thread> threads = new ArrayList<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(8, collectingThreadFactory(threads));
+        try {
+            Callable<Person> get = new Callable<Person>() {
+                @Override
+                public Person call() {
+                    return instance.get(Person.class, elvis.getId());
+                }
+            };
+            List<Future<Person>> results = new ArrayList<>();
+            results.add(executorService.submit(get));
+            loading.await();
+            for(int i = 0; i < 7; i++) {
+                results.add(executorService.submit(get));
+            }
+            awaitThreadsJoiningLoad(threads, 7);
+            release.countDown();
+            for(Future<Person> result: results) {
+                assertEquals(elvis, result.get());
+            }
+        }
+        finally {
+            executorService.shutdown();
+        }
+        assertEquals(1, remoteLoads.get());
+        assertEquals(elvis, instance.localGet(Person.class, elvis.getId()));
+    }
+
+    /**
+     * Test of get method, of class CachedRemoteObjectStorage, with the shared remote load failing with an Error
+     */
+    @Test
+    public void testFailedRemoteLoadReleasesJoinedThreads() throws Exception {
+        System.out.println("failedRemoteLoadReleasesJoinedThreads");
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        DefaultObjectStorage failingRemoteStorage = new DefaultObjectStorage() {
+            @Override
+            public <K, O extends Storable<K>> List<O> getSome(Class<O> type, Collection<K> keys) {
+                loading.countDown();
+                awaitQuietly(release);
+                throw new AssertionError("Remote storage failure");
+            }
+        };
+        final CachedRemoteObjectStorage instance = new CachedRemoteObjectStorage(failingRemoteStorage, new DefaultObjectStorage());
+        instance.register(Person.class);
+        
+        List<Thread> threads = new ArrayList<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(2, collectingThreadFactory(threads));
+        try {
+            Callable<Person> get = new Callable<Person>() {
+                @Override
+                public Person call() {
+                    return instance.get(Person.class, 1);
+                }
+            };
+            Future<Person> loader = executorService.submit(get);
+            loading.await();
+            Future<Person> joiner = executorService.submit(get);
+            awaitThreadsJoiningLoad(threads, 1);
+            release.countDown();
+            try {
+                loader.get();
+                fail("Expected the remote load to fail");
+            }
+            catch(ExecutionException e) {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+            try {
+                joiner.get(10, TimeUnit.SECONDS);
+                fail("Expected the joined load to fail");
+            }
+            catch(ExecutionException e) {
+                assertTrue(e.getCause() instanceof ObjectStorageException);
+                assertTrue(e.getCause().getCause() instanceof AssertionError);
+            }
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory collectingThreadFactory(final List<Thread> threads) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable);
+                synchronized(threads) {
+                    threads.add(thread);
+                }
+                return thread;
+            }
+        };
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //Waits until the given number of threads are parked waiting for a load started by another thread
+    private static void awaitThreadsJoiningLoad(List<Thread> threads, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while(true) {
+            int joined = 0;
+            synchronized(threads) {
+                for(Thread thread: threads) {
+                    for(StackTraceElement element: thread.getStackTrace()) {
+                        if(element.getClassName().endsWith("CachedRemoteObjectStorage$Load")
+                                && element.getMethodName().equals("await")) {
+                            joined++;
+                            break;
+                        }
+                    }
+                }
+            }
+            if(joined >= count) {
+                return;
+            }
+            if(System.currentTimeMillis() > deadline) {
+                fail("Only " + joined + " of " + count + " threads joined the remote load");
+            }
+            Thread.yield();
+        }
+    }
+
     /**
      * Test of remoteGetAll method, of class CachedRemoteObjectStorage.
      */
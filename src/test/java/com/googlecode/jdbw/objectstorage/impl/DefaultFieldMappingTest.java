@@ -23,6 +23,7 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -143,4 +144,48 @@ public class DefaultFieldMappingTest extends TestBase {
         Set<Class<?>> result = new HashSet<>(instance.getFieldTypes());
         assertEquals(expResult, result);
     }
+
+    /**
+     * Test of getMethodIndexes method, of class DefaultFieldMapping.
+     */
+    @Test
+    public void testGetMethodIndexes() throws NoSuchMethodException {
+        System.out.println("getMethodIndexes");
+        DefaultFieldMapping instance = new DefaultFieldMapping(Person.class);
+        Map<Method, Integer> result = instance.getMethodIndexes();
+        assertEquals(3, result.size());
+        assertEquals(Integer.valueOf(0), result.get(Person.class.getMethod("getAge")));
+        assertEquals(Integer.valueOf(1), result.get(Person.class.getMethod("getBirthday")));
+        assertEquals(Integer.valueOf(2), result.get(Person.class.getMethod("getName")));
+        assertNull(result.get(Person.class.getMethod("getId")));
+        assertEquals(1, instance.getFieldIndex(Person.Builder.class.getMethod("setBirthday", Date.class)));
+        assertSame(instance.getFieldNames(), instance.getFieldNames());
+        try {
+            instance.getFieldNames().add("extra");
+            fail("getFieldNames() should return an immutable list");
+        }
+        catch(UnsupportedOperationException e) {
+        }
+    }
+
+    /**
+     * Test of getFieldName method overridden in a subclass of DefaultFieldMapping.
+     */
+    @Test
+    public void testOverriddenFieldName() throws NoSuchMethodException {
+        System.out.println("overriddenFieldName");
+        DefaultFieldMapping instance = new DefaultFieldMapping(Person.class) {
+            @Override
+            public String getFieldName(String methodName) {
+                String fieldName = super.getFieldName(methodName);
+                return fieldName == null ? null : fieldName.toUpperCase();
+            }
+        };
+        assertEquals(Arrays.asList("AGE", "BIRTHDAY", "NAME"), instance.getFieldNames());
+        assertEquals(2, instance.getFieldIndex(Person.class.getMethod("getName")));
+        assertEquals(1, instance.getFieldIndex(Person.Builder.class.getMethod("setBirthday", Date.class)));
+        assertEquals(3, instance.getMethodIndexes().size());
+        assertEquals(new DefaultFieldMapping(Person.class).getMethodIndexes(),
+                DefaultFieldMapping.getMethodIndexes(new DelegatingTableMapping(new DefaultTableMapping(Person.class))));
+    }
 }
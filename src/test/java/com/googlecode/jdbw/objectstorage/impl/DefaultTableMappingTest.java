@@ -0,0 +1,100 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.TestBase;
+import com.googlecode.jdbw.server.DefaultSQLDialect;
+import com.googlecode.jdbw.server.h2.H2SQLDialect;
+import com.googlecode.jdbw.server.postgresql.PostgreSQLDialect;
+import com.googlecode.jdbw.server.sybase.SybaseASESQLDialect;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class DefaultTableMappingTest extends TestBase {
+    
+    public DefaultTableMappingTest() {
+    }
+
+    /**
+     * Test of getSelectSome method, of class DefaultTableMapping.
+     */
+    @Test
+    public void testGetSelectSomeIsCachedPerDialect() {
+        System.out.println("getSelectSome");
+        DefaultTableMapping instance = new DefaultTableMapping(Person.class);
+        String sql = instance.getSelectSome(new H2SQLDialect(), 8);
+        assertTrue(sql.contains("\"Person\""));
+        assertSame(sql, instance.getSelectSome(new H2SQLDialect(), 8));
+        assertNotSame(sql, instance.getSelectSome(new H2SQLDialect(), 32));
+        assertEquals(sql, new DefaultTableMapping(Person.class).getSelectSome(new H2SQLDialect(), 8));
+        
+        String otherDialectSql = instance.getSelectSome(new DefaultSQLDialect(), 8);
+        assertFalse(sql.equals(otherDialectSql));
+        assertSame(otherDialectSql, instance.getSelectSome(new DefaultSQLDialect(), 8));
+    }
+
+    /**
+     * Test of getDelete method, of class DefaultTableMapping.
+     */
+    @Test
+    public void testGetDeleteLargeInList() {
+        System.out.println("getDelete");
+        DefaultTableMapping instance = new DefaultTableMapping(Person.class);
+        int size = DefaultTableMapping.MAX_CACHED_IN_LIST_SIZE + 1;
+        String sql = instance.getDelete(new H2SQLDialect(), size);
+        assertEquals(size, sql.length() - sql.replace("?", "").length());
+        assertEquals(sql, instance.getDelete(new H2SQLDialect(), size));
+    }
+
+    /**
+     * Test of getSelectKeys method, of class DefaultTableMapping.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetSelectKeysWithNoKeys() {
+        System.out.println("getSelectKeys");
+        new DefaultTableMapping(Person.class).getSelectKeys(new H2SQLDialect(), 0);
+    }
+
+    /**
+     * Test of getUpsert method, of class DefaultTableMapping.
+     */
+    @Test
+    public void testGetUpsert() {
+        System.out.println("getUpsert");
+        DefaultTableMapping instance = new DefaultTableMapping(Person.class);
+        assertNull(instance.getUpsert(new DefaultSQLDialect(), 1));
+        
+        String sql = instance.getUpsert(new H2SQLDialect(), 2);
+        assertTrue(sql.startsWith("MERGE INTO \"Person\" (\"id\", "));
+        assertTrue(sql.endsWith(" KEY (\"id\") VALUES (?, ?, ?, ?), (?, ?, ?, ?)"));
+        
+        sql = instance.getUpsert(new PostgreSQLDialect(), 1);
+        assertTrue(sql.startsWith("INSERT INTO Person (id, "));
+        assertTrue(sql.contains(" VALUES (?, ?, ?, ?) ON CONFLICT (id) DO UPDATE SET "));
+        assertTrue(sql.contains("name = EXCLUDED.name"));
+        
+        assertNotNull(instance.getUpsert(new SybaseASESQLDialect(), 1));
+        assertNull(instance.getUpsert(new SybaseASESQLDialect(), 2));
+    }
+}
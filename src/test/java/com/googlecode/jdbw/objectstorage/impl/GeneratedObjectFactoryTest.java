@@ -0,0 +1,236 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.objectstorage.impl;
+
+import com.googlecode.jdbw.objectstorage.FieldMapping;
+import com.googlecode.jdbw.objectstorage.ObjectStorageException;
+import com.googlecode.jdbw.objectstorage.SelfDescribingStorable;
+import com.googlecode.jdbw.objectstorage.Storable;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class GeneratedObjectFactoryTest {
+
+    public static interface Product extends Storable<Integer> {
+        @Override
+        Integer getId();
+        String getName();
+        double getPrice();
+        boolean isDiscontinued();
+        Date getReleased();
+        Product setName(String name);
+    }
+
+    private static interface Hidden extends Storable<Integer> {
+        String getName();
+    }
+
+    public static interface Primitives extends Storable<Long> {
+        byte getByteValue();
+        char getCharValue();
+        double getDoubleValue();
+        float getFloatValue();
+        int getIntValue();
+        long getLongValue();
+        short getShortValue();
+        boolean isFlag();
+    }
+
+    public static interface Boxed extends Storable<String> {
+        Boolean getActive();
+        Character getGrade();
+        Integer getCount();
+        Long getTotal();
+    }
+
+    public static interface Attachment extends Storable<Integer> {
+        byte[] getData();
+        int[][] getMatrix();
+        String[] getTags();
+    }
+
+    public static interface Named extends Storable<Integer> {
+        String getName();
+    }
+
+    public static interface Employee extends Named {
+        int getSalary();
+    }
+
+    private static final Date RELEASED = new Date(1300000000000L);
+
+    public GeneratedObjectFactoryTest() {
+    }
+
+    /**
+     * Test of newObject method, of class GeneratedObjectFactory.
+     */
+    @Test
+    public void testNewObject() {
+        System.out.println("newObject");
+        GeneratedObjectFactory instance = new GeneratedObjectFactory();
+        FieldMapping fieldMapping = new DefaultFieldMapping(Product.class);
+        assertEquals(Arrays.asList("discontinued", "name", "price", "released"), fieldMapping.getFieldNames());
+        Product product = instance.newObject(Product.class, fieldMapping, 1, true, "Walkman", 19.95, RELEASED);
+        assertFalse(product instanceof Proxy);
+        assertTrue(product instanceof GeneratedStorable);
+        assertEquals(Integer.valueOf(1), product.getId());
+        assertEquals("Walkman", product.getName());
+        assertEquals(19.95, product.getPrice(), 0.0);
+        assertTrue(product.isDiscontinued());
+        assertEquals(RELEASED, product.getReleased());
+        assertEquals(Product.class, ((SelfDescribingStorable)product).storableType());
+        assertArrayEquals(new Object[] { true, "Walkman", 19.95, RELEASED }, ((GeneratedStorable)product).getFieldValues());
+    }
+
+    /**
+     * Test of newObject method, of class GeneratedObjectFactory.
+     */
+    @Test
+    public void testNewObjectBehavesLikeProxy() {
+        System.out.println("newObjectBehavesLikeProxy");
+        FieldMapping fieldMapping = new DefaultFieldMapping(Product.class);
+        Object[] idAndValues = new Object[] { 2, false, "Discman", 99.0, RELEASED };
+        Product generated = new GeneratedObjectFactory().newObject(Product.class, fieldMapping, idAndValues);
+        Product proxy = new ImmutableObjectFactory().newObject(Product.class, fieldMapping, idAndValues);
+        assertEquals(proxy.toString(), generated.toString());
+        assertEquals(proxy.hashCode(), generated.hashCode());
+        assertTrue(generated.equals(proxy));
+        assertTrue(proxy.equals(generated));
+        assertFalse(generated.equals(new GeneratedObjectFactory().newObject(Product.class, fieldMapping, 3, false, "Discman", 99.0, RELEASED)));
+        try {
+            generated.setName("Minidisc");
+            fail("Expected ObjectStorageException when calling a setter");
+        }
+        catch(ObjectStorageException e) {
+            assertEquals("Error trying to modify immutable object", e.getMessage());
+        }
+    }
+
+    /**
+     * Test of newObject method with primitive getters, of class GeneratedObjectFactory.
+     */
+    @Test
+    public void testNewObjectWithPrimitives() {
+        System.out.println("newObjectWithPrimitives");
+        GeneratedObjectFactory instance = new GeneratedObjectFactory();
+        FieldMapping fieldMapping = new DefaultFieldMapping(Primitives.class);
+        assertTrue(instance.prepare(Primitives.class, fieldMapping));
+        assertEquals(Arrays.asList("byteValue", "charValue", "doubleValue", "flag", "floatValue", "intValue", "longValue", "shortValue"),
+                fieldMapping.getFieldNames());
+        Primitives primitives = instance.newObject(Primitives.class, fieldMapping,
+                7L, (byte)-3, 'x', 2.5, true, 1.25f, Integer.MAX_VALUE, Long.MIN_VALUE, (short)300);
+        assertTrue(primitives instanceof GeneratedStorable);
+        assertEquals(Long.valueOf(7), primitives.getId());
+        assertEquals((byte)-3, primitives.getByteValue());
+        assertEquals('x', primitives.getCharValue());
+        assertEquals(2.5, primitives.getDoubleValue(), 0.0);
+        assertTrue(primitives.isFlag());
+        assertEquals(1.25f, primitives.getFloatValue(), 0.0f);
+        assertEquals(Integer.MAX_VALUE, primitives.getIntValue());
+        assertEquals(Long.MIN_VALUE, primitives.getLongValue());
+        assertEquals((short)300, primitives.getShortValue());
+    }
+
+    /**
+     * Test of newObject method with boxed getters, of class GeneratedObjectFactory.
+     */
+    @Test
+    public void testNewObjectWithBoxedValues() {
+        System.out.println("newObjectWithBoxedValues");
+        GeneratedObjectFactory instance = new GeneratedObjectFactory();
+        FieldMapping fieldMapping = new DefaultFieldMapping(Boxed.class);
+        assertTrue(instance.prepare(Boxed.class, fieldMapping));
+        assertEquals(Arrays.asList("active", "count", "grade", "total"), fieldMapping.getFieldNames());
+        Boxed boxed = instance.newObject(Boxed.class, fieldMapping, "first", Boolean.FALSE, 12, 'B', 100L);
+        assertTrue(boxed instanceof GeneratedStorable);
+        assertEquals("first", boxed.getId());
+        assertEquals(Boolean.FALSE, boxed.getActive());
+        assertEquals(Integer.valueOf(12), boxed.getCount());
+        assertEquals(Character.valueOf('B'), boxed.getGrade());
+        assertEquals(Long.valueOf(100), boxed.getTotal());
+
+        Boxed empty = instance.newObject(Boxed.class, fieldMapping, "second", null, null, null, null);
+        assertNull(empty.getActive());
+        assertNull(empty.getCount());
+        assertNull(empty.getGrade());
+        assertNull(empty.getTotal());
+    }
+
+    /**
+     * Test of newObject method with array getters, of class GeneratedObjectFactory.
+     */
+    @Test
+    public void testNewObjectWithArrays() {
+        System.out.println("newObjectWithArrays");
+        GeneratedObjectFactory instance = new GeneratedObjectFactory();
+        FieldMapping fieldMapping = new DefaultFieldMapping(Attachment.class);
+        assertTrue(instance.prepare(Attachment.class, fieldMapping));
+        byte[] data = new byte[] { 1, 2, 3 };
+        int[][] matrix = new int[][] { { 1, 0 }, { 0, 1 } };
+        String[] tags = new String[] { "a", "b" };
+        Attachment attachment = instance.newObject(Attachment.class, fieldMapping, 1, data, matrix, tags);
+        assertTrue(attachment instanceof GeneratedStorable);
+        assertSame(data, attachment.getData());
+        assertSame(matrix, attachment.getMatrix());
+        assertSame(tags, attachment.getTags());
+        assertNull(instance.newObject(Attachment.class, fieldMapping, 2, null, null, null).getData());
+    }
+
+    /**
+     * Test of newObject method with a getter declared in a super interface, of class GeneratedObjectFactory.
+     */
+    @Test
+    public void testNewObjectWithInheritedGetter() {
+        System.out.println("newObjectWithInheritedGetter");
+        GeneratedObjectFactory instance = new GeneratedObjectFactory();
+        FieldMapping fieldMapping = new DefaultFieldMapping(Employee.class);
+        assertTrue(instance.prepare(Employee.class, fieldMapping));
+        assertEquals(Arrays.asList("name", "salary"), fieldMapping.getFieldNames());
+        Employee employee = instance.newObject(Employee.class, fieldMapping, 5, "Anna", 4200);
+        assertTrue(employee instanceof GeneratedStorable);
+        assertEquals(Integer.valueOf(5), employee.getId());
+        assertEquals("Anna", employee.getName());
+        assertEquals("Anna", ((Named)employee).getName());
+        assertEquals(4200, employee.getSalary());
+        assertEquals(Employee.class, ((SelfDescribingStorable)employee).storableType());
+    }
+
+    /**
+     * Test of prepare method, of class GeneratedObjectFactory.
+     */
+    @Test
+    public void testPrepare() {
+        System.out.println("prepare");
+        GeneratedObjectFactory instance = new GeneratedObjectFactory();
+        assertTrue(instance.prepare(Product.class, new DefaultFieldMapping(Product.class)));
+        assertFalse(instance.prepare(Hidden.class, new DefaultFieldMapping(Hidden.class)));
+
+        Hidden hidden = instance.newObject(Hidden.class, new DefaultFieldMapping(Hidden.class), 1, "Secret");
+        assertTrue(hidden instanceof Proxy);
+        assertEquals("Secret", hidden.getName());
+    }
+}
@@ -20,17 +20,26 @@ package com.googlecode.jdbw.objectstorage.impl;
 
 import com.googlecode.jdbw.objectstorage.H2DatabaseTestBase;
 import com.googlecode.jdbw.objectstorage.ObjectBuilderFactory;
+import com.googlecode.jdbw.objectstorage.ObjectConsumer;
+import com.googlecode.jdbw.objectstorage.SelfDescribingStorable;
+import com.googlecode.jdbw.SQLDialect;
 import com.googlecode.jdbw.objectstorage.Storable;
+import com.googlecode.jdbw.objectstorage.TableMapping;
 import com.googlecode.jdbw.util.SQLWorker;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.joda.time.DateMidnight;
 import org.joda.time.LocalDate;
 import org.junit.After;
@@ -142,6 +151,27 @@ public class JDBCObjectStorageTest extends H2DatabaseTestBase {
         assertEquals(0, expectedKeys.size());
     }
 
+    /**
+     * Test of getSome method, of class JDBCObjectStorage, with a duplicated id that ends up in two IN lists
+     */
+    @Test
+    public void testGetSomeWithDuplicateIds() {
+        System.out.println("getSomeWithDuplicateIds");
+        JDBCObjectStorage instance = getObjectStorage();
+        instance.putAll(createPersons(600));
+        List<Integer> ids = new ArrayList<>();
+        for(int i = 1; i <= 600; i++) {
+            ids.add(i);
+        }
+        ids.add(1);
+        List<Person> result = instance.getSome(Person.class, ids);
+        assertEquals(600, result.size());
+        Set<Integer> resultKeys = new HashSet<>();
+        for(Person person: result) {
+            assertTrue(resultKeys.add(person.getId()));
+        }
+    }
+
     /**
      * Test of getAll method, of class JDBCObjectStorage.
      */
@@ -162,6 +192,66 @@ public class JDBCObjectStorageTest extends H2DatabaseTestBase {
         assertEquals(0, expectedKeys.size());
     }
 
+    /**
+     * Test of getAll method, of class JDBCObjectStorage, reading the table in parallel id ranges
+     */
+    @Test
+    public void testGetAllParallel() {
+        System.out.println("getAllParallel");
+        JDBCObjectStorage instance = getObjectStorage();
+        instance.putAll(createPersons(100));
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            instance.setParallelScan(7, executorService);
+            List<Person> result = instance.getAll(Person.class);
+            Collections.sort(result, new PersonIdComparator());
+            assertEquals(100, result.size());
+            for(int i = 0; i < result.size(); i++) {
+                assertEquals(i + 1, (int)result.get(i).getId());
+            }
+            
+            final AtomicInteger ageSum = new AtomicInteger();
+            instance.getAll(Person.class, new ObjectConsumer<Person>() {
+                @Override
+                public void accept(Person person) {
+                    ageSum.addAndGet(person.getAge());
+                }
+            });
+            assertEquals(5050, ageSum.get());
+        }
+        finally {
+            instance.setParallelScan(1, null);
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Test of getAll method, of class JDBCObjectStorage, with parallel scanning on but a table mapping that can't
+     * select id ranges
+     */
+    @Test
+    public void testGetAllParallelFallsBackToOneQuery() {
+        System.out.println("getAllParallelFallsBackToOneQuery");
+        JDBCObjectStorage instance = new JDBCObjectStorage(getDatabaseConnection(), new DelegatingTableMappingFactory(new DefaultTableMappingFactory()) {
+            @Override
+            public TableMapping createTableMapping(Class<? extends Storable<?>> objectType) {
+                return new DelegatingTableMapping(super.createTableMapping(objectType)) {
+                    @Override
+                    public String getSelectAllInRange(SQLDialect dialect) {
+                        return null;
+                    }
+                };
+            }
+        });
+        instance.register(Person.class);
+        instance.putAll(createPersons(100));
+        //Any attempt to read in parallel would be rejected by the executor service
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.shutdown();
+        instance.setParallelScan(4, executorService);
+        assertEquals(100, instance.getAll(Person.class).size());
+    }
+
     /**
      * Test of getSize method, of class JDBCObjectStorage.
      */
@@ -248,6 +338,145 @@ public class JDBCObjectStorageTest extends H2DatabaseTestBase {
         assertEquals(5, getWorker().topLeftValueAsInt("SELECT COUNT(*) FROM \"Person\"").intValue());
     }
 
+    /**
+     * Test of putAll method, of class JDBCObjectStorage, with objects not created by jdbw
+     */
+    @Test
+    public void testPutAllCustomImplementation() throws SQLException {
+        System.out.println("putAllCustomImplementation");
+        JDBCObjectStorage instance = getObjectStorage();
+        Date birthday = new DateMidnight("1890-03-12").toDate();
+        instance.putAll(new CustomPerson(4, "Evert Taube", 85, birthday), new CustomPerson(2, "Jacques Brel", 50, JAQUES_BIRTHDAY));
+
+        assertEquals(4, getWorker().topLeftValueAsInt("SELECT COUNT(*) FROM \"Person\"").intValue());
+        assertArrayEquals(
+                new Object[] { 4, 85, birthday, "Evert Taube" },
+                getWorker().top("SELECT \"id\", \"age\", \"birthday\", \"name\" FROM \"Person\" WHERE \"id\" = 4"));
+        assertEquals(50, instance.get(Person.class, 2).getAge());
+    }
+
+    /**
+     * Test of putAll method, of class JDBCObjectStorage, writing more objects than fit in one upsert statement
+     */
+    @Test
+    public void testPutAllUpsert() throws SQLException {
+        System.out.println("putAllUpsert");
+        JDBCObjectStorage instance = getObjectStorage();
+        assertFalse(instance.isUpsert());
+        instance.setUpsert(true);
+        List<Person> persons = createPersons(70);
+        //The last object with the same id should be the one stored
+        persons.add(new CustomPerson(5, "Person 5", 55, JAQUES_BIRTHDAY));
+        instance.putAll(persons);
+        assertPersonsWritten(70);
+        assertEquals(55, getWorker().topLeftValueAsInt("SELECT \"age\" FROM \"Person\" WHERE \"id\" = 5").intValue());
+    }
+
+    /**
+     * Test of putAll method, of class JDBCObjectStorage, with a table mapping that doesn't support upserts
+     */
+    @Test
+    public void testPutAllWithoutUpsert() throws SQLException {
+        System.out.println("putAllWithoutUpsert");
+        JDBCObjectStorage instance = new JDBCObjectStorage(getDatabaseConnection(), new DelegatingTableMappingFactory(new DefaultTableMappingFactory()) {
+            @Override
+            public TableMapping createTableMapping(Class<? extends Storable<?>> objectType) {
+                return new DelegatingTableMapping(super.createTableMapping(objectType)) {
+                    @Override
+                    public String getUpsert(SQLDialect dialect, int numberOfObjects) {
+                        return null;
+                    }
+                };
+            }
+        });
+        instance.setUpsert(true);
+        instance.register(Person.class);
+        instance.putAll(createPersons(70));
+        assertPersonsWritten(70);
+    }
+
+    /**
+     * Test of putAll method, of class JDBCObjectStorage, with upserts left turned off
+     */
+    @Test
+    public void testPutAllSelectsExistingKeysByDefault() throws SQLException {
+        System.out.println("putAllSelectsExistingKeysByDefault");
+        JDBCObjectStorage instance = new JDBCObjectStorage(getDatabaseConnection(), new DelegatingTableMappingFactory(new DefaultTableMappingFactory()) {
+            @Override
+            public TableMapping createTableMapping(Class<? extends Storable<?>> objectType) {
+                return new DelegatingTableMapping(super.createTableMapping(objectType)) {
+                    @Override
+                    public String getUpsert(SQLDialect dialect, int numberOfObjects) {
+                        return "an upsert statement this server doesn't understand";
+                    }
+                };
+            }
+        });
+        instance.register(Person.class);
+        instance.putAll(createPersons(70));
+        assertPersonsWritten(70);
+    }
+
+    private List<Person> createPersons(int count) {
+        List<Person> persons = new ArrayList<>();
+        for(int i = 1; i <= count; i++) {
+            persons.add(new CustomPerson(i, "Person " + i, i, JAQUES_BIRTHDAY));
+        }
+        return persons;
+    }
+
+    private void assertPersonsWritten(int count) throws SQLException {
+        assertEquals(count, getWorker().topLeftValueAsInt("SELECT COUNT(*) FROM \"Person\"").intValue());
+        assertEquals("Person 2", getWorker().topLeftValue("SELECT \"name\" FROM \"Person\" WHERE \"id\" = 2"));
+        assertEquals(count, getWorker().topLeftValueAsInt("SELECT \"age\" FROM \"Person\" WHERE \"id\" = " + count).intValue());
+    }
+
+    /**
+     * Test of getSome and remove methods, of class JDBCObjectStorage, with more keys than fit in one IN list
+     */
+    @Test
+    public void testManyKeys() throws SQLException {
+        System.out.println("manyKeys");
+        JDBCObjectStorage instance = getObjectStorage();
+        List<Integer> keys = new ArrayList<>();
+        for(int i = 1000; i > 0; i--) {
+            keys.add(i);
+        }
+        List<Person> result = instance.getSome(Person.class, keys);
+        Collections.sort(result, new PersonIdComparator());
+        assertEquals(3, result.size());
+        assertEquals(1, (int)result.get(0).getId());
+        assertEquals(3, (int)result.get(2).getId());
+        
+        keys.remove(Integer.valueOf(2));
+        instance.remove(Person.class, keys);
+        assertEquals(1, getWorker().topLeftValueAsInt("SELECT COUNT(*) FROM \"Person\"").intValue());
+    }
+
+    /**
+     * Test of splitIntoInLists method, of class JDBCObjectStorage.
+     */
+    @Test
+    public void testSplitIntoInLists() {
+        System.out.println("splitIntoInLists");
+        assertTrue(JDBCObjectStorage.splitIntoInLists(new Object[0]).isEmpty());
+        List<Object[]> result = JDBCObjectStorage.splitIntoInLists(new Object[] { 1 });
+        assertEquals(1, result.size());
+        assertArrayEquals(new Object[] { 1 }, result.get(0));
+        result = JDBCObjectStorage.splitIntoInLists(new Object[] { 1, 2, 3 });
+        assertArrayEquals(new Object[] { 1, 2, 3, 3, 3, 3, 3, 3 }, result.get(0));
+        Object[] keys = new Object[600];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        result = JDBCObjectStorage.splitIntoInLists(keys);
+        assertEquals(2, result.size());
+        assertEquals(512, result.get(0).length);
+        assertEquals(128, result.get(1).length);
+        assertEquals(512, result.get(1)[0]);
+        assertEquals(599, result.get(1)[127]);
+    }
+
     /**
      * Test of remove method, of class JDBCObjectStorage.
      */
@@ -284,6 +513,46 @@ public class JDBCObjectStorageTest extends H2DatabaseTestBase {
         assertEquals(0, getWorker().topLeftValueAsInt("SELECT COUNT(*) FROM \"Person\"").intValue());
     }
     
+    private static class CustomPerson implements Person, SelfDescribingStorable {
+        private final Integer id;
+        private final String name;
+        private final int age;
+        private final Date birthday;
+
+        CustomPerson(Integer id, String name, int age, Date birthday) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+            this.birthday = birthday;
+        }
+
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getAge() {
+            return age;
+        }
+
+        @Override
+        public Date getBirthday() {
+            return birthday;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <O extends Storable<?>> Class<O> storableType() {
+            return (Class<O>)(Class)Person.class;
+        }
+    }
+
     private static class PersonIdComparator implements Comparator<Person> {
         @Override
         public int compare(Person o1, Person o2) {
@@ -0,0 +1,181 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.server;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class DefaultSQLDialectTest {
+
+    private final DefaultSQLDialect dialect = new DefaultSQLDialect();
+
+    public DefaultSQLDialectTest() {
+    }
+
+    /**
+     * Test of formatValue method, of class DefaultSQLDialect.
+     */
+    @Test
+    public void testFormatValue() {
+        System.out.println("formatValue");
+        assertEquals("null", dialect.formatValue(null, Types.VARCHAR));
+        assertEquals("'it''s'", new DefaultSQLDialect() {
+            @Override
+            public String escapeString(String string) {
+                return doubleSingleQuotes(string);
+            }
+        }.formatValue("it's", Types.VARCHAR));
+        assertEquals("42", dialect.formatValue(42, Types.INTEGER));
+        assertEquals("1", dialect.formatValue(true, Types.BIGINT));
+        assertEquals("12", dialect.formatValue(new BigDecimal("12.7"), Types.INTEGER));
+        assertEquals("false", dialect.formatValue(0, Types.BOOLEAN));
+        assertEquals("1.5", dialect.formatValue(1.5d, Types.DOUBLE));
+        assertEquals("0.25", dialect.formatValue(0.25f, Types.REAL));
+        assertEquals("1.23", dialect.formatValue(new BigDecimal("1.2300"), Types.DECIMAL));
+        assertEquals("'2012-03-04 05:06:07.089'",
+                dialect.formatValue(new BigDecimal("20120304050607.089"), Types.TIMESTAMP));
+
+        Date date = new Date(1330837567089L);
+        assertEquals("'" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(date) + "'",
+                dialect.formatValue(date, Types.TIMESTAMP));
+        assertEquals("'" + new SimpleDateFormat("yyyy-MM-dd").format(date) + "'",
+                dialect.formatValue(date, Types.DATE));
+        assertEquals("'" + new SimpleDateFormat("HH:mm:ss.SSS").format(date) + "'",
+                dialect.formatValue(date, Types.TIME));
+    }
+
+    /**
+     * Test of appendValue method, of class DefaultSQLDialect.
+     */
+    @Test
+    public void testAppendValue() {
+        System.out.println("appendValue");
+        StringBuilder sb = new StringBuilder("SELECT ");
+        dialect.appendValue(sb, 1, Types.INTEGER);
+        sb.append(", ");
+        dialect.appendValue(sb, "text", Types.VARCHAR);
+        sb.append(", ");
+        dialect.appendValue(sb, null, Types.DATE);
+        assertEquals("SELECT 1, 'text', null", sb.toString());
+    }
+
+    /**
+     * Test of formatValue method, of class DefaultSQLDialect, for a subclass overriding the append methods.
+     */
+    @Test
+    public void testOverriddenAppendMethods() {
+        System.out.println("overriddenAppendMethods");
+        DefaultSQLDialect instance = new DefaultSQLDialect() {
+            @Override
+            protected void appendDateTime(StringBuilder sb, Date date) {
+                sb.append("ts").append(date.getTime());
+            }
+
+            @Override
+            protected void appendBinary(StringBuilder sb, Object value) {
+                sb.append("0x").append(((byte[])value).length);
+            }
+
+            @Override
+            protected void appendDecimal(StringBuilder sb, Object value) {
+                sb.append("dec:");
+                super.appendDecimal(sb, value);
+            }
+        };
+        assertEquals("ts1000", instance.formatDateTime(new Date(1000)));
+        assertEquals("'ts1000'", instance.formatValue(new Date(1000), Types.TIMESTAMP));
+        assertEquals("0x3", instance.formatValue(new byte[3], Types.VARBINARY));
+        assertEquals("dec:1.5", instance.formatDecimal(new BigDecimal("1.50")));
+        assertEquals("dec:1.5", instance.formatValue(new BigDecimal("1.50"), Types.DECIMAL));
+        StringBuilder sb = new StringBuilder();
+        instance.appendValue(sb, new byte[2], Types.BLOB);
+        assertEquals("0x2", sb.toString());
+    }
+
+    /**
+     * Test of formatDateTime method, of class DefaultSQLDialect.
+     */
+    @Test
+    public void testFormatDateTimeMatchesSimpleDateFormat() {
+        System.out.println("formatDateTimeMatchesSimpleDateFormat");
+        SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+        Random random = new Random(4711);
+        for(int i = 0; i < 10000; i++) {
+            Date date = new Date(random.nextLong() % 100000000000000L);
+            assertEquals(timestampFormat.format(date), dialect.formatDateTime(date));
+            assertEquals(dateFormat.format(date), dialect.formatDate(date));
+            assertEquals(timeFormat.format(date), dialect.formatTime(date));
+        }
+    }
+
+    /**
+     * Test of formatValue method, of class DefaultSQLDialect, called from several threads at once.
+     */
+    @Test
+    public void testConcurrentFormatValue() throws Exception {
+        System.out.println("concurrentFormatValue");
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for(int i = 0; i < 8; i++) {
+                final long seed = i;
+                futures.add(executorService.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+                        Random random = new Random(seed);
+                        int mismatches = 0;
+                        for(int j = 0; j < 20000; j++) {
+                            Date date = new Date(Math.abs(random.nextLong() % 4000000000000L));
+                            String expected = "'" + timestampFormat.format(date) + "'";
+                            if(!expected.equals(dialect.formatValue(date, Types.TIMESTAMP))) {
+                                mismatches++;
+                            }
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+            for(Future<Integer> future: futures) {
+                assertEquals(0, (int)future.get());
+            }
+        }
+        finally {
+            executorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+
+/**
+ * {@code DataSource} for testing meta data resolvers without a database server. Queries are answered with canned
+ * result sets, picked by the first registered SQL fragment the query contains, and calls to {@code DatabaseMetaData}
+ * are answered by method name. All queries are recorded together with their parameters.
+ * @author Martin Berglund
+ */
+public class StubDataSource {
+
+    private final int databaseMajorVersion;
+    private final Map<String, Result> queryResults;
+    private final Map<String, Result> metaDataResults;
+    private final List<String> queries;
+    private final List<List<Object>> queryParameters;
+
+    public StubDataSource(int databaseMajorVersion) {
+        this.databaseMajorVersion = databaseMajorVersion;
+        this.queryResults = new LinkedHashMap<>();
+        this.metaDataResults = new LinkedHashMap<>();
+        this.queries = new ArrayList<>();
+        this.queryParameters = new ArrayList<>();
+    }
+
+    /**
+     * Answers all queries containing {@code sqlFragment} with a result set
+     * @param sqlFragment Part of the SQL to look for
+     * @param columnLabels Labels of the columns in the result set
+     * @param rows Rows of the result set
+     * @return Itself
+     */
+    public StubDataSource addQueryResult(String sqlFragment, String[] columnLabels, Object[]... rows) {
+        queryResults.put(sqlFragment, new Result(columnLabels, rows));
+        return this;
+    }
+
+    /**
+     * Answers all calls to a {@code DatabaseMetaData} method with a result set
+     * @param methodName Name of the method, for example {@code getColumns}
+     * @param columnLabels Labels of the columns in the result set
+     * @param rows Rows of the result set
+     * @return Itself
+     */
+    public StubDataSource addMetaDataResult(String methodName, String[] columnLabels, Object[]... rows) {
+        metaDataResults.put(methodName, new Result(columnLabels, rows));
+        return this;
+    }
+
+    public DataSource getDataSource() {
+        return proxy(DataSource.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if("getConnection".equals(method.getName())) {
+                    return createConnection();
+                }
+                throw unsupported(method);
+            }
+        });
+    }
+
+    /**
+     * @return SQL of all queries run so far, in order
+     */
+    public List<String> getQueries() {
+        return queries;
+    }
+
+    /**
+     * @return Parameters of all queries run so far, in the same order as {@code getQueries()}
+     */
+    public List<List<Object>> getQueryParameters() {
+        return queryParameters;
+    }
+
+    private Connection createConnection() {
+        final DatabaseMetaData databaseMetaData = proxy(DatabaseMetaData.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if("getDatabaseMajorVersion".equals(method.getName())) {
+                    return databaseMajorVersion;
+                }
+                Result result = metaDataResults.get(method.getName());
+                if(result == null) {
+                    throw unsupported(method);
+                }
+                return result.createResultSet();
+            }
+        });
+        return proxy(Connection.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch(method.getName()) {
+                    case "getMetaData":
+                        return databaseMetaData;
+                    case "prepareStatement":
+                        return createStatement((String)args[0]);
+                    case "close":
+                        return null;
+                    default:
+                        throw unsupported(method);
+                }
+            }
+        });
+    }
+
+    private PreparedStatement createStatement(final String SQL) {
+        final List<Object> parameters = new ArrayList<>();
+        return proxy(PreparedStatement.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch(method.getName()) {
+                    case "setObject":
+                        while(parameters.size() < (Integer)args[0]) {
+                            parameters.add(null);
+                        }
+                        parameters.set((Integer)args[0] - 1, args[1]);
+                        return null;
+                    case "executeQuery":
+                        queries.add(SQL);
+                        queryParameters.add(parameters);
+                        for(Map.Entry<String, Result> entry: queryResults.entrySet()) {
+                            if(SQL.contains(entry.getKey())) {
+                                return entry.getValue().createResultSet();
+                            }
+                        }
+                        throw new SQLException("No stubbed result for " + SQL);
+                    case "closeOnCompletion":
+                    case "close":
+                        return null;
+                    default:
+                        throw unsupported(method);
+                }
+            }
+        });
+    }
+
+    private static UnsupportedOperationException unsupported(Method method) {
+        return new UnsupportedOperationException(method.getDeclaringClass().getSimpleName() + "." + method.getName() + " is not stubbed");
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler invocationHandler) {
+        return type.cast(Proxy.newProxyInstance(StubDataSource.class.getClassLoader(), new Class<?>[] { type }, invocationHandler));
+    }
+
+    private static class Result {
+        private final List<String> columnLabels;
+        private final List<Object[]> rows;
+
+        Result(String[] columnLabels, Object[][] rows) {
+            this.columnLabels = Collections.unmodifiableList(Arrays.asList(columnLabels));
+            this.rows = Collections.unmodifiableList(Arrays.asList(rows));
+        }
+
+        ResultSet createResultSet() {
+            final ResultSetMetaData resultSetMetaData = proxy(ResultSetMetaData.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch(method.getName()) {
+                        case "getColumnCount":
+                            return columnLabels.size();
+                        case "getColumnLabel":
+                        case "getColumnName":
+                            return columnLabels.get((Integer)args[0] - 1);
+                        default:
+                            throw unsupported(method);
+                    }
+                }
+            });
+            return proxy(ResultSet.class, new InvocationHandler() {
+                private int row = -1;
+                private boolean wasNull = false;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch(method.getName()) {
+                        case "next":
+                            row++;
+                            return row < rows.size();
+                        case "getMetaData":
+                            return resultSetMetaData;
+                        case "wasNull":
+                            return wasNull;
+                        case "close":
+                            return null;
+                        case "getObject":
+                        case "getString":
+                        case "getInt":
+                        case "getShort":
+                        case "getLong":
+                        case "getBoolean":
+                            Object value = rows.get(row)[getColumnIndex(args[0])];
+                            wasNull = value == null;
+                            return convert(value, method.getReturnType());
+                        default:
+                            throw unsupported(method);
+                    }
+                }
+            });
+        }
+
+        private int getColumnIndex(Object column) throws SQLException {
+            if(column instanceof Integer) {
+                return (Integer)column - 1;
+            }
+            for(int i = 0; i < columnLabels.size(); i++) {
+                if(columnLabels.get(i).equalsIgnoreCase((String)column)) {
+                    return i;
+                }
+            }
+            throw new SQLException("No column " + column + " in " + columnLabels);
+        }
+
+        private static Object convert(Object value, Class<?> type) {
+            if(type == String.class) {
+                return value != null ? value.toString() : null;
+            }
+            else if(type == int.class) {
+                return value != null ? ((Number)value).intValue() : 0;
+            }
+            else if(type == short.class) {
+                return value != null ? ((Number)value).shortValue() : (short)0;
+            }
+            else if(type == long.class) {
+                return value != null ? ((Number)value).longValue() : 0L;
+            }
+            else if(type == boolean.class) {
+                if(value instanceof Number) {
+                    return ((Number)value).intValue() != 0;
+                }
+                return value != null && (Boolean)value;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+
+package com.googlecode.jdbw.server.h2;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.metadata.DefaultServerMetaData;
+import com.googlecode.jdbw.metadata.Index;
+import com.googlecode.jdbw.metadata.Schema;
+import com.googlecode.jdbw.metadata.SchemaSnapshot;
+import com.googlecode.jdbw.metadata.ServerMetaData;
+import com.googlecode.jdbw.metadata.Table;
+import com.googlecode.jdbw.metadata.TableColumn;
+import com.googlecode.jdbw.util.SQLWorker;
+import java.sql.SQLException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class H2MetaDataResolverTest {
+    
+    private DatabaseConnection h2;
+    
+    public H2MetaDataResolverTest() {
+    }
+    
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("h2metadata").connect();
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        worker.write("CREATE TABLE \"Person\" ("
+                + "\"id\" BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "\"name\" VARCHAR(50) NOT NULL, "
+                + "\"code\" CHAR(3), "
+                + "\"salary\" DECIMAL(10, 2), "
+                + "\"score\" FLOAT, "
+                + "\"active\" BOOLEAN, "
+                + "\"born\" DATE, "
+                + "\"updated\" TIMESTAMP WITH TIME ZONE, "
+                + "\"notes\" CLOB, "
+                + "\"token\" UUID)");
+        worker.write("CREATE UNIQUE INDEX \"Person_code\" ON \"Person\" (\"code\", \"name\")");
+        worker.write("CREATE TABLE \"Address\" (\"street\" VARCHAR)");
+        worker.write("CREATE VIEW \"PersonView\" AS SELECT \"id\" FROM \"Person\"");
+    }
+    
+    @After
+    public void tearDown() throws SQLException {
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        worker.write("DROP VIEW \"PersonView\"");
+        worker.write("DROP TABLE \"Address\"");
+        worker.write("DROP TABLE \"Person\"");
+        h2.close();
+    }
+
+    /**
+     * Test of snapshot method, of class H2MetaDataResolver.
+     */
+    @Test
+    public void testSnapshot() throws SQLException {
+        System.out.println("snapshot");
+        Schema expected = getPublicSchema(new DefaultServerMetaData(h2.getDataSource()));
+        SchemaSnapshot snapshot = getPublicSchema(new H2MetaDataResolver(h2.getDataSource())).snapshot();
+        assertEquals(2, snapshot.getTables().size());
+        for(Table table: expected.getTables()) {
+            assertTableEquals(table, snapshot.getTable(table.getName()));
+        }
+    }
+    
+    private Schema getPublicSchema(ServerMetaData metaData) throws SQLException {
+        Schema schema = metaData.getCatalogs().get(0).getSchema("PUBLIC");
+        assertNotNull(schema);
+        return schema;
+    }
+    
+    private void assertTableEquals(Table expected, Table actual) throws SQLException {
+        assertNotNull(actual);
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getColumnCount(), actual.getColumnCount());
+        for(TableColumn expectedColumn: expected.getColumns()) {
+            TableColumn actualColumn = actual.getColumn(expectedColumn.getName());
+            String message = expected.getName() + "." + expectedColumn.getName();
+            assertEquals(message, expectedColumn.getOrdinalPosition(), actualColumn.getOrdinalPosition());
+            assertEquals(message, expectedColumn.getSqlType(), actualColumn.getSqlType());
+            assertEquals(message, expectedColumn.getNativeTypeName(), actualColumn.getNativeTypeName());
+            assertEquals(message, expectedColumn.getNullable(), actualColumn.getNullable());
+            assertEquals(message, expectedColumn.getAutoIncrement(), actualColumn.getAutoIncrement());
+            if(expectedColumn.getNativeTypeName().startsWith("CHARACTER") || expectedColumn.getNativeTypeName().equals("DECIMAL")) {
+                assertEquals(message, expectedColumn.getColumnSize(), actualColumn.getColumnSize());
+                assertEquals(message, expectedColumn.getDecimalDigits(), actualColumn.getDecimalDigits());
+            }
+        }
+        assertEquals(expected.getIndexes().size(), actual.getIndexes().size());
+        for(Index expectedIndex: expected.getIndexes()) {
+            Index actualIndex = actual.getIndexMap().get(expectedIndex.getName());
+            assertNotNull(expectedIndex.getName(), actualIndex);
+            assertEquals(expectedIndex.isUnique(), actualIndex.isUnique());
+            assertEquals(expectedIndex.isPrimaryKey(), actualIndex.isPrimaryKey());
+            assertEquals(expectedIndex.getColumnNames(), actualIndex.getColumnNames());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.server.mysql;
+
+import com.googlecode.jdbw.metadata.Catalog;
+import com.googlecode.jdbw.metadata.Index;
+import com.googlecode.jdbw.metadata.Nullability;
+import com.googlecode.jdbw.metadata.Schema;
+import com.googlecode.jdbw.metadata.SchemaSnapshot;
+import com.googlecode.jdbw.metadata.Table;
+import com.googlecode.jdbw.metadata.TableColumn;
+import com.googlecode.jdbw.server.StubDataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class MySQLMetaDataResolverTest {
+
+    private static final String[] TABLE_LABELS = { "TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME" };
+    private static final String[] COLUMN_LABELS = { "TABLE_NAME", "COLUMN_NAME", "ORDINAL_POSITION", "TYPE_NAME",
+            "COLUMN_SIZE", "DECIMAL_DIGITS", "NULLABLE", "IS_AUTOINCREMENT" };
+    private static final String[] INDEX_LABELS = { "TABLE_NAME", "INDEX_NAME", "COLUMN_NAME", "NON_UNIQUE", "TYPE" };
+
+    public MySQLMetaDataResolverTest() {
+    }
+
+    /**
+     * Test of snapshot method, of class MySQLMetaDataResolver.
+     */
+    @Test
+    public void testSnapshot() throws SQLException {
+        System.out.println("snapshot");
+        StubDataSource stub = new StubDataSource(8)
+                .addQueryResult("information_schema.TABLES", TABLE_LABELS,
+                        new Object[] { "shop", null, "item" })
+                .addQueryResult("information_schema.COLUMNS", COLUMN_LABELS,
+                        new Object[] { "item", "id", 1, "INT UNSIGNED", 10, 0, DatabaseMetaData.columnNoNulls, "YES" },
+                        new Object[] { "item", "name", 2, "VARCHAR", 100, 0, DatabaseMetaData.columnNoNulls, "NO" },
+                        new Object[] { "item", "stock", 3, "TINYINT UNSIGNED", 3, 0, DatabaseMetaData.columnNullable, "NO" },
+                        new Object[] { "item", "visible", 4, "BIT", 1, 0, DatabaseMetaData.columnNullable, "NO" },
+                        new Object[] { "item", "description", 5, "LONGTEXT", Integer.MAX_VALUE, 0, DatabaseMetaData.columnNullable, "NO" },
+                        new Object[] { "item", "price", 6, "DECIMAL", 8, 2, DatabaseMetaData.columnNullable, "NO" },
+                        new Object[] { "view_of_items", "id", 1, "INT UNSIGNED", 10, 0, DatabaseMetaData.columnNoNulls, "NO" })
+                .addQueryResult("information_schema.STATISTICS", INDEX_LABELS,
+                        new Object[] { "item", "PRIMARY", "id", 0L, DatabaseMetaData.tableIndexOther },
+                        new Object[] { "item", "item_name_stock", "name", 1L, DatabaseMetaData.tableIndexOther },
+                        new Object[] { "item", "item_name_stock", "stock", 1L, DatabaseMetaData.tableIndexOther });
+        MySQLMetaDataResolver resolver = new MySQLMetaDataResolver(stub.getDataSource());
+        SchemaSnapshot snapshot = resolver.snapshot(getSchema(resolver, "shop"));
+
+        assertEquals(3, stub.getQueries().size());
+        for(int i = 0; i < 3; i++) {
+            assertTrue(stub.getQueries().get(i).contains(" AND TABLE_SCHEMA = ?"));
+            assertFalse(stub.getQueries().get(i).contains("TABLE_NAME = ?"));
+            assertEquals(Collections.<Object>singletonList("shop"), stub.getQueryParameters().get(i));
+        }
+        assertEquals(1, snapshot.getTables().size());
+
+        Table item = snapshot.getTable("item");
+        assertEquals(6, item.getColumnCount());
+        assertColumn(item.getColumn("id"), 1, Types.BIGINT, "INT UNSIGNED", Nullability.NOT_NULLABLE, "YES");
+        assertColumn(item.getColumn("name"), 2, Types.VARCHAR, "VARCHAR", Nullability.NOT_NULLABLE, "NO");
+        assertColumn(item.getColumn("stock"), 3, Types.SMALLINT, "SMALLINT", Nullability.NULLABLE, "NO");
+        assertColumn(item.getColumn("visible"), 4, Types.BOOLEAN, "BIT", Nullability.NULLABLE, "NO");
+        assertColumn(item.getColumn("description"), 5, Types.LONGVARCHAR, "LONGTEXT", Nullability.NULLABLE, "NO");
+        assertColumn(item.getColumn("price"), 6, Types.DECIMAL, "DECIMAL", Nullability.NULLABLE, "NO");
+        assertEquals(100, item.getColumn("name").getColumnSize());
+        assertEquals(8, item.getColumn("price").getColumnSize());
+        assertEquals(2, item.getColumn("price").getDecimalDigits());
+
+        List<Index> indexes = item.getIndexes();
+        assertEquals(2, indexes.size());
+        Index primaryKey = item.getIndexMap().get("PRIMARY");
+        assertTrue(primaryKey.isUnique());
+        assertTrue(primaryKey.isClustered());
+        assertEquals(Arrays.asList("id"), primaryKey.getColumnNames());
+        Index nameStock = item.getIndexMap().get("item_name_stock");
+        assertFalse(nameStock.isUnique());
+        assertFalse(nameStock.isClustered());
+        assertEquals(Arrays.asList("name", "stock"), nameStock.getColumnNames());
+    }
+
+    /**
+     * Test of getTables method, of class MySQLMetaDataResolver.
+     */
+    @Test
+    public void testGetTablesInCurrentDatabase() throws SQLException {
+        System.out.println("getTablesInCurrentDatabase");
+        StubDataSource stub = new StubDataSource(8)
+                .addQueryResult("information_schema.TABLES", TABLE_LABELS,
+                        new Object[] { "shop", null, "item" },
+                        new Object[] { "shop", null, "order" });
+        MySQLMetaDataResolver resolver = new MySQLMetaDataResolver(stub.getDataSource());
+        List<Table> tables = resolver.getTables(getSchema(resolver, null));
+
+        assertEquals(1, stub.getQueries().size());
+        assertTrue(stub.getQueries().get(0).contains("WHERE TABLE_TYPE = 'BASE TABLE' AND TABLE_SCHEMA = DATABASE()"));
+        assertTrue(stub.getQueryParameters().get(0).isEmpty());
+        assertEquals(2, tables.size());
+        assertEquals("item", tables.get(0).getName());
+        assertEquals("order", tables.get(1).getName());
+    }
+
+    /**
+     * Test of getColumns method, of class MySQLMetaDataResolver.
+     */
+    @Test
+    public void testGetColumns() throws SQLException {
+        System.out.println("getColumns");
+        StubDataSource stub = new StubDataSource(8)
+                .addQueryResult("information_schema.COLUMNS", COLUMN_LABELS,
+                        new Object[] { "item", "created", 1, "YEAR", 0, 0, DatabaseMetaData.columnNullable, "NO" });
+        MySQLMetaDataResolver resolver = new MySQLMetaDataResolver(stub.getDataSource());
+        List<TableColumn> columns = resolver.getColumns(new Table(resolver, getSchema(resolver, "shop"), "item"));
+
+        assertEquals(1, stub.getQueries().size());
+        assertTrue(stub.getQueries().get(0).contains(" AND TABLE_SCHEMA = ? AND TABLE_NAME = ?"));
+        assertEquals(Arrays.<Object>asList("shop", "item"), stub.getQueryParameters().get(0));
+        assertEquals(1, columns.size());
+        assertColumn(columns.get(0), 1, Types.DATE, "YEAR", Nullability.NULLABLE, "NO");
+    }
+
+    private Schema getSchema(MySQLMetaDataResolver resolver, String catalogName) {
+        return new Schema(resolver, new Catalog(resolver, catalogName), MySQLServer.DEFAULT_MYSQL_SCHEMA_NAME);
+    }
+
+    private void assertColumn(TableColumn column, int ordinalPosition, int sqlType, String typeName, Nullability nullable, String autoIncrement) {
+        assertNotNull(column);
+        assertEquals(Integer.valueOf(ordinalPosition), column.getOrdinalPosition());
+        assertEquals(column.getName(), sqlType, column.getSqlType());
+        assertEquals(typeName, column.getNativeTypeName());
+        assertEquals(nullable, column.getNullable());
+        assertEquals(autoIncrement, column.getAutoIncrement());
+    }
+}
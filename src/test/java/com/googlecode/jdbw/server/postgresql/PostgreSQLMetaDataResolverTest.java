@@ -0,0 +1,167 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.server.postgresql;
+
+import com.googlecode.jdbw.metadata.Catalog;
+import com.googlecode.jdbw.metadata.Index;
+import com.googlecode.jdbw.metadata.Nullability;
+import com.googlecode.jdbw.metadata.Schema;
+import com.googlecode.jdbw.metadata.SchemaSnapshot;
+import com.googlecode.jdbw.metadata.Table;
+import com.googlecode.jdbw.metadata.TableColumn;
+import com.googlecode.jdbw.server.StubDataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class PostgreSQLMetaDataResolverTest {
+
+    private static final String[] TABLE_LABELS = { "TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME" };
+    private static final String[] COLUMN_LABELS = { "TABLE_NAME", "COLUMN_NAME", "ORDINAL_POSITION", "TYPE_NAME",
+            "COLUMN_SIZE", "DECIMAL_DIGITS", "NULLABLE", "IS_AUTOINCREMENT" };
+    private static final String[] INDEX_LABELS = { "TABLE_NAME", "INDEX_NAME", "COLUMN_NAME", "NON_UNIQUE", "TYPE" };
+
+    public PostgreSQLMetaDataResolverTest() {
+    }
+
+    /**
+     * Test of snapshot method, of class PostgreSQLMetaDataResolver.
+     */
+    @Test
+    public void testSnapshot() throws SQLException {
+        System.out.println("snapshot");
+        StubDataSource stub = new StubDataSource(13)
+                .addQueryResult("AS TABLE_CAT", TABLE_LABELS,
+                        new Object[] { "shop", "public", "address" },
+                        new Object[] { "shop", "public", "person" })
+                .addQueryResult("AS ORDINAL_POSITION", COLUMN_LABELS,
+                        new Object[] { "address", "street", 1, "text", Integer.MAX_VALUE, 0, DatabaseMetaData.columnNullable, "NO" },
+                        new Object[] { "person", "id", 1, "serial", 0, 0, DatabaseMetaData.columnNoNulls, "YES" },
+                        new Object[] { "person", "name", 2, "varchar", 50, 0, DatabaseMetaData.columnNoNulls, "NO" },
+                        new Object[] { "person", "salary", 3, "numeric", 10, 2, DatabaseMetaData.columnNullable, "NO" },
+                        new Object[] { "person", "active", 4, "bool", 0, 0, DatabaseMetaData.columnNullable, "NO" },
+                        new Object[] { "person", "updated", 5, "timestamptz", 0, 0, DatabaseMetaData.columnNullable, "NO" },
+                        new Object[] { "person", "scores", 6, "_int4", 0, 0, DatabaseMetaData.columnNullable, "NO" })
+                .addQueryResult("pg_catalog.pg_index", INDEX_LABELS,
+                        new Object[] { "person", "person_name_salary", "name", true, DatabaseMetaData.tableIndexOther },
+                        new Object[] { "person", "person_name_salary", "salary", true, DatabaseMetaData.tableIndexOther },
+                        new Object[] { "person", "person_pkey", "id", false, DatabaseMetaData.tableIndexOther });
+        PostgreSQLMetaDataResolver resolver = new PostgreSQLMetaDataResolver(stub.getDataSource());
+        SchemaSnapshot snapshot = resolver.snapshot(getSchema(resolver));
+
+        assertEquals(3, stub.getQueries().size());
+        for(int i = 0; i < 3; i++) {
+            assertTrue(stub.getQueries().get(i).contains(" AND n.nspname = ?"));
+            assertFalse(stub.getQueries().get(i).contains("c.relname = ?"));
+            assertEquals(Collections.<Object>singletonList("public"), stub.getQueryParameters().get(i));
+        }
+        assertEquals(2, snapshot.getTables().size());
+        assertEquals(1, snapshot.getTable("address").getColumnCount());
+        assertEquals(0, snapshot.getTable("address").getIndexes().size());
+
+        Table person = snapshot.getTable("person");
+        assertColumn(person.getColumn("id"), 1, Types.INTEGER, "serial", Nullability.NOT_NULLABLE, "YES");
+        assertColumn(person.getColumn("name"), 2, Types.VARCHAR, "varchar", Nullability.NOT_NULLABLE, "NO");
+        assertColumn(person.getColumn("salary"), 3, Types.NUMERIC, "numeric", Nullability.NULLABLE, "NO");
+        assertColumn(person.getColumn("active"), 4, Types.BIT, "bool", Nullability.NULLABLE, "NO");
+        assertColumn(person.getColumn("updated"), 5, Types.TIMESTAMP, "timestamptz", Nullability.NULLABLE, "NO");
+        assertColumn(person.getColumn("scores"), 6, Types.ARRAY, "_int4", Nullability.NULLABLE, "NO");
+        assertEquals(50, person.getColumn("name").getColumnSize());
+        assertEquals(10, person.getColumn("salary").getColumnSize());
+        assertEquals(2, person.getColumn("salary").getDecimalDigits());
+
+        List<Index> indexes = person.getIndexes();
+        assertEquals(2, indexes.size());
+        Index nameSalary = person.getIndexMap().get("person_name_salary");
+        assertFalse(nameSalary.isUnique());
+        assertEquals(Arrays.asList("name", "salary"), nameSalary.getColumnNames());
+        Index primaryKey = person.getIndexMap().get("person_pkey");
+        assertTrue(primaryKey.isUnique());
+        assertEquals(Arrays.asList("id"), primaryKey.getColumnNames());
+    }
+
+    /**
+     * Test of getColumns method, of class PostgreSQLMetaDataResolver.
+     */
+    @Test
+    public void testGetColumns() throws SQLException {
+        System.out.println("getColumns");
+        StubDataSource stub = new StubDataSource(10)
+                .addQueryResult("AS ORDINAL_POSITION", COLUMN_LABELS,
+                        new Object[] { "person", "id", 1, "bigserial", 0, 0, DatabaseMetaData.columnNoNulls, "YES" });
+        PostgreSQLMetaDataResolver resolver = new PostgreSQLMetaDataResolver(stub.getDataSource());
+        List<TableColumn> columns = resolver.getColumns(new Table(resolver, getSchema(resolver), "person"));
+
+        assertEquals(1, stub.getQueries().size());
+        assertTrue(stub.getQueries().get(0).contains(" AND n.nspname = ? AND c.relname = ?"));
+        assertEquals(Arrays.<Object>asList("public", "person"), stub.getQueryParameters().get(0));
+        assertEquals(1, columns.size());
+        assertColumn(columns.get(0), 1, Types.BIGINT, "bigserial", Nullability.NOT_NULLABLE, "YES");
+    }
+
+    /**
+     * Test of snapshot method on a server older than PostgreSQL 10, of class PostgreSQLMetaDataResolver.
+     */
+    @Test
+    public void testSnapshotFallsBackOnOldServers() throws SQLException {
+        System.out.println("snapshotFallsBackOnOldServers");
+        StubDataSource stub = new StubDataSource(9)
+                .addMetaDataResult("getTables", TABLE_LABELS,
+                        new Object[] { "shop", "public", "person" })
+                .addMetaDataResult("getColumns",
+                        new String[] { "TABLE_NAME", "COLUMN_NAME", "ORDINAL_POSITION", "DATA_TYPE", "TYPE_NAME",
+                                "COLUMN_SIZE", "DECIMAL_DIGITS", "NULLABLE", "IS_AUTOINCREMENT" },
+                        new Object[] { "person", "id", 1, Types.INTEGER, "serial", 10, 0, DatabaseMetaData.columnNoNulls, "YES" },
+                        new Object[] { "person", "tags", 2, Types.OTHER, "hstore", Integer.MAX_VALUE, 0, DatabaseMetaData.columnNullable, "NO" })
+                .addMetaDataResult("getIndexInfo", INDEX_LABELS,
+                        new Object[] { "person", "person_pkey", "id", false, DatabaseMetaData.tableIndexOther });
+        PostgreSQLMetaDataResolver resolver = new PostgreSQLMetaDataResolver(stub.getDataSource());
+        SchemaSnapshot snapshot = resolver.snapshot(getSchema(resolver));
+
+        assertTrue(stub.getQueries().isEmpty());
+        Table person = snapshot.getTable("person");
+        assertNotNull(person);
+        assertColumn(person.getColumn("id"), 1, Types.INTEGER, "serial", Nullability.NOT_NULLABLE, "YES");
+        assertColumn(person.getColumn("tags"), 2, Types.OTHER, "hstore", Nullability.NULLABLE, "NO");
+        assertEquals(1, person.getIndexes().size());
+        assertEquals(Arrays.asList("id"), person.getIndexMap().get("person_pkey").getColumnNames());
+    }
+
+    private Schema getSchema(PostgreSQLMetaDataResolver resolver) {
+        return new Schema(resolver, new Catalog(resolver, "shop"), "public");
+    }
+
+    private void assertColumn(TableColumn column, int ordinalPosition, int sqlType, String typeName, Nullability nullable, String autoIncrement) {
+        assertNotNull(column);
+        assertEquals(Integer.valueOf(ordinalPosition), column.getOrdinalPosition());
+        assertEquals(column.getName(), sqlType, column.getSqlType());
+        assertEquals(typeName, column.getNativeTypeName());
+        assertEquals(nullable, column.getNullable());
+        assertEquals(autoIncrement, column.getAutoIncrement());
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.SQLExecutor;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class AsyncSQLExecutorTest {
+
+    private DatabaseConnection h2;
+    private AsyncSQLExecutor asyncExecutor;
+
+    public AsyncSQLExecutorTest() {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("asyncexecutor").connect();
+        asyncExecutor = new AsyncSQLExecutor(h2, 2, 10);
+        new SQLWorker(h2.createAutoExecutor()).write("CREATE TABLE \"Job\" (\"id\" INT PRIMARY KEY, \"name\" VARCHAR)");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        asyncExecutor.close();
+        new SQLWorker(h2.createAutoExecutor()).write("DROP TABLE \"Job\"");
+        h2.close();
+    }
+
+    /**
+     * Test of query method, of class AsyncSQLExecutor.
+     */
+    @Test
+    public void testParallelQueries() throws Exception {
+        System.out.println("parallelQueries");
+        Future<Integer> first = asyncExecutor.write("INSERT INTO \"Job\" VALUES(?, ?)", 1, "first");
+        Future<Integer> second = asyncExecutor.write("INSERT INTO \"Job\" VALUES(?, ?)", 2, "second");
+        assertEquals(1, (int)first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, (int)second.get(10, TimeUnit.SECONDS));
+
+        Future<List<Object[]>> rows = asyncExecutor.query("SELECT \"name\" FROM \"Job\" ORDER BY \"id\"");
+        Future<Object> count = asyncExecutor.topLeftValue("SELECT COUNT(*) FROM \"Job\"");
+        assertEquals(2, rows.get(10, TimeUnit.SECONDS).size());
+        assertEquals("second", rows.get().get(1)[0]);
+        assertEquals(2L, ((Number)count.get(10, TimeUnit.SECONDS)).longValue());
+    }
+
+    /**
+     * Test of query method, of class AsyncSQLExecutor.
+     */
+    @Test
+    public void testErrorIsReportedThroughFuture() throws Exception {
+        System.out.println("errorIsReportedThroughFuture");
+        Future<List<Object[]>> rows = asyncExecutor.query("SELECT * FROM \"NoSuchTable\"");
+        try {
+            rows.get(10, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        }
+        catch(ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+
+    /**
+     * Test of cancel method, of the futures returned by AsyncSQLExecutor.
+     */
+    @Test
+    public void testCancelBeforeStart() throws Exception {
+        System.out.println("cancelBeforeStart");
+        AsyncSQLExecutor singleThreaded = new AsyncSQLExecutor(h2, 1, 10);
+        try {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            Future<Void> blocking = singleThreaded.execute(new ExecuteResultHandlerAdapter() {
+                @Override
+                public boolean nextRow(Object... row) {
+                    started.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    }
+                    catch(InterruptedException e) {
+                    }
+                    return true;
+                }
+            }, "SELECT 1");
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            final AtomicBoolean ran = new AtomicBoolean(false);
+            Future<Void> queued = singleThreaded.execute(new ExecuteResultHandlerAdapter() {
+                @Override
+                public void onDone() {
+                    ran.set(true);
+                }
+            }, "INSERT INTO \"Job\" VALUES(3, 'never')");
+            assertTrue(queued.cancel(false));
+            release.countDown();
+            blocking.get(10, TimeUnit.SECONDS);
+            assertTrue(queued.isCancelled());
+            assertFalse(ran.get());
+        }
+        finally {
+            singleThreaded.close();
+        }
+        assertEquals(0, (int)new SQLWorker(h2.createAutoExecutor()).topLeftValueAsInt("SELECT COUNT(*) FROM \"Job\""));
+    }
+
+    /**
+     * Test of the Cancellable handed out for a query run by AsyncSQLExecutor, used after the query has completed.
+     */
+    @Test
+    public void testCancelAfterCompletionDoesNotReachStatement() throws Exception {
+        System.out.println("cancelAfterCompletionDoesNotReachStatement");
+        final AtomicInteger statementCancels = new AtomicInteger();
+        final Connection connection = countingCancels(h2.getDataSource().getConnection(), statementCancels);
+        AsyncSQLExecutor instance = new AsyncSQLExecutor(h2, 1, 10) {
+            @Override
+            protected SQLExecutor createExecutor() {
+                return h2.getServerType().createExecutor(connection);
+            }
+        };
+        try {
+            final AtomicReference<Cancellable> cancellable = new AtomicReference<>();
+            Future<Void> future = instance.execute(new ExecuteResultHandlerAdapter() {
+                @Override
+                public void onCancellableCallback(Cancellable cancelCallback) {
+                    cancellable.set(cancelCallback);
+                }
+            }, "SELECT 1");
+            future.get(10, TimeUnit.SECONDS);
+            assertFalse(future.cancel(true));
+            assertNotNull(cancellable.get());
+            cancellable.get().cancel();
+            assertEquals(0, statementCancels.get());
+        }
+        finally {
+            instance.close();
+            connection.close();
+        }
+    }
+
+    private static Connection countingCancels(final Connection connection, final AtomicInteger statementCancels) {
+        return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result = invokeTarget(connection, method, args);
+                if(!(result instanceof PreparedStatement)) {
+                    return result;
+                }
+                final PreparedStatement statement = (PreparedStatement)result;
+                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if("cancel".equals(method.getName())) {
+                            statementCancels.incrementAndGet();
+                        }
+                        return invokeTarget(statement, method, args);
+                    }
+                });
+            }
+        });
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch(InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
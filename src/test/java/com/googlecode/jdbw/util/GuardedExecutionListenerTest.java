@@ -0,0 +1,96 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.ConfigurableDatabaseConnection;
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.DatabaseTransaction;
+import com.googlecode.jdbw.ExecutionListener;
+import com.googlecode.jdbw.ExecutionStatistics;
+import com.googlecode.jdbw.TransactionIsolation;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class GuardedExecutionListenerTest {
+
+    public GuardedExecutionListenerTest() {
+    }
+
+    /**
+     * Test of guard method, of class GuardedExecutionListener.
+     */
+    @Test
+    public void testGuard() {
+        System.out.println("guard");
+        assertNull(GuardedExecutionListener.guard(null));
+        ExecutionListenerAdapter listener = new ExecutionListenerAdapter();
+        ExecutionListener guarded = GuardedExecutionListener.guard(listener);
+        assertNotSame(listener, guarded);
+        assertSame(guarded, GuardedExecutionListener.guard(guarded));
+    }
+
+    /**
+     * Test of a throwing listener registered through setExecutionListener, which must not leak connections or fail
+     * commits
+     */
+    @Test
+    public void testThrowingListenerDoesNotLeakConnections() throws SQLException {
+        System.out.println("throwingListenerDoesNotLeakConnections");
+        DatabaseConnection h2 = new H2InMemoryServer("guardedlistener").connect(
+                new OneSharedConnectionDataSource.Factory(1, 0, 1, TimeUnit.SECONDS));
+        try {
+            ((ConfigurableDatabaseConnection)h2).setExecutionListener(new ThrowingListener());
+            h2.createAutoExecutor().execute("CREATE TABLE \"Guarded\" (\"id\" INT PRIMARY KEY)");
+            DatabaseTransaction transaction = h2.beginTransaction(TransactionIsolation.READ_COMMITTED);
+            new SQLWorker(transaction).write("INSERT INTO \"Guarded\" VALUES(1)");
+            transaction.commit();
+            SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+            assertEquals(1, worker.topLeftValueAsInt("SELECT COUNT(*) FROM \"Guarded\"").intValue());
+            OneSharedConnectionDataSource dataSource = (OneSharedConnectionDataSource)h2.getDataSource();
+            assertEquals(1, dataSource.getAvailableConnections());
+        }
+        finally {
+            h2.close();
+        }
+    }
+
+    private static class ThrowingListener extends ExecutionListenerAdapter {
+        @Override
+        public void onConnectionAcquired(long acquireTimeNanos) {
+            throw new IllegalStateException("onConnectionAcquired");
+        }
+
+        @Override
+        public void onStatementExecuted(ExecutionStatistics statistics) {
+            throw new IllegalStateException("onStatementExecuted");
+        }
+
+        @Override
+        public void onTransactionCompleted(boolean committed, long durationNanos) {
+            throw new IllegalStateException("onTransactionCompleted");
+        }
+    }
+}
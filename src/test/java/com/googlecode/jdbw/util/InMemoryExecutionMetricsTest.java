@@ -0,0 +1,178 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.ConfigurableDatabaseConnection;
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.DatabaseTransaction;
+import com.googlecode.jdbw.RowCursor;
+import com.googlecode.jdbw.TransactionIsolation;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class InMemoryExecutionMetricsTest {
+
+    private DatabaseConnection h2;
+    private InMemoryExecutionMetrics metrics;
+
+    public InMemoryExecutionMetricsTest() {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("executionmetrics").connect();
+        h2.createAutoExecutor().execute("CREATE TABLE \"Metric\" (\"id\" INT PRIMARY KEY, \"value\" VARCHAR)");
+        metrics = new InMemoryExecutionMetrics();
+        ((ConfigurableDatabaseConnection)h2).setExecutionListener(metrics);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        ((ConfigurableDatabaseConnection)h2).setExecutionListener(null);
+        h2.createAutoExecutor().execute("DROP TABLE \"Metric\"");
+        h2.close();
+    }
+
+    /**
+     * Test of onStatementExecuted method, of class InMemoryExecutionMetrics.
+     */
+    @Test
+    public void testStatementsAreGroupedByFingerprint() throws SQLException {
+        System.out.println("statementsAreGroupedByFingerprint");
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        worker.write("INSERT INTO \"Metric\" VALUES(1, 'one')");
+        worker.write("INSERT INTO \"Metric\" VALUES(2, 'two')");
+        worker.write("INSERT INTO \"Metric\" VALUES(?, ?)", 3, "three");
+        assertEquals(3, worker.query("SELECT * FROM \"Metric\" WHERE \"id\" IN (1, 2, 3)").size());
+
+        InMemoryExecutionMetrics.StatementMetrics inserts = metrics.getStatementMetrics("insert into \"Metric\" values(?, ?)");
+        assertNotNull(inserts);
+        assertEquals(3, inserts.getExecutions());
+        assertEquals(3, inserts.getRowsUpdated());
+        assertEquals(0, inserts.getFailures());
+        assertEquals(3, inserts.getTotalTime().getCount());
+
+        InMemoryExecutionMetrics.StatementMetrics select = metrics.getStatementMetrics("SELECT * FROM \"Metric\" WHERE \"id\" IN (?)");
+        assertNotNull(select);
+        assertEquals(1, select.getExecutions());
+        assertEquals(3, select.getRowsFetched());
+        assertEquals(4, metrics.getConnectionAcquireTime().getCount());
+    }
+
+    /**
+     * Test of onStatementExecuted method, of class InMemoryExecutionMetrics.
+     */
+    @Test
+    public void testBatchWriteAndCursor() throws SQLException {
+        System.out.println("batchWriteAndCursor");
+        h2.createAutoExecutor().batchWrite("INSERT INTO \"Metric\" VALUES(?, ?)", Arrays.asList(
+                new Object[] { 1, "one" },
+                new Object[] { 2, "two" }));
+        try (RowCursor cursor = h2.createAutoExecutor().openCursor("SELECT * FROM \"Metric\"")) {
+            while(cursor.hasNext()) {
+                cursor.next();
+            }
+        }
+
+        InMemoryExecutionMetrics.StatementMetrics batch = metrics.getStatementMetrics("INSERT INTO \"Metric\" VALUES(?, ?)");
+        assertEquals(1, batch.getExecutions());
+        assertEquals(2, batch.getBatchedRows());
+        assertEquals(2, batch.getRowsUpdated());
+
+        InMemoryExecutionMetrics.StatementMetrics cursor = metrics.getStatementMetrics("SELECT * FROM \"Metric\"");
+        assertEquals(1, cursor.getExecutions());
+        assertEquals(2, cursor.getRowsFetched());
+    }
+
+    /**
+     * Test of onStatementExecuted method, of class InMemoryExecutionMetrics.
+     */
+    @Test
+    public void testFailedStatement() throws SQLException {
+        System.out.println("failedStatement");
+        try {
+            h2.createAutoExecutor().execute("SELECT * FROM \"NoSuchTable\"");
+            fail("Expected SQLException");
+        }
+        catch(SQLException e) {
+        }
+        InMemoryExecutionMetrics.StatementMetrics failed = metrics.getStatementMetrics("SELECT * FROM \"NoSuchTable\"");
+        assertEquals(1, failed.getExecutions());
+        assertEquals(1, failed.getFailures());
+    }
+
+    /**
+     * Test of onTransactionCompleted method, of class InMemoryExecutionMetrics.
+     */
+    @Test
+    public void testTransactions() throws SQLException {
+        System.out.println("transactions");
+        DatabaseTransaction transaction = h2.beginTransaction(TransactionIsolation.READ_COMMITTED);
+        transaction.execute("INSERT INTO \"Metric\" VALUES(1, 'one')");
+        transaction.commit();
+        transaction = h2.beginTransaction(TransactionIsolation.READ_COMMITTED);
+        transaction.execute("INSERT INTO \"Metric\" VALUES(2, 'two')");
+        transaction.rollback();
+
+        assertEquals(1, metrics.getCommits());
+        assertEquals(1, metrics.getRollbacks());
+        assertEquals(2, metrics.getTransactionTime().getCount());
+        assertEquals(2, metrics.getStatementMetrics("INSERT INTO \"Metric\" VALUES(?, ?)").getExecutions());
+    }
+
+    /**
+     * Test of of method, of class SQLFingerprint.
+     */
+    @Test
+    public void testFingerprint() {
+        System.out.println("fingerprint");
+        assertEquals("SELECT * FROM \"Customer\" WHERE ID IN (?+) AND NAME = ?",
+                SQLFingerprint.of("SELECT * FROM \"Customer\" WHERE id IN (1, 2, 3) AND name = 'Bob'"));
+        assertEquals("SELECT * FROM \"Customer\" WHERE ID IN (?+) AND NAME = ?",
+                SQLFingerprint.of("select * from \"Customer\"\n  where id in (?) -- comment\n and name = ?"));
+        assertEquals("SELECT COL1 FROM T2 WHERE X = ?", SQLFingerprint.of("SELECT col1 FROM t2 WHERE x = 'it''s'"));
+    }
+
+    /**
+     * Test of getPercentile method, of class LatencyHistogram.
+     */
+    @Test
+    public void testHistogramPercentiles() {
+        System.out.println("histogramPercentiles");
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax(TimeUnit.MICROSECONDS));
+        long median = histogram.getPercentile(50, TimeUnit.MICROSECONDS);
+        assertTrue("Median was " + median, median >= 50 && median <= 63);
+        assertEquals(100, histogram.getPercentile(100, TimeUnit.MICROSECONDS));
+    }
+}
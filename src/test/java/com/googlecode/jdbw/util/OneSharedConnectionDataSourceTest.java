@@ -0,0 +1,162 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class OneSharedConnectionDataSourceTest {
+
+    public OneSharedConnectionDataSourceTest() {
+    }
+
+    /**
+     * Test of getConnection method, of class OneSharedConnectionDataSource.
+     */
+    @Test
+    public void testWaitTimeout() throws SQLException {
+        System.out.println("waitTimeout");
+        DatabaseConnection h2 = new H2InMemoryServer("sharedtimeout").connect(
+                new OneSharedConnectionDataSource.Factory(1, 0, 50, TimeUnit.MILLISECONDS));
+        try {
+            OneSharedConnectionDataSource dataSource = (OneSharedConnectionDataSource)h2.getDataSource();
+            Connection connection = dataSource.getConnection();
+            try {
+                dataSource.getConnection();
+                fail("Expected the wait for a connection to time out");
+            }
+            catch(SQLTransientConnectionException e) {
+            }
+            connection.close();
+            connection.close();
+            assertEquals(1, dataSource.getAvailableConnections());
+            assertEquals(1, dataSource.getTimeoutCount());
+            assertEquals(1, dataSource.getAcquireCount());
+            assertTrue(dataSource.getMaxWaitTime(TimeUnit.MILLISECONDS) >= 50);
+            assertEquals(0, dataSource.getWaitingThreads());
+        }
+        finally {
+            h2.close();
+        }
+    }
+
+    /**
+     * Test of getConnection method, of class OneSharedConnectionDataSource.
+     */
+    @Test
+    public void testMultipleConnections() throws SQLException {
+        System.out.println("multipleConnections");
+        DatabaseConnection h2 = new H2InMemoryServer("sharedmultiple").connect(
+                new OneSharedConnectionDataSource.Factory(3, 2, 1, TimeUnit.SECONDS));
+        try {
+            OneSharedConnectionDataSource dataSource = (OneSharedConnectionDataSource)h2.getDataSource();
+            assertEquals(3, dataSource.getNumberOfConnections());
+            assertEquals(3, dataSource.getStatementCaches().size());
+            Connection first = dataSource.getConnection();
+            Connection second = dataSource.getConnection();
+            Connection third = dataSource.getConnection();
+            assertEquals(0, dataSource.getAvailableConnections());
+            assertNotSame(first.unwrap(PreparedStatementCache.class), second.unwrap(PreparedStatementCache.class));
+            first.close();
+            second.close();
+            third.close();
+            assertEquals(3, dataSource.getAvailableConnections());
+        }
+        finally {
+            h2.close();
+        }
+    }
+
+    /**
+     * Test of getConnection method, of class OneSharedConnectionDataSource, using a handle after it has been closed
+     */
+    @Test
+    public void testClosedHandleCannotBeUsed() throws SQLException {
+        System.out.println("closedHandleCannotBeUsed");
+        DatabaseConnection h2 = new H2InMemoryServer("sharedclosed").connect(
+                new OneSharedConnectionDataSource.Factory(1, 0, 1, TimeUnit.SECONDS));
+        try {
+            OneSharedConnectionDataSource dataSource = (OneSharedConnectionDataSource)h2.getDataSource();
+            Connection stale = dataSource.getConnection();
+            stale.close();
+            assertTrue(stale.isClosed());
+            Connection current = dataSource.getConnection();
+            try {
+                stale.createStatement();
+                fail("Expected a closed connection handle to reject new statements");
+            }
+            catch(SQLException e) {
+            }
+            assertFalse(current.isClosed());
+            current.close();
+            assertEquals(1, dataSource.getAvailableConnections());
+        }
+        finally {
+            h2.close();
+        }
+    }
+
+    /**
+     * Test of getConnection method, of class OneSharedConnectionDataSource, when the waiting thread is interrupted
+     */
+    @Test
+    public void testInterruptedWhileWaiting() throws SQLException {
+        System.out.println("interruptedWhileWaiting");
+        DatabaseConnection h2 = new H2InMemoryServer("sharedinterrupted").connect(
+                new OneSharedConnectionDataSource.Factory(1, 0, 0, TimeUnit.SECONDS));
+        try {
+            OneSharedConnectionDataSource dataSource = (OneSharedConnectionDataSource)h2.getDataSource();
+            Connection connection = dataSource.getConnection();
+            Thread.currentThread().interrupt();
+            try {
+                dataSource.getConnection();
+                fail("Expected an interrupted wait for a connection to fail");
+            }
+            catch(SQLTransientConnectionException e) {
+                assertTrue(Thread.interrupted());
+            }
+            connection.close();
+            assertTrue(dataSource.isWrapperFor(DataSource.class));
+            assertSame(dataSource, dataSource.unwrap(OneSharedConnectionDataSource.class));
+        }
+        finally {
+            h2.close();
+        }
+    }
+
+    /**
+     * Test of connect method, of class H2DatabaseServer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMultipleConnectionsToAnonymousInMemory() {
+        System.out.println("multipleConnectionsToAnonymousInMemory");
+        new H2InMemoryServer().connect(new OneSharedConnectionDataSource.Factory(2, 0, 0, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class PooledDataSourceTest {
+
+    private DatabaseConnection h2;
+    private PooledDataSource dataSource;
+
+    public PooledDataSourceTest() {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("pooled").connect(new PooledDataSource.Factory()
+                .setMinSize(1)
+                .setMaxSize(2)
+                .setBorrowTimeout(200, TimeUnit.MILLISECONDS)
+                .setLeakDetectionThreshold(50, TimeUnit.MILLISECONDS)
+                .setMaintenanceInterval(20, TimeUnit.MILLISECONDS)
+                .setStatementCacheSize(4));
+        dataSource = (PooledDataSource)h2.getDataSource();
+    }
+
+    @After
+    public void tearDown() {
+        h2.close();
+    }
+
+    /**
+     * Test of getConnection method, of class PooledDataSource.
+     */
+    @Test
+    public void testConnectionsAreReused() throws SQLException {
+        System.out.println("connectionsAreReused");
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        for(int i = 0; i < 10; i++) {
+            assertEquals(i, (int)worker.topLeftValueAsInt("SELECT ?", i));
+        }
+        assertEquals(1, dataSource.getTotalConnections());
+        assertEquals(0, dataSource.getActiveConnections());
+        assertEquals(1, dataSource.getIdleConnections());
+    }
+
+    /**
+     * Test of getConnection method, of class PooledDataSource.
+     */
+    @Test
+    public void testBorrowTimesOutWhenExhausted() throws SQLException {
+        System.out.println("borrowTimesOutWhenExhausted");
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertEquals(2, dataSource.getActiveConnections());
+        try {
+            dataSource.getConnection();
+            fail("Expected pool to be exhausted");
+        }
+        catch(SQLTransientConnectionException e) {
+        }
+        first.close();
+        first.close();
+        Connection third = dataSource.getConnection();
+        assertEquals(2, dataSource.getTotalConnections());
+        third.close();
+        second.close();
+        assertEquals(0, dataSource.getActiveConnections());
+    }
+
+    /**
+     * Test of the transaction reset, of class PooledDataSource.
+     */
+    @Test
+    public void testUnfinishedTransactionIsRolledBack() throws SQLException {
+        System.out.println("unfinishedTransactionIsRolledBack");
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        worker.write("CREATE TABLE \"Pooled\" (\"id\" INT PRIMARY KEY)");
+        try {
+            Connection connection = dataSource.getConnection();
+            connection.setAutoCommit(false);
+            connection.createStatement().executeUpdate("INSERT INTO \"Pooled\" VALUES(1)");
+            connection.close();
+            assertEquals(0, (int)worker.topLeftValueAsInt("SELECT COUNT(*) FROM \"Pooled\""));
+        }
+        finally {
+            worker.write("DROP TABLE \"Pooled\"");
+        }
+    }
+
+    /**
+     * Test of leak detection, of class PooledDataSource.
+     */
+    @Test
+    public void testLeakDetection() throws Exception {
+        System.out.println("leakDetection");
+        Connection connection = dataSource.getConnection();
+        long deadline = System.currentTimeMillis() + 5000;
+        while(dataSource.getLeaksDetected() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        connection.close();
+        assertEquals(1, dataSource.getLeaksDetected());
+    }
+
+    /**
+     * Test of statement caching, of class PooledDataSource.
+     */
+    @Test
+    public void testStatementCacheIsExposed() throws SQLException {
+        System.out.println("statementCacheIsExposed");
+        Connection connection = dataSource.getConnection();
+        try {
+            assertTrue(connection.isWrapperFor(PreparedStatementCache.class));
+            assertEquals(4, connection.unwrap(PreparedStatementCache.class).getMaxSize());
+        }
+        finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Test of the connection handle, of class PooledDataSource.
+     */
+    @Test
+    public void testClosedHandleCannotBeUsed() throws SQLException {
+        System.out.println("closedHandleCannotBeUsed");
+        Connection stale = dataSource.getConnection();
+        stale.close();
+        Connection current = dataSource.getConnection();
+        try {
+            assertEquals(stale, current);
+            assertTrue(stale.isClosed());
+            assertFalse(stale.isValid(1));
+            try {
+                stale.createStatement();
+                fail("Expected a closed handle to reject createStatement()");
+            }
+            catch(SQLException e) {
+                assertEquals("Connection has been closed", e.getMessage());
+            }
+            current.setAutoCommit(false);
+            try {
+                stale.commit();
+                fail("Expected a closed handle to reject commit()");
+            }
+            catch(SQLException e) {
+                assertEquals("Connection has been closed", e.getMessage());
+            }
+            assertFalse(current.isClosed());
+            assertFalse(current.getAutoCommit());
+            assertTrue(current.createStatement().execute("SELECT 1"));
+            current.commit();
+        }
+        finally {
+            current.close();
+        }
+    }
+
+    /**
+     * Test of the DataSource methods, of class PooledDataSource.
+     */
+    @Test
+    public void testDataSourceMethods() throws SQLException {
+        System.out.println("dataSourceMethods");
+        assertTrue(dataSource.isWrapperFor(PooledDataSource.class));
+        assertFalse(dataSource.isWrapperFor(Connection.class));
+        assertSame(dataSource, dataSource.unwrap(DataSource.class));
+        try {
+            dataSource.unwrap(Connection.class);
+            fail("Expected unwrap to fail for an unrelated interface");
+        }
+        catch(SQLException e) {
+        }
+        dataSource.setLoginTimeout(7);
+        assertEquals(7, dataSource.getLoginTimeout());
+        assertNull(dataSource.getLogWriter());
+        try {
+            dataSource.getParentLogger();
+            fail("Expected getParentLogger to be unsupported");
+        }
+        catch(SQLFeatureNotSupportedException e) {
+        }
+    }
+}
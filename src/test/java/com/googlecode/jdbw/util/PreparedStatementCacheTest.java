@@ -0,0 +1,141 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class PreparedStatementCacheTest {
+
+    private DatabaseConnection h2;
+    private PreparedStatementCache statementCache;
+
+    public PreparedStatementCacheTest() {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("statementcache").connect(new OneSharedConnectionDataSource.Factory(2));
+        statementCache = ((OneSharedConnectionDataSource)h2.getDataSource()).getStatementCache();
+        new SQLWorker(h2.createAutoExecutor()).write("CREATE TABLE \"Item\" (\"id\" INT PRIMARY KEY, \"name\" VARCHAR)");
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        new SQLWorker(h2.createAutoExecutor()).write("DROP TABLE \"Item\"");
+        h2.close();
+    }
+
+    /**
+     * Test of take method, of class PreparedStatementCache.
+     */
+    @Test
+    public void testRepeatedQueryIsServedFromCache() throws SQLException {
+        System.out.println("repeatedQueryIsServedFromCache");
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        long hitsBefore = statementCache.getHits();
+        worker.write("INSERT INTO \"Item\" VALUES(?, ?)", 1, "first");
+        worker.write("INSERT INTO \"Item\" VALUES(?, ?)", 2, "second");
+        assertEquals(hitsBefore + 1, statementCache.getHits());
+        assertEquals(1, worker.query("SELECT \"name\" FROM \"Item\" WHERE \"id\" = ?", 1).size());
+        assertEquals("second", worker.topLeftValue("SELECT \"name\" FROM \"Item\" WHERE \"id\" = ?", 2));
+        assertEquals(hitsBefore + 2, statementCache.getHits());
+    }
+
+    /**
+     * Test of release method, of class PreparedStatementCache.
+     */
+    @Test
+    public void testLeastRecentlyUsedStatementIsEvicted() throws SQLException {
+        System.out.println("leastRecentlyUsedStatementIsEvicted");
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        worker.query("SELECT 1");
+        worker.query("SELECT 2");
+        worker.query("SELECT 1");
+        worker.query("SELECT 3");
+        assertEquals(2, statementCache.size());
+        long hitsBefore = statementCache.getHits();
+        worker.query("SELECT 1");
+        assertEquals(hitsBefore + 1, statementCache.getHits());
+        worker.query("SELECT 2");
+        assertEquals(hitsBefore + 1, statementCache.getHits());
+        assertTrue(statementCache.getEvictions() >= 2);
+    }
+
+    /**
+     * Test of batch statements, of class PreparedStatementCache.
+     */
+    @Test
+    public void testBatchStatementIsResetBeforeReuse() throws SQLException {
+        System.out.println("batchStatementIsResetBeforeReuse");
+        String SQL = "INSERT INTO \"Item\" VALUES(?, ?)";
+        h2.createAutoExecutor().batchWrite(SQL, Arrays.asList(new Object[] { 1, "a" }, new Object[] { 2, "b" }));
+        h2.createAutoExecutor().batchWrite(SQL, Collections.singletonList(new Object[] { 3, "c" }));
+        SQLWorker worker = new SQLWorker(h2.createAutoExecutor());
+        assertEquals(3L, ((Number)worker.topLeftValue("SELECT COUNT(*) FROM \"Item\"")).longValue());
+    }
+
+    /**
+     * Test of release method with a cancelled statement, of class PreparedStatementCache.
+     */
+    @Test
+    public void testCancelledStatementIsNotReused() throws SQLException {
+        System.out.println("cancelledStatementIsNotReused");
+        new SQLWorker(h2.createAutoExecutor()).write("INSERT INTO \"Item\" VALUES(?, ?)", 1, "first");
+        String SQL = "SELECT \"name\" FROM \"Item\"";
+        try {
+            h2.createAutoExecutor().execute(new ExecuteResultHandlerAdapter() {
+                private Cancellable cancellable;
+
+                @Override
+                public void onCancellableCallback(Cancellable cancelCallback) {
+                    cancellable = cancelCallback;
+                }
+
+                @Override
+                public boolean nextRow(Object... row) {
+                    try {
+                        cancellable.cancel();
+                    }
+                    catch(Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                    return false;
+                }
+            }, SQL);
+        }
+        catch(SQLException e) {
+            //Depending on the driver the cancel may or may not fail the query, either is fine here
+        }
+        long hitsBefore = statementCache.getHits();
+        assertEquals(1, new SQLWorker(h2.createAutoExecutor()).query(SQL).size());
+        assertEquals(hitsBefore, statementCache.getHits());
+    }
+}
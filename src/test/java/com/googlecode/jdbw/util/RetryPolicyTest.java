@@ -0,0 +1,282 @@
+/*
+ * This file is part of jdbw (http://code.google.com/p/jdbw/).
+ * 
+ * jdbw is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright (C) 2007-2012 Martin Berglund
+ */
+package com.googlecode.jdbw.util;
+
+import com.googlecode.jdbw.AutoExecutor;
+import com.googlecode.jdbw.DatabaseConnection;
+import com.googlecode.jdbw.DatabaseServerTypes;
+import com.googlecode.jdbw.RetryPolicy;
+import com.googlecode.jdbw.TransactionIsolation;
+import com.googlecode.jdbw.server.h2.H2InMemoryServer;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Martin Berglund
+ */
+public class RetryPolicyTest {
+
+    private DatabaseConnection h2;
+    private FailingDataSource dataSource;
+
+    public RetryPolicyTest() {
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        h2 = new H2InMemoryServer("retrypolicy").connect();
+        dataSource = new FailingDataSource(h2.getDataSource());
+    }
+
+    @After
+    public void tearDown() {
+        h2.close();
+    }
+
+    /**
+     * Test of start method, of class FixedIntervalRetryPolicy.
+     */
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws SQLException {
+        System.out.println("givesUpAfterMaxAttempts");
+        dataSource.failures.set(Integer.MAX_VALUE);
+        try {
+            createAutoExecutor(new FixedIntervalRetryPolicy(0, TimeUnit.MILLISECONDS, 3)).execute("SELECT 1");
+            fail("Expected SQLTransientConnectionException");
+        }
+        catch(SQLTransientConnectionException e) {
+        }
+        assertEquals(3, dataSource.calls.get());
+    }
+
+    /**
+     * Test of start method, of class FixedIntervalRetryPolicy.
+     */
+    @Test
+    public void testRetriesUntilConnected() throws SQLException {
+        System.out.println("retriesUntilConnected");
+        dataSource.failures.set(2);
+        SQLWorker worker = new SQLWorker(createAutoExecutor(new FixedIntervalRetryPolicy(0, TimeUnit.MILLISECONDS, 3)));
+        assertEquals(1, (int)worker.topLeftValueAsInt("SELECT 1"));
+        assertEquals(3, dataSource.calls.get());
+    }
+
+    /**
+     * Test of start method, of class ExponentialBackoffRetryPolicy.
+     */
+    @Test
+    public void testExponentialBackoffDelays() throws SQLException {
+        System.out.println("exponentialBackoffDelays");
+        RetryPolicy.Execution execution = new ExponentialBackoffRetryPolicy(10, 40, 3600, TimeUnit.SECONDS, 5).start();
+        SQLException error = new SQLTransientConnectionException();
+        long[] ceilings = { 10000, 20000, 40000, 40000 };
+        for(long ceiling: ceilings) {
+            execution.beforeAttempt();
+            long delay = execution.onFailure(error, true);
+            assertTrue("Delay was " + delay, delay >= 0 && delay <= ceiling);
+        }
+        execution.beforeAttempt();
+        assertEquals(-1, execution.onFailure(error, true));
+    }
+
+    /**
+     * Test of start method, of class ExponentialBackoffRetryPolicy.
+     */
+    @Test
+    public void testExponentialBackoffMaxElapsedTime() throws SQLException {
+        System.out.println("exponentialBackoffMaxElapsedTime");
+        RetryPolicy.Execution execution = new ExponentialBackoffRetryPolicy(1, 1, 5, TimeUnit.MILLISECONDS).start();
+        execution.beforeAttempt();
+        assertTrue(execution.onFailure(new SQLTransientConnectionException(), true) >= 0);
+        sleep(10);
+        execution.beforeAttempt();
+        assertEquals(-1, execution.onFailure(new SQLTransientConnectionException(), true));
+    }
+
+    /**
+     * Test of start method, of class CircuitBreakerRetryPolicy.
+     */
+    @Test
+    public void testCircuitBreakerFailsFast() throws SQLException {
+        System.out.println("circuitBreakerFailsFast");
+        CircuitBreakerRetryPolicy circuitBreaker = new CircuitBreakerRetryPolicy(
+                new FixedIntervalRetryPolicy(0, TimeUnit.MILLISECONDS, -1), 2, 100, TimeUnit.MILLISECONDS);
+        dataSource.failures.set(Integer.MAX_VALUE);
+        try {
+            createAutoExecutor(circuitBreaker).execute("SELECT 1");
+            fail("Expected SQLTransientConnectionException");
+        }
+        catch(SQLTransientConnectionException e) {
+        }
+        assertEquals(2, dataSource.calls.get());
+        assertTrue(circuitBreaker.isOpen());
+
+        //A second executor sharing the policy shouldn't even try
+        try {
+            createAutoExecutor(circuitBreaker).execute("SELECT 1");
+            fail("Expected SQLTransientConnectionException");
+        }
+        catch(SQLTransientConnectionException e) {
+        }
+        assertEquals(2, dataSource.calls.get());
+
+        dataSource.failures.set(0);
+        sleep(150);
+        assertFalse(circuitBreaker.isOpen());
+        createAutoExecutor(circuitBreaker).execute("SELECT 1");
+        assertEquals(0, circuitBreaker.getConsecutiveConnectionErrors());
+        assertEquals(1, circuitBreaker.getTimesOpened());
+    }
+
+    /**
+     * Test of start method, of class CircuitBreakerRetryPolicy, letting exactly one probe through once the open period
+     * is over
+     */
+    @Test
+    public void testCircuitBreakerHalfOpen() throws SQLException {
+        System.out.println("circuitBreakerHalfOpen");
+        CircuitBreakerRetryPolicy circuitBreaker = new CircuitBreakerRetryPolicy(
+                new FixedIntervalRetryPolicy(0, TimeUnit.MILLISECONDS, -1), 1, 100, TimeUnit.MILLISECONDS);
+        SQLException connectionError = new SQLException("Connection refused");
+        RetryPolicy.Execution first = circuitBreaker.start();
+        first.beforeAttempt();
+        assertEquals(-1, first.onFailure(connectionError, true));
+        assertTrue(circuitBreaker.isOpen());
+
+        sleep(150);
+        RetryPolicy.Execution probe = circuitBreaker.start();
+        probe.beforeAttempt();
+        assertTrue(circuitBreaker.isHalfOpen());
+        assertRejected(circuitBreaker.start());
+        assertEquals(-1, probe.onFailure(connectionError, true));
+        assertTrue(circuitBreaker.isOpen());
+        assertFalse(circuitBreaker.isHalfOpen());
+        assertRejected(circuitBreaker.start());
+
+        sleep(150);
+        probe = circuitBreaker.start();
+        probe.beforeAttempt();
+        assertRejected(circuitBreaker.start());
+        assertEquals(1, circuitBreaker.getConsecutiveConnectionErrors());
+        probe.onSuccess();
+        assertFalse(circuitBreaker.isOpen());
+        assertEquals(0, circuitBreaker.getConsecutiveConnectionErrors());
+        RetryPolicy.Execution next = circuitBreaker.start();
+        next.beforeAttempt();
+        next.onSuccess();
+        assertEquals(1, circuitBreaker.getTimesOpened());
+    }
+
+    private static void assertRejected(RetryPolicy.Execution execution) {
+        try {
+            execution.beforeAttempt();
+            fail("Expected SQLTransientConnectionException");
+        }
+        catch(SQLTransientConnectionException e) {
+        }
+        catch(SQLException e) {
+            fail("Expected SQLTransientConnectionException, got " + e);
+        }
+        assertEquals(-1, execution.onFailure(new SQLTransientConnectionException("rejected"), true));
+    }
+
+    private AutoExecutor createAutoExecutor(RetryPolicy retryPolicy) {
+        return new AutoExecutor(dataSource, DatabaseServerTypes.H2_IN_MEMORY, TransactionIsolation.READ_COMMITTED, retryPolicy);
+    }
+
+    private static void sleep(long milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class FailingDataSource implements DataSource {
+        private final DataSource dataSource;
+        private final AtomicInteger failures;
+        private final AtomicInteger calls;
+
+        FailingDataSource(DataSource dataSource) {
+            this.dataSource = dataSource;
+            this.failures = new AtomicInteger(0);
+            this.calls = new AtomicInteger(0);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            calls.incrementAndGet();
+            if(failures.getAndDecrement() > 0) {
+                throw new SQLTransientConnectionException("Simulated connection error");
+            }
+            return dataSource.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException("Cannot unwrap FailingDataSource");
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return false;
+        }
+    }
+}